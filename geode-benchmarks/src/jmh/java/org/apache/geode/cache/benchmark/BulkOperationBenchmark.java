@@ -0,0 +1,89 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.geode.cache.benchmark;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.geode.cache.Cache;
+import org.apache.geode.cache.CacheFactory;
+import org.apache.geode.cache.Region;
+import org.apache.geode.cache.RegionShortcut;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures putAll and getAll on replicated and partitioned regions for several batch sizes.
+ */
+@Fork(3)
+public class BulkOperationBenchmark {
+
+  @State(Scope.Benchmark)
+  public static class CacheState {
+    @Param({"REPLICATE", "PARTITION"})
+    RegionShortcut shortcut;
+
+    @Param({"10", "100", "1000"})
+    int batchSize;
+
+    Cache cache;
+    Region<Integer, String> region;
+    Map<Integer, String> batch;
+    List<Integer> keys;
+
+    @Setup
+    public void setup() {
+      cache = new CacheFactory().set("mcast-port", "0").set("locators", "").create();
+
+      region = cache.<Integer, String>createRegionFactory(shortcut).create("region");
+
+      batch = new HashMap<>();
+      keys = new ArrayList<>(batchSize);
+      for (int i = 0; i < batchSize; i++) {
+        batch.put(i, "value" + i);
+        keys.add(i);
+      }
+      region.putAll(batch);
+    }
+
+    @TearDown
+    public void tearDown() {
+      cache.close();
+    }
+  }
+
+  @Benchmark
+  @Warmup(iterations = 10)
+  @Measurement(iterations = 10)
+  public void putAll(CacheState state) {
+    state.region.putAll(state.batch);
+  }
+
+  @Benchmark
+  @Warmup(iterations = 10)
+  @Measurement(iterations = 10)
+  public Object getAll(CacheState state) {
+    return state.region.getAll(state.keys);
+  }
+}
@@ -0,0 +1,98 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.geode.cache.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Random;
+
+import org.apache.commons.io.FileUtils;
+
+import org.apache.geode.cache.Cache;
+import org.apache.geode.cache.CacheFactory;
+import org.apache.geode.cache.Region;
+import org.apache.geode.cache.RegionShortcut;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures puts into a persistent region, which append a record to the current Oplog for every
+ * operation. Runs with both synchronous and asynchronous disk writes.
+ */
+@Fork(3)
+public class OplogBenchmark {
+
+  static final int ENTRY_COUNT = 10000;
+
+  @State(Scope.Benchmark)
+  public static class CacheState {
+    @Param({"true", "false"})
+    boolean diskSynchronous;
+
+    @Param({"100", "1000"})
+    int valueSize;
+
+    File diskDir;
+    Cache cache;
+    Region<Integer, byte[]> region;
+
+    @Setup
+    public void setup() throws IOException {
+      diskDir = Files.createTempDirectory("OplogBenchmark").toFile();
+      cache = new CacheFactory().set("mcast-port", "0").set("locators", "").create();
+
+      cache.createDiskStoreFactory().setDiskDirs(new File[] {diskDir}).create("diskStore");
+      region = cache.<Integer, byte[]>createRegionFactory(RegionShortcut.LOCAL_PERSISTENT)
+          .setDiskStoreName("diskStore").setDiskSynchronous(diskSynchronous).create("region");
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+      cache.close();
+      FileUtils.deleteDirectory(diskDir);
+    }
+  }
+
+  @State(Scope.Thread)
+  public static class KeyState {
+    // fixed seed so that every run touches the same key sequence
+    private final Random random = new Random(0);
+    private byte[] value;
+
+    @Setup
+    public void setup(CacheState state) {
+      value = new byte[state.valueSize];
+    }
+
+    int nextKey() {
+      return random.nextInt(ENTRY_COUNT);
+    }
+  }
+
+  @Benchmark
+  @Warmup(iterations = 10)
+  @Measurement(iterations = 10)
+  public Object put(CacheState state, KeyState keys) {
+    return state.region.put(keys.nextKey(), keys.value);
+  }
+}
@@ -0,0 +1,86 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.geode.cache.benchmark;
+
+import java.util.Random;
+
+import org.apache.geode.cache.Cache;
+import org.apache.geode.cache.CacheFactory;
+import org.apache.geode.cache.Region;
+import org.apache.geode.cache.RegionShortcut;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures single member PartitionedRegion put and get, which go through bucket resolution and
+ * the BucketRegion write path instead of the LocalRegion one.
+ */
+@Fork(3)
+public class PartitionedRegionBenchmark {
+
+  static final int ENTRY_COUNT = 10000;
+
+  @State(Scope.Benchmark)
+  public static class CacheState {
+    Cache cache;
+    Region<Integer, String> region;
+
+    @Setup
+    public void setup() {
+      cache = new CacheFactory().set("mcast-port", "0").set("locators", "").create();
+
+      region = cache.<Integer, String>createRegionFactory(RegionShortcut.PARTITION)
+          .create("region");
+      for (int i = 0; i < ENTRY_COUNT; i++) {
+        region.put(i, "value" + i);
+      }
+    }
+
+    @TearDown
+    public void tearDown() {
+      cache.close();
+    }
+  }
+
+  @State(Scope.Thread)
+  public static class KeyState {
+    // fixed seed so that every run touches the same key sequence
+    private final Random random = new Random(0);
+
+    int nextKey() {
+      return random.nextInt(ENTRY_COUNT);
+    }
+  }
+
+  @Benchmark
+  @Warmup(iterations = 10)
+  @Measurement(iterations = 10)
+  public Object put(CacheState state, KeyState keys) {
+    return state.region.put(keys.nextKey(), "value");
+  }
+
+  @Benchmark
+  @Warmup(iterations = 10)
+  @Measurement(iterations = 10)
+  public Object get(CacheState state, KeyState keys) {
+    return state.region.get(keys.nextKey());
+  }
+}
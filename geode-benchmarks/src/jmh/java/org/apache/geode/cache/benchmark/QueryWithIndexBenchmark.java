@@ -0,0 +1,119 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.geode.cache.benchmark;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import org.apache.geode.cache.Cache;
+import org.apache.geode.cache.CacheFactory;
+import org.apache.geode.cache.Region;
+import org.apache.geode.cache.RegionShortcut;
+import org.apache.geode.cache.query.FunctionDomainException;
+import org.apache.geode.cache.query.NameResolutionException;
+import org.apache.geode.cache.query.Query;
+import org.apache.geode.cache.query.QueryInvocationTargetException;
+import org.apache.geode.cache.query.SelectResults;
+import org.apache.geode.cache.query.TypeMismatchException;
+import org.apache.geode.cache.query.internal.index.AbstractIndex;
+import org.apache.geode.cache.query.internal.index.CompactRangeIndex;
+import org.apache.geode.cache.query.internal.index.HashIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures a bind parameter equality query answered by either a CompactRangeIndex or a HashIndex.
+ */
+@Fork(3)
+public class QueryWithIndexBenchmark {
+
+  static final int ENTRY_COUNT = 10000;
+
+  public enum IndexType {
+    COMPACT_RANGE, HASH
+  }
+
+  @State(Scope.Benchmark)
+  public static class CacheState {
+    @Param({"COMPACT_RANGE", "HASH"})
+    IndexType indexType;
+
+    Cache cache;
+    Region<Integer, RangeQueryWithIndexBenchmark.Value> region;
+    Query query;
+
+    @Setup
+    public void setup() {
+      cache = new CacheFactory().set("mcast-port", "0").set("locators", "").create();
+
+      region = cache.<Integer, RangeQueryWithIndexBenchmark.Value>createRegionFactory(
+          RegionShortcut.REPLICATE).create("region");
+      try {
+        AbstractIndex index;
+        if (indexType == IndexType.HASH) {
+          index = (AbstractIndex) cache.getQueryService().createHashIndex("id", "id", "/region");
+          assertEquals(HashIndex.class, index.getClass());
+        } else {
+          index = (AbstractIndex) cache.getQueryService().createIndex("id", "id", "/region");
+          assertEquals(CompactRangeIndex.class, index.getClass());
+        }
+
+        IntStream.range(0, ENTRY_COUNT)
+            .forEach(i -> region.put(i, new RangeQueryWithIndexBenchmark.Value(i)));
+        query = cache.getQueryService().newQuery("select * from /region where id = $1");
+
+        // Do the query once to make sure it's actually returning results
+        // And using the index
+        SelectResults results = (SelectResults) query.execute(new Object[] {1});
+        assertEquals(1, results.size());
+        assertEquals(1, index.getStatistics().getTotalUses());
+      } catch (Exception e) {
+        throw new RuntimeException(e);
+      }
+    }
+
+    @TearDown
+    public void tearDown() {
+      cache.close();
+    }
+  }
+
+  @State(Scope.Thread)
+  public static class KeyState {
+    // fixed seed so that every run queries the same id sequence
+    private final Random random = new Random(0);
+
+    Object[] nextParams() {
+      return new Object[] {random.nextInt(ENTRY_COUNT)};
+    }
+  }
+
+  @Benchmark
+  @Warmup(iterations = 10)
+  @Measurement(iterations = 10)
+  public Object query(CacheState state, KeyState keys) throws NameResolutionException,
+      TypeMismatchException, QueryInvocationTargetException, FunctionDomainException {
+    return state.query.execute(keys.nextParams());
+  }
+}
@@ -0,0 +1,128 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.geode.cache.benchmark;
+
+import java.util.Random;
+import java.util.UUID;
+
+import org.apache.geode.cache.Cache;
+import org.apache.geode.cache.CacheFactory;
+import org.apache.geode.cache.Region;
+import org.apache.geode.cache.RegionShortcut;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures LocalRegion get and put against each RegionEntry flavor. The parameters select the
+ * generated entry class: statistics pick VMThin vs VMStats, offHeap picks Heap vs OffHeap and the
+ * key type picks the IntKey, LongKey, StringKey1 or UUIDKey inline key variant.
+ */
+@Fork(3)
+public class RegionEntryBenchmark {
+
+  static final int ENTRY_COUNT = 10000;
+
+  public enum KeyType {
+    INT, LONG, STRING, UUID;
+
+    Object createKey(int i) {
+      switch (this) {
+        case INT:
+          return i;
+        case LONG:
+          return (long) i;
+        case STRING:
+          return "k" + i;
+        case UUID:
+          return new UUID(0L, i);
+        default:
+          throw new IllegalStateException("unknown key type " + this);
+      }
+    }
+  }
+
+  @State(Scope.Benchmark)
+  public static class CacheState {
+    @Param({"INT", "LONG", "STRING", "UUID"})
+    KeyType keyType;
+
+    @Param({"false", "true"})
+    boolean statisticsEnabled;
+
+    @Param({"false", "true"})
+    boolean offHeap;
+
+    Cache cache;
+    Region<Object, Object> region;
+    Object[] keys;
+
+    @Setup
+    public void setup() {
+      CacheFactory cacheFactory = new CacheFactory().set("mcast-port", "0").set("locators", "");
+      if (offHeap) {
+        cacheFactory.set("off-heap-memory-size", "64m");
+      }
+      cache = cacheFactory.create();
+
+      // concurrency checks are disabled so that the unversioned entry classes are used
+      region = cache.createRegionFactory(RegionShortcut.LOCAL)
+          .setStatisticsEnabled(statisticsEnabled).setOffHeap(offHeap)
+          .setConcurrencyChecksEnabled(false).create("region");
+
+      keys = new Object[ENTRY_COUNT];
+      for (int i = 0; i < ENTRY_COUNT; i++) {
+        keys[i] = keyType.createKey(i);
+        region.put(keys[i], new byte[64]);
+      }
+    }
+
+    @TearDown
+    public void tearDown() {
+      cache.close();
+    }
+  }
+
+  @State(Scope.Thread)
+  public static class KeyState {
+    // fixed seed so that every run touches the same key sequence
+    private final Random random = new Random(0);
+    final byte[] value = new byte[64];
+
+    Object nextKey(CacheState state) {
+      return state.keys[random.nextInt(ENTRY_COUNT)];
+    }
+  }
+
+  @Benchmark
+  @Warmup(iterations = 10)
+  @Measurement(iterations = 10)
+  public Object get(CacheState state, KeyState keys) {
+    return state.region.get(keys.nextKey(state));
+  }
+
+  @Benchmark
+  @Warmup(iterations = 10)
+  @Measurement(iterations = 10)
+  public Object put(CacheState state, KeyState keys) {
+    return state.region.put(keys.nextKey(state), keys.value);
+  }
+}
@@ -0,0 +1,143 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.geode.cache.benchmark;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import org.apache.geode.DataSerializable;
+import org.apache.geode.DataSerializer;
+import org.apache.geode.cache.Cache;
+import org.apache.geode.cache.CacheFactory;
+import org.apache.geode.internal.util.BlobHelper;
+import org.apache.geode.pdx.PdxReader;
+import org.apache.geode.pdx.PdxSerializable;
+import org.apache.geode.pdx.PdxWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures DataSerializer and PDX round trips (serialize followed by deserialize) of a small value
+ * object, which is what every put and get of a non primitive value pays on the wire and on disk.
+ */
+@Fork(3)
+public class SerializationBenchmark {
+
+  @State(Scope.Benchmark)
+  public static class CacheState {
+    Cache cache;
+    DataSerializableValue dataSerializableValue;
+    PdxValue pdxValue;
+    byte[] pdxBytes;
+
+    @Setup
+    public void setup() throws IOException {
+      // a cache is needed for the PDX type registry
+      cache = new CacheFactory().set("mcast-port", "0").set("locators", "").create();
+
+      dataSerializableValue = new DataSerializableValue(1, "name", 2.0d);
+      pdxValue = new PdxValue(1, "name", 2.0d);
+      pdxBytes = BlobHelper.serializeToBlob(pdxValue);
+    }
+
+    @TearDown
+    public void tearDown() {
+      cache.close();
+    }
+  }
+
+  @Benchmark
+  @Warmup(iterations = 10)
+  @Measurement(iterations = 10)
+  public Object dataSerializableRoundTrip(CacheState state)
+      throws IOException, ClassNotFoundException {
+    return BlobHelper.deserializeBlob(BlobHelper.serializeToBlob(state.dataSerializableValue));
+  }
+
+  @Benchmark
+  @Warmup(iterations = 10)
+  @Measurement(iterations = 10)
+  public Object pdxRoundTrip(CacheState state) throws IOException, ClassNotFoundException {
+    return BlobHelper.deserializeBlob(BlobHelper.serializeToBlob(state.pdxValue));
+  }
+
+  @Benchmark
+  @Warmup(iterations = 10)
+  @Measurement(iterations = 10)
+  public Object pdxDeserialize(CacheState state) throws IOException, ClassNotFoundException {
+    return BlobHelper.deserializeBlob(state.pdxBytes);
+  }
+
+  public static class DataSerializableValue implements DataSerializable {
+    private int id;
+    private String name;
+    private double amount;
+
+    public DataSerializableValue() {}
+
+    public DataSerializableValue(int id, String name, double amount) {
+      this.id = id;
+      this.name = name;
+      this.amount = amount;
+    }
+
+    @Override
+    public void toData(DataOutput out) throws IOException {
+      out.writeInt(id);
+      DataSerializer.writeString(name, out);
+      out.writeDouble(amount);
+    }
+
+    @Override
+    public void fromData(DataInput in) throws IOException, ClassNotFoundException {
+      id = in.readInt();
+      name = DataSerializer.readString(in);
+      amount = in.readDouble();
+    }
+  }
+
+  public static class PdxValue implements PdxSerializable {
+    private int id;
+    private String name;
+    private double amount;
+
+    public PdxValue() {}
+
+    public PdxValue(int id, String name, double amount) {
+      this.id = id;
+      this.name = name;
+      this.amount = amount;
+    }
+
+    @Override
+    public void toData(PdxWriter writer) {
+      writer.writeInt("id", id).writeString("name", name).writeDouble("amount", amount);
+    }
+
+    @Override
+    public void fromData(PdxReader reader) {
+      id = reader.readInt("id");
+      name = reader.readString("name");
+      amount = reader.readDouble("amount");
+    }
+  }
+}
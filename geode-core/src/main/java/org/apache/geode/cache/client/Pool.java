@@ -19,6 +19,7 @@ import java.util.Properties;
 
 import org.apache.geode.cache.Cache;
 import org.apache.geode.cache.RegionFactory;
+import org.apache.geode.cache.query.QueryCursor;
 import org.apache.geode.cache.query.QueryService;
 
 
@@ -246,6 +247,26 @@ public interface Pool {
    */
   public QueryService getQueryService();
 
+  /**
+   * Opens a cursor over the results of a query on one of the servers that are associated with this
+   * pool. The server evaluates the query and sends its results a page at a time as they are fetched
+   * with {@link QueryCursor#nextPage()}, instead of sending all of them at once the way queries of
+   * the {@link #getQueryService() QueryService} of this pool do.
+   *
+   * @param queryString the <code>SELECT</code> query to execute
+   * @param pageSize the maximum number of results in a page
+   * @param params the values of the bind parameters of the query, if it has any
+   * @return a cursor over the results of the query, holding its first page
+   * @throws IllegalArgumentException if pageSize is not positive
+   * @throws ServerOperationException if the server failed to evaluate the query
+   * @throws UnsupportedOperationException if this pool does not support query cursors
+   * @see QueryCursor
+   */
+  public default <E> QueryCursor<E> openQueryCursor(String queryString, int pageSize,
+      Object... params) {
+    throw new UnsupportedOperationException();
+  }
+
   /**
    * Returns the approximate number of pending subscription events maintained at server for this
    * durable client pool at the time it (re)connected to the server. Server would start dispatching
@@ -17,6 +17,7 @@ package org.apache.geode.cache.client.internal;
 import java.io.ByteArrayInputStream;
 import java.io.DataInputStream;
 import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
 
 import org.apache.logging.log4j.Logger;
 
@@ -150,16 +151,27 @@ public abstract class AbstractOp implements Op {
    * @throws Exception if the execute failed
    */
   protected Object attemptReadResponse(Connection cnx) throws Exception {
+    return attemptReadResponse(cnx, cnx.getCommBuffer());
+  }
+
+  /**
+   * Like {@link #attemptReadResponse(Connection)} but reads the response through the given buffer
+   * instead of the one of the connection, which a {@link PipelinedConnection} uses to send other
+   * ops while this response is read.
+   */
+  protected Object attemptReadResponse(Connection cnx, ByteBuffer commBuffer) throws Exception {
     Message msg = createResponseMessage();
     if (msg != null) {
-      msg.setComms(cnx.getSocket(), cnx.getInputStream(), cnx.getOutputStream(),
-          cnx.getCommBuffer(), cnx.getStats());
+      msg.setComms(cnx.getSocket(), cnx.getInputStream(), cnx.getOutputStream(), commBuffer,
+          cnx.getStats());
       if (msg instanceof ChunkedMessage) {
         try {
           return processResponse(msg, cnx);
         } finally {
           msg.unsetComms();
           processSecureBytes(cnx, msg);
+          // gives the buffers of large parts back to their pool
+          msg.clearParts();
         }
       } else {
         try {
@@ -168,7 +180,11 @@ public abstract class AbstractOp implements Op {
           msg.unsetComms();
           processSecureBytes(cnx, msg);
         }
-        return processResponse(msg, cnx);
+        try {
+          return processResponse(msg, cnx);
+        } finally {
+          msg.clearParts();
+        }
       }
     } else {
       return null;
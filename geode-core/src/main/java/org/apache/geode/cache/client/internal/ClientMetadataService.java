@@ -590,6 +590,8 @@ public final class ClientMetadataService {
     if (this.nonPRs.contains(region.getFullPath())) {
       return;
     }
+    // only called when the server reported that the op took more than one hop
+    region.getCachePerfStats().incNonSingleHopsCount();
     ClientPartitionAdvisor advisor = this.getClientPartitionAdvisor(region.getFullPath());
     if (advisor != null && advisor.getServerGroup().length() != 0
         && HONOUR_SERVER_GROUP_IN_PR_SINGLE_HOP) {
@@ -650,6 +652,29 @@ public final class ClientMetadataService {
     }
   }
 
+  /**
+   * Fetches the metadata of the given region now, instead of in the background, and returns the
+   * server that is primary for the buckets of most of the given keys, or null if the region has no
+   * metadata. Used to send the keys of a server that failed again, as one batch, to where most of
+   * them are now.
+   */
+  public ServerLocation getPrimaryServerForMostKeys(Collection keys, LocalRegion region) {
+    getClientPRMetadata(region);
+    Map<ServerLocation, HashSet> serverToKeys = getServerToFilterMap(keys, region, true);
+    if (serverToKeys == null) {
+      return null;
+    }
+    ServerLocation result = null;
+    int most = 0;
+    for (Map.Entry<ServerLocation, HashSet> entry : serverToKeys.entrySet()) {
+      if (entry.getValue().size() > most) {
+        most = entry.getValue().size();
+        result = entry.getKey();
+      }
+    }
+    return result == null ? null : new ServerLocation(result.getHostName(), result.getPort());
+  }
+
   public void removeBucketServerLocation(ServerLocation serverLocation) {
     Set<String> keys = getAllRegionFullPaths();
     final boolean isDebugEnabled = logger.isDebugEnabled();
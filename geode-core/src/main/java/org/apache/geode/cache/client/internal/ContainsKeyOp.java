@@ -14,6 +14,8 @@
  */
 package org.apache.geode.cache.client.internal;
 
+import java.util.concurrent.CompletableFuture;
+
 import org.apache.geode.internal.cache.tier.MessageType;
 import org.apache.geode.internal.cache.tier.sockets.Message;
 
@@ -38,6 +40,22 @@ public class ContainsKeyOp {
     return result.booleanValue();
   }
 
+  /**
+   * Sends a region entry containsKey to a server on the pipelined connection of the given pool
+   * without waiting for the response.
+   * 
+   * @param pool the pool to use to communicate with the server.
+   * @param region the name of the region to do the entry containsKey on
+   * @param key the entry key to do the containsKey on
+   * @return a future completed with the result of invoking containsKey on the server
+   * @see PoolImpl#executeAsync(AbstractOp)
+   */
+  public static CompletableFuture<Boolean> executeAsync(PoolImpl pool, String region, Object key,
+      MODE mode) {
+    return pool.executeAsync(new ContainsKeyOpImpl(region, key, mode))
+        .thenApply(result -> (Boolean) result);
+  }
+
   private ContainsKeyOp() {
     // no instances allowed
   }
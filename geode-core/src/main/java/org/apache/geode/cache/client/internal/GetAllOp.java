@@ -71,43 +71,89 @@ public class GetAllOp {
       op.initMessagePart();
       return ((VersionedObjectList) pool.execute(op)).setKeys(keys);
     } else {
-      VersionedObjectList result = null;
-      ServerConnectivityException se = null;
+      List<VersionedObjectList> results = new ArrayList<VersionedObjectList>();
       List retryList = new ArrayList();
-      List callableTasks =
-          constructGetAllTasks(region.getFullPath(), serverToFilterMap, (PoolImpl) pool, callback);
-      Map<ServerLocation, Object> results = SingleHopClientExecutor.submitGetAll(serverToFilterMap,
-          callableTasks, cms, (LocalRegion) region);
-      for (ServerLocation server : results.keySet()) {
-        Object serverResult = results.get(server);
-        if (serverResult instanceof ServerConnectivityException) {
-          se = (ServerConnectivityException) serverResult;
-          retryList.addAll(serverToFilterMap.get(server));
-        } else {
-          if (result == null) {
-            result = (VersionedObjectList) serverResult;
-          } else {
-            result.addAll((VersionedObjectList) serverResult);
-          }
-        }
-      }
-
+      ServerConnectivityException se =
+          executeOnServers(pool, region, serverToFilterMap, callback, results, retryList);
       if (se != null) {
         if (retryAttempts == 0) {
           throw se;
         } else {
-          VersionedObjectList retryResult =
-              GetAllOp.execute(pool, region.getFullPath(), retryList, callback);
-          if (result == null) {
-            result = retryResult;
-          } else {
-            result.addAll(retryResult);
-          }
+          results.add(retry(pool, region, retryList, callback));
         }
       }
+      return merge(results);
+    }
+  }
+
+  /**
+   * Sends each server the keys it is primary for, in parallel. The result of each server that
+   * answers is added to results and the keys of each server that can not be reached are added to
+   * failedKeys.
+   *
+   * @return the exception of the last server that could not be reached, or null if all answered
+   */
+  private static ServerConnectivityException executeOnServers(ExecutablePool pool, Region region,
+      Map<ServerLocation, HashSet> serverToFilterMap, Object callback,
+      List<VersionedObjectList> results, List failedKeys) {
+    ServerConnectivityException se = null;
+    List callableTasks =
+        constructGetAllTasks(region.getFullPath(), serverToFilterMap, (PoolImpl) pool, callback);
+    Map<ServerLocation, Object> serverResults =
+        SingleHopClientExecutor.submitGetAll(serverToFilterMap, callableTasks,
+            ((LocalRegion) region).getCache().getClientMetadataService(), (LocalRegion) region);
+    for (ServerLocation server : serverResults.keySet()) {
+      Object serverResult = serverResults.get(server);
+      if (serverResult instanceof ServerConnectivityException) {
+        se = (ServerConnectivityException) serverResult;
+        failedKeys.addAll(serverToFilterMap.get(server));
+      } else {
+        results.add((VersionedObjectList) serverResult);
+      }
+    }
+    return se;
+  }
+
+  private static VersionedObjectList merge(List<VersionedObjectList> results) {
+    VersionedObjectList result = null;
+    for (VersionedObjectList serverResult : results) {
+      if (result == null) {
+        result = serverResult;
+      } else {
+        result.addAll(serverResult);
+      }
+    }
+    return result;
+  }
 
-      return result;
+  /**
+   * Gets the keys of the servers that failed again. Gets can be split differently than the first
+   * time, so once the metadata has been refreshed the keys are split by their new primaries and
+   * sent in parallel. The results of the servers that answer are kept, and only the keys of the
+   * servers that fail again are sent to any server.
+   */
+  private static VersionedObjectList retry(ExecutablePool pool, Region region, List keys,
+      Object callback) {
+    LocalRegion lr = (LocalRegion) region;
+    lr.getCachePerfStats().incSingleHopBulkOpRetries();
+    ClientMetadataService cms = lr.getCache().getClientMetadataService();
+    cms.getClientPRMetadata(lr);
+    List<VersionedObjectList> results = new ArrayList<VersionedObjectList>();
+    List failedKeys = keys;
+    Map<ServerLocation, HashSet> serverToFilterMap = cms.getServerToFilterMap(keys, region, true);
+    if (serverToFilterMap != null && !serverToFilterMap.isEmpty()) {
+      failedKeys = new ArrayList();
+      ServerConnectivityException se =
+          executeOnServers(pool, region, serverToFilterMap, callback, results, failedKeys);
+      if (se != null && logger.isDebugEnabled()) {
+        logger.debug("GetAll single hop retry failed for {} keys, retrying them on any server",
+            failedKeys.size(), se);
+      }
+    }
+    if (!failedKeys.isEmpty()) {
+      results.add(execute(pool, region.getFullPath(), failedKeys, callback));
     }
+    return merge(results);
   }
 
   private GetAllOp() {
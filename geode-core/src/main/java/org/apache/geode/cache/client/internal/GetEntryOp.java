@@ -14,6 +14,7 @@
  */
 package org.apache.geode.cache.client.internal;
 
+import org.apache.geode.distributed.internal.membership.InternalDistributedMember;
 import org.apache.geode.internal.cache.EntrySnapshot;
 import org.apache.geode.internal.cache.LocalRegion;
 import org.apache.geode.internal.cache.tier.MessageType;
@@ -59,6 +60,17 @@ public class GetEntryOp {
       return snap;
     }
 
+    @Override
+    protected Object processResponse(Message msg, Connection con) throws Exception {
+      EntrySnapshot snap = (EntrySnapshot) processResponse(msg);
+      if (snap != null && snap.getVersionTag() != null) {
+        // the server leaves its own id out of the tag, which is needed to apply it locally
+        snap.getVersionTag()
+            .replaceNullIDs((InternalDistributedMember) con.getEndpoint().getMemberId());
+      }
+      return snap;
+    }
+
     @Override
     protected boolean isErrorResponse(int msgType) {
       return msgType == MessageType.REQUESTDATAERROR;
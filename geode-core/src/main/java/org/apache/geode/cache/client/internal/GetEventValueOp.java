@@ -77,7 +77,10 @@ public class GetEventValueOp {
       Part part = msg.getPart(0);
       final int msgType = msg.getMessageType();
       if (msgType == MessageType.RESPONSE) {
-        return part;
+        // the response message is cleared once this returns, so hand back a part of its own
+        Part result = new Part();
+        result.setPartState(part.getSerializedForm(), part.isObject());
+        return result;
       } else {
         if (msgType == MessageType.REQUEST_EVENT_VALUE_ERROR) {
           // Value not found in haContainer.
@@ -14,6 +14,8 @@
  */
 package org.apache.geode.cache.client.internal;
 
+import java.util.concurrent.CompletableFuture;
+
 import org.apache.logging.log4j.Logger;
 
 import org.apache.geode.cache.CacheClosedException;
@@ -92,6 +94,21 @@ public class GetOp {
     return pool.execute(op);
   }
 
+  /**
+   * Sends a region get to a server on the pipelined connection of the given pool without waiting
+   * for the response.
+   * 
+   * @param pool the pool to use to communicate with the server.
+   * @param region the region to do the get on
+   * @param key the entry key to do the get on
+   * @param callbackArg an optional callback arg to pass to any cache callbacks
+   * @return a future completed with the entry value found by the get if any
+   * @see PoolImpl#executeAsync(AbstractOp)
+   */
+  public static CompletableFuture<Object> executeAsync(PoolImpl pool, LocalRegion region,
+      Object key, Object callbackArg) {
+    return pool.executeAsync(new GetOpImpl(region, key, callbackArg, false, null));
+  }
 
   private GetOp() {
     // no instances allowed
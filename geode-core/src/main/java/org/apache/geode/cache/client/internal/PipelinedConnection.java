@@ -0,0 +1,236 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.geode.cache.client.internal;
+
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import org.apache.logging.log4j.Logger;
+
+import org.apache.geode.cache.client.ServerConnectivityException;
+import org.apache.geode.cache.client.ServerOperationException;
+import org.apache.geode.internal.cache.tier.sockets.ServerConnection;
+import org.apache.geode.internal.logging.LogService;
+import org.apache.geode.internal.logging.LoggingThreadGroup;
+
+/**
+ * A connection to a server on which many ops are in flight at once. Any thread sends its op as
+ * soon as the ops before it have been written, without waiting for their responses, and a reader
+ * thread reads the responses and completes the future of each op. A server processes the messages
+ * of a connection one at a time and in order, so the responses come back in the order the ops were
+ * sent.
+ * <p>
+ * The ops sent on a pipelined connection must do exactly one send and one read, so ops that
+ * override {@link AbstractOp#attempt(Connection)} cannot be used. Ops are not retried; when the
+ * connection fails all the ops in flight on it fail with a {@link ServerConnectivityException}.
+ * <p>
+ * A pool only uses a pipelined connection when {@link PoolImpl#ENABLE_PIPELINING} is set, since
+ * the connection is not managed by its {@link ConnectionManager}.
+ *
+ * @see PoolImpl#executeAsync(AbstractOp)
+ */
+class PipelinedConnection {
+  private static final Logger logger = LogService.getLogger();
+
+  private final Connection cnx;
+
+  /**
+   * The buffer responses are read through. The buffer of {@link #cnx} is used to send.
+   */
+  private final ByteBuffer readBuffer;
+
+  /** The ops that were sent and whose responses have not been read yet, in the order sent */
+  private final LinkedBlockingQueue<PendingOp> inFlight = new LinkedBlockingQueue<PendingOp>();
+
+  private final Thread reader;
+
+  /** Guarded by the send lock, which is this object */
+  private boolean closed;
+
+  private volatile Exception failure;
+
+  PipelinedConnection(Connection cnx, int socketBufferSize) {
+    this.cnx = cnx;
+    this.readBuffer = ServerConnection.allocateCommBuffer(socketBufferSize, cnx.getSocket());
+    ThreadGroup group =
+        LoggingThreadGroup.createThreadGroup("Pipelined Connection Reader Threads", logger);
+    this.reader = new Thread(group, new Runnable() {
+      public void run() {
+        readResponses();
+      }
+    }, "Pipelined Connection Reader for " + cnx.getServer());
+    this.reader.setDaemon(true);
+    this.reader.start();
+  }
+
+  Connection getConnection() {
+    return this.cnx;
+  }
+
+  /**
+   * Returns false once this connection has failed or been closed.
+   */
+  synchronized boolean isOpen() {
+    return !this.closed;
+  }
+
+  /**
+   * Sends the message of the given op and returns a future that is completed with its result once
+   * its response has been read.
+   */
+  CompletableFuture<Object> execute(AbstractOp op) {
+    PendingOp pending = new PendingOp(op);
+    synchronized (this) {
+      if (this.closed) {
+        pending.future.completeExceptionally(connectionFailed(this.failure));
+        return pending.future;
+      }
+      op.failed = true;
+      op.timedOut = false;
+      pending.start = op.startAttempt(this.cnx.getStats());
+      try {
+        op.attemptSend(this.cnx);
+        op.failed = false;
+      } catch (Exception e) {
+        op.endSendAttempt(this.cnx.getStats(), pending.start);
+        op.endAttempt(this.cnx.getStats(), pending.start);
+        pending.future.completeExceptionally(connectionFailed(e));
+        // part of the message may have been written so nothing else can be sent
+        fail(e);
+        return pending.future;
+      }
+      op.endSendAttempt(this.cnx.getStats(), pending.start);
+      op.failed = true;
+      this.inFlight.add(pending);
+    }
+    return pending.future;
+  }
+
+  private void readResponses() {
+    try {
+      while (true) {
+        PendingOp pending = this.inFlight.take();
+        if (pending == PendingOp.CLOSED) {
+          return;
+        }
+        AbstractOp op = pending.op;
+        Object result;
+        try {
+          result = op.attemptReadResponse(this.cnx, this.readBuffer);
+          op.failed = false;
+        } catch (ServerOperationException e) {
+          // the whole response was read, only this op failed
+          op.failed = false;
+          op.endAttempt(this.cnx.getStats(), pending.start);
+          pending.future.completeExceptionally(e);
+          continue;
+        } catch (Exception e) {
+          if (e instanceof SocketTimeoutException) {
+            op.timedOut = true;
+          }
+          op.endAttempt(this.cnx.getStats(), pending.start);
+          pending.future.completeExceptionally(connectionFailed(e));
+          fail(e);
+          return;
+        }
+        op.endAttempt(this.cnx.getStats(), pending.start);
+        pending.future.complete(result);
+      }
+    } catch (InterruptedException e) {
+      fail(e);
+    } finally {
+      ServerConnection.releaseCommBuffer(this.readBuffer);
+    }
+  }
+
+  private ServerConnectivityException connectionFailed(Exception cause) {
+    return new ServerConnectivityException("Pipelined connection to " + this.cnx.getServer()
+        + " failed; the op may or may not have been done on the server", cause);
+  }
+
+  /**
+   * Destroys the connection and fails the ops in flight on it.
+   */
+  private void fail(Exception cause) {
+    List<PendingOp> failed = markClosed(cause);
+    if (failed == null) {
+      return;
+    }
+    if (logger.isDebugEnabled()) {
+      logger.debug("Pipelined connection to {} failed with {} ops in flight", this.cnx.getServer(),
+          failed.size(), cause);
+    }
+    this.cnx.destroy();
+    failAll(failed, cause);
+  }
+
+  /**
+   * Closes the connection, failing the ops still in flight on it.
+   */
+  void close(boolean keepAlive) {
+    List<PendingOp> failed = markClosed(null);
+    if (failed == null) {
+      return;
+    }
+    try {
+      this.cnx.close(keepAlive);
+    } catch (Exception e) {
+      if (logger.isDebugEnabled()) {
+        logger.debug("Error closing pipelined connection to {}", this.cnx.getServer(), e);
+      }
+    }
+    failAll(failed, null);
+  }
+
+  /**
+   * Returns the ops in flight, which the reader thread will not read, or null if this connection
+   * was already closed.
+   */
+  private synchronized List<PendingOp> markClosed(Exception cause) {
+    if (this.closed) {
+      return null;
+    }
+    this.closed = true;
+    this.failure = cause;
+    List<PendingOp> failed = new ArrayList<PendingOp>();
+    this.inFlight.drainTo(failed);
+    this.inFlight.add(PendingOp.CLOSED);
+    return failed;
+  }
+
+  private void failAll(List<PendingOp> failed, Exception cause) {
+    for (PendingOp pending : failed) {
+      pending.op.endAttempt(this.cnx.getStats(), pending.start);
+      pending.future.completeExceptionally(connectionFailed(cause));
+    }
+  }
+
+  private static class PendingOp {
+    /** Tells the reader thread to stop */
+    static final PendingOp CLOSED = new PendingOp(null);
+
+    final AbstractOp op;
+    final CompletableFuture<Object> future = new CompletableFuture<Object>();
+    long start;
+
+    PendingOp(AbstractOp op) {
+      this.op = op;
+    }
+  }
+}
@@ -19,11 +19,13 @@ import org.apache.geode.CancelException;
 import org.apache.geode.StatisticsFactory;
 import org.apache.geode.SystemFailure;
 import org.apache.geode.cache.*;
+import org.apache.geode.cache.client.NoAvailableServersException;
 import org.apache.geode.cache.client.Pool;
 import org.apache.geode.cache.client.ServerConnectivityException;
 import org.apache.geode.cache.client.SubscriptionNotEnabledException;
 import org.apache.geode.cache.client.internal.pooling.ConnectionManager;
 import org.apache.geode.cache.client.internal.pooling.ConnectionManagerImpl;
+import org.apache.geode.cache.query.QueryCursor;
 import org.apache.geode.cache.query.QueryService;
 import org.apache.geode.cache.query.internal.DefaultQueryService;
 import org.apache.geode.cache.wan.GatewaySender;
@@ -46,6 +48,7 @@ import org.apache.logging.log4j.Logger;
 import java.net.InetSocketAddress;
 import java.util.*;
 import java.util.Map.Entry;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ThreadFactory;
@@ -76,6 +79,14 @@ public class PoolImpl implements InternalPool {
           .getInteger(
               DistributionConfig.GEMFIRE_PREFIX + "PoolImpl.BACKGROUND_TASK_POOL_KEEP_ALIVE", 1000)
           .intValue();
+  /**
+   * Whether {@link #executeAsync(AbstractOp)} sends ops on a pipelined connection. That connection
+   * is created outside the {@link ConnectionManager} so it does not count towards the
+   * max-connections of the pool, is not closed when idle, is not replaced by load conditioning and
+   * does not single hop to the bucket primary. Off by default.
+   */
+  public static final boolean ENABLE_PIPELINING =
+      Boolean.getBoolean(DistributionConfig.GEMFIRE_PREFIX + "PoolImpl.ENABLE_PIPELINING");
   // For durable client tests only. Connection Sources read this flag
   // and return an empty list of servers.
   public volatile static boolean TEST_DURABLE_IS_NET_DOWN = false;
@@ -123,6 +134,12 @@ public class PoolImpl implements InternalPool {
 
   private final ArrayList<ProxyCache> proxyCacheList;
 
+  /** Guarded by this pool */
+  private PipelinedConnection pipelinedConnection;
+
+  /** False once a server has been found to require credentials, guarded by this pool */
+  private boolean pipeliningSupported = true;
+
   private final GatewaySender gatewaySender;
 
   private boolean keepAlive = false;
@@ -566,6 +583,8 @@ public class PoolImpl implements InternalPool {
             LocalizedStrings.PoolImpl_ERROR_ENCOUNTERED_WHILE_STOPPING_CONNECTION_SOURCE), e);
       }
 
+      closePipelinedConnection(keepAlive);
+
       try {
         if (this.queueManager != null) {
           queueManager.close(keepAlive);
@@ -751,6 +770,65 @@ public class PoolImpl implements InternalPool {
     return executor.execute(op, retries);
   }
 
+  /**
+   * Sends the given op to a server on the pipelined connection of this pool, without waiting for
+   * the ops sent before it, and returns a future that is completed with the result of the op. The
+   * op is not retried if the connection fails. If {@link #ENABLE_PIPELINING} is not set, if the
+   * pool uses multiuser authentication, if the servers require credentials or if the calling thread
+   * is in a transaction then the op is executed, with retries, on a pooled connection instead
+   * before this method returns.
+   * 
+   * @param op the operation to execute; it must not override {@link AbstractOp#attempt}
+   * @return a future completed with the result of execution if any; null if not
+   * @see PipelinedConnection
+   */
+  public CompletableFuture<Object> executeAsync(AbstractOp op) {
+    PipelinedConnection pipeline = null;
+    if (ENABLE_PIPELINING && !this.multiuserSecureModeEnabled
+        && TXManagerImpl.getCurrentTXUniqueId() == TXManagerImpl.NOTX) {
+      pipeline = getPipelinedConnection();
+    }
+    if (pipeline != null) {
+      return pipeline.execute(op);
+    }
+    CompletableFuture<Object> result = new CompletableFuture<Object>();
+    try {
+      result.complete(execute(op));
+    } catch (RuntimeException e) {
+      result.completeExceptionally(e);
+    }
+    return result;
+  }
+
+  private synchronized PipelinedConnection getPipelinedConnection() {
+    if (this.pipelinedConnection != null && this.pipelinedConnection.isOpen()) {
+      return this.pipelinedConnection;
+    }
+    this.pipelinedConnection = null;
+    if (!this.pipeliningSupported || isDestroyed()) {
+      return null;
+    }
+    Connection cnx = this.connectionFactory.createClientToServerConnection(Collections.emptySet());
+    if (cnx == null) {
+      throw new NoAvailableServersException();
+    }
+    if (cnx.getServer().getRequiresCredentials()) {
+      // each message must carry the id the server gave in its response to the previous one
+      this.pipeliningSupported = false;
+      cnx.destroy();
+      return null;
+    }
+    this.pipelinedConnection = new PipelinedConnection(cnx, this.socketBufferSize);
+    return this.pipelinedConnection;
+  }
+
+  private synchronized void closePipelinedConnection(boolean keepAlive) {
+    if (this.pipelinedConnection != null) {
+      this.pipelinedConnection.close(keepAlive);
+      this.pipelinedConnection = null;
+    }
+  }
+
   /**
    * Execute the given op on the given server.
    * 
@@ -1377,6 +1455,17 @@ public class PoolImpl implements InternalPool {
     return queryService;
   }
 
+  public <E> QueryCursor<E> openQueryCursor(String queryString, int pageSize, Object... params) {
+    if (pageSize <= 0) {
+      throw new IllegalArgumentException("pageSize must be positive, not " + pageSize);
+    }
+    if (params == null) {
+      params = new Object[0];
+    }
+    return new QueryCursorImpl<E>(this,
+        QueryCursorOp.open(this, queryString, pageSize, params));
+  }
+
   public RegionService createAuthenticatedCacheView(Properties properties) {
     if (!this.multiuserSecureModeEnabled) {
       throw new UnsupportedOperationException(
@@ -29,6 +29,7 @@ import org.apache.logging.log4j.Logger;
 import org.apache.geode.cache.CacheClosedException;
 import org.apache.geode.cache.DataPolicy;
 import org.apache.geode.cache.Region;
+import org.apache.geode.cache.client.ServerConnectivityException;
 import org.apache.geode.cache.client.ServerOperationException;
 import org.apache.geode.distributed.internal.ServerLocation;
 import org.apache.geode.internal.Version;
@@ -185,8 +186,7 @@ public class PutAllOp {
         }
 
         try {
-          VersionedObjectList v =
-              PutAllOp.execute(pool, region, newMap, eventId, skipCallbacks, true, callbackArg);
+          VersionedObjectList v = retry(pool, region, newMap, eventId, skipCallbacks, callbackArg);
           if (v == null) {
             result.addKeys(keySet);
           } else {
@@ -216,6 +216,34 @@ public class PutAllOp {
     return result.getSucceededKeysAndVersions();
   }
 
+  /**
+   * Sends the sub map of a server that failed again, with the same event id, to the server that is
+   * now primary for most of its keys, so that those keys take a single hop. Falls back to any
+   * server if the metadata has no primary for them or that server cannot be reached either.
+   */
+  private static VersionedObjectList retry(ExecutablePool pool, Region region, Map map,
+      EventID eventId, boolean skipCallbacks, Object callbackArg) {
+    LocalRegion lr = (LocalRegion) region;
+    lr.getCachePerfStats().incSingleHopBulkOpRetries();
+    ServerLocation server =
+        lr.getCache().getClientMetadataService().getPrimaryServerForMostKeys(map.keySet(), lr);
+    if (server != null) {
+      AbstractOp op = new PutAllOpImpl(region, map, eventId, true, skipCallbacks, callbackArg);
+      op.initMessagePart();
+      op.getMessage().setIsRetry();
+      try {
+        return (VersionedObjectList) pool.executeOn(server, op);
+      } catch (ServerOperationException e) {
+        throw e;
+      } catch (ServerConnectivityException e) {
+        if (logger.isDebugEnabled()) {
+          logger.debug("PutAll retry on {} failed, retrying on any server", server, e);
+        }
+      }
+    }
+    return PutAllOp.execute(pool, region, map, eventId, skipCallbacks, true, callbackArg);
+  }
+
   private PutAllOp() {
     // no instances allowed
   }
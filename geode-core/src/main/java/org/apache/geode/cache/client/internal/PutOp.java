@@ -35,6 +35,8 @@ import org.apache.geode.internal.logging.LogService;
 
 import java.io.ByteArrayInputStream;
 import java.io.DataInputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.CompletableFuture;
 
 import org.apache.logging.log4j.Logger;
 
@@ -103,6 +105,24 @@ public class PutOp {
     return pool.execute(op);
   }
 
+  /**
+   * Sends a region put to a server on the pipelined connection of the given pool without waiting
+   * for the response. The full value is always sent.
+   * 
+   * @param pool the pool to use to communicate with the server.
+   * @param region the region to do the put on
+   * @param key the entry key to do the put on
+   * @param value the entry value to put
+   * @param event the event for this put
+   * @param callbackArg an optional callback arg to pass to any cache callbacks
+   * @return a future completed once the server has done the put
+   * @see PoolImpl#executeAsync(AbstractOp)
+   */
+  public static CompletableFuture<Object> executeAsync(PoolImpl pool, LocalRegion region,
+      Object key, Object value, EntryEventImpl event, Object callbackArg) {
+    return pool.executeAsync(new PutOpImpl(region, key, value, null, event, Operation.UPDATE,
+        false, null, callbackArg, true, false));
+  }
 
   /**
    * This is a unit test method. It does a region put on a server using the given connection from
@@ -450,15 +470,16 @@ public class PutOp {
      * returning it.
      * 
      * @param cnx the connection to read the response from
+     * @param commBuffer the buffer to read the response through
      * @return the result of the operation or <code>null</code if the operation has no result.
      * @throws Exception if the execute failed
      */
     @Override
-    protected Object attemptReadResponse(Connection cnx) throws Exception {
+    protected Object attemptReadResponse(Connection cnx, ByteBuffer commBuffer) throws Exception {
       Message msg = createResponseMessage();
       if (msg != null) {
-        msg.setComms(cnx.getSocket(), cnx.getInputStream(), cnx.getOutputStream(),
-            cnx.getCommBuffer(), cnx.getStats());
+        msg.setComms(cnx.getSocket(), cnx.getInputStream(), cnx.getOutputStream(), commBuffer,
+            cnx.getStats());
         if (msg instanceof ChunkedMessage) {
           try {
             return processResponse(msg, cnx);
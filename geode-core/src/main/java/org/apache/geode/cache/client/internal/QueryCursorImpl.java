@@ -0,0 +1,98 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.geode.cache.client.internal;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.geode.cache.client.ServerConnectivityException;
+import org.apache.geode.cache.query.QueryCursor;
+import org.apache.geode.distributed.internal.ServerLocation;
+
+/**
+ * The client side of a query cursor. It holds the first page of results, which is returned when
+ * the cursor is opened, and reads every other page from the server that opened the cursor.
+ */
+public class QueryCursorImpl<E> implements QueryCursor<E> {
+
+  private final ExecutablePool pool;
+
+  private final ServerLocation server;
+
+  private final long cursorId;
+
+  /**
+   * The first page of results until it is returned, or null if it was empty.
+   */
+  private List<E> firstPage;
+
+  /**
+   * True once the server has sent the last page of this cursor and no longer holds it.
+   */
+  private boolean exhausted;
+
+  private boolean closed;
+
+  public QueryCursorImpl(ExecutablePool pool, QueryCursorOp.Page firstPage) {
+    this.pool = pool;
+    this.server = firstPage.getServer();
+    this.cursorId = firstPage.getCursorId();
+    this.exhausted = firstPage.isExhausted();
+    if (!firstPage.getResults().isEmpty()) {
+      this.firstPage = firstPage.getResults();
+    }
+  }
+
+  public List<E> nextPage() {
+    if (this.closed) {
+      throw new IllegalStateException("The query cursor is closed");
+    }
+    if (this.firstPage != null) {
+      List<E> page = this.firstPage;
+      this.firstPage = null;
+      return page;
+    }
+    if (this.exhausted) {
+      return Collections.emptyList();
+    }
+    QueryCursorOp.Page page = QueryCursorOp.fetch(this.pool, this.server, this.cursorId);
+    this.exhausted = page.isExhausted();
+    return page.getResults();
+  }
+
+  public boolean hasNext() {
+    return !this.closed && (this.firstPage != null || !this.exhausted);
+  }
+
+  public void close() {
+    if (this.closed) {
+      return;
+    }
+    this.closed = true;
+    this.firstPage = null;
+    if (!this.exhausted) {
+      this.exhausted = true;
+      try {
+        QueryCursorOp.close(this.pool, this.server, this.cursorId);
+      } catch (ServerConnectivityException ignore) {
+        // the server is gone, and the cursor with it
+      }
+    }
+  }
+
+  public boolean isClosed() {
+    return this.closed;
+  }
+}
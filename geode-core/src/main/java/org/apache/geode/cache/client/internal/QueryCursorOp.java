@@ -0,0 +1,241 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.geode.cache.client.internal;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.geode.cache.query.internal.StructImpl;
+import org.apache.geode.cache.query.internal.types.StructTypeImpl;
+import org.apache.geode.cache.query.types.CollectionType;
+import org.apache.geode.cache.query.types.ObjectType;
+import org.apache.geode.distributed.internal.ServerLocation;
+import org.apache.geode.internal.cache.tier.MessageType;
+import org.apache.geode.internal.cache.tier.sockets.Message;
+
+/**
+ * Opens, reads and closes a query cursor on a server.
+ *
+ * @see QueryCursorImpl
+ */
+public class QueryCursorOp {
+  /**
+   * Opens a cursor over the results of a query on one of the servers of the given pool.
+   *
+   * @param pool the pool to use to communicate with the server.
+   * @param queryString the query to execute
+   * @param pageSize the maximum number of results in a page
+   * @param queryParams the values of the bind parameters of the query
+   * @return the first page of results, along with the server that holds the cursor
+   */
+  public static Page open(ExecutablePool pool, String queryString, int pageSize,
+      Object[] queryParams) {
+    return (Page) pool.execute(new OpenQueryCursorOpImpl(queryString, pageSize, queryParams));
+  }
+
+  /**
+   * Reads the next page of results of a cursor from the server that opened it.
+   */
+  public static Page fetch(ExecutablePool pool, ServerLocation server, long cursorId) {
+    Page page = (Page) pool.executeOn(server, new FetchQueryCursorOpImpl(cursorId));
+    page.server = server;
+    return page;
+  }
+
+  /**
+   * Closes a cursor on the server that opened it.
+   */
+  public static void close(ExecutablePool pool, ServerLocation server, long cursorId) {
+    pool.executeOn(server, new CloseQueryCursorOpImpl(cursorId));
+  }
+
+  private QueryCursorOp() {
+    // no instances allowed
+  }
+
+  /**
+   * A page of results read from a query cursor.
+   */
+  public static class Page {
+
+    private final long cursorId;
+
+    private final List results;
+
+    private final boolean exhausted;
+
+    private ServerLocation server;
+
+    Page(long cursorId, List results, boolean exhausted) {
+      this.cursorId = cursorId;
+      this.results = results;
+      this.exhausted = exhausted;
+    }
+
+    /**
+     * Returns the id of the cursor on its server.
+     */
+    public long getCursorId() {
+      return this.cursorId;
+    }
+
+    /**
+     * Returns the server that holds the cursor.
+     */
+    public ServerLocation getServer() {
+      return this.server;
+    }
+
+    public List getResults() {
+      return this.results;
+    }
+
+    /**
+     * Returns true if this is the last page of the cursor, which the server no longer holds.
+     */
+    public boolean isExhausted() {
+      return this.exhausted;
+    }
+  }
+
+  private static abstract class QueryCursorOpImpl extends AbstractOp {
+
+    QueryCursorOpImpl(int msgType, int numParts) {
+      super(msgType, numParts);
+    }
+
+    /**
+     * The response holds the id of the cursor, the collection type of the query, the results of
+     * the page with structs sent as arrays of their field values, and whether this is the last
+     * page.
+     */
+    @Override
+    protected Object processResponse(Message msg) throws Exception {
+      Long cursorId = (Long) processObjResponse(msg, getOpName());
+      CollectionType collectionType = (CollectionType) msg.getPart(1).getObject();
+      Object[] resultArray = (Object[]) msg.getPart(2).getObject();
+      boolean exhausted = (Boolean) msg.getPart(3).getObject();
+      ObjectType elementType = collectionType.getElementType();
+      List results;
+      if (elementType.isStructType()) {
+        results = new ArrayList(resultArray.length);
+        for (Object fieldValues : resultArray) {
+          results.add(new StructImpl((StructTypeImpl) elementType, (Object[]) fieldValues));
+        }
+      } else {
+        results = Arrays.asList(resultArray);
+      }
+      return new Page(cursorId, results, exhausted);
+    }
+
+    protected abstract String getOpName();
+
+    @Override
+    protected boolean isErrorResponse(int msgType) {
+      return msgType == MessageType.QUERY_DATA_ERROR;
+    }
+
+    @Override
+    protected long startAttempt(ConnectionStats stats) {
+      return stats.startQuery();
+    }
+
+    @Override
+    protected void endSendAttempt(ConnectionStats stats, long start) {
+      stats.endQuerySend(start, hasFailed());
+    }
+
+    @Override
+    protected void endAttempt(ConnectionStats stats, long start) {
+      stats.endQuery(start, hasTimedOut(), hasFailed());
+    }
+  }
+
+  private static class OpenQueryCursorOpImpl extends QueryCursorOpImpl {
+    /**
+     * @throws org.apache.geode.SerializationException if serialization fails
+     */
+    public OpenQueryCursorOpImpl(String queryString, int pageSize, Object[] queryParams) {
+      super(MessageType.OPEN_QUERY_CURSOR, 3 + queryParams.length);
+      getMessage().addStringPart(queryString);
+      getMessage().addIntPart(pageSize);
+      getMessage().addIntPart(queryParams.length);
+      for (Object param : queryParams) {
+        getMessage().addObjPart(param);
+      }
+    }
+
+    /**
+     * Remembers the server the cursor was opened on, since every page must be read from it.
+     */
+    @Override
+    public Object attempt(Connection cnx) throws Exception {
+      Page page = (Page) super.attempt(cnx);
+      page.server = cnx.getServer();
+      return page;
+    }
+
+    @Override
+    protected String getOpName() {
+      return "openQueryCursor";
+    }
+  }
+
+  private static class FetchQueryCursorOpImpl extends QueryCursorOpImpl {
+    public FetchQueryCursorOpImpl(long cursorId) {
+      super(MessageType.FETCH_QUERY_CURSOR, 1);
+      getMessage().addLongPart(cursorId);
+    }
+
+    @Override
+    protected String getOpName() {
+      return "fetchQueryCursor";
+    }
+  }
+
+  private static class CloseQueryCursorOpImpl extends AbstractOp {
+    public CloseQueryCursorOpImpl(long cursorId) {
+      super(MessageType.CLOSE_QUERY_CURSOR, 1);
+      getMessage().addLongPart(cursorId);
+    }
+
+    @Override
+    protected Object processResponse(Message msg) throws Exception {
+      processAck(msg, "closeQueryCursor");
+      return null;
+    }
+
+    @Override
+    protected boolean isErrorResponse(int msgType) {
+      return false;
+    }
+
+    @Override
+    protected long startAttempt(ConnectionStats stats) {
+      return stats.startQuery();
+    }
+
+    @Override
+    protected void endSendAttempt(ConnectionStats stats, long start) {
+      stats.endQuerySend(start, hasFailed());
+    }
+
+    @Override
+    protected void endAttempt(ConnectionStats stats, long start) {
+      stats.endQuery(start, hasTimedOut(), hasFailed());
+    }
+  }
+}
@@ -28,6 +28,7 @@ import org.apache.logging.log4j.Logger;
 import org.apache.geode.cache.CacheClosedException;
 import org.apache.geode.cache.DataPolicy;
 import org.apache.geode.cache.Region;
+import org.apache.geode.cache.client.ServerConnectivityException;
 import org.apache.geode.cache.client.ServerOperationException;
 import org.apache.geode.distributed.internal.ServerLocation;
 import org.apache.geode.internal.Version;
@@ -175,8 +176,7 @@ public class RemoveAllOp {
         }
         Collection<Object> newKeys = serverToFilterMap.get(failedServer);
         try {
-          VersionedObjectList v =
-              RemoveAllOp.execute(pool, region, newKeys, eventId, true, callbackArg);
+          VersionedObjectList v = retry(pool, region, newKeys, eventId, callbackArg);
           if (v == null) {
             result.addKeys(newKeys);
           } else {
@@ -204,6 +204,34 @@ public class RemoveAllOp {
     return result.getSucceededKeysAndVersions();
   }
 
+  /**
+   * Sends the keys of a server that failed again, with the same event id, to the server that is now
+   * primary for most of them. Falls back to any server if there is no such server or it cannot be
+   * reached either.
+   */
+  private static VersionedObjectList retry(ExecutablePool pool, Region region,
+      Collection<Object> keys, EventID eventId, Object callbackArg) {
+    LocalRegion lr = (LocalRegion) region;
+    lr.getCachePerfStats().incSingleHopBulkOpRetries();
+    ServerLocation server =
+        lr.getCache().getClientMetadataService().getPrimaryServerForMostKeys(keys, lr);
+    if (server != null) {
+      AbstractOp op = new RemoveAllOpImpl(region, keys, eventId, true, callbackArg);
+      op.initMessagePart();
+      op.getMessage().setIsRetry();
+      try {
+        return (VersionedObjectList) pool.executeOn(server, op);
+      } catch (ServerOperationException e) {
+        throw e;
+      } catch (ServerConnectivityException e) {
+        if (logger.isDebugEnabled()) {
+          logger.debug("RemoveAll retry on {} failed, retrying on any server", server, e);
+        }
+      }
+    }
+    return RemoveAllOp.execute(pool, region, keys, eventId, true, callbackArg);
+  }
+
   private RemoveAllOp() {
     // no instances allowed
   }
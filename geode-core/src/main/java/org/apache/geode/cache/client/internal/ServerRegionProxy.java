@@ -20,6 +20,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 import org.apache.logging.log4j.Logger;
 
@@ -45,6 +46,7 @@ import org.apache.geode.internal.cache.LocalRegion;
 import org.apache.geode.internal.cache.TXCommitMessage;
 import org.apache.geode.internal.cache.TXManagerImpl;
 import org.apache.geode.internal.cache.TXStateProxy;
+import org.apache.geode.internal.cache.Token;
 import org.apache.geode.internal.cache.execute.ServerRegionFunctionExecutor;
 import org.apache.geode.internal.cache.tier.InterestType;
 import org.apache.geode.internal.cache.tier.sockets.VersionedObjectList;
@@ -118,6 +120,17 @@ public class ServerRegionProxy extends ServerProxy implements ServerRegionDataAc
   }
 
 
+  /**
+   * Does a region get on the server without waiting for the gets sent before it. The local region
+   * is not changed.
+   * 
+   * @return a future completed with the value of the entry on the server, or null if it has none
+   * @see PoolImpl#executeAsync(AbstractOp)
+   */
+  public CompletableFuture<Object> getAsync(Object key, Object callbackArg) {
+    return GetOp.executeAsync((PoolImpl) this.pool, this.region, key, callbackArg)
+        .thenApply(value -> Token.isInvalidOrRemoved(value) ? null : value);
+  }
 
   public int size() {
     return SizeOp.execute(this.pool, this.regionName);
@@ -164,6 +177,18 @@ public class ServerRegionProxy extends ServerProxy implements ServerRegionDataAc
     }
   }
 
+  /**
+   * Does a region put on the server without waiting for the ops sent before it. The local region
+   * is not changed and no cache callbacks are invoked in this client.
+   * 
+   * @return a future completed once the server has done the put
+   * @see PoolImpl#executeAsync(AbstractOp)
+   */
+  public CompletableFuture<Object> putAsync(Object key, Object value, Object callbackArg) {
+    EventIDHolder event =
+        new EventIDHolder(new EventID(this.region.getCache().getDistributedSystem()));
+    return PutOp.executeAsync((PoolImpl) this.pool, this.region, key, value, event, callbackArg);
+  }
 
   /**
    * Does a region put on the server using the given connection.
@@ -286,6 +311,15 @@ public class ServerRegionProxy extends ServerProxy implements ServerRegionDataAc
     return ContainsKeyOp.execute(this.pool, this.regionName, key, MODE.KEY);
   }
 
+  /**
+   * Does a region containsKey on the server without waiting for the ops sent before it.
+   * 
+   * @see PoolImpl#executeAsync(AbstractOp)
+   */
+  public CompletableFuture<Boolean> containsKeyAsync(Object key) {
+    return ContainsKeyOp.executeAsync((PoolImpl) this.pool, this.regionName, key, MODE.KEY);
+  }
+
   /*
    * (non-Javadoc)
    * 
@@ -0,0 +1,78 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.geode.cache.query;
+
+import java.util.List;
+
+/**
+ * A cursor over the results of a <code>SELECT</code> query executed on a server, opened with
+ * {@link org.apache.geode.cache.client.Pool#openQueryCursor(String, int, Object...)}. The results
+ * are sent to the client a page at a time as they are fetched, so the client never holds more than
+ * one page of them. When the query selects from a single partitioned region and has no
+ * <code>DISTINCT</code>, <code>ORDER BY</code>, <code>GROUP BY</code> or aggregate functions, the
+ * server evaluates it a bucket at a time as the pages are fetched too; the results of any other
+ * query are computed on the server when the cursor is opened.
+ * <p>
+ *
+ * Every page is read from the server that opened the cursor. A cursor that is not exhausted holds
+ * server resources until it is closed, or until it has not been used for a while and the server
+ * expires it. A cursor is not thread safe.
+ * <p>
+ *
+ * <pre>
+ * QueryCursor&lt;Employee&gt; cursor =
+ *     pool.openQueryCursor("SELECT * FROM /employees WHERE salary > $1", 1000, 50000);
+ * try {
+ *   while (cursor.hasNext()) {
+ *     for (Employee emp : cursor.nextPage()) {
+ *       System.out.println("Highly compensated: " + emp);
+ *     }
+ *   }
+ * } finally {
+ *   cursor.close();
+ * }
+ * </pre>
+ *
+ * Results are returned the way {@link SelectResults} holds them, as {@link Struct}s for queries
+ * with more than one projection.
+ */
+public interface QueryCursor<E> {
+
+  /**
+   * Returns the next page of results. A page holds at most the page size given when the cursor was
+   * opened and may hold fewer results even when more follow. The page is empty once the cursor is
+   * exhausted.
+   *
+   * @throws org.apache.geode.cache.client.ServerOperationException if the server failed to
+   *         evaluate the query, or no longer knows the cursor because it was closed or expired
+   */
+  public List<E> nextPage();
+
+  /**
+   * Returns false once all the results of the query have been returned by {@link #nextPage()}.
+   */
+  public boolean hasNext();
+
+  /**
+   * Releases the server resources held by this cursor. Closing a cursor that is closed or
+   * exhausted has no effect.
+   */
+  public void close();
+
+  /**
+   * Returns true if this cursor has been closed.
+   */
+  public boolean isClosed();
+}
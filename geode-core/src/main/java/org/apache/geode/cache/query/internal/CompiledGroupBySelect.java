@@ -16,6 +16,8 @@ package org.apache.geode.cache.query.internal;
 
 import java.util.Arrays;
 import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
@@ -23,6 +25,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import org.apache.geode.cache.Cache;
+import org.apache.geode.cache.Region;
 import org.apache.geode.cache.query.Aggregator;
 import org.apache.geode.cache.query.AmbiguousNameException;
 import org.apache.geode.cache.query.FunctionDomainException;
@@ -159,11 +163,142 @@ public class CompiledGroupBySelect extends CompiledSelect {
   @Override
   public SelectResults evaluate(ExecutionContext context) throws FunctionDomainException,
       TypeMismatchException, NameResolutionException, QueryInvocationTargetException {
-    SelectResults sr = super.evaluate(context);
+    SelectResults sr = evaluateOnColumnStore(context);
+    if (sr != null) {
+      return sr;
+    }
+    sr = super.evaluate(context);
     return this.applyAggregateAndGroupBy(sr, context);
 
   }
 
+  /**
+   * Returns the results of this query computed from the {@link PdxColumnStore} of the region it
+   * iterates, or null if the region does not have a column store or the query or the values of the
+   * region can not be evaluated on it.
+   */
+  private SelectResults evaluateOnColumnStore(ExecutionContext context)
+      throws FunctionDomainException, TypeMismatchException, NameResolutionException,
+      QueryInvocationTargetException {
+    List iterators = getIterators();
+    if (iterators.size() != 1 || this.isDistinct || this.originalOrderByClause != null
+        || this.aggregateFunctions.length == 0 || !PdxFieldFilter.readsPdxFields(context)) {
+      return null;
+    }
+    CompiledIteratorDef iterDef = (CompiledIteratorDef) iterators.get(0);
+    if (!(iterDef.getCollectionExpr() instanceof CompiledRegion)) {
+      return null;
+    }
+    Cache cache = context.getCache();
+    Region region = cache.getRegion(((CompiledRegion) iterDef.getCollectionExpr()).getRegionPath());
+    PdxColumnStore store = region == null ? null : PdxColumnStore.getColumnStore(region);
+    // indexes and transactional state may make a scan see other values than the columns
+    if (store == null || cache.getCacheTransactionManager().exists()) {
+      return null;
+    }
+    Collection indexes = cache.getQueryService().getIndexes(region);
+    if (indexes != null && !indexes.isEmpty()) {
+      return null;
+    }
+
+    context.newScope((Integer) context.cacheGet(scopeID));
+    context.pushExecCache((Integer) context.cacheGet(scopeID));
+    try {
+      RuntimeIterator rIter = iterDef.getRuntimeIterator(context);
+      context.bindIterator(rIter);
+      int[] groupColumns = getGroupColumns();
+      PdxColumnAggregation aggregation = createColumnAggregation(groupColumns, rIter, context);
+      if (aggregation == null
+          || !store.aggregate(region, aggregation, context.getBucketList())) {
+        return null;
+      }
+
+      ObjectType elementType = this.cachedElementTypeForOrderBy != null
+          ? this.cachedElementTypeForOrderBy : prepareResultType(context);
+      boolean isStruct = elementType != null && elementType.isStructType();
+      if (!isStruct && groupColumns.length > 0) {
+        return null;
+      }
+      boolean createOrderedResultSet = context.getBucketList() != null && this.orderByAttrs != null;
+      int limitValue = evaluateLimitValue(context, limit);
+      SelectResults newResults =
+          createResultSet(context, elementType, isStruct, createOrderedResultSet);
+      for (PdxColumnAggregation.Group group : aggregation.getGroups()) {
+        Object prev = null;
+        if (isStruct) {
+          Object[] values = new Object[this.projAttrs.size()];
+          for (int i = 0; i < groupColumns.length; i++) {
+            values[groupColumns[i]] = group.getValue(i);
+          }
+          prev = new StructImpl((StructTypeImpl) elementType, values);
+        }
+        if (!terminateAndAddToResults(isStruct, newResults, group.getAggregators(), prev, context,
+            !createOrderedResultSet, limitValue)) {
+          break;
+        }
+      }
+      return newResults;
+    } finally {
+      context.popScope();
+      context.popExecCache();
+    }
+  }
+
+  /**
+   * Returns the projection column of each group by expression in the order of the group by
+   * clause, or null if a projection column that is not an aggregate is not a group by expression.
+   */
+  private int[] getGroupColumns() {
+    if (this.orderByAttrs == null) {
+      return this.projAttrs.size() == this.aggregateFunctions.length ? new int[0] : null;
+    }
+    int[] groupColumns = new int[this.orderByAttrs.size()];
+    BitSet columns = new BitSet(this.projAttrs.size());
+    for (int i = 0; i < groupColumns.length; i++) {
+      groupColumns[i] = this.orderByAttrs.get(i).getColumnIndex();
+      if (groupColumns[i] < 0 || this.aggregateColsPos.get(groupColumns[i])) {
+        return null;
+      }
+      columns.set(groupColumns[i]);
+    }
+    columns.or(this.aggregateColsPos);
+    return columns.cardinality() == this.projAttrs.size() ? groupColumns : null;
+  }
+
+  private PdxColumnAggregation createColumnAggregation(int[] groupColumns,
+      RuntimeIterator iterator, ExecutionContext context) {
+    if (groupColumns == null) {
+      return null;
+    }
+    List<PdxFieldFilter.FieldComparison> comparisons = getWhereClause() == null
+        ? Collections.<PdxFieldFilter.FieldComparison>emptyList()
+        : PdxFieldFilter.FieldComparison.createAll(getWhereClause(), iterator, context, true);
+    if (comparisons == null) {
+      return null;
+    }
+    String[] aggregateFields = new String[this.aggregateFunctions.length];
+    for (int i = 0; i < aggregateFields.length; i++) {
+      CompiledValue param = this.aggregateFunctions[i].getParameter();
+      if (param != null) {
+        aggregateFields[i] = PdxFieldFilter.FieldComparison.getFieldName(param, iterator, context);
+        if (aggregateFields[i] == null) {
+          return null;
+        }
+      }
+    }
+    String[] groupFields = new String[groupColumns.length];
+    for (int i = 0; i < groupFields.length; i++) {
+      Object[] projAttr = (Object[]) this.projAttrs.get(groupColumns[i]);
+      groupFields[i] =
+          PdxFieldFilter.FieldComparison.getFieldName((CompiledValue) projAttr[1], iterator, context);
+      if (groupFields[i] == null) {
+        return null;
+      }
+    }
+    return new PdxColumnAggregation(comparisons, this.aggregateFunctions, aggregateFields,
+        groupFields, context);
+  }
+
   public SelectResults applyAggregateAndGroupBy(SelectResults baseResults, ExecutionContext context)
       throws FunctionDomainException, TypeMismatchException, NameResolutionException,
       QueryInvocationTargetException {
@@ -77,7 +77,7 @@ public class CompiledSelect extends AbstractCompiledValue {
   private boolean hasUnmappedOrderByCols = false;
 
   // used as a key in a context to identify the scope of this CompiledSelect
-  private Object scopeID = new Object();
+  protected Object scopeID = new Object();
 
   /*
    * Set in context for the where clause to signify that it has been evaluated at least one time for
@@ -844,6 +844,14 @@ public class CompiledSelect extends AbstractCompiledValue {
         ((QRegion) sr).setKeepSerialized(true);
       }
 
+      // skip the values that can not satisfy the where clause before deserializing them
+      if (evaluateWhereClause && iterList.size() == 1 && sr instanceof QRegion) {
+        PdxFieldFilter valueFilter = PdxFieldFilter.create(this.whereClause, rIter, context);
+        if (valueFilter != null) {
+          ((QRegion) sr).setValueFilter(valueFilter);
+        }
+      }
+
       // Iterate through the data set.
       Iterator cIter = sr.iterator();
       while (cIter.hasNext()) {
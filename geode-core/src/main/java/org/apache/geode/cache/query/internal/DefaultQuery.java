@@ -341,7 +341,18 @@ public class DefaultQuery implements Query {
       // Execute Query using pool.
       return executeOnServer(parameters);
     }
+    return executeOnBuckets(parameters, null);
+  }
 
+  /**
+   * Executes this query in this member. If buckets is not null the query must select from a
+   * partitioned region that has a data store in this member, and is only evaluated on the given
+   * buckets of it, which is how a server evaluates the query of a client query cursor a few buckets
+   * at a time.
+   */
+  public Object executeOnBuckets(Object[] parameters, Set<Integer> buckets)
+      throws FunctionDomainException, TypeMismatchException, NameResolutionException,
+      QueryInvocationTargetException {
     long startTime = 0L;
     Object result = null;
     if (this.traceOn && this.cache != null) {
@@ -351,6 +362,10 @@ public class DefaultQuery implements Query {
     QueryObserver indexObserver = null;
     QueryMonitor queryMonitor = null;
     QueryExecutor qe = checkQueryOnPR(parameters);
+    if (buckets != null && qe == null) {
+      throw new IllegalArgumentException(
+          LocalizedStrings.DefaultQuery_API_ONLY_FOR_PR.toLocalizedString());
+    }
 
     try {
       // Setting the readserialized flag for local queries
@@ -362,7 +377,7 @@ public class DefaultQuery implements Query {
           DefaultQuery.testHook.doTestHook(1);
         }
 
-        result = qe.executeQuery(this, parameters, null);
+        result = qe.executeQuery(this, parameters, buckets);
         // For local queries returning pdx objects wrap the resultset with
         // ResultsCollectionPdxDeserializerWrapper
         // which deserializes these pdx objects.
@@ -26,8 +26,14 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import org.apache.geode.DataSerializer;
+import org.apache.geode.cache.Cache;
+import org.apache.geode.cache.query.QueryException;
 import org.apache.geode.cache.query.SelectResults;
 import org.apache.geode.cache.query.Struct;
 import org.apache.geode.cache.query.internal.types.CollectionTypeImpl;
@@ -63,6 +69,54 @@ public class NWayMergeResults<E> implements SelectResults<E>, Ordered, DataSeria
 
   }
 
+  /**
+   * Merges sortedResults into fewer sorted collections, merging up to parallelism groups of them
+   * concurrently in executor. Each element of an n - way merge is compared with the current
+   * element of every collection, so merging the groups first in parallel lets the final merge of
+   * the returned collections compare each element with parallelism candidates instead of one per
+   * collection. Returns sortedResults if there are too few of them to be worth grouping.
+   */
+  public static <E> List<Collection<E>> mergeInParallel(List<Collection<E>> sortedResults,
+      final boolean isDistinct, final int limit, final List<CompiledSortCriterion> orderByAttribs,
+      final Object[] bindArguments, final Cache cache, final ObjectType elementType,
+      ExecutorService executor, int parallelism) throws QueryException, InterruptedException {
+    if (parallelism < 2 || sortedResults.size() < 2 * parallelism) {
+      return sortedResults;
+    }
+    int groupSize = (sortedResults.size() + parallelism - 1) / parallelism;
+    List<Callable<Collection<E>>> merges = new ArrayList<Callable<Collection<E>>>(parallelism);
+    for (int start = 0; start < sortedResults.size(); start += groupSize) {
+      final List<Collection<E>> group =
+          sortedResults.subList(start, Math.min(start + groupSize, sortedResults.size()));
+      merges.add(new Callable<Collection<E>>() {
+        @Override
+        public Collection<E> call() {
+          // a context is not thread safe so each merge evaluates the order by with its own
+          ExecutionContext context = new QueryExecutionContext(bindArguments, cache);
+          NWayMergeResults<E> merged = new NWayMergeResults<E>(group, isDistinct, limit,
+              orderByAttribs, context, elementType);
+          List<E> result = new ArrayList<E>();
+          for (E element : merged) {
+            result.add(element);
+          }
+          return result;
+        }
+      });
+    }
+    List<Collection<E>> mergedGroups = new ArrayList<Collection<E>>(merges.size());
+    for (Future<Collection<E>> future : executor.invokeAll(merges)) {
+      try {
+        mergedGroups.add(future.get());
+      } catch (ExecutionException e) {
+        if (e.getCause() instanceof RuntimeException) {
+          throw (RuntimeException) e.getCause();
+        }
+        throw new QueryException(e.getCause());
+      }
+    }
+    return mergedGroups;
+  }
+
   @Override
   public int size() {
     return this.data.size();
@@ -0,0 +1,204 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.geode.cache.query.internal;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.geode.cache.query.Aggregator;
+import org.apache.geode.cache.query.FunctionDomainException;
+import org.apache.geode.cache.query.NameResolutionException;
+import org.apache.geode.cache.query.QueryInvocationTargetException;
+import org.apache.geode.cache.query.TypeMismatchException;
+import org.apache.geode.cache.query.internal.PdxColumnStore.Segment;
+import org.apache.geode.cache.query.internal.PdxFieldFilter.FieldComparison;
+import org.apache.geode.pdx.FieldType;
+import org.apache.geode.pdx.internal.PdxField;
+import org.apache.geode.pdx.internal.PdxFieldCursor;
+
+/**
+ * Groups and aggregates the rows of the segments of a {@link PdxColumnStore} for a group by or
+ * aggregate query whose where clause, group by columns and aggregate parameters are all primitive
+ * pdx fields of its iterator.
+ */
+class PdxColumnAggregation {
+
+  /**
+   * The value accumulated for each row by COUNT(*), as the projection of the query does.
+   */
+  private static final Integer COUNT_ALL_VALUE = Integer.valueOf(0);
+
+  private final FieldComparison[] comparisons;
+
+  private final CompiledAggregateFunction[] functions;
+
+  /**
+   * The field of the parameter of each function, or null for COUNT(*).
+   */
+  private final String[] aggregateFields;
+
+  private final String[] groupFields;
+
+  /**
+   * The type of each group field in the segments added so far.
+   */
+  private final FieldType[] groupTypes;
+
+  private final ExecutionContext context;
+
+  private final Map<Object, Group> groups = new HashMap<Object, Group>();
+
+  PdxColumnAggregation(List<FieldComparison> comparisons, CompiledAggregateFunction[] functions,
+      String[] aggregateFields, String[] groupFields, ExecutionContext context) {
+    this.comparisons = comparisons.toArray(new FieldComparison[comparisons.size()]);
+    this.functions = functions;
+    this.aggregateFields = aggregateFields;
+    this.groupFields = groupFields;
+    this.groupTypes = new FieldType[groupFields.length];
+    this.context = context;
+  }
+
+  /**
+   * Adds the rows of segment that satisfy the where clause to their group.
+   *
+   * @return false if the rows of segment do not have all the fields of the query as primitive
+   *         fields that can be compared and grouped
+   */
+  boolean add(Segment segment) throws FunctionDomainException, TypeMismatchException,
+      NameResolutionException, QueryInvocationTargetException {
+    FieldType[] whereTypes = new FieldType[this.comparisons.length];
+    long[][] whereColumns = new long[this.comparisons.length][];
+    for (int i = 0; i < this.comparisons.length; i++) {
+      PdxField field = segment.getField(this.comparisons[i].getFieldName());
+      if (field == null || !this.comparisons[i].canCompare(field)) {
+        return false;
+      }
+      whereTypes[i] = field.getFieldType();
+      whereColumns[i] = segment.getColumn(field);
+    }
+    FieldType[] aggregateTypes = new FieldType[this.aggregateFields.length];
+    long[][] aggregateColumns = new long[this.aggregateFields.length][];
+    for (int i = 0; i < this.aggregateFields.length; i++) {
+      if (this.aggregateFields[i] != null) {
+        PdxField field = segment.getField(this.aggregateFields[i]);
+        if (field == null) {
+          return false;
+        }
+        aggregateTypes[i] = field.getFieldType();
+        aggregateColumns[i] = segment.getColumn(field);
+      }
+    }
+    long[][] groupColumns = new long[this.groupFields.length][];
+    for (int i = 0; i < this.groupFields.length; i++) {
+      PdxField field = segment.getField(this.groupFields[i]);
+      if (field == null
+          || this.groupTypes[i] != null && this.groupTypes[i] != field.getFieldType()) {
+        // values of different types would not be equal even if their fields are
+        return false;
+      }
+      this.groupTypes[i] = field.getFieldType();
+      groupColumns[i] = segment.getColumn(field);
+    }
+
+    int size = segment.getSize();
+    for (int slot = 0; slot < size; slot++) {
+      if (segment.getKey(slot) == null || !matches(whereTypes, whereColumns, slot)) {
+        continue;
+      }
+      Aggregator[] aggregators = getGroup(groupColumns, slot).aggregators;
+      for (int i = 0; i < aggregators.length; i++) {
+        aggregators[i].accumulate(aggregateColumns[i] == null ? COUNT_ALL_VALUE
+            : PdxFieldCursor.getPrimitiveValue(aggregateTypes[i], aggregateColumns[i][slot]));
+      }
+    }
+    return true;
+  }
+
+  private boolean matches(FieldType[] whereTypes, long[][] whereColumns, int slot) {
+    for (int i = 0; i < this.comparisons.length; i++) {
+      if (!this.comparisons[i].matches(whereTypes[i], whereColumns[i][slot])) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private Group getGroup(long[][] groupColumns, int slot) throws FunctionDomainException,
+      TypeMismatchException, NameResolutionException, QueryInvocationTargetException {
+    Object[] values = new Object[groupColumns.length];
+    for (int i = 0; i < values.length; i++) {
+      values[i] = PdxFieldCursor.getPrimitiveValue(this.groupTypes[i], groupColumns[i][slot]);
+    }
+    Object groupKey = values.length == 1 ? values[0] : Arrays.asList(values);
+    Group group = this.groups.get(groupKey);
+    if (group == null) {
+      Aggregator[] aggregators = new Aggregator[this.functions.length];
+      for (int i = 0; i < aggregators.length; i++) {
+        aggregators[i] = (Aggregator) this.functions[i].evaluate(this.context);
+      }
+      group = new Group(values, aggregators);
+      this.groups.put(groupKey, group);
+    }
+    return group;
+  }
+
+  /**
+   * Returns the groups that have at least one row, ordered by their group field values.
+   */
+  List<Group> getGroups() {
+    List<Group> result = new ArrayList<Group>(this.groups.values());
+    Collections.sort(result, new Comparator<Group>() {
+      @Override
+      public int compare(Group g1, Group g2) {
+        for (int i = 0; i < g1.values.length; i++) {
+          int c = ((Comparable) g1.values[i]).compareTo(g2.values[i]);
+          if (c != 0) {
+            return c;
+          }
+        }
+        return 0;
+      }
+    });
+    return result;
+  }
+
+  /**
+   * The group field values and the aggregators of a group.
+   */
+  static class Group {
+
+    private final Object[] values;
+
+    private final Aggregator[] aggregators;
+
+    Group(Object[] values, Aggregator[] aggregators) {
+      this.values = values;
+      this.aggregators = aggregators;
+    }
+
+    Object getValue(int index) {
+      return this.values[index];
+    }
+
+    Aggregator[] getAggregators() {
+      return this.aggregators;
+    }
+  }
+}
@@ -0,0 +1,622 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.geode.cache.query.internal;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.geode.cache.CacheListener;
+import org.apache.geode.cache.Declarable;
+import org.apache.geode.cache.EntryEvent;
+import org.apache.geode.cache.EntryOperation;
+import org.apache.geode.cache.Region;
+import org.apache.geode.cache.RegionEvent;
+import org.apache.geode.cache.query.FunctionDomainException;
+import org.apache.geode.cache.query.NameResolutionException;
+import org.apache.geode.cache.query.QueryInvocationTargetException;
+import org.apache.geode.cache.query.TypeMismatchException;
+import org.apache.geode.cache.util.CacheListenerAdapter;
+import org.apache.geode.internal.cache.BucketRegion;
+import org.apache.geode.internal.cache.CachedDeserializable;
+import org.apache.geode.internal.cache.EntryEventImpl;
+import org.apache.geode.internal.cache.GemFireCacheImpl;
+import org.apache.geode.internal.cache.KeyInfo;
+import org.apache.geode.internal.cache.LocalRegion;
+import org.apache.geode.internal.cache.OffHeapRegionEntry;
+import org.apache.geode.internal.cache.PartitionedRegion;
+import org.apache.geode.internal.cache.PartitionedRegionDataStore;
+import org.apache.geode.internal.cache.PartitionedRegionHelper;
+import org.apache.geode.internal.cache.RegionEntry;
+import org.apache.geode.internal.cache.versions.RegionVersionHolder;
+import org.apache.geode.internal.cache.versions.RegionVersionVector;
+import org.apache.geode.internal.offheap.OffHeapRegionEntryHelper;
+import org.apache.geode.internal.offheap.OffHeapStoredObject;
+import org.apache.geode.pdx.internal.PdxField;
+import org.apache.geode.pdx.internal.PdxFieldCursor;
+import org.apache.geode.pdx.internal.PdxType;
+
+/**
+ * A columnar copy of the primitive pdx fields of the values of a region, used to evaluate group by
+ * and aggregate queries without deserializing the values.
+ * <p>
+ * The store is enabled for a region by adding it as a cache listener of the region, either with
+ * {@link org.apache.geode.cache.AttributesMutator#addCacheListener} or in cache.xml. It keeps a
+ * partition per bucket of a partitioned region, or a single partition for any other region. A
+ * partition is built from the region entries the first time a query uses it, and is then
+ * maintained from the entry events of the region. Within a partition the values are grouped by
+ * their {@link PdxType} in segments that keep every primitive field of the type in an array of
+ * longs, read with {@link PdxFieldCursor#readPrimitiveBits}.
+ * <p>
+ * Events only say which entry changed; the partition reads the current value of the entry so that
+ * it ends up with the same contents however events are ordered. A partition is only used without
+ * being rebuilt if it saw an event for every version the region's version vector recorded since
+ * it was built, so changes that do not invoke listeners, such as an initial image or updates of a
+ * bucket while it was a secondary, make it rebuild. A region without a version vector is rebuilt
+ * for every query. A partition is also rebuilt if the region was cleared or a bucket moved.
+ * <p>
+ * Queries read a snapshot of the segments of a partition and aggregate it without holding the
+ * partition, so entry events are not blocked by a running query. A snapshot only copies the
+ * segments that changed since the previous one. Queries that can not be evaluated on the columns,
+ * see {@link CompiledGroupBySelect}, scan the region as before.
+ */
+public class PdxColumnStore extends CacheListenerAdapter implements Declarable {
+
+  /**
+   * The id of the partition of a region that is not partitioned.
+   */
+  static final int NOT_PARTITIONED = -1;
+
+  private final ConcurrentHashMap<Integer, Partition> partitions =
+      new ConcurrentHashMap<Integer, Partition>();
+
+  /**
+   * Returns the column store of region, or null if it does not have one.
+   */
+  public static PdxColumnStore getColumnStore(Region region) {
+    for (CacheListener listener : region.getAttributes().getCacheListeners()) {
+      if (listener instanceof PdxColumnStore) {
+        return (PdxColumnStore) listener;
+      }
+    }
+    return null;
+  }
+
+  @Override
+  public void init(Properties props) {
+    // nothing to configure
+  }
+
+  @Override
+  public void afterCreate(EntryEvent event) {
+    entryChanged(event);
+  }
+
+  @Override
+  public void afterUpdate(EntryEvent event) {
+    entryChanged(event);
+  }
+
+  @Override
+  public void afterInvalidate(EntryEvent event) {
+    entryChanged(event);
+  }
+
+  @Override
+  public void afterDestroy(EntryEvent event) {
+    entryChanged(event);
+  }
+
+  @Override
+  public void afterRegionClear(RegionEvent event) {
+    markStale();
+  }
+
+  @Override
+  public void afterRegionInvalidate(RegionEvent event) {
+    markStale();
+  }
+
+  @Override
+  public void afterRegionDestroy(RegionEvent event) {
+    this.partitions.clear();
+  }
+
+  @Override
+  public void close() {
+    this.partitions.clear();
+  }
+
+  private void markStale() {
+    for (Partition partition : this.partitions.values()) {
+      partition.markStale();
+    }
+  }
+
+  private void entryChanged(EntryEvent event) {
+    Region region = event.getRegion();
+    if (region instanceof PartitionedRegion) {
+      int bucketId = getBucketId(event);
+      Partition partition = this.partitions.get(bucketId);
+      if (partition != null) {
+        PartitionedRegionDataStore dataStore = ((PartitionedRegion) region).getDataStore();
+        BucketRegion bucket = dataStore == null ? null : dataStore.getLocalBucketById(bucketId);
+        if (bucket == null) {
+          partition.markStale();
+        } else {
+          partition.update(bucket, event.getKey(), isVersioned(event));
+        }
+      }
+    } else if (region instanceof LocalRegion) {
+      Partition partition = this.partitions.get(NOT_PARTITIONED);
+      if (partition != null) {
+        partition.update((LocalRegion) region, event.getKey(), isVersioned(event));
+      }
+    }
+  }
+
+  /**
+   * Returns true if the operation of event was recorded in the version vector of its region.
+   */
+  private static boolean isVersioned(EntryEvent event) {
+    return event instanceof EntryEventImpl && ((EntryEventImpl) event).getVersionTag() != null;
+  }
+
+  /**
+   * Returns the sum of the versions of all members in the version vector of region, which goes up
+   * by one for each operation recorded in it, or -1 if the region does not have a version vector.
+   */
+  private static long getVersionSum(LocalRegion region) {
+    RegionVersionVector rvv = region.getVersionVector();
+    if (rvv == null) {
+      return -1;
+    }
+    Object owner = rvv.getOwnerId();
+    long sum = rvv.getCurrentVersion();
+    for (Object o : rvv.getMemberToVersion().entrySet()) {
+      Map.Entry entry = (Map.Entry) o;
+      if (!owner.equals(entry.getKey())) {
+        sum += ((RegionVersionHolder) entry.getValue()).getVersion();
+      }
+    }
+    return sum;
+  }
+
+  private static int getBucketId(EntryEvent event) {
+    if (event instanceof EntryEventImpl) {
+      KeyInfo keyInfo = ((EntryEventImpl) event).getKeyInfo();
+      if (keyInfo != null && keyInfo.getBucketId() != KeyInfo.UNKNOWN_BUCKET) {
+        return keyInfo.getBucketId();
+      }
+    }
+    return PartitionedRegionHelper.getHashKey((EntryOperation) event);
+  }
+
+  /**
+   * Adds the values of region, or of the given buckets of region if it is partitioned, to
+   * aggregation.
+   *
+   * @return false if the values could not all be added, in which case the query has to scan the
+   *         region
+   */
+  boolean aggregate(Region region, PdxColumnAggregation aggregation, List bucketList)
+      throws FunctionDomainException, TypeMismatchException, NameResolutionException,
+      QueryInvocationTargetException {
+    if (region instanceof PartitionedRegion) {
+      PartitionedRegionDataStore dataStore = ((PartitionedRegion) region).getDataStore();
+      if (bucketList == null || dataStore == null) {
+        return false;
+      }
+      for (Object bucketId : bucketList) {
+        BucketRegion bucket = dataStore.getLocalBucketById((Integer) bucketId);
+        if (bucket == null || !bucket.getBucketAdvisor().isPrimary()
+            || !getPartition((Integer) bucketId).aggregate(bucket, aggregation)) {
+          return false;
+        }
+        QueryMonitor.isQueryExecutionCanceled();
+      }
+      return true;
+    }
+    if (!(region instanceof LocalRegion) || bucketList != null
+        || !region.getAttributes().getDataPolicy().withStorage()) {
+      return false;
+    }
+    return getPartition(NOT_PARTITIONED).aggregate((LocalRegion) region, aggregation);
+  }
+
+  private Partition getPartition(int id) {
+    Partition partition = this.partitions.get(id);
+    if (partition == null) {
+      partition = new Partition();
+      Partition existing = this.partitions.putIfAbsent(id, partition);
+      if (existing != null) {
+        partition = existing;
+      }
+    }
+    return partition;
+  }
+
+  /**
+   * The columns of the values of a region, or of a bucket of a partitioned region.
+   */
+  private static class Partition {
+
+    /**
+     * The region the partition was built from.
+     */
+    private LocalRegion source;
+
+    /**
+     * The primary term of the bucket the partition was built from when it was built.
+     */
+    private int primaryTerm;
+
+    /**
+     * The {@link PdxColumnStore#getVersionSum version sum} of the region when the partition was
+     * built, or -1 if it does not have one.
+     */
+    private long builtVersionSum = -1;
+
+    /**
+     * The number of events of versioned operations the partition saw since it was built.
+     */
+    private long versionedEvents;
+
+    /**
+     * True if the partition may have missed events since it was built.
+     */
+    private boolean stale = true;
+
+    private final Map<Object, Row> rows = new HashMap<Object, Row>();
+
+    private final Map<PdxType, Segment> segments = new HashMap<PdxType, Segment>();
+
+    /**
+     * The keys of the invalid entries, which do not have a row.
+     */
+    private final Set<Object> invalidKeys = new HashSet<Object>();
+
+    /**
+     * The keys of the entries whose value is not a serialized pdx in memory, which make the
+     * partition unusable.
+     */
+    private final Set<Object> unsupportedKeys = new HashSet<Object>();
+
+    private PdxFieldCursor cursor;
+
+    /**
+     * Copies of the segments as of the last query, which queries read without holding the
+     * partition. Keyed by the segment they are a copy of.
+     */
+    private Map<Segment, Segment> snapshot = Collections.emptyMap();
+
+    synchronized void markStale() {
+      this.stale = true;
+    }
+
+    synchronized void update(LocalRegion region, Object key, boolean versioned) {
+      if (this.stale || region != this.source) {
+        this.stale = true;
+        return;
+      }
+      if (versioned) {
+        this.versionedEvents++;
+      }
+      read(key, region.getRegionEntry(key));
+    }
+
+    boolean aggregate(LocalRegion region, PdxColumnAggregation aggregation)
+        throws FunctionDomainException, TypeMismatchException, NameResolutionException,
+        QueryInvocationTargetException {
+      Collection<Segment> segments = getSnapshot(region);
+      if (segments == null) {
+        return false;
+      }
+      for (Segment segment : segments) {
+        if (!aggregation.add(segment)) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    /**
+     * Returns copies of the current segments of the partition, after rebuilding it if it is not
+     * complete, or null if it has values that are not supported.
+     */
+    private synchronized Collection<Segment> getSnapshot(LocalRegion region) {
+      if (!isComplete(region)) {
+        rebuild(region);
+      }
+      if (!this.unsupportedKeys.isEmpty()) {
+        return null;
+      }
+      Map<Segment, Segment> copies = new HashMap<Segment, Segment>(this.segments.size());
+      for (Segment segment : this.segments.values()) {
+        Segment copy = this.snapshot.get(segment);
+        if (copy == null || copy.getModCount() != segment.getModCount()) {
+          copy = segment.copy();
+        }
+        copies.put(segment, copy);
+      }
+      this.snapshot = copies;
+      return copies.values();
+    }
+
+    private boolean isComplete(LocalRegion region) {
+      return !this.stale && region == this.source && this.primaryTerm == getPrimaryTerm(region)
+          && this.unsupportedKeys.isEmpty() && this.builtVersionSum != -1
+          && this.builtVersionSum + this.versionedEvents == getVersionSum(region);
+    }
+
+    private static int getPrimaryTerm(LocalRegion region) {
+      return region instanceof BucketRegion
+          ? ((BucketRegion) region).getBucketAdvisor().getPrimaryTerm() : 0;
+    }
+
+    private void rebuild(LocalRegion region) {
+      this.rows.clear();
+      this.segments.clear();
+      this.invalidKeys.clear();
+      this.unsupportedKeys.clear();
+      this.snapshot = Collections.emptyMap();
+      if (this.cursor == null || region != this.source) {
+        this.cursor = new PdxFieldCursor(((GemFireCacheImpl) region.getCache()).getPdxRegistry());
+      }
+      this.source = region;
+      this.primaryTerm = getPrimaryTerm(region);
+      this.stale = false;
+      // read before the entries, so that an operation that happens during the scan either shows
+      // up in the sum or has its event counted
+      this.builtVersionSum = region.isInitialized() ? getVersionSum(region) : -1;
+      this.versionedEvents = 0;
+      for (Object o : region.getRegionMap().regionEntries()) {
+        RegionEntry re = (RegionEntry) o;
+        read(re.getKey(), re);
+      }
+    }
+
+    /**
+     * Updates the row of key from re, the current region entry of key.
+     */
+    private void read(Object key, RegionEntry re) {
+      remove(key);
+      if (re == null || re.isDestroyedOrRemoved()) {
+        return;
+      }
+      if (re.isInvalid()) {
+        this.invalidKeys.add(key);
+        return;
+      }
+      boolean positioned = false;
+      if (re instanceof OffHeapRegionEntry) {
+        long addr = OffHeapRegionEntryHelper.retainSerializedValueAddress((OffHeapRegionEntry) re);
+        if (addr != 0L) {
+          try {
+            positioned = this.cursor.reset(OffHeapRegionEntryHelper.getDataAddress(addr),
+                OffHeapRegionEntryHelper.getDataSize(addr));
+            if (positioned) {
+              add(key);
+            }
+          } finally {
+            OffHeapStoredObject.release(addr);
+          }
+        }
+      } else {
+        Object value = re._getValue();
+        if (value instanceof CachedDeserializable) {
+          positioned = this.cursor.reset(((CachedDeserializable) value).getSerializedValue());
+          if (positioned) {
+            add(key);
+          }
+        }
+      }
+      if (!positioned) {
+        this.unsupportedKeys.add(key);
+      }
+    }
+
+    private void add(Object key) {
+      PdxType type = this.cursor.getPdxType();
+      Segment segment = this.segments.get(type);
+      if (segment == null) {
+        segment = new Segment(type);
+        this.segments.put(type, segment);
+      }
+      this.rows.put(key, new Row(segment, segment.add(key, this.cursor)));
+    }
+
+    private void remove(Object key) {
+      this.invalidKeys.remove(key);
+      this.unsupportedKeys.remove(key);
+      Row row = this.rows.remove(key);
+      if (row != null) {
+        row.segment.remove(row.slot);
+        if (row.segment.getLiveCount() == 0) {
+          this.segments.remove(row.segment.getPdxType());
+        }
+      }
+    }
+  }
+
+  private static class Row {
+
+    final Segment segment;
+
+    final int slot;
+
+    Row(Segment segment, int slot) {
+      this.segment = segment;
+      this.slot = slot;
+    }
+  }
+
+  /**
+   * The primitive fields of the values of a partition that have the same pdx type. Each value has
+   * a slot; the slots of removed values have a null key and are reused.
+   */
+  static class Segment {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final PdxType pdxType;
+
+    private final PdxField[] fields;
+
+    private final long[][] columns;
+
+    private Object[] keys = new Object[INITIAL_CAPACITY];
+
+    private int size;
+
+    private int liveCount;
+
+    private int[] freeSlots = new int[INITIAL_CAPACITY];
+
+    private int freeCount;
+
+    /**
+     * The number of times a value was added or removed, which tells if a copy is current.
+     */
+    private int modCount;
+
+    Segment(PdxType pdxType) {
+      this.pdxType = pdxType;
+      List<PdxField> primitiveFields = new ArrayList<PdxField>();
+      for (PdxField field : pdxType.getFields()) {
+        if (!field.isDeleted() && PdxFieldCursor.isPrimitive(field.getFieldType())) {
+          primitiveFields.add(field);
+        }
+      }
+      this.fields = primitiveFields.toArray(new PdxField[primitiveFields.size()]);
+      this.columns = new long[this.fields.length][INITIAL_CAPACITY];
+    }
+
+    private Segment(Segment other) {
+      this.pdxType = other.pdxType;
+      this.fields = other.fields;
+      this.columns = new long[other.columns.length][];
+      for (int i = 0; i < this.columns.length; i++) {
+        this.columns[i] = Arrays.copyOf(other.columns[i], other.size);
+      }
+      this.keys = Arrays.copyOf(other.keys, other.size);
+      this.size = other.size;
+      this.liveCount = other.liveCount;
+      this.modCount = other.modCount;
+    }
+
+    /**
+     * Returns a copy of this segment, which is not to be changed.
+     */
+    Segment copy() {
+      return new Segment(this);
+    }
+
+    int getModCount() {
+      return this.modCount;
+    }
+
+    PdxType getPdxType() {
+      return this.pdxType;
+    }
+
+    /**
+     * Returns the primitive field with the given name, or null if the type does not have one.
+     */
+    PdxField getField(String fieldName) {
+      for (PdxField field : this.fields) {
+        if (field.getFieldName().equals(fieldName)) {
+          return field;
+        }
+      }
+      return null;
+    }
+
+    /**
+     * Returns the values of field, which must be one {@link #getField returned} by this segment.
+     * Only the slots below {@link #getSize()} that have a {@link #getKey key} are values.
+     */
+    long[] getColumn(PdxField field) {
+      for (int i = 0; i < this.fields.length; i++) {
+        if (this.fields[i] == field) {
+          return this.columns[i];
+        }
+      }
+      throw new IllegalArgumentException(field + " is not a field of " + this);
+    }
+
+    int getSize() {
+      return this.size;
+    }
+
+    int getLiveCount() {
+      return this.liveCount;
+    }
+
+    Object getKey(int slot) {
+      return this.keys[slot];
+    }
+
+    int add(Object key, PdxFieldCursor cursor) {
+      int slot;
+      if (this.freeCount > 0) {
+        slot = this.freeSlots[--this.freeCount];
+      } else {
+        if (this.size == this.keys.length) {
+          grow();
+        }
+        slot = this.size++;
+      }
+      this.keys[slot] = key;
+      for (int i = 0; i < this.fields.length; i++) {
+        this.columns[i][slot] = cursor.readPrimitiveBits(this.fields[i]);
+      }
+      this.liveCount++;
+      this.modCount++;
+      return slot;
+    }
+
+    void remove(int slot) {
+      this.keys[slot] = null;
+      if (this.freeCount == this.freeSlots.length) {
+        this.freeSlots = Arrays.copyOf(this.freeSlots, this.freeCount * 2);
+      }
+      this.freeSlots[this.freeCount++] = slot;
+      this.liveCount--;
+      this.modCount++;
+    }
+
+    private void grow() {
+      int capacity = this.keys.length * 2;
+      this.keys = Arrays.copyOf(this.keys, capacity);
+      for (int i = 0; i < this.columns.length; i++) {
+        this.columns[i] = Arrays.copyOf(this.columns[i], capacity);
+      }
+    }
+
+    @Override
+    public String toString() {
+      return "Segment[" + this.pdxType.getClassName() + " liveCount=" + this.liveCount + "]";
+    }
+  }
+}
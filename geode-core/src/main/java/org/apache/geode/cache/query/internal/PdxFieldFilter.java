@@ -0,0 +1,388 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.geode.cache.query.internal;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Predicate;
+
+import org.apache.geode.cache.Cache;
+import org.apache.geode.cache.query.AmbiguousNameException;
+import org.apache.geode.cache.query.TypeMismatchException;
+import org.apache.geode.cache.query.internal.parse.OQLLexerTokenTypes;
+import org.apache.geode.distributed.internal.DistributionConfig;
+import org.apache.geode.internal.cache.CachedDeserializable;
+import org.apache.geode.internal.cache.GemFireCacheImpl;
+import org.apache.geode.internal.cache.OffHeapRegionEntry;
+import org.apache.geode.internal.cache.RegionEntry;
+import org.apache.geode.internal.offheap.OffHeapRegionEntryHelper;
+import org.apache.geode.internal.offheap.OffHeapStoredObject;
+import org.apache.geode.pdx.FieldType;
+import org.apache.geode.pdx.internal.PdxField;
+import org.apache.geode.pdx.internal.PdxFieldCursor;
+import org.apache.geode.pdx.internal.PdxType;
+
+/**
+ * Skips the region entries of a full scan whose serialized pdx value can not satisfy the where
+ * clause, before the value is deserialized.
+ * <p>
+ * A full scan deserializes every value into a PdxInstance only to read the few fields its where
+ * clause compares. When the where clause is a comparison, or a conjunction of comparisons, of a
+ * primitive field of the iterator with a literal or bind argument, this filter reads those fields
+ * from the serialized bytes, on heap or off heap, with a {@link PdxFieldCursor} and rejects the
+ * entries for which a comparison is false. Entries it can not decide, for example because the
+ * value is not a serialized pdx or its type does not have the field as a primitive, are accepted
+ * and the where clause decides as before. Comparisons follow
+ * {@link org.apache.geode.cache.query.internal.types.TypeUtils#compare(Object, Object, int)}.
+ * <p>
+ * Skipped entries are not passed to {@link QueryObserver#beforeIterationEvaluation} so the filter
+ * is only used when enabled with the gemfire.Query.PDX_FIELD_FILTER system property.
+ */
+class PdxFieldFilter implements Predicate<RegionEntry>, OQLLexerTokenTypes {
+
+  static boolean ENABLED =
+      Boolean.getBoolean(DistributionConfig.GEMFIRE_PREFIX + "Query.PDX_FIELD_FILTER");
+
+  private final FieldComparison[] comparisons;
+
+  private final PdxFieldCursor cursor;
+
+  private PdxType lastType;
+
+  private final PdxField[] lastFields;
+
+  private PdxFieldFilter(List<FieldComparison> comparisons, PdxFieldCursor cursor) {
+    this.comparisons = comparisons.toArray(new FieldComparison[comparisons.size()]);
+    this.cursor = cursor;
+    this.lastFields = new PdxField[this.comparisons.length];
+  }
+
+  /**
+   * Returns a filter for the values iterated by iterator that rejects the values for which
+   * whereClause is false, or null if none of the where clause can be checked on serialized values.
+   */
+  static PdxFieldFilter create(CompiledValue whereClause, RuntimeIterator iterator,
+      ExecutionContext context) {
+    if (!ENABLED || whereClause == null || !readsPdxFields(context)) {
+      return null;
+    }
+    List<FieldComparison> comparisons =
+        FieldComparison.createAll(whereClause, iterator, context, false);
+    if (comparisons == null || comparisons.isEmpty()) {
+      return null;
+    }
+    return new PdxFieldFilter(comparisons,
+        new PdxFieldCursor(((GemFireCacheImpl) context.getCache()).getPdxRegistry()));
+  }
+
+  /**
+   * Returns true if the query reads the values of its regions as PdxInstances, so that their
+   * attributes are their pdx fields.
+   */
+  static boolean readsPdxFields(ExecutionContext context) {
+    Cache cache = context.getCache();
+    if (!(cache instanceof GemFireCacheImpl)) {
+      return false;
+    }
+    GemFireCacheImpl gfc = (GemFireCacheImpl) cache;
+    return gfc.getPdxReadSerializedByAnyGemFireServices() && gfc.getPdxRegistry() != null;
+  }
+
+  /**
+   * Returns false if the value of re can not satisfy the where clause and true otherwise.
+   */
+  @Override
+  public boolean test(RegionEntry re) {
+    if (re instanceof OffHeapRegionEntry) {
+      long addr = OffHeapRegionEntryHelper.retainSerializedValueAddress((OffHeapRegionEntry) re);
+      if (addr == 0L) {
+        return true;
+      }
+      try {
+        return !this.cursor.reset(OffHeapRegionEntryHelper.getDataAddress(addr),
+            OffHeapRegionEntryHelper.getDataSize(addr)) || matches();
+      } finally {
+        OffHeapStoredObject.release(addr);
+      }
+    }
+    Object value = re._getValue();
+    if (value instanceof CachedDeserializable) {
+      Object serialized = ((CachedDeserializable) value).getValue();
+      if (serialized instanceof byte[] && this.cursor.reset((byte[]) serialized)) {
+        return matches();
+      }
+    }
+    return true;
+  }
+
+  private boolean matches() {
+    PdxType type = this.cursor.getPdxType();
+    if (type != this.lastType) {
+      for (int i = 0; i < this.comparisons.length; i++) {
+        PdxField field = type.getPdxField(this.comparisons[i].getFieldName());
+        this.lastFields[i] =
+            field != null && !field.isDeleted() && this.comparisons[i].canCompare(field)
+                ? field : null;
+      }
+      this.lastType = type;
+    }
+    for (int i = 0; i < this.lastFields.length; i++) {
+      PdxField field = this.lastFields[i];
+      if (field != null && !this.comparisons[i].matches(field.getFieldType(),
+          this.cursor.readPrimitiveBits(field))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * A comparison of a primitive pdx field of the current value of an iterator with a constant,
+   * normalized so that the field is on the left hand side.
+   */
+  static class FieldComparison {
+
+    private final String fieldName;
+
+    private final int operator;
+
+    private final Object value;
+
+    private FieldComparison(String fieldName, int operator, Object value) {
+      this.fieldName = fieldName;
+      this.operator = operator;
+      this.value = value;
+    }
+
+    String getFieldName() {
+      return this.fieldName;
+    }
+
+    /**
+     * Returns the comparisons of whereClause, or of the operands of whereClause if it is a
+     * conjunction. Operands that are not supported comparisons are skipped, or make this return
+     * null if all is true.
+     */
+    static List<FieldComparison> createAll(CompiledValue whereClause, RuntimeIterator iterator,
+        ExecutionContext context, boolean all) {
+      List operands;
+      if (whereClause instanceof CompiledJunction
+          && ((CompiledJunction) whereClause).getOperator() == LITERAL_and) {
+        // the conjunction is false if any of its operands is so the others can be ignored
+        operands = whereClause.getChildren();
+      } else {
+        operands = Collections.singletonList(whereClause);
+      }
+      List<FieldComparison> result = new ArrayList<FieldComparison>(operands.size());
+      for (Object operand : operands) {
+        FieldComparison comparison = operand instanceof CompiledComparison
+            ? create((CompiledComparison) operand, iterator, context) : null;
+        if (comparison != null) {
+          result.add(comparison);
+        } else if (all) {
+          return null;
+        }
+      }
+      return result;
+    }
+
+    /**
+     * Returns the comparison, or null if it does not compare an attribute of the current value of
+     * iterator with a literal or bind argument of a primitive wrapper type.
+     */
+    static FieldComparison create(CompiledComparison comparison, RuntimeIterator iterator,
+        ExecutionContext context) {
+      int operator = comparison.getOperator();
+      String fieldName = getFieldName(comparison._left, iterator, context);
+      Object value;
+      if (fieldName != null) {
+        value = getConstant(comparison._right, context);
+        operator = reflect(reflect(operator));
+      } else {
+        fieldName = getFieldName(comparison._right, iterator, context);
+        value = getConstant(comparison._left, context);
+        operator = reflect(operator);
+      }
+      if (operator == TOK_NE_ALT) {
+        operator = TOK_NE;
+      }
+      if (fieldName == null || value == null || operator == -1) {
+        return null;
+      }
+      if (value instanceof Boolean && operator != TOK_EQ && operator != TOK_NE) {
+        return null;
+      }
+      return new FieldComparison(fieldName, operator, value);
+    }
+
+    /**
+     * Returns the name of the attribute of the current value of iterator that value reads, or null
+     * if it reads anything else.
+     */
+    static String getFieldName(CompiledValue value, RuntimeIterator iterator,
+        ExecutionContext context) {
+      try {
+        if (value instanceof CompiledPath) {
+          CompiledPath path = (CompiledPath) value;
+          CompiledValue receiver = path.getReceiver();
+          if (receiver instanceof CompiledID) {
+            receiver = context.resolve(((CompiledID) receiver).getId());
+          }
+          if (receiver == iterator) {
+            return path.getTailID();
+          }
+        } else if (value instanceof CompiledID) {
+          CompiledValue resolved = context.resolve(((CompiledID) value).getId());
+          if (resolved instanceof CompiledPath
+              && ((CompiledPath) resolved).getReceiver() == iterator) {
+            return ((CompiledPath) resolved).getTailID();
+          }
+        }
+      } catch (TypeMismatchException | AmbiguousNameException ignore) {
+        // leave it to the where clause
+      }
+      return null;
+    }
+
+    /**
+     * Returns the primitive wrapper that value evaluates to if it is a literal or a bind argument.
+     */
+    private static Object getConstant(CompiledValue value, ExecutionContext context) {
+      Object result;
+      if (value instanceof CompiledLiteral) {
+        result = ((CompiledLiteral) value)._obj;
+      } else if (value instanceof CompiledBindArgument) {
+        result = ((CompiledBindArgument) value).evaluate(context);
+      } else {
+        return null;
+      }
+      if (result instanceof Integer || result instanceof Long || result instanceof Short
+          || result instanceof Byte || result instanceof Double || result instanceof Float
+          || result instanceof Character || result instanceof Boolean) {
+        return result;
+      }
+      return null;
+    }
+
+    /**
+     * Returns the operator that gives the same result once the operands are swapped, or -1 if it
+     * is not one that is supported.
+     */
+    private static int reflect(int operator) {
+      switch (operator) {
+        case TOK_EQ:
+        case TOK_NE:
+        case TOK_NE_ALT:
+          return operator;
+        case TOK_LT:
+          return TOK_GT;
+        case TOK_LE:
+          return TOK_GE;
+        case TOK_GT:
+          return TOK_LT;
+        case TOK_GE:
+          return TOK_LE;
+        default:
+          return -1;
+      }
+    }
+
+    /**
+     * Returns true if the value of field can be compared with the constant the way
+     * {@link org.apache.geode.cache.query.internal.types.TypeUtils#compare(Object, Object, int)}
+     * compares them without a type mismatch.
+     */
+    boolean canCompare(PdxField field) {
+      FieldType fieldType = field.getFieldType();
+      if (!PdxFieldCursor.isPrimitive(fieldType)) {
+        return false;
+      }
+      switch (fieldType) {
+        case BOOLEAN:
+          return this.value instanceof Boolean;
+        case CHAR:
+          return this.value instanceof Character;
+        default:
+          return this.value instanceof Number;
+      }
+    }
+
+    /**
+     * Returns the result of the comparison for a field whose value was read by
+     * {@link PdxFieldCursor#readPrimitiveBits}. The field must be one this
+     * {@link #canCompare(PdxField) can compare}.
+     */
+    boolean matches(FieldType fieldType, long bits) {
+      switch (fieldType) {
+        case BOOLEAN:
+          boolean equal = (bits != 0L) == (Boolean) this.value;
+          return this.operator == TOK_EQ ? equal : !equal;
+        case CHAR:
+          return matches(Character.compare((char) bits, (Character) this.value));
+        default:
+          return matches(compare(fieldType, bits, (Number) this.value));
+      }
+    }
+
+    /**
+     * Compares a numeric field with value the way NumericComparator compares their wrappers.
+     */
+    private static int compare(FieldType fieldType, long bits, Number value) {
+      if (fieldType == FieldType.DOUBLE || value instanceof Double) {
+        return Double.compare(toDouble(fieldType, bits), value.doubleValue());
+      }
+      if (fieldType == FieldType.FLOAT || value instanceof Float) {
+        float fieldValue = fieldType == FieldType.FLOAT ? Float.intBitsToFloat((int) bits)
+            : (float) (double) bits;
+        return Float.compare(fieldValue, (float) value.doubleValue());
+      }
+      if (fieldType == FieldType.LONG || value instanceof Long) {
+        return Long.compare(bits, value.longValue());
+      }
+      return Integer.compare((int) bits, value.intValue());
+    }
+
+    private static double toDouble(FieldType fieldType, long bits) {
+      switch (fieldType) {
+        case DOUBLE:
+          return Double.longBitsToDouble(bits);
+        case FLOAT:
+          return Float.intBitsToFloat((int) bits);
+        default:
+          return bits;
+      }
+    }
+
+    private boolean matches(int comparison) {
+      switch (this.operator) {
+        case TOK_EQ:
+          return comparison == 0;
+        case TOK_NE:
+          return comparison != 0;
+        case TOK_LT:
+          return comparison < 0;
+        case TOK_LE:
+          return comparison <= 0;
+        case TOK_GT:
+          return comparison > 0;
+        case TOK_GE:
+          return comparison >= 0;
+        default:
+          return true;
+      }
+    }
+  }
+}
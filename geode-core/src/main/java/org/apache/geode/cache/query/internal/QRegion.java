@@ -19,10 +19,12 @@ import java.io.*;
 import org.apache.geode.cache.*;
 import org.apache.geode.cache.query.*;
 import java.util.concurrent.locks.Lock;
+import java.util.function.Predicate;
 import org.apache.geode.cache.query.types.*;
 import org.apache.geode.cache.query.internal.types.*;
 import org.apache.geode.internal.cache.LocalDataSet;
 import org.apache.geode.internal.cache.PartitionedRegion;
+import org.apache.geode.internal.cache.RegionEntry;
 import org.apache.geode.internal.i18n.LocalizedStrings;
 
 /**
@@ -105,6 +107,13 @@ public class QRegion implements SelectResults {
     ((ResultsCollectionWrapper) (this.values)).setKeepSerialized(keepSerialized);
   }
 
+  /**
+   * Sets a filter that can skip values of region entries without reading them.
+   */
+  public void setValueFilter(Predicate<RegionEntry> valueFilter) {
+    ((ResultsCollectionWrapper) (this.values)).setValueFilter(valueFilter);
+  }
+
   protected ObjectType getKeyType() {
     Class constraint = this.region.getAttributes().getKeyConstraint();
     if (constraint == null) {
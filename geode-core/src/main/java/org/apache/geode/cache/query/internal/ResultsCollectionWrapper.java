@@ -18,10 +18,12 @@ import java.util.*;
 import java.io.*;
 import java.lang.reflect.Array;
 import java.lang.reflect.Modifier;
+import java.util.function.Predicate;
 import org.apache.geode.cache.query.*;
 import org.apache.geode.cache.query.types.*;
 import org.apache.geode.cache.query.internal.types.*;
 import org.apache.geode.internal.cache.EntriesSet;
+import org.apache.geode.internal.cache.RegionEntry;
 import org.apache.geode.internal.i18n.LocalizedStrings;
 import org.apache.geode.*;
 import org.apache.geode.internal.DataSerializableFixedID;
@@ -613,6 +615,12 @@ public final class ResultsCollectionWrapper implements SelectResults, DataSerial
     }
   }
 
+  public void setValueFilter(Predicate<RegionEntry> valueFilter) {
+    if (base instanceof EntriesSet) {
+      ((EntriesSet) base).setValueFilter(valueFilter);
+    }
+  }
+
   public void setIgnoreCopyOnReadForQuery(boolean ignore) {
     if (base instanceof EntriesSet) {
       ((EntriesSet) base).setIgnoreCopyOnReadForQuery(ignore);
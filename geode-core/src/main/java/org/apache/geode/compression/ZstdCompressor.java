@@ -0,0 +1,102 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.geode.compression;
+
+import java.io.Serializable;
+
+import com.github.luben.zstd.Zstd;
+
+/**
+ * An implementation of {@link Compressor} for Facebook's Zstandard compression codec. Utilizes the
+ * zstd-jni wrapper.
+ * <p>
+ * Zstandard compresses better than Snappy at a similar speed with the default level. Small values
+ * compress much better with a {@link ZstdDictionaryCompressor}.
+ */
+public final class ZstdCompressor implements Compressor, Serializable {
+  private static final long serialVersionUID = 7320948162538704721L;
+
+  /**
+   * The compression level used by the no-arg constructor.
+   */
+  public static final int DEFAULT_LEVEL = 3;
+
+  /**
+   * The highest compression level supported by Zstandard.
+   */
+  public static final int MAX_LEVEL = 22;
+
+  private final int level;
+
+  /**
+   * Create a new instance of the ZstdCompressor that uses {@link #DEFAULT_LEVEL}.
+   */
+  public ZstdCompressor() {
+    this(DEFAULT_LEVEL);
+  }
+
+  /**
+   * Create a new instance of the ZstdCompressor.
+   * 
+   * @param level the Zstandard compression level, from 1 (fastest) to 22 (smallest)
+   */
+  public ZstdCompressor(int level) {
+    if (level < 1 || level > MAX_LEVEL) {
+      throw new IllegalArgumentException("Invalid Zstandard compression level: " + level);
+    }
+    this.level = level;
+  }
+
+  public int getLevel() {
+    return this.level;
+  }
+
+  @Override
+  public byte[] compress(byte[] input) {
+    try {
+      return Zstd.compress(input, this.level);
+    } catch (RuntimeException e) {
+      throw new CompressionException(e);
+    }
+  }
+
+  @Override
+  public byte[] decompress(byte[] input) {
+    long size = Zstd.decompressedSize(input);
+    if (size < 0 || size > Integer.MAX_VALUE) {
+      throw new CompressionException("Compressed data does not contain a valid Zstandard frame");
+    }
+    try {
+      return Zstd.decompress(input, (int) size);
+    } catch (RuntimeException e) {
+      throw new CompressionException(e);
+    }
+  }
+
+  @Override
+  public int hashCode() {
+    return this.getClass().getName().hashCode() * 31 + this.level;
+  }
+
+  @Override
+  public boolean equals(final Object other) {
+    if (other == null) {
+      return false;
+    }
+
+    return this.getClass().getName().equals(other.getClass().getName())
+        && this.level == ((ZstdCompressor) other).level;
+  }
+}
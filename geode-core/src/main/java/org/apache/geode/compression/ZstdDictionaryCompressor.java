@@ -0,0 +1,301 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.geode.compression;
+
+import java.io.ObjectStreamException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.github.luben.zstd.Zstd;
+import com.github.luben.zstd.ZstdDictCompress;
+import com.github.luben.zstd.ZstdDictDecompress;
+import org.apache.logging.log4j.Logger;
+
+import org.apache.geode.internal.logging.LogService;
+
+/**
+ * A Zstandard {@link Compressor} that compresses with a dictionary trained from the values it is
+ * given.
+ * <p>
+ * Region values are compressed one at a time so small values, such as most PDX instances, are too
+ * short for a compressor to find much to reuse in them and may even grow. This compressor samples
+ * the first values it compresses, trains a Zstandard dictionary from them in the background and
+ * from then on compresses every value against that dictionary, which captures the field names,
+ * type ids and common field values shared by the region's values.
+ * <p>
+ * Each dictionary gets a version that is stored in the first byte of every value compressed with
+ * it. Calling {@link #retrain()} samples the values again and trains a new version; values that
+ * were compressed with an older version can still be decompressed because all versions are kept.
+ * Dictionaries are only kept in memory. This is sufficient since the cache only keeps compressed
+ * values in memory; values are decompressed before they are written to disk or sent to another
+ * member. When this compressor is deserialized it starts over without a dictionary.
+ * <p>
+ * The dictionary is trained from the values of every region using this instance, so each region
+ * should be given its own instance, which is what happens when the compressor is declared in
+ * cache.xml.
+ */
+public final class ZstdDictionaryCompressor implements Compressor, Serializable {
+  private static final long serialVersionUID = -6048121963571852037L;
+
+  private static final Logger logger = LogService.getLogger();
+
+  /**
+   * The size of the dictionaries trained by the no-arg constructor.
+   */
+  public static final int DEFAULT_DICTIONARY_SIZE = 16 * 1024;
+
+  /**
+   * The number of values sampled to train a dictionary by the no-arg constructor.
+   */
+  public static final int DEFAULT_SAMPLE_COUNT = 4096;
+
+  /**
+   * The largest dictionary version. The version is stored in one byte of every compressed value.
+   */
+  static final int MAX_DICTIONARY_VERSION = 255;
+
+  /**
+   * Number of bytes in front of the compressed data that hold the dictionary version and the
+   * uncompressed length.
+   */
+  private static final int HEADER_SIZE = 5;
+
+  private static final byte[] NO_DICTIONARY = new byte[0];
+
+  private final int level;
+  private final int dictionarySize;
+  private final int sampleCount;
+
+  /**
+   * The dictionaries indexed by version. Version 0 is compressing without a dictionary.
+   */
+  private transient volatile Dictionary[] dictionaries;
+
+  /**
+   * The values sampled for the next dictionary, or null if not sampling. Guarded by this.
+   */
+  private transient List<byte[]> samples;
+
+  /**
+   * Create a new instance of the ZstdDictionaryCompressor that uses the default compression level,
+   * dictionary size and sample count.
+   */
+  public ZstdDictionaryCompressor() {
+    this(ZstdCompressor.DEFAULT_LEVEL, DEFAULT_DICTIONARY_SIZE, DEFAULT_SAMPLE_COUNT);
+  }
+
+  /**
+   * Create a new instance of the ZstdDictionaryCompressor.
+   * 
+   * @param level the Zstandard compression level, from 1 (fastest) to 22 (smallest)
+   * @param dictionarySize the maximum size in bytes of a trained dictionary
+   * @param sampleCount the number of values to sample before training a dictionary
+   */
+  public ZstdDictionaryCompressor(int level, int dictionarySize, int sampleCount) {
+    if (level < 1 || level > ZstdCompressor.MAX_LEVEL) {
+      throw new IllegalArgumentException("Invalid Zstandard compression level: " + level);
+    }
+    if (dictionarySize < 256) {
+      throw new IllegalArgumentException("dictionarySize must be >= 256: " + dictionarySize);
+    }
+    if (sampleCount < 1) {
+      throw new IllegalArgumentException("sampleCount must be >= 1: " + sampleCount);
+    }
+    this.level = level;
+    this.dictionarySize = dictionarySize;
+    this.sampleCount = sampleCount;
+    this.dictionaries = new Dictionary[] {new Dictionary(0, null, null)};
+    this.samples = new ArrayList<byte[]>();
+  }
+
+  public int getLevel() {
+    return this.level;
+  }
+
+  public int getDictionarySize() {
+    return this.dictionarySize;
+  }
+
+  public int getSampleCount() {
+    return this.sampleCount;
+  }
+
+  /**
+   * Returns the version of the dictionary that new values are compressed with, or 0 if no
+   * dictionary has been trained yet.
+   */
+  public int getDictionaryVersion() {
+    Dictionary[] dicts = this.dictionaries;
+    return dicts[dicts.length - 1].version;
+  }
+
+  /**
+   * Starts sampling values to train a new version of the dictionary. Does nothing if this
+   * compressor is already sampling or has trained its last version.
+   */
+  public synchronized void retrain() {
+    if (this.samples == null && this.dictionaries.length <= MAX_DICTIONARY_VERSION) {
+      this.samples = new ArrayList<byte[]>();
+    }
+  }
+
+  @Override
+  public byte[] compress(byte[] input) {
+    Dictionary[] dicts = this.dictionaries;
+    Dictionary dictionary = dicts[dicts.length - 1];
+    sample(input);
+
+    byte[] result = new byte[HEADER_SIZE + (int) Zstd.compressBound(input.length)];
+    result[0] = (byte) dictionary.version;
+    writeLength(result, input.length);
+    long size;
+    if (dictionary.compress != null) {
+      size = Zstd.compressFastDict(result, HEADER_SIZE, input, 0, input.length,
+          dictionary.compress);
+    } else {
+      size = Zstd.compressUsingDict(result, HEADER_SIZE, input, 0, input.length, NO_DICTIONARY,
+          this.level);
+    }
+    if (Zstd.isError(size)) {
+      throw new CompressionException(Zstd.getErrorName(size));
+    }
+    return Arrays.copyOf(result, HEADER_SIZE + (int) size);
+  }
+
+  @Override
+  public byte[] decompress(byte[] input) {
+    if (input.length < HEADER_SIZE) {
+      throw new CompressionException("Compressed data is too short: " + input.length);
+    }
+    int version = input[0] & 0xff;
+    Dictionary[] dicts = this.dictionaries;
+    if (version >= dicts.length) {
+      throw new CompressionException("Unknown Zstandard dictionary version: " + version);
+    }
+    Dictionary dictionary = dicts[version];
+    int length = readLength(input);
+    if (length < 0) {
+      throw new CompressionException("Invalid uncompressed length: " + length);
+    }
+    byte[] result = new byte[length];
+    long size;
+    if (dictionary.decompress != null) {
+      size = Zstd.decompressFastDict(result, 0, input, HEADER_SIZE, input.length - HEADER_SIZE,
+          dictionary.decompress);
+    } else {
+      size = Zstd.decompressUsingDict(result, 0, input, HEADER_SIZE, input.length - HEADER_SIZE,
+          NO_DICTIONARY);
+    }
+    if (Zstd.isError(size)) {
+      throw new CompressionException(Zstd.getErrorName(size));
+    }
+    if (size != length) {
+      throw new CompressionException(
+          "Decompressed " + size + " bytes but expected " + length + " bytes");
+    }
+    return result;
+  }
+
+  private void sample(byte[] input) {
+    final byte[][] toTrain;
+    synchronized (this) {
+      if (this.samples == null) {
+        return;
+      }
+      this.samples.add(input.clone());
+      if (this.samples.size() < this.sampleCount) {
+        return;
+      }
+      toTrain = this.samples.toArray(new byte[this.samples.size()][]);
+      this.samples = null;
+    }
+    Thread trainer = new Thread(() -> train(toTrain), "ZstdDictionaryCompressor trainer");
+    trainer.setDaemon(true);
+    trainer.start();
+  }
+
+  /**
+   * Trains a dictionary from the samples and makes it the one new values are compressed with.
+   */
+  void train(byte[][] toTrain) {
+    byte[] buffer = new byte[this.dictionarySize];
+    long size = Zstd.trainFromBuffer(toTrain, buffer);
+    if (Zstd.isError(size)) {
+      logger.warn("Could not train a Zstandard dictionary from {} samples: {}", toTrain.length,
+          Zstd.getErrorName(size));
+      return;
+    }
+    byte[] dict = Arrays.copyOf(buffer, (int) size);
+    synchronized (this) {
+      Dictionary[] dicts = this.dictionaries;
+      Dictionary[] newDicts = Arrays.copyOf(dicts, dicts.length + 1);
+      newDicts[dicts.length] = new Dictionary(dicts.length, new ZstdDictCompress(dict, this.level),
+          new ZstdDictDecompress(dict));
+      this.dictionaries = newDicts;
+    }
+  }
+
+  private static void writeLength(byte[] bytes, int length) {
+    bytes[1] = (byte) (length >>> 24);
+    bytes[2] = (byte) (length >>> 16);
+    bytes[3] = (byte) (length >>> 8);
+    bytes[4] = (byte) length;
+  }
+
+  private static int readLength(byte[] bytes) {
+    return ((bytes[1] & 0xff) << 24) | ((bytes[2] & 0xff) << 16) | ((bytes[3] & 0xff) << 8)
+        | (bytes[4] & 0xff);
+  }
+
+  /**
+   * Dictionaries are not serialized so a deserialized instance starts over without one.
+   */
+  private Object readResolve() throws ObjectStreamException {
+    return new ZstdDictionaryCompressor(this.level, this.dictionarySize, this.sampleCount);
+  }
+
+  @Override
+  public int hashCode() {
+    int result = this.getClass().getName().hashCode();
+    result = 31 * result + this.level;
+    result = 31 * result + this.dictionarySize;
+    result = 31 * result + this.sampleCount;
+    return result;
+  }
+
+  @Override
+  public boolean equals(final Object other) {
+    if (other == null || !this.getClass().getName().equals(other.getClass().getName())) {
+      return false;
+    }
+    ZstdDictionaryCompressor o = (ZstdDictionaryCompressor) other;
+    return this.level == o.level && this.dictionarySize == o.dictionarySize
+        && this.sampleCount == o.sampleCount;
+  }
+
+  private static class Dictionary {
+    private final int version;
+    private final ZstdDictCompress compress;
+    private final ZstdDictDecompress decompress;
+
+    Dictionary(int version, ZstdDictCompress compress, ZstdDictDecompress decompress) {
+      this.version = version;
+      this.compress = compress;
+      this.decompress = decompress;
+    }
+  }
+}
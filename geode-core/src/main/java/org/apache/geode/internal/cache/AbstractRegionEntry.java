@@ -400,6 +400,13 @@ public abstract class AbstractRegionEntry implements RegionEntry, HashEntry<Obje
 
   @Override
   public Object getValue(RegionEntryContext context) {
+    if (this instanceof OffHeapRegionEntry) {
+      Object copy = OffHeapRegionEntryHelper.getValueCopyWithoutRetain((OffHeapRegionEntry) this);
+      if (copy != null) {
+        setRecentlyUsed();
+        return copy;
+      }
+    }
     ReferenceCountHelper.createReferenceCountOwner();
     @Retained
     Object result = _getValueRetain(context, true);
@@ -159,6 +159,13 @@ public class BucketAdvisor extends CacheDistributionAdvisor {
 
   private volatile boolean everHadPrimary = false;
 
+  /**
+   * Incremented each time this member becomes primary for the bucket. Partitioned region listeners
+   * only see the events of a bucket while it is primary here, so state maintained from them is
+   * only complete if this has not changed since it was built.
+   */
+  private volatile int primaryTerm = 0;
+
   private BucketAdvisor startingBucketAdvisor;
 
   private PartitionedRegion pRegion;
@@ -1016,6 +1023,13 @@ public class BucketAdvisor extends CacheDistributionAdvisor {
     }
   }
 
+  /**
+   * Returns the number of times this member has become primary for the bucket.
+   */
+  public int getPrimaryTerm() {
+    return this.primaryTerm;
+  }
+
   /**
    * Returns true if this member is currently marked as primary.
    * 
@@ -1232,6 +1246,7 @@ public class BucketAdvisor extends CacheDistributionAdvisor {
             }
             setPrimaryMember(getDistributionManager().getId());
             changedStateToIsPrimary = true;
+            this.primaryTerm++;
             if (hasPrimary() && isPrimary()) {
               shouldInvokeListeners = true;
             }
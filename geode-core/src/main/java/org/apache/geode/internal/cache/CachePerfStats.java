@@ -123,6 +123,11 @@ public class CachePerfStats {
   /** Id of the meta data refresh statistic */
   protected static final int metaDataRefreshCountId;
 
+  protected static final int nonSingleHopsCountId;
+  protected static final int singleHopBulkOpRetriesId;
+  protected static final int nearCacheRevalidationsId;
+  protected static final int nearCacheRevalidationMissesId;
+
   protected static final int conflatedEventsId;
   protected static final int tombstoneCountId;
   protected static final int tombstoneGCCountId;
@@ -152,6 +157,9 @@ public class CachePerfStats {
   protected static final int compressionDecompressionsId;
   protected static final int compressionPreCompressedBytesId;
   protected static final int compressionPostCompressedBytesId;
+  protected static final int compressionRatioId;
+  protected static final int compressionAverageCompressTimeId;
+  protected static final int compressionAverageDecompressTimeId;
 
   /** The Statistics object that we delegate most behavior to */
   protected final Statistics stats;
@@ -282,6 +290,12 @@ public class CachePerfStats {
         "Total number of times client request observed more than one hop during operation.";
     final String metaDataRefreshCountDesc =
         "Total number of times the meta data is refreshed due to hopping observed.";
+    final String singleHopBulkOpRetriesDesc =
+        "Total number of times a single hop putAll, removeAll or getAll sent the keys of a server that failed again.";
+    final String nearCacheRevalidationsDesc =
+        "Total number of times a client region used as a near cache checked a local value against the server.";
+    final String nearCacheRevalidationMissesDesc =
+        "Total number of times a client region used as a near cache found that a local value had changed on the server.";
     final String conflatedEventsDesc =
         "Number of events not delivered due to conflation.  Typically this means that the event arrived after a later event was already applied to the cache.";
     final String tombstoneCountDesc =
@@ -322,6 +336,12 @@ public class CachePerfStats {
         "The total number of bytes before compressing.";
     final String compressionPostCompressedBytesDesc =
         "The total number of bytes after compressing.";
+    final String compressionRatioDesc =
+        "The total number of bytes before compressing divided by the total number of bytes after compressing.";
+    final String compressionAverageCompressTimeDesc =
+        "The average time spent compressing a value. Only measured when clock stats are enabled.";
+    final String compressionAverageDecompressTimeDesc =
+        "The average time spent decompressing a value. Only measured when clock stats are enabled.";
     final String evictByCriteria_evictionsDesc = "The total number of entries evicted";// total
                                                                                        // actual
                                                                                        // evictions
@@ -473,6 +493,12 @@ public class CachePerfStats {
                 false),
             f.createLongCounter("metaDataRefreshCount", metaDataRefreshCountDesc,
                 "Total number of times the meta data is refreshed due to hopping.", false),
+            f.createLongCounter("singleHopBulkOpRetries", singleHopBulkOpRetriesDesc,
+                "operations", false),
+            f.createLongCounter("nearCacheRevalidations", nearCacheRevalidationsDesc,
+                "operations"),
+            f.createLongCounter("nearCacheRevalidationMisses", nearCacheRevalidationMissesDesc,
+                "operations"),
             f.createIntCounter("deltaUpdates", deltaUpdatesDesc, "operations"),
             f.createLongCounter("deltaUpdatesTime", deltaUpdatesTimeDesc, "nanoseconds", false),
             f.createIntCounter("deltaFailedUpdates", deltaFailedUpdatesDesc, "operations"),
@@ -494,6 +520,11 @@ public class CachePerfStats {
             f.createLongCounter("decompressions", compressionDecompressionsDesc, "operations"),
             f.createLongCounter("preCompressedBytes", compressionPreCompresssedBytesDesc, "bytes"),
             f.createLongCounter("postCompressedBytes", compressionPostCompressedBytesDesc, "bytes"),
+            f.createDoubleGauge("compressionRatio", compressionRatioDesc, "ratio"),
+            f.createLongGauge("averageCompressTime", compressionAverageCompressTimeDesc,
+                "nanoseconds"),
+            f.createLongGauge("averageDecompressTime", compressionAverageDecompressTimeDesc,
+                "nanoseconds"),
 
             f.createLongCounter("evictByCriteria_evictions", evictByCriteria_evictionsDesc,
                 "operations"),
@@ -596,6 +627,10 @@ public class CachePerfStats {
     evictWorkTimeId = type.nameToId("evictWorkTime");
 
     metaDataRefreshCountId = type.nameToId("metaDataRefreshCount");
+    nonSingleHopsCountId = type.nameToId("nonSingleHopsCount");
+    singleHopBulkOpRetriesId = type.nameToId("singleHopBulkOpRetries");
+    nearCacheRevalidationsId = type.nameToId("nearCacheRevalidations");
+    nearCacheRevalidationMissesId = type.nameToId("nearCacheRevalidationMisses");
 
     conflatedEventsId = type.nameToId("conflatedEvents");
     tombstoneCountId = type.nameToId("tombstones");
@@ -626,6 +661,9 @@ public class CachePerfStats {
     compressionDecompressionsId = type.nameToId("decompressions");
     compressionPreCompressedBytesId = type.nameToId("preCompressedBytes");
     compressionPostCompressedBytesId = type.nameToId("postCompressedBytes");
+    compressionRatioId = type.nameToId("compressionRatio");
+    compressionAverageCompressTimeId = type.nameToId("averageCompressTime");
+    compressionAverageDecompressTimeId = type.nameToId("averageDecompressTime");
   }
 
   //////////////////////// Constructors ////////////////////////
@@ -643,6 +681,7 @@ public class CachePerfStats {
    */
   public CachePerfStats(StatisticsFactory factory) {
     stats = factory.createAtomicStatistics(type, "cachePerfStats");
+    setCompressionSuppliers();
   }
 
   /**
@@ -651,6 +690,17 @@ public class CachePerfStats {
    */
   public CachePerfStats(StatisticsFactory factory, String name) {
     stats = factory.createAtomicStatistics(type, "RegionStats-" + name);
+    setCompressionSuppliers();
+  }
+
+  /**
+   * The compression gauges are computed from the compression counters when the statistics are
+   * sampled.
+   */
+  private void setCompressionSuppliers() {
+    stats.setDoubleSupplier(compressionRatioId, this::getCompressionRatio);
+    stats.setLongSupplier(compressionAverageCompressTimeId, this::getAverageCompressionTime);
+    stats.setLongSupplier(compressionAverageDecompressTimeId, this::getAverageDecompressionTime);
   }
 
   /**
@@ -900,6 +950,42 @@ public class CachePerfStats {
     return stats.getLong(compressionPostCompressedBytesId);
   }
 
+  /**
+   * Returns the number of bytes before compressing divided by the number of bytes after
+   * compressing, or 0 if nothing was compressed yet.
+   */
+  public double getCompressionRatio() {
+    long postCompressedBytes = getTotalPostCompressedBytes();
+    if (postCompressedBytes == 0) {
+      return 0.0;
+    }
+    return (double) getTotalPreCompressedBytes() / postCompressedBytes;
+  }
+
+  /**
+   * Returns the average nanoseconds spent compressing a value. Only measured when clock stats are
+   * enabled.
+   */
+  public long getAverageCompressionTime() {
+    long compressions = getTotalCompressions();
+    if (compressions == 0) {
+      return 0;
+    }
+    return getTotalCompressionTime() / compressions;
+  }
+
+  /**
+   * Returns the average nanoseconds spent decompressing a value. Only measured when clock stats are
+   * enabled.
+   */
+  public long getAverageDecompressionTime() {
+    long decompressions = getTotalDecompressions();
+    if (decompressions == 0) {
+      return 0;
+    }
+    return getTotalDecompressionTime() / decompressions;
+  }
+
   ////////////////////// Updating Stats //////////////////////
 
   public long startCompression() {
@@ -1503,6 +1589,37 @@ public class CachePerfStats {
     return this.stats.getLong(metaDataRefreshCountId);
   }
 
+  public void incNonSingleHopsCount() {
+    this.stats.incLong(nonSingleHopsCountId, 1);
+  }
+
+  public long getNonSingleHopsCount() {
+    return this.stats.getLong(nonSingleHopsCountId);
+  }
+
+  public void incSingleHopBulkOpRetries() {
+    this.stats.incLong(singleHopBulkOpRetriesId, 1);
+  }
+
+  public long getSingleHopBulkOpRetries() {
+    return this.stats.getLong(singleHopBulkOpRetriesId);
+  }
+
+  public void incNearCacheRevalidations(boolean changed) {
+    this.stats.incLong(nearCacheRevalidationsId, 1);
+    if (changed) {
+      this.stats.incLong(nearCacheRevalidationMissesId, 1);
+    }
+  }
+
+  public long getNearCacheRevalidations() {
+    return this.stats.getLong(nearCacheRevalidationsId);
+  }
+
+  public long getNearCacheRevalidationMisses() {
+    return this.stats.getLong(nearCacheRevalidationMissesId);
+  }
+
   public long getImportedEntriesCount() {
     return stats.getLong(importedEntriesCountId);
   }
@@ -0,0 +1,130 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.geode.internal.cache;
+
+import java.io.File;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.CRC32;
+
+/**
+ * A {@link CountingDataInputStream} over a crf or drf that, once {@link #startVerifying} has been
+ * called, computes the CRC32 of the bytes read since the end of the last record. Used to verify the
+ * checksums of the {@link Oplog.OPLOG_TYPE#CRF2} and {@link Oplog.OPLOG_TYPE#DRF2} formats.
+ */
+class ChecksumDataInputStream extends CountingDataInputStream {
+
+  private final File file;
+
+  private final ChecksumInputStream checksumInput;
+
+  ChecksumDataInputStream(File file, InputStream is) {
+    this(file, new ChecksumInputStream(is));
+  }
+
+  private ChecksumDataInputStream(File file, ChecksumInputStream checksumInput) {
+    super(checksumInput, file.length());
+    this.file = file;
+    this.checksumInput = checksumInput;
+  }
+
+  File getFile() {
+    return this.file;
+  }
+
+  /**
+   * Starts computing the checksum of the bytes read from now on.
+   */
+  void startVerifying() {
+    this.checksumInput.checksum.reset();
+    this.checksumInput.enabled = true;
+  }
+
+  boolean isVerifying() {
+    return this.checksumInput.enabled;
+  }
+
+  /**
+   * Returns the checksum of the bytes read since {@link #startVerifying} or
+   * {@link #resetChecksum}.
+   */
+  int getChecksum() {
+    return (int) this.checksumInput.checksum.getValue();
+  }
+
+  void resetChecksum() {
+    this.checksumInput.checksum.reset();
+  }
+
+  /**
+   * Adds the bytes read to a checksum while enabled. The bytes skipped are read so that they are
+   * added too.
+   */
+  private static class ChecksumInputStream extends FilterInputStream {
+
+    private final CRC32 checksum = new CRC32();
+
+    private boolean enabled;
+
+    private byte[] skipBuffer;
+
+    ChecksumInputStream(InputStream in) {
+      super(in);
+    }
+
+    @Override
+    public int read() throws IOException {
+      int b = super.read();
+      if (this.enabled && b != -1) {
+        this.checksum.update(b);
+      }
+      return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      int result = super.read(b, off, len);
+      if (this.enabled && result > 0) {
+        this.checksum.update(b, off, result);
+      }
+      return result;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+      if (!this.enabled) {
+        return super.skip(n);
+      }
+      if (this.skipBuffer == null) {
+        this.skipBuffer = new byte[8192];
+      }
+      long skipped = 0;
+      while (skipped < n) {
+        int result = read(this.skipBuffer, 0, (int) Math.min(this.skipBuffer.length, n - skipped));
+        if (result == -1) {
+          break;
+        }
+        skipped += result;
+      }
+      return skipped;
+    }
+
+    @Override
+    public boolean markSupported() {
+      return false;
+    }
+  }
+}
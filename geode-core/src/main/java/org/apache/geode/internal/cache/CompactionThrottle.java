@@ -0,0 +1,63 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.geode.internal.cache;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limits the rate at which a compactor copies bytes forward to the I/O budget of
+ * {@link DiskStoreImpl#COMPACTION_MAX_MB_PER_SEC}, and the rate at which a backup copies oplogs to
+ * that of {@link DiskStoreImpl#BACKUP_MAX_MB_PER_SEC}. Bytes not used during an idle period can be
+ * used in a burst of at most {@link #MAX_BURST_NANOS} worth of the budget. Not thread safe; each
+ * compaction run uses its own throttle and a backup synchronizes on its throttle.
+ */
+class CompactionThrottle {
+
+  static final long MAX_BURST_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+  private final double nanosPerByte;
+
+  /**
+   * The time at which the bytes copied so far are within the budget.
+   */
+  private long budgetTime;
+
+  /**
+   * @param bytesPerSecond the I/O budget; the rate is not limited if it is not positive
+   */
+  CompactionThrottle(long bytesPerSecond, long now) {
+    this.nanosPerByte =
+        bytesPerSecond > 0 ? (double) TimeUnit.SECONDS.toNanos(1) / bytesPerSecond : 0;
+    this.budgetTime = now;
+  }
+
+  boolean isLimited() {
+    return this.nanosPerByte > 0;
+  }
+
+  /**
+   * Accounts for bytes copied at time now.
+   *
+   * @return the number of nanoseconds to wait for the copy to be within the budget
+   */
+  long acquire(long bytes, long now) {
+    if (!isLimited()) {
+      return 0;
+    }
+    this.budgetTime = Math.max(this.budgetTime, now - MAX_BURST_NANOS);
+    this.budgetTime += (long) (bytes * this.nanosPerByte);
+    return Math.max(0, this.budgetTime - now);
+  }
+}
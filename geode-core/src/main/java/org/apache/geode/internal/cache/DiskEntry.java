@@ -31,6 +31,7 @@ import org.apache.geode.internal.cache.Token.Tombstone;
 import org.apache.geode.internal.cache.lru.EnableLRU;
 import org.apache.geode.internal.cache.lru.LRUClockNode;
 import org.apache.geode.internal.cache.lru.LRUEntry;
+import org.apache.geode.internal.cache.lru.LRUStatistics;
 import org.apache.geode.internal.cache.persistence.BytesAndBits;
 import org.apache.geode.internal.cache.persistence.DiskRecoveryStore;
 import org.apache.geode.internal.cache.persistence.DiskRegionView;
@@ -1288,23 +1289,66 @@ public interface DiskEntry extends RegionEntry {
         // if a bucket region then create a CachedDeserializable here instead of object
         value = dr.getRaw(did); // fix bug 40192
         if (value instanceof BytesAndBits) {
-          BytesAndBits bb = (BytesAndBits) value;
-          if (EntryBits.isInvalid(bb.getBits())) {
-            value = Token.INVALID;
-          } else if (EntryBits.isLocalInvalid(bb.getBits())) {
-            value = Token.LOCAL_INVALID;
-          } else if (EntryBits.isTombstone(bb.getBits())) {
-            value = Token.TOMBSTONE;
-          } else if (EntryBits.isSerialized(bb.getBits())) {
-            value = readSerializedValue(bb.getBytes(), bb.getVersion(), in, false);
-          } else {
-            value = readRawValue(bb.getBytes(), bb.getVersion(), in);
-          }
+          value = convertBytesAndBits((BytesAndBits) value, in);
         }
       }
       return value;
     }
 
+    private static Object convertBytesAndBits(BytesAndBits bb, ByteArrayDataInput in) {
+      if (EntryBits.isInvalid(bb.getBits())) {
+        return Token.INVALID;
+      } else if (EntryBits.isLocalInvalid(bb.getBits())) {
+        return Token.LOCAL_INVALID;
+      } else if (EntryBits.isTombstone(bb.getBits())) {
+        return Token.TOMBSTONE;
+      } else if (EntryBits.isSerialized(bb.getBits())) {
+        return readSerializedValue(bb.getBytes(), bb.getVersion(), in, false);
+      } else {
+        return readRawValue(bb.getBytes(), bb.getVersion(), in);
+      }
+    }
+
+    /**
+     * Returns the value of the given evicted entry if it is in the overflow tier of its disk store
+     * and removes it from there, otherwise returns null. Caller must have "did" synced.
+     */
+    private static Object getValueFromOverflowTier(DiskRegionView dr, DiskId did) {
+      OverflowTier tier = dr.getDiskStore().getOverflowTier();
+      if (tier == null || dr.isBackup() && did.getKeyId() == DiskRegion.INVALID_ID) {
+        return null;
+      }
+      BytesAndBits bb = tier.get(did);
+      if (bb == null) {
+        return null;
+      }
+      return convertBytesAndBits(bb, null);
+    }
+
+    /**
+     * Copies the value of an entry that is being evicted, and that is on disk, to the overflow
+     * tier of its disk store. Caller must have "did" synced.
+     */
+    private static void copyToOverflowTier(DiskEntry entry, LocalRegion region, DiskId did) {
+      DiskRegion dr = region.getDiskRegion();
+      OverflowTier tier = dr.getDiskStore().getOverflowTier();
+      if (tier != null && !region.getOffHeap()) {
+        tier.put(dr, did, createValueWrapperFromEntry(entry, region, null));
+      }
+    }
+
+    private static void incOverflowHits(DiskRecoveryStore recoveryStore, boolean fromTier) {
+      RegionMap rm = recoveryStore.getRegionMap();
+      if (rm instanceof AbstractLRURegionMap) {
+        LRUStatistics stats = ((AbstractLRURegionMap) rm).getLRUStatistics();
+        if (fromTier) {
+          stats.incOverflowTierHits();
+        } else {
+          stats.incOverflowDiskHits();
+        }
+      }
+    }
+
     private static void lruUpdateCallback(DiskRecoveryStore recoveryStore) {
       /*
        * Used conditional check to see if if its a LIFO Enabled, yes then disable
@@ -1350,9 +1394,21 @@ public interface DiskEntry extends RegionEntry {
       dr.acquireReadLock();
       try {
         synchronized (did) {
-          Object value = getValueFromDisk(dr, did, null);
-          if (value == null)
-            return null;
+          Object value = null;
+          if (entry instanceof LRUEntry) {
+            value = getValueFromOverflowTier(dr, did);
+            if (value != null) {
+              incOverflowHits(region, true);
+            }
+          }
+          if (value == null) {
+            value = getValueFromDisk(dr, did, null);
+            if (value == null)
+              return null;
+            if (entry instanceof LRUEntry) {
+              incOverflowHits(region, false);
+            }
+          }
           setValueOnFaultIn(value, did, entry, dr, region);
           return value;
         }
@@ -1490,6 +1546,7 @@ public interface DiskEntry extends RegionEntry {
             // do the stats when it is actually written to disk
           } else {
             region.updateSizeOnEvict(entry.getKey(), oldSize);
+            copyToOverflowTier(entry, region, did);
             entry.handleValueOverflow(region);
             entry.setValueWithContext(region, null);
             change = ((LRUClockNode) entry).updateEntrySize(ccHelper);
@@ -1598,6 +1655,7 @@ public interface DiskEntry extends RegionEntry {
                       // Moved this here to fix bug 40116.
                       region.updateSizeOnEvict(entry.getKey(), entryValSize);
                       updateStats(dr, region, -1/* InVM */, 1/* OnDisk */, did.getValueLength());
+                      copyToOverflowTier(entry, region, did);
                       entry.handleValueOverflow(region);
                       entry.setValueWithContext(region, null);
                     }
@@ -1695,6 +1753,10 @@ public interface DiskEntry extends RegionEntry {
 
       // System.out.println("DEBUG: removeFromDisk doing remove(" + id + ")");
       int oldValueLength = did.getValueLength();
+      OverflowTier tier = dr.getDiskStore().getOverflowTier();
+      if (tier != null) {
+        tier.remove(did);
+      }
       if (dr.isSync() || isClear) {
         dr.remove(region, entry, false, isClear);
         if (dr.isBackup()) {
@@ -18,8 +18,10 @@ import java.io.File;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.geode.internal.cache.persistence.BackupInspector;
+import org.apache.geode.internal.cache.persistence.BackupManager;
 
 /**
  * This class manages the state of the backup of an individual disk store. It holds the list of
@@ -35,10 +37,23 @@ public class DiskStoreBackup {
   private final Set<Oplog> deferredCrfDeletes = new HashSet<Oplog>();
   private final Set<Oplog> deferredDrfDeletes = new HashSet<Oplog>();
   private final File targetDir;
+  /**
+   * Shared by the threads copying the oplogs; guarded by itself.
+   */
+  private final CompactionThrottle copyThrottle;
 
   public DiskStoreBackup(Oplog[] allOplogs, File targetDir) {
+    this(allOplogs, targetDir, 0);
+  }
+
+  /**
+   * @param bytesPerSecond the I/O budget of the copies of the oplogs; the rate is not limited if it
+   *        is not positive
+   */
+  public DiskStoreBackup(Oplog[] allOplogs, File targetDir, long bytesPerSecond) {
     this.pendingBackup = new HashSet<Oplog>(Arrays.asList(allOplogs));
     this.targetDir = targetDir;
+    this.copyThrottle = new CompactionThrottle(bytesPerSecond, System.nanoTime());
   }
 
   /**
@@ -89,6 +104,27 @@ public class DiskStoreBackup {
     return targetDir;
   }
 
+  /**
+   * Called by a thread copying an oplog after it has copied bytes. Waits while the copies of this
+   * backup are ahead of their I/O budget, or until the backup is cancelled.
+   */
+  void afterCopy(long bytes, BackupManager backupManager) throws InterruptedException {
+    long delay;
+    synchronized (this.copyThrottle) {
+      if (!this.copyThrottle.isLimited()) {
+        return;
+      }
+      delay = this.copyThrottle.acquire(bytes, System.nanoTime());
+    }
+    long start = System.nanoTime();
+    // sleep in short steps so that cancelling the backup is not delayed
+    long remaining = delay;
+    while (remaining > 0 && !backupManager.isCancelled()) {
+      TimeUnit.NANOSECONDS.sleep(Math.min(remaining, CompactionThrottle.MAX_BURST_NANOS));
+      remaining = delay - (System.nanoTime() - start);
+    }
+  }
+
   public synchronized void cleanup() {
     for (Oplog oplog : getPendingBackup()) {
       backupFinished(oplog);
@@ -78,6 +78,7 @@ import java.io.File;
 import java.io.FileOutputStream;
 import java.io.FilenameFilter;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.io.PrintStream;
 import java.net.InetAddress;
 import java.nio.channels.ClosedByInterruptException;
@@ -98,9 +99,13 @@ import java.util.Properties;
 import java.util.Set;
 import java.util.TreeSet;
 import java.util.UUID;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.RejectedExecutionException;
@@ -219,6 +224,126 @@ public class DiskStoreImpl implements DiskStore {
    */
   public static final int MAX_PENDING_TASKS =
       Integer.getInteger(DistributionConfig.GEMFIRE_PREFIX + "disk.MAX_PENDING_TASKS", 6);
+
+  /**
+   * This system property turns on group commit of synchronous writes. Instead of writing its record
+   * through to the oplog files, each synchronous writer appends it to the oplog buffer and waits
+   * for a force of the oplog files that covers the records of all the writers that appended in the
+   * meantime. Made non final so tests can set it.
+   */
+  static boolean GROUP_COMMIT =
+      Boolean.getBoolean(DistributionConfig.GEMFIRE_PREFIX + "disk.GROUP_COMMIT");
+
+  /**
+   * The maximum number of microseconds a group commit waits for more writers before forcing the
+   * oplog files. Made non final so tests can set it.
+   */
+  static long GROUP_COMMIT_MAX_LATENCY_MICROS = Long
+      .getLong(DistributionConfig.GEMFIRE_PREFIX + "disk.GROUP_COMMIT_MAX_LATENCY_MICROS", 1000);
+
+  /**
+   * The number of waiting writers that makes a group commit force the oplog files without waiting
+   * for the maximum latency. Made non final so tests can set it.
+   */
+  static int GROUP_COMMIT_MAX_BATCH =
+      Integer.getInteger(DistributionConfig.GEMFIRE_PREFIX + "disk.GROUP_COMMIT_MAX_BATCH", 64);
+
+  /**
+   * This system property sets the number of threads a recovery uses to read the drf files of the
+   * oplogs, to read ahead the krf or crf files of the oplogs it will recover next and to recover
+   * values. If it is 1 the recovery is done by a single thread. Made non final so tests can set
+   * it.
+   */
+  static int RECOVERY_THREADS = Integer.getInteger(
+      DistributionConfig.GEMFIRE_PREFIX + "disk.RECOVERY_THREADS",
+      Runtime.getRuntime().availableProcessors());
+
+  /**
+   * This system property sets the number of threads a backup uses to copy the oplogs of a disk
+   * store. If it is 1 the oplogs are copied one after the other. Made non final so tests can set
+   * it.
+   */
+  static int BACKUP_COPY_THREADS =
+      Integer.getInteger(DistributionConfig.GEMFIRE_PREFIX + "disk.BACKUP_COPY_THREADS", 4);
+
+  /**
+   * This system property sets the I/O budget, in megabytes per second, shared by the threads that
+   * copy the oplogs of a disk store to a backup. Ignored if set to <= 0. Made non final so tests
+   * can set it.
+   */
+  static long BACKUP_MAX_MB_PER_SEC =
+      Long.getLong(DistributionConfig.GEMFIRE_PREFIX + "disk.BACKUP_MAX_MB_PER_SEC", 0);
+
+  /**
+   * This system property turns on reading values from oplogs that are no longer written to through
+   * a read only memory mapping of their crf file. Such reads neither take the oplog lock nor do a
+   * system call. Made non final so tests can set it.
+   */
+  static boolean MMAP_ROLLED_OPLOGS =
+      Boolean.getBoolean(DistributionConfig.GEMFIRE_PREFIX + "disk.MMAP_ROLLED_OPLOGS");
+
+  /**
+   * This system property makes oplogs write their crf and drf files with O_DSYNC semantics, so that
+   * every write of buffered records is on disk when it returns without forcing the file metadata.
+   * The write buffers are then sized in whole pages. Made non final so tests can set it.
+   */
+  static boolean DSYNC_WRITES =
+      Boolean.getBoolean(DistributionConfig.GEMFIRE_PREFIX + "disk.DSYNC_WRITES");
+
+  /**
+   * This system property sets the I/O budget, in megabytes per second, of the bytes a compactor
+   * copies forward. The compactor sleeps whenever it gets ahead of the budget. Ignored if set to
+   * <= 0. Made non final so tests can set it.
+   */
+  static long COMPACTION_MAX_MB_PER_SEC =
+      Long.getLong(DistributionConfig.GEMFIRE_PREFIX + "disk.COMPACTION_MAX_MB_PER_SEC", 0);
+
+  /**
+   * This system property turns on incremental compaction. A compaction stops once it has copied
+   * this many bytes forward, leaving the rest of its oplogs to the next compaction, and the oplogs
+   * with the most garbage are compacted first, the oldest first among those with as much garbage.
+   * Ignored if set to <= 0. Made non final so tests can set it.
+   */
+  static long COMPACTION_INCREMENT_BYTES =
+      Long.getLong(DistributionConfig.GEMFIRE_PREFIX + "disk.COMPACTION_INCREMENT_BYTES", 0);
+
+  /**
+   * This system property turns on writing krf files in the {@link Oplog.OPLOG_TYPE#KRF2} format,
+   * in which the keys are grouped by region and followed by an index of the regions. A recovery of
+   * some of the regions of a disk store, such as the recovery of a bucket, then skips the keys of
+   * the other regions instead of reading them. Made non final so tests can set it.
+   */
+  static boolean KRF_REGION_INDEX =
+      Boolean.getBoolean(DistributionConfig.GEMFIRE_PREFIX + "disk.KRF_REGION_INDEX");
+
+  /**
+   * This system property sets the size, in megabytes, of the off-heap memory in which a disk store
+   * keeps compressed copies of the values that eviction overflows to disk, so that most of them
+   * are faulted back in without reading the oplogs. This memory is allocated for the disk store,
+   * not taken from the off-heap memory of the cache. Only used for regions whose values are on the
+   * heap. Ignored if set to <= 0. Made non final so tests can set it.
+   */
+  static long OVERFLOW_TIER_MAX_MB =
+      Long.getLong(DistributionConfig.GEMFIRE_PREFIX + "disk.OVERFLOW_TIER_MAX_MB", 0);
+
+  /**
+   * This system property turns on writing new crf and drf files in the {@link Oplog.OPLOG_TYPE#CRF2}
+   * and {@link Oplog.OPLOG_TYPE#DRF2} format, in which every record is followed by a CRC32 of its
+   * bytes. Recovery verifies the checksums and fails with a DiskAccessException on a mismatch
+   * instead of recovering a corrupt record. Files in the older format are still read. Made non
+   * final so tests can set it.
+   */
+  static boolean CHECKSUM_OPLOGS =
+      Boolean.getBoolean(DistributionConfig.GEMFIRE_PREFIX + "disk.CHECKSUM_OPLOGS");
+
+  /**
+   * This system property sets the length in bytes from which values written to crf files in the
+   * checksummed format are compressed with LZ4. A value is stored compressed only if that makes it
+   * smaller. If it is 0 values are not compressed. Made non final so tests can set it.
+   */
+  static int COMPRESS_OPLOG_VALUES_MIN_BYTES = Integer
+      .getInteger(DistributionConfig.GEMFIRE_PREFIX + "disk.COMPRESS_OPLOG_VALUES_MIN_BYTES", 0);
+
   /**
    * This system property indicates that IF should also be preallocated. This property will be used
    * in conjunction with the PREALLOCATE_OPLOGS property. If PREALLOCATE_OPLOGS is ON the below will
@@ -259,6 +384,11 @@ public class DiskStoreImpl implements DiskStore {
 
   private final GemFireCacheImpl cache;
 
+  /**
+   * The off-heap tier of evicted values or null if {@link #OVERFLOW_TIER_MAX_MB} is not set.
+   */
+  private final OverflowTier overflowTier;
+
   /** The stats for this store */
   private final DiskStoreStats stats;
 
@@ -430,6 +560,11 @@ public class DiskStoreImpl implements DiskStore {
     this.cache = (GemFireCacheImpl) cache;
     StatisticsFactory factory = cache.getDistributedSystem();
     this.stats = new DiskStoreStats(factory, getName());
+    if (OVERFLOW_TIER_MAX_MB > 0) {
+      this.overflowTier = new OverflowTier(OVERFLOW_TIER_MAX_MB * 1024 * 1024);
+    } else {
+      this.overflowTier = null;
+    }
 
     // start simple init
 
@@ -1289,8 +1424,9 @@ public class DiskStoreImpl implements DiskStore {
   }
 
   private void addAsyncItem(Object item, boolean forceAsync) throws InterruptedException {
-    synchronized (this.lock) { // fix for bug 41390
-      // 43312: since this thread has gained dsi.lock, dsi.clear() should have
+    this.asyncQueueLock.readLock().lock(); // fix for bug 41390
+    try {
+      // 43312: since this thread has gained the asyncQueueLock, dsi.clear() should have
       // finished. We check if clear() has happened after ARM.putEntryIfAbsent()
       if (item instanceof AsyncDiskEntry) {
         AsyncDiskEntry ade = (AsyncDiskEntry) item;
@@ -1314,6 +1450,8 @@ public class DiskStoreImpl implements DiskStore {
         }
       }
       this.stats.incQueueSize(1);
+    } finally {
+      this.asyncQueueLock.readLock().unlock();
     }
     if (this.maxAsyncItems > 0) {
       if (checkAsyncItemLimit()) {
@@ -2174,10 +2312,17 @@ public class DiskStoreImpl implements DiskStore {
   }
 
   /**
-   * Obtained and held by clear/destroyRegion/close. Also obtained when adding to async queue.
+   * Obtained and held by clear/destroyRegion/close.
    */
   private final Object lock = new Object();
 
+  /**
+   * The write lock is held, while holding {@link #lock}, by clear/destroyRegion/close. The read
+   * lock is obtained when adding to the async queue so that the threads doing that do not contend
+   * with each other, only with the operations that hold the write lock.
+   */
+  private final ReentrantReadWriteLock asyncQueueLock = new ReentrantReadWriteLock();
+
   /**
    * It invokes appropriate methods of super & current class to clear the Oplogs.
    * 
@@ -2191,31 +2336,37 @@ public class DiskStoreImpl implements DiskStore {
       Object regionLock = region == null ? new Object() : region.getSizeGuard();
       synchronized (regionLock) {
         synchronized (this.lock) {
-          // if (this.oplogCompactor != null) {
-          // this.oplogCompactor.stopCompactor();
-          // }
-          acquireWriteLock(dr);
+          this.asyncQueueLock.writeLock().lock();
           try {
-            if (dr.isRegionClosed()) {
-              throw new RegionDestroyedException(
-                  LocalizedStrings.DiskRegion_THE_DISKREGION_HAS_BEEN_CLOSED_OR_DESTROYED
-                      .toLocalizedString(),
-                  dr.getName());
-            }
-            basicClear(region, dr, rvv);
-            if (rvv == null && region != null) {
-              // If we have no RVV, clear the region under lock
-              region.txClearRegion();
-              region.clearEntries(null);
-              dr.incClearCount();
+            // if (this.oplogCompactor != null) {
+            // this.oplogCompactor.stopCompactor();
+            // }
+            acquireWriteLock(dr);
+            try {
+              if (dr.isRegionClosed()) {
+                throw new RegionDestroyedException(
+                    LocalizedStrings.DiskRegion_THE_DISKREGION_HAS_BEEN_CLOSED_OR_DESTROYED
+                        .toLocalizedString(),
+                    dr.getName());
+              }
+              basicClear(region, dr, rvv);
+              removeFromOverflowTier(dr);
+              if (rvv == null && region != null) {
+                // If we have no RVV, clear the region under lock
+                region.txClearRegion();
+                region.clearEntries(null);
+                dr.incClearCount();
+              }
+            } finally {
+              releaseWriteLock(dr);
             }
+            // if (this.oplogCompactor != null) {
+            // this.oplogCompactor.startCompactor();
+            // scheduleCompaction();
+            // }
           } finally {
-            releaseWriteLock(dr);
+            this.asyncQueueLock.writeLock().unlock();
           }
-          // if (this.oplogCompactor != null) {
-          // this.oplogCompactor.startCompactor();
-          // scheduleCompaction();
-          // }
         }
       }
     } finally {
@@ -2310,6 +2461,9 @@ public class DiskStoreImpl implements DiskStore {
           rte = e;
         }
       }
+      if (this.overflowTier != null) {
+        this.overflowTier.close();
+      }
 
       if ((!destroy && getDiskInitFile().hasLiveRegions()) || isValidating()) {
         RuntimeException exception = persistentOplogs.close();
@@ -2345,6 +2499,19 @@ public class DiskStoreImpl implements DiskStore {
     }
   }
 
+  OverflowTier getOverflowTier() {
+    return this.overflowTier;
+  }
+
+  /**
+   * Drops the values of the given region from the overflow tier, if this store has one.
+   */
+  private void removeFromOverflowTier(DiskRegionView dr) {
+    if (this.overflowTier != null) {
+      this.overflowTier.removeAll(dr);
+    }
+  }
+
   final DiskAccessException getDiskAccessException() {
     return diskException.get();
   }
@@ -2364,28 +2531,33 @@ public class DiskStoreImpl implements DiskStore {
     }
     try {
       synchronized (this.lock) {
-        // final boolean orig =
-        // this.oplogCompactor.compactionCompletionRequired;
+        this.asyncQueueLock.writeLock().lock();
         try {
-          // to fix bug 40473 don't wait for the compactor to complete.
-          // this.oplogCompactor.compactionCompletionRequired = true;
-          this.oplogCompactor.stopCompactor();
-        } catch (CancelException ignore) {
-          // Asif:To fix Bug 39380 , ignore the cache closed exception here.
-          // allow it to call super .close so that it would be able to close
-          // the
-          // oplogs
-          // Though I do not think this exception will be thrown by
-          // the stopCompactor. Still not taking chance and ignoring it
-
-        } catch (RuntimeException e) {
-          logger.warn(
-              LocalizedMessage.create(
-                  LocalizedStrings.DiskRegion_COMPLEXDISKREGION_CLOSE_EXCEPTION_IN_STOPPING_COMPACTOR),
-              e);
-          throw e;
-          // } finally {
-          // this.oplogCompactor.compactionCompletionRequired = orig;
+          // final boolean orig =
+          // this.oplogCompactor.compactionCompletionRequired;
+          try {
+            // to fix bug 40473 don't wait for the compactor to complete.
+            // this.oplogCompactor.compactionCompletionRequired = true;
+            this.oplogCompactor.stopCompactor();
+          } catch (CancelException ignore) {
+            // Asif:To fix Bug 39380 , ignore the cache closed exception here.
+            // allow it to call super .close so that it would be able to close
+            // the
+            // oplogs
+            // Though I do not think this exception will be thrown by
+            // the stopCompactor. Still not taking chance and ignoring it
+
+          } catch (RuntimeException e) {
+            logger.warn(
+                LocalizedMessage.create(
+                    LocalizedStrings.DiskRegion_COMPLEXDISKREGION_CLOSE_EXCEPTION_IN_STOPPING_COMPACTOR),
+                e);
+            throw e;
+            // } finally {
+            // this.oplogCompactor.compactionCompletionRequired = orig;
+          }
+        } finally {
+          this.asyncQueueLock.writeLock().unlock();
         }
       }
     } finally {
@@ -2396,6 +2568,7 @@ public class DiskStoreImpl implements DiskStore {
   }
 
   private void basicClose(LocalRegion region, DiskRegion dr, boolean closeDataOnly) {
+    removeFromOverflowTier(dr);
     if (dr.isBackup()) {
       if (region != null) {
         region.closeEntries();
@@ -2454,65 +2627,75 @@ public class DiskStoreImpl implements DiskStore {
       Object regionLock = region == null ? new Object() : region.getSizeGuard();
       synchronized (regionLock) {
         synchronized (this.lock) {
-          // Fix 45104, wait here for addAsyncItem to finish adding into queue
-          // prepareForClose() should be out of synchronized (this.lock) to avoid deadlock
-          if (dr.isRegionClosed()) {
-            return;
+          this.asyncQueueLock.writeLock().lock();
+          try {
+            // Fix 45104, wait here for addAsyncItem to finish adding into queue
+            // prepareForClose() should be out of synchronized (this.lock) to avoid deadlock
+            if (dr.isRegionClosed()) {
+              return;
+            }
+          } finally {
+            this.asyncQueueLock.writeLock().unlock();
           }
         }
         prepareForClose(region, dr);
         synchronized (this.lock) {
-          boolean gotLock = false;
+          this.asyncQueueLock.writeLock().lock();
           try {
-            acquireWriteLock(dr);
-            if (!closeDataOnly) {
-              dr.setRegionClosed(true);
-            }
-            gotLock = true;
-          } catch (CancelException e) {
-            synchronized (this.closeRegionGuard) {
-              if (!dr.isRegionClosed()) {
-                if (!closeDataOnly) {
-                  dr.setRegionClosed(true);
-                }
-                // Asif: I am quite sure that it should also be Ok if instead
-                // while it is a If Check below. Because if acquireReadLock
-                // thread
-                // has acquired thelock, it is bound to see the isRegionClose as
-                // true
-                // and so will realse teh lock causing decrement to zeo , before
-                // releasing the closeRegionGuard. But still...not to take any
-                // chance
-
-                while (this.entryOpsCount.get() > 0) {
-                  try {
-                    this.closeRegionGuard.wait(20000);
-                  } catch (InterruptedException ie) {
-                    // Exit without closing the region, do not know what else
-                    // can be done
-                    Thread.currentThread().interrupt();
-                    dr.setRegionClosed(false);
-                    return;
+            boolean gotLock = false;
+            try {
+              acquireWriteLock(dr);
+              if (!closeDataOnly) {
+                dr.setRegionClosed(true);
+              }
+              gotLock = true;
+            } catch (CancelException e) {
+              synchronized (this.closeRegionGuard) {
+                if (!dr.isRegionClosed()) {
+                  if (!closeDataOnly) {
+                    dr.setRegionClosed(true);
+                  }
+                  // Asif: I am quite sure that it should also be Ok if instead
+                  // while it is a If Check below. Because if acquireReadLock
+                  // thread
+                  // has acquired thelock, it is bound to see the isRegionClose as
+                  // true
+                  // and so will realse teh lock causing decrement to zeo , before
+                  // releasing the closeRegionGuard. But still...not to take any
+                  // chance
+
+                  while (this.entryOpsCount.get() > 0) {
+                    try {
+                      this.closeRegionGuard.wait(20000);
+                    } catch (InterruptedException ie) {
+                      // Exit without closing the region, do not know what else
+                      // can be done
+                      Thread.currentThread().interrupt();
+                      dr.setRegionClosed(false);
+                      return;
+                    }
                   }
-                }
 
-              } else {
-                return;
+                } else {
+                  return;
+                }
               }
-            }
 
-          }
+            }
 
-          try {
-            if (logger.isDebugEnabled()) {
-              logger.debug("DiskRegion::close:Before invoking basic Close. Region name ={}",
-                  dr.getName());
+            try {
+              if (logger.isDebugEnabled()) {
+                logger.debug("DiskRegion::close:Before invoking basic Close. Region name ={}",
+                    dr.getName());
+              }
+              basicClose(region, dr, closeDataOnly);
+            } finally {
+              if (gotLock) {
+                releaseWriteLock(dr);
+              }
             }
-            basicClose(region, dr, closeDataOnly);
           } finally {
-            if (gotLock) {
-              releaseWriteLock(dr);
-            }
+            this.asyncQueueLock.writeLock().unlock();
           }
         }
       }
@@ -2606,6 +2789,9 @@ public class DiskStoreImpl implements DiskStore {
       if (this.oplogCompactor != null) {
         if (this.oplogCompactor.scheduleIfNeeded(oplogs)) {
           this.oplogCompactor.waitForRunToComplete();
+          if (COMPACTION_INCREMENT_BYTES > 0) {
+            compactRemainingIncrements(oplogs);
+          }
         } else {
           oplogs = null;
           // @todo darrel: still need to schedule oplogs and wait for them to
@@ -2616,10 +2802,30 @@ public class DiskStoreImpl implements DiskStore {
     return oplogs != null;
   }
 
+  /**
+   * Waits for incremental compactions until none of the given oplogs needs compaction, since a
+   * single incremental compaction may have stopped before compacting all of them.
+   */
+  private void compactRemainingIncrements(CompactableOplog[] forced) {
+    Set<CompactableOplog> remaining = new HashSet<CompactableOplog>(Arrays.asList(forced));
+    while (true) {
+      CompactableOplog[] oplogs = getOplogsToBeCompacted(true);
+      if (oplogs == null || Collections.disjoint(remaining, Arrays.asList(oplogs))) {
+        return;
+      }
+      if (!this.oplogCompactor.scheduleIfNeeded(oplogs) && !this.oplogCompactor.isScheduled()) {
+        // the compactor has been stopped
+        return;
+      }
+      this.oplogCompactor.waitForRunToComplete();
+    }
+  }
+
   /**
    * Destroy the given region
    */
   private void basicDestroy(LocalRegion region, DiskRegion dr) {
+    removeFromOverflowTier(dr);
     if (dr.isBackup()) {
       if (region != null) {
         region.closeEntries();
@@ -2845,6 +3051,17 @@ public class DiskStoreImpl implements DiskStore {
 
     private final boolean compactionCompletionRequired;
 
+    /**
+     * Limits the rate of the compaction in progress. Only used by the compactor thread.
+     */
+    private CompactionThrottle throttle;
+
+    /**
+     * The number of bytes copied forward by the compaction in progress. Only used by the compactor
+     * thread.
+     */
+    private long copiedBytes;
+
     OplogCompactor() {
       this.compactionCompletionRequired =
           Boolean.getBoolean(COMPLETE_COMPACTION_BEFORE_TERMINATION_PROPERTY_NAME);
@@ -2873,6 +3090,10 @@ public class DiskStoreImpl implements DiskStore {
       }
     }
 
+    private synchronized boolean isScheduled() {
+      return this.scheduled;
+    }
+
     /**
      * @return true if compaction done; false if it was not
      */
@@ -2915,10 +3136,13 @@ public class DiskStoreImpl implements DiskStore {
       int totalCount = 0;
       long compactionStart = getStats().startCompaction();
       long start = System.nanoTime();
+      this.throttle = new CompactionThrottle(COMPACTION_MAX_MB_PER_SEC * 1024 * 1024, start);
+      this.copiedBytes = 0;
       try {
-        for (int i = 0; i < oplogs.length && keepCompactorRunning() /*
-                                                                     * @todo && !owner. isDestroyed
-                                                                     */; i++) {
+        for (int i = 0; i < oplogs.length && keepCompactingIncrement() /*
+                                                                        * @todo && !owner.
+                                                                        * isDestroyed
+                                                                        */; i++) {
           totalCount += oplogs[i].compact(this);
         }
 
@@ -3045,6 +3269,49 @@ public class DiskStoreImpl implements DiskStore {
     boolean keepCompactorRunning() {
       return this.compactorEnabled || this.compactionCompletionRequired;
     }
+
+    /**
+     * Returns true if the compaction in progress should copy more entries forward. An incremental
+     * compaction stops once it has copied {@link DiskStoreImpl#COMPACTION_INCREMENT_BYTES} forward;
+     * the oplog it stops in keeps its remaining live entries and is compacted again later.
+     */
+    boolean keepCompactingIncrement() {
+      if (!keepCompactorRunning()) {
+        return false;
+      }
+      long increment = COMPACTION_INCREMENT_BYTES;
+      return increment <= 0 || this.copiedBytes < increment;
+    }
+
+    /**
+     * Called by the oplog being compacted, without holding the lock of an entry, after it has
+     * copied an entry forward. Waits while the compaction is ahead of its I/O budget.
+     */
+    void afterCopyForward(long bytes) {
+      this.copiedBytes += bytes;
+      getStats().incCompactedBytes(bytes);
+      CompactionThrottle throttle = this.throttle;
+      if (throttle == null) {
+        return;
+      }
+      long delay = throttle.acquire(bytes, System.nanoTime());
+      if (delay <= 0) {
+        return;
+      }
+      long start = System.nanoTime();
+      try {
+        // sleep in short steps so that stopping the compactor is not delayed
+        long remaining = delay;
+        while (remaining > 0 && keepCompactorRunning() && !isClosing()) {
+          TimeUnit.NANOSECONDS.sleep(Math.min(remaining, CompactionThrottle.MAX_BURST_NANOS));
+          remaining = delay - (System.nanoTime() - start);
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      } finally {
+        getStats().incCompactThrottleTime(System.nanoTime() - start);
+      }
+    }
   }
 
   /**
@@ -3114,73 +3381,55 @@ public class DiskStoreImpl implements DiskStore {
     Object regionLock = region == null ? new Object() : region.getSizeGuard();
     synchronized (regionLock) {
       synchronized (this.lock) {
-        if (dr.isRegionClosed()) {
-          return;
-        }
-        // // Stop the compactor if running, without taking lock.
-        // if (this.oplogCompactor != null) {
-        // try {
-        // this.oplogCompactor.stopCompactor();
-        // }
-        // catch (CancelException ignore) {
-        // // Asif:To fix Bug 39380 , ignore the cache closed exception here.
-        // // allow it to call super .close so that it would be able to close
-        // the
-        // // oplogs
-        // // Though I do not think this exception will be thrown by
-        // // the stopCompactor. Still not taking chance and ignoring it
-
-        // }
-        // }
-        // // if (!isSync()) {
-        // stopAsyncFlusher(true); // do this before writeLock
-        // // }
-        boolean gotLock = false;
+        this.asyncQueueLock.writeLock().lock();
         try {
-          try {
-            acquireWriteLock(dr);
-            gotLock = true;
-          } catch (CancelException e) {
-            // see workaround below.
+          if (dr.isRegionClosed()) {
+            return;
           }
+          // // Stop the compactor if running, without taking lock.
+          // if (this.oplogCompactor != null) {
+          // try {
+          // this.oplogCompactor.stopCompactor();
+          // }
+          // catch (CancelException ignore) {
+          // // Asif:To fix Bug 39380 , ignore the cache closed exception here.
+          // // allow it to call super .close so that it would be able to close
+          // the
+          // // oplogs
+          // // Though I do not think this exception will be thrown by
+          // // the stopCompactor. Still not taking chance and ignoring it
 
-          if (!gotLock) { // workaround for bug39380
-            // Allow only one thread to proceed
-            synchronized (this.closeRegionGuard) {
-              if (dr.isRegionClosed()) {
-                return;
-              }
+          // }
+          // }
+          // // if (!isSync()) {
+          // stopAsyncFlusher(true); // do this before writeLock
+          // // }
+          boolean gotLock = false;
+          try {
+            try {
+              acquireWriteLock(dr);
+              gotLock = true;
+            } catch (CancelException e) {
+              // see workaround below.
+            }
 
-              dr.setRegionClosed(true);
-              // Asif: I am quite sure that it should also be Ok if instead
-              // while it is a If Check below. Because if acquireReadLock thread
-              // has acquired the lock, it is bound to see the isRegionClose as
-              // true
-              // and so will release the lock causing decrement to zeo , before
-              // releasing the closeRegionGuard. But still...not to take any
-              // chance
-              final int loopCount = 10;
-              for (int i = 0; i < loopCount; i++) {
-                if (this.entryOpsCount.get() == 0) {
-                  break;
-                }
-                boolean interrupted = Thread.interrupted();
-                try {
-                  this.closeRegionGuard.wait(1000);
-                } catch (InterruptedException ie) {
-                  interrupted = true;
-                } finally {
-                  if (interrupted) {
-                    Thread.currentThread().interrupt();
-                  }
+            if (!gotLock) { // workaround for bug39380
+              // Allow only one thread to proceed
+              synchronized (this.closeRegionGuard) {
+                if (dr.isRegionClosed()) {
+                  return;
                 }
-              } // for
-              if (this.entryOpsCount.get() > 0) {
-                logger.warn(LocalizedMessage.create(
-                    LocalizedStrings.DisKRegion_OUTSTANDING_OPS_REMAIN_AFTER_0_SECONDS_FOR_DISK_REGION_1,
-                    new Object[] {Integer.valueOf(loopCount), dr.getName()}));
 
-                for (;;) {
+                dr.setRegionClosed(true);
+                // Asif: I am quite sure that it should also be Ok if instead
+                // while it is a If Check below. Because if acquireReadLock thread
+                // has acquired the lock, it is bound to see the isRegionClose as
+                // true
+                // and so will release the lock causing decrement to zeo , before
+                // releasing the closeRegionGuard. But still...not to take any
+                // chance
+                final int loopCount = 10;
+                for (int i = 0; i < loopCount; i++) {
                   if (this.entryOpsCount.get() == 0) {
                     break;
                   }
@@ -3195,19 +3444,42 @@ public class DiskStoreImpl implements DiskStore {
                     }
                   }
                 } // for
-                logger.info(LocalizedMessage.create(
-                    LocalizedStrings.DisKRegion_OUTSTANDING_OPS_CLEARED_FOR_DISK_REGION_0,
-                    dr.getName()));
-              }
-            } // synchronized
-          }
+                if (this.entryOpsCount.get() > 0) {
+                  logger.warn(LocalizedMessage.create(
+                      LocalizedStrings.DisKRegion_OUTSTANDING_OPS_REMAIN_AFTER_0_SECONDS_FOR_DISK_REGION_1,
+                      new Object[] {Integer.valueOf(loopCount), dr.getName()}));
+
+                  for (;;) {
+                    if (this.entryOpsCount.get() == 0) {
+                      break;
+                    }
+                    boolean interrupted = Thread.interrupted();
+                    try {
+                      this.closeRegionGuard.wait(1000);
+                    } catch (InterruptedException ie) {
+                      interrupted = true;
+                    } finally {
+                      if (interrupted) {
+                        Thread.currentThread().interrupt();
+                      }
+                    }
+                  } // for
+                  logger.info(LocalizedMessage.create(
+                      LocalizedStrings.DisKRegion_OUTSTANDING_OPS_CLEARED_FOR_DISK_REGION_0,
+                      dr.getName()));
+                }
+              } // synchronized
+            }
 
-          dr.setRegionClosed(true);
-          basicDestroy(region, dr);
-        } finally {
-          if (gotLock) {
-            releaseWriteLock(dr);
+            dr.setRegionClosed(true);
+            basicDestroy(region, dr);
+          } finally {
+            if (gotLock) {
+              releaseWriteLock(dr);
+            }
           }
+        } finally {
+          this.asyncQueueLock.writeLock().unlock();
         }
       }
     }
@@ -3587,6 +3859,11 @@ public class DiskStoreImpl implements DiskStore {
     public int size() {
       return this.ints.size() + this.longs.size();
     }
+
+    public void addAll(OplogEntryIdSet other) {
+      this.ints.addAll(other.ints);
+      this.longs.addAll(other.longs);
+    }
   }
 
   /**
@@ -4176,7 +4453,8 @@ public class DiskStoreImpl implements DiskStore {
 
           // mark all oplogs as being backed up. This will
           // prevent the oplogs from being deleted
-          this.diskStoreBackup = new DiskStoreBackup(allOplogs, targetDir);
+          this.diskStoreBackup = new DiskStoreBackup(allOplogs, targetDir,
+              BACKUP_MAX_MB_PER_SEC * 1024 * 1024);
 
           // copy the init file
           File firstDir = getBackupDir(targetDir, infoFileDirIndex);
@@ -4217,25 +4495,96 @@ public class DiskStoreImpl implements DiskStore {
       waitForDelayedWrites();
 
       // Backup all of the oplogs
-      for (Oplog oplog : this.diskStoreBackup.getPendingBackup()) {
-        if (backupManager.isCancelled()) {
-          break;
+      final DiskStoreBackup backup = this.diskStoreBackup;
+      Set<Oplog> oplogs = backup.getPendingBackup();
+      ExecutorService copyPool = createBackupCopyPool(oplogs.size());
+      if (copyPool == null) {
+        for (Oplog oplog : oplogs) {
+          if (backupManager.isCancelled()) {
+            break;
+          }
+          backupOplog(backup, oplog, backupManager);
+        }
+      } else {
+        // the oplogs are in different files so they can be copied concurrently
+        try {
+          List<Future<Void>> futures = new ArrayList<Future<Void>>(oplogs.size());
+          for (final Oplog oplog : oplogs) {
+            futures.add(copyPool.submit(new Callable<Void>() {
+              public Void call() throws IOException {
+                if (!backupManager.isCancelled()) {
+                  backupOplog(backup, oplog, backupManager);
+                }
+                return null;
+              }
+            }));
+          }
+          for (Future<Void> future : futures) {
+            getBackupResult(future);
+          }
+        } finally {
+          copyPool.shutdownNow();
         }
-        // Copy theoplog to the destination directory
-        int index = oplog.getDirectoryHolder().getArrayIndex();
-        File backupDir = getBackupDir(this.diskStoreBackup.getTargetDir(), index);
-        // TODO prpersist - We could probably optimize this to *move* the files
-        // that we know are supposed to be deleted.
-        oplog.copyTo(backupDir);
-
-        // Allow the oplog to be deleted, and process any pending delete
-        this.diskStoreBackup.backupFinished(oplog);
       }
     } finally {
       clearBackup();
     }
   }
 
+  private void backupOplog(DiskStoreBackup backup, Oplog oplog, BackupManager backupManager)
+      throws IOException {
+    // Copy theoplog to the destination directory
+    int index = oplog.getDirectoryHolder().getArrayIndex();
+    File backupDir = getBackupDir(backup.getTargetDir(), index);
+    // TODO prpersist - We could probably optimize this to *move* the files
+    // that we know are supposed to be deleted.
+    oplog.copyTo(backupDir, backup, backupManager);
+
+    // Allow the oplog to be deleted, and process any pending delete
+    backup.backupFinished(oplog);
+  }
+
+  /**
+   * Creates a pool for copying the oplogs of a backup with at most {@link #BACKUP_COPY_THREADS}
+   * threads. The caller shuts it down once the copies are done.
+   *
+   * @param oplogCount the number of oplogs to copy
+   * @return null if the oplogs should be copied by the calling thread
+   */
+  private ExecutorService createBackupCopyPool(int oplogCount) {
+    int threads = Math.min(BACKUP_COPY_THREADS, oplogCount);
+    if (threads <= 1) {
+      return null;
+    }
+    final ThreadGroup backupThreadGroup =
+        LoggingThreadGroup.createThreadGroup("Disk Store Backup Thread Group", logger);
+    return Executors.newFixedThreadPool(threads,
+        GemfireCacheHelper.CreateThreadFactory(backupThreadGroup, "Oplog Backup Copy Thread"));
+  }
+
+  /**
+   * Waits for an oplog copy submitted to a pool created by {@link #createBackupCopyPool}, throwing
+   * what the copy threw.
+   */
+  private void getBackupResult(Future<Void> future) throws IOException {
+    try {
+      future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while backing up " + getName());
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof IOException) {
+        throw (IOException) cause;
+      } else if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      } else if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw new IOException(cause);
+    }
+  }
+
   private int getArrayIndexOfDirectory(File searchDir) {
     for (DirectoryHolder holder : directories) {
       if (holder.getDir().equals(searchDir)) {
@@ -4515,13 +4864,34 @@ public class DiskStoreImpl implements DiskStore {
     public void run() {
       synchronized (asyncValueRecoveryLock) {
         DiskStoreObserver.startAsyncValueRecovery(DiskStoreImpl.this);
+        ExecutorService recoveryPool =
+            createRecoveryPool("Oplog Value Recovery Thread", oplogSet.size());
         try {
-          for (Oplog oplog : oplogSet) {
-            oplog.recoverValuesIfNeeded(currentAsyncValueRecoveryMap);
+          if (recoveryPool == null) {
+            for (Oplog oplog : oplogSet) {
+              recoverValues(oplog);
+            }
+          } else {
+            // the oplogs are in different files so their values can be read concurrently
+            List<Future<?>> futures = new ArrayList<Future<?>>(oplogSet.size());
+            for (final Oplog oplog : oplogSet) {
+              futures.add(recoveryPool.submit(new Runnable() {
+                public void run() {
+                  markBackgroundTaskThread();
+                  recoverValues(oplog);
+                }
+              }));
+            }
+            for (Future<?> future : futures) {
+              getRecoveryResult(future);
+            }
           }
         } catch (CancelException ignore) {
           // do nothing
         } finally {
+          if (recoveryPool != null) {
+            recoveryPool.shutdownNow();
+          }
           synchronized (currentAsyncValueRecoveryMap) {
             DiskStoreImpl.this.currentAsyncValueRecoveryMap.keySet()
                 .removeAll(recoveredStores.keySet());
@@ -4533,6 +4903,63 @@ public class DiskStoreImpl implements DiskStore {
     }
   }
 
+  private void recoverValues(Oplog oplog) {
+    getStats().incValueRecoveriesInProgress(1);
+    try {
+      oplog.recoverValuesIfNeeded(currentAsyncValueRecoveryMap);
+    } finally {
+      getStats().incValueRecoveriesInProgress(-1);
+    }
+  }
+
+  /**
+   * Creates a pool for the tasks of a recovery that can be done concurrently, with at most
+   * {@link #RECOVERY_THREADS} threads. The caller shuts it down once the recovery is done.
+   *
+   * @param taskCount the number of tasks that will be submitted to the pool
+   * @return null if the tasks should be done by the calling thread
+   */
+  ExecutorService createRecoveryPool(String threadName, int taskCount) {
+    int threads = Math.min(RECOVERY_THREADS, taskCount);
+    if (threads <= 1) {
+      return null;
+    }
+    final ThreadGroup recoveryThreadGroup =
+        LoggingThreadGroup.createThreadGroup("Disk Store Recovery Thread Group", logger);
+    return Executors.newFixedThreadPool(threads,
+        GemfireCacheHelper.CreateThreadFactory(recoveryThreadGroup, threadName));
+  }
+
+  /**
+   * Waits for a task submitted to a pool created by {@link #createRecoveryPool} and returns its
+   * result, throwing what the task threw.
+   */
+  <T> T getRecoveryResult(Future<T> future) {
+    boolean interrupted = false;
+    try {
+      while (true) {
+        try {
+          return future.get();
+        } catch (InterruptedException e) {
+          // the recovery can not be left half done
+          interrupted = true;
+        } catch (ExecutionException e) {
+          Throwable cause = e.getCause();
+          if (cause instanceof RuntimeException) {
+            throw (RuntimeException) cause;
+          } else if (cause instanceof Error) {
+            throw (Error) cause;
+          }
+          throw new DiskAccessException(cause.toString(), cause, this);
+        }
+      }
+    } finally {
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
   public void waitForAsyncRecovery(DiskRegion diskRegion) {
     synchronized (currentAsyncValueRecoveryMap) {
       boolean interrupted = false;
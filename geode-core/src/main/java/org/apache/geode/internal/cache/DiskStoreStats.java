@@ -75,6 +75,23 @@ public class DiskStoreStats {
   private static final int oplogSeeksId;
 
   private static final int uncreatedRecoveredRegionsId;
+  private static final int oplogFilesToRecoverId;
+  private static final int valueRecoveriesInProgressId;
+  private static final int recoveredValuesId;
+  private static final int compactedBytesId;
+  private static final int compactThrottleTimeId;
+  private static final int writeAmplificationId;
+
+  /**
+   * The upper bounds, in nanoseconds, of the buckets of the oplog write latency histogram. The
+   * last bucket counts the writes that took longer than the last bound.
+   */
+  static final long[] OPLOG_WRITE_LATENCY_BOUNDS = {100000L, 1000000L, 10000000L, 100000000L,
+      1000000000L};
+  private static final String[] oplogWriteLatencyNames = {"oplogWritesWithin100Micros",
+      "oplogWritesWithin1Milli", "oplogWritesWithin10Millis", "oplogWritesWithin100Millis",
+      "oplogWritesWithin1Second", "oplogWritesOver1Second"};
+  private static final int[] oplogWriteLatencyIds = new int[oplogWriteLatencyNames.length];
   private static final int backupsInProgress;
   private static final int backupsCompleted;
 
@@ -185,6 +202,41 @@ public class DiskStoreStats {
             f.createIntGauge("uncreatedRecoveredRegions",
                 "The current number of regions that have been recovered but have not yet been created.",
                 "regions"),
+            f.createIntGauge("oplogFilesToRecover",
+                "The current number of drf, krf and crf files that the recovery in progress has not yet read.",
+                "files"),
+            f.createIntGauge("valueRecoveriesInProgress",
+                "The current number of oplogs whose values are being recovered.", "oplogs"),
+            f.createLongCounter("recoveredValues",
+                "The total number of entries whose value was recovered after their key was recovered.",
+                "values"),
+            f.createLongCounter("compactedBytes",
+                "The total number of value bytes compacts have copied forward to the current oplog.",
+                "bytes"),
+            f.createLongCounter("compactThrottleTime",
+                "Total amount of time, in nanoseconds, compacts have waited to stay within their I/O budget.",
+                "nanoseconds"),
+            f.createDoubleGauge("writeAmplification",
+                "The ratio of the bytes written to disk to the bytes written to disk other than by compacts, as of the last completed compact.",
+                "ratio"),
+            f.createLongCounter(oplogWriteLatencyNames[0],
+                "The total number of writes of buffered records to oplog files, including any force, that took at most 100 microseconds.",
+                "writes"),
+            f.createLongCounter(oplogWriteLatencyNames[1],
+                "The total number of writes of buffered records to oplog files, including any force, that took more than 100 microseconds and at most 1 millisecond.",
+                "writes"),
+            f.createLongCounter(oplogWriteLatencyNames[2],
+                "The total number of writes of buffered records to oplog files, including any force, that took more than 1 millisecond and at most 10 milliseconds.",
+                "writes"),
+            f.createLongCounter(oplogWriteLatencyNames[3],
+                "The total number of writes of buffered records to oplog files, including any force, that took more than 10 milliseconds and at most 100 milliseconds.",
+                "writes"),
+            f.createLongCounter(oplogWriteLatencyNames[4],
+                "The total number of writes of buffered records to oplog files, including any force, that took more than 100 milliseconds and at most 1 second.",
+                "writes"),
+            f.createLongCounter(oplogWriteLatencyNames[5],
+                "The total number of writes of buffered records to oplog files, including any force, that took more than 1 second.",
+                "writes"),
             f.createIntGauge("backupsInProgress", backupsInProgressDesc, "backups"),
             f.createIntCounter("backupsCompleted", backupsCompletedDesc, "backups"),});
 
@@ -232,6 +284,15 @@ public class DiskStoreStats {
     inactiveOplogsId = type.nameToId("inactiveOplogs");
     compactableOplogsId = type.nameToId("compactableOplogs");
     uncreatedRecoveredRegionsId = type.nameToId("uncreatedRecoveredRegions");
+    oplogFilesToRecoverId = type.nameToId("oplogFilesToRecover");
+    valueRecoveriesInProgressId = type.nameToId("valueRecoveriesInProgress");
+    recoveredValuesId = type.nameToId("recoveredValues");
+    compactedBytesId = type.nameToId("compactedBytes");
+    compactThrottleTimeId = type.nameToId("compactThrottleTime");
+    writeAmplificationId = type.nameToId("writeAmplification");
+    for (int i = 0; i < oplogWriteLatencyNames.length; i++) {
+      oplogWriteLatencyIds[i] = type.nameToId(oplogWriteLatencyNames[i]);
+    }
     backupsInProgress = type.nameToId("backupsInProgress");
     backupsCompleted = type.nameToId("backupsCompleted");
   }
@@ -331,6 +392,26 @@ public class DiskStoreStats {
     this.stats.incInt(uncreatedRecoveredRegionsId, delta);
   }
 
+  public void incOplogFilesToRecover(int delta) {
+    this.stats.incInt(oplogFilesToRecoverId, delta);
+  }
+
+  public int getOplogFilesToRecover() {
+    return this.stats.getInt(oplogFilesToRecoverId);
+  }
+
+  public void incValueRecoveriesInProgress(int delta) {
+    this.stats.incInt(valueRecoveriesInProgressId, delta);
+  }
+
+  public void incRecoveredValues() {
+    this.stats.incLong(recoveredValuesId, 1);
+  }
+
+  public long getRecoveredValues() {
+    return this.stats.getLong(recoveredValuesId);
+  }
+
   /**
    * Invoked before data is written to disk.
    *
@@ -439,6 +520,61 @@ public class DiskStoreStats {
     long end = DistributionStats.getStatTime();
     this.stats.incInt(compactsId, 1);
     this.stats.incLong(compactTimeId, end - start);
+    this.stats.setDouble(writeAmplificationId, computeWriteAmplification());
+  }
+
+  public void incCompactedBytes(long bytes) {
+    this.stats.incLong(compactedBytesId, bytes);
+  }
+
+  public long getCompactedBytes() {
+    return this.stats.getLong(compactedBytesId);
+  }
+
+  public void incCompactThrottleTime(long nanos) {
+    this.stats.incLong(compactThrottleTimeId, nanos);
+  }
+
+  public long getCompactThrottleTime() {
+    return this.stats.getLong(compactThrottleTimeId);
+  }
+
+  /**
+   * Adds a write of buffered records to an oplog file that took the given number of nanoseconds to
+   * the oplog write latency histogram.
+   */
+  public void incOplogWriteLatency(long nanos) {
+    int bucket = 0;
+    while (bucket < OPLOG_WRITE_LATENCY_BOUNDS.length
+        && nanos > OPLOG_WRITE_LATENCY_BOUNDS[bucket]) {
+      bucket++;
+    }
+    this.stats.incLong(oplogWriteLatencyIds[bucket], 1);
+  }
+
+  /**
+   * Returns the number of oplog writes counted in the given bucket of the oplog write latency
+   * histogram.
+   */
+  public long getOplogWriteLatencyCount(int bucket) {
+    return this.stats.getLong(oplogWriteLatencyIds[bucket]);
+  }
+
+  public double getWriteAmplification() {
+    return this.stats.getDouble(writeAmplificationId);
+  }
+
+  /**
+   * Returns the ratio of all the bytes written to the bytes written other than by compacts, or 1 if
+   * nothing but compacts has been written.
+   */
+  private double computeWriteAmplification() {
+    long written = this.stats.getLong(bytesWrittenId) + this.stats.getLong(bytesFlushedId);
+    long foreground = written - this.stats.getLong(compactedBytesId);
+    if (foreground <= 0) {
+      return 1.0;
+    }
+    return (double) written / foreground;
   }
 
   public void endOplogRead(long start, long bytesRead) {
@@ -464,6 +600,10 @@ public class DiskStoreStats {
     this.stats.incLong(recoveryRecordsSkippedId, 1);
   }
 
+  public void incRecoveryRecordsSkipped(long records) {
+    this.stats.incLong(recoveryRecordsSkippedId, records);
+  }
+
   public void incRecoveredValuesSkippedDueToLRU() {
     this.stats.incLong(recoveredValuesSkippedDueToLRUId, 1);
   }
@@ -21,6 +21,7 @@ import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.function.Predicate;
 
 import org.apache.geode.cache.EntryDestroyedException;
 import org.apache.geode.cache.Region;
@@ -50,6 +51,11 @@ public class EntriesSet extends AbstractSet {
 
   protected boolean ignoreCopyOnReadForQuery = false;
 
+  /**
+   * If set, values of entries it rejects are skipped without being read.
+   */
+  protected Predicate<RegionEntry> valueFilter = null;
+
   EntriesSet(LocalRegion region, boolean recursive, IteratorType viewType,
       boolean allowTombstones) {
     this.topRegion = region;
@@ -167,6 +173,10 @@ public class EntriesSet extends AbstractSet {
               return result;
             }
           } else {
+            if (valueFilter != null && myTX == null && currKey instanceof RegionEntry
+                && !valueFilter.test((RegionEntry) currKey)) {
+              continue;
+            }
             Region.Entry re = (Region.Entry) view.getEntryForIterator(this.keyInfo, currRgn,
                 rememberReads, allowTombstones);
             if (re != null) {
@@ -271,4 +281,13 @@ public class EntriesSet extends AbstractSet {
     return this.ignoreCopyOnReadForQuery;
   }
 
+  /**
+   * Sets a filter that is given the RegionEntry of each value before the value is read. Values of
+   * entries it returns false for are skipped. Only used when iterating values outside of a
+   * transaction.
+   */
+  public void setValueFilter(Predicate<RegionEntry> valueFilter) {
+    this.valueFilter = valueFilter;
+  }
+
 }
@@ -684,6 +684,10 @@ public class LocalDataSet implements Region, QueryExecutor {
               Map.Entry e = (Map.Entry) curBucketIter.next();
               try {
                 if (iterType == IteratorType.VALUES) {
+                  if (valueFilter != null
+                      && !valueFilter.test(((NonTXEntry) e).getRegionEntry())) {
+                    continue;
+                  }
                   if (isKeepSerialized()) {
                     next = ((NonTXEntry) e).getRawValue();
                   } else if (ignoreCopyOnReadForQuery) {
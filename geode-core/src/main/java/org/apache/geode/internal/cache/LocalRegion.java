@@ -633,6 +633,12 @@ public class LocalRegion extends AbstractRegion implements LoaderHelperFactory,
 
     // initialize client to server proxy
     this.srp = (this.getPoolName() != null) ? new ServerRegionProxy(this) : null;
+    if (this.srp != null && NEAR_CACHE_REVALIDATE_MS > 0 && getDataPolicy().withStorage()) {
+      this.nearCacheValidator =
+          new NearCacheValidator(NEAR_CACHE_REVALIDATE_MS, NEAR_CACHE_MAX_VALIDATED_KEYS);
+    } else {
+      this.nearCacheValidator = null;
+    }
     this.imageState = new UnsharedImageState(this.srp != null,
         getDataPolicy().withReplication() || getDataPolicy().isPreloaded(),
         getAttributes().getDataPolicy().withPersistence(), this.stopper);
@@ -781,6 +787,31 @@ public class LocalRegion extends AbstractRegion implements LoaderHelperFactory,
    */
   protected final ServerRegionProxy srp;
 
+  /**
+   * If greater than zero, a client region that stores values and has concurrency checks enabled
+   * checks a value it finds locally against the server, with a getEntry, once this many
+   * milliseconds have passed since the value was last read from or checked against the server. If
+   * the version on the server differs the server's value and version are put in the local entry.
+   * This lets a region without a subscription be used as a near cache, typically with LRU eviction
+   * to bound its memory. Made non final so tests can set it.
+   */
+  static long NEAR_CACHE_REVALIDATE_MS =
+      Long.getLong(DistributionConfig.GEMFIRE_PREFIX + "Cache.NEAR_CACHE_REVALIDATE_MS", 0L);
+
+  /**
+   * The most keys whose validation time a near cache region remembers. Made non final so tests can
+   * set it.
+   */
+  static int NEAR_CACHE_MAX_VALIDATED_KEYS = Integer.getInteger(
+      DistributionConfig.GEMFIRE_PREFIX + "Cache.NEAR_CACHE_MAX_VALIDATED_KEYS", 100000);
+
+  /**
+   * Null unless this is a client region used as a near cache.
+   * 
+   * @see #NEAR_CACHE_REVALIDATE_MS
+   */
+  private final NearCacheValidator nearCacheValidator;
+
   private final InternalDataView sharedDataView;
 
   public final ServerRegionProxy getServerProxy() {
@@ -1352,6 +1383,13 @@ public class LocalRegion extends AbstractRegion implements LoaderHelperFactory,
       KeyInfo keyInfo = getKeyInfo(key, aCallbackArgument);
       Object value = getDataView().getDeserializedValue(keyInfo, this, true, disableCopyOnRead,
           preferCD, clientEvent, returnTombstones, retainResult);
+      final boolean checkNearCache = this.nearCacheValidator != null
+          && this.concurrencyChecksEnabled && !opScopeIsLocal && !retainResult && !isTX();
+      if (checkNearCache && value != null && !Token.isInvalidOrRemoved(value)
+          && this.nearCacheValidator.isStale(key)) {
+        value = revalidateNearCacheEntry(keyInfo, value, generateCallbacks, disableCopyOnRead,
+            preferCD, clientEvent, returnTombstones);
+      }
       final boolean isCreate = value == null;
       isMiss = value == null || Token.isInvalid(value)
           || (!returnTombstones && value == Token.TOMBSTONE);
@@ -1371,6 +1409,9 @@ public class LocalRegion extends AbstractRegion implements LoaderHelperFactory,
           if (!returnTombstones && value == Token.TOMBSTONE) {
             value = null;
           }
+          if (checkNearCache && value != null) {
+            this.nearCacheValidator.validated(key);
+          }
         } else { // local scope with no loader, still might need to update stats
           if (isCreate) {
             recordMiss(null, key);
@@ -1384,6 +1425,81 @@ public class LocalRegion extends AbstractRegion implements LoaderHelperFactory,
     }
   }
 
+  /**
+   * Asks the server for the entry of the given key, whose value was found locally, and returns the
+   * value to use. If the server's entry has the version of the local entry the local value is
+   * returned. Otherwise the server's value is put in the local entry with the server's version tag,
+   * the same as a value read by {@link #findObjectInSystem}, so it takes no second round trip. If
+   * the server has no value the local entry is invalidated, without invoking the listeners, and
+   * Token.INVALID is returned so that the caller reads the value from the server. Only called when
+   * concurrency checks are enabled, since otherwise local entries have no version to compare.
+   */
+  private Object revalidateNearCacheEntry(KeyInfo keyInfo, Object localValue,
+      boolean generateCallbacks, boolean disableCopyOnRead, boolean preferCD,
+      EntryEventImpl clientEvent, boolean returnTombstones) {
+    final Object key = keyInfo.getKey();
+    Region.Entry serverEntry = this.srp.getEntry(key);
+    VersionTag tag = null;
+    Object serverValue = null;
+    boolean current = false;
+    if (serverEntry instanceof EntrySnapshot) {
+      EntrySnapshot snapshot = (EntrySnapshot) serverEntry;
+      tag = snapshot.getVersionTag();
+      serverValue = snapshot.getRegionEntry().getValue(null);
+      RegionEntry re = basicGetEntry(key);
+      VersionStamp stamp = re == null ? null : re.getVersionStamp();
+      current = tag != null && stamp != null && tag.getEntryVersion() == stamp.getEntryVersion()
+          && tag.getRegionVersion() == stamp.getRegionVersion()
+          && tag.getVersionTimeStamp() == stamp.getVersionTimeStamp();
+    }
+    getCachePerfStats().incNearCacheRevalidations(!current);
+    if (current) {
+      this.nearCacheValidator.validated(key);
+      return localValue;
+    }
+    if (tag != null && serverValue != null && !Token.isInvalidOrRemoved(serverValue)
+        && !isMemoryThresholdReachedForLoad()) {
+      @Released
+      EntryEventImpl event = EntryEventImpl.create(this, Operation.LOCAL_LOAD_UPDATE, key,
+          serverValue, keyInfo.getCallbackArg(), false, getMyId(), generateCallbacks);
+      try {
+        event.setFromServer(true);
+        event.setVersionTag(tag);
+        basicPutEntry(event, 0L);
+      } catch (ConcurrentCacheModificationException e) {
+        // the local entry was changed to a newer version since it was read, which is used instead
+        if (logger.isDebugEnabled()) {
+          logger.debug("caught concurrent modification attempt when applying {}", event);
+        }
+      } finally {
+        event.release();
+      }
+      this.nearCacheValidator.validated(key);
+      return getDataView().getDeserializedValue(keyInfo, this, true, disableCopyOnRead, preferCD,
+          clientEvent, returnTombstones, false);
+    }
+    this.nearCacheValidator.invalidated(key);
+    @Released
+    EntryEventImpl event = EntryEventImpl.create(this, Operation.LOCAL_INVALIDATE, key,
+        null/* newValue */, null/* callbackArg */, false, getMyId());
+    try {
+      event.setLocalInvalid(true);
+      basicInvalidate(event, false);
+    } catch (EntryNotFoundException ignore) {
+      // destroyed locally since it was read
+    } finally {
+      event.release();
+    }
+    return Token.INVALID;
+  }
+
+  /**
+   * Returns the validator of this region if it is a near cache, otherwise null.
+   */
+  NearCacheValidator getNearCacheValidator() {
+    return this.nearCacheValidator;
+  }
+
   /**
    * Update region and potentially entry stats for the miss case
    * 
@@ -0,0 +1,187 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.geode.internal.cache;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.logging.log4j.Logger;
+
+import org.apache.geode.internal.logging.LogService;
+
+/**
+ * A read only memory mapping of the first bytes of an oplog file that is no longer written to.
+ * Reads copy the bytes out of the mapping without a system call or a lock. The mapping is released
+ * by {@link #close} once the reads in progress are done.
+ */
+class MappedOplogFile {
+
+  private static final Logger logger = LogService.getLogger();
+
+  /**
+   * Files are mapped in segments of this many bytes since a buffer can not address more than
+   * Integer.MAX_VALUE bytes. Made non final so tests can set it.
+   */
+  static int SEGMENT_SIZE = 1 << 30;
+
+  private final MappedByteBuffer[] segments;
+
+  private final int segmentSize;
+
+  private final long size;
+
+  /**
+   * The number of reads in progress, with the sign bit set once this mapping is closed.
+   */
+  private final AtomicInteger state = new AtomicInteger();
+
+  private MappedOplogFile(MappedByteBuffer[] segments, int segmentSize, long size) {
+    this.segments = segments;
+    this.segmentSize = segmentSize;
+    this.size = size;
+  }
+
+  /**
+   * Maps the first size bytes of f.
+   */
+  static MappedOplogFile map(File f, long size) throws IOException {
+    int segmentSize = SEGMENT_SIZE;
+    MappedByteBuffer[] segments =
+        new MappedByteBuffer[(int) ((size + segmentSize - 1) / segmentSize)];
+    RandomAccessFile raf = new RandomAccessFile(f, "r");
+    try {
+      FileChannel channel = raf.getChannel();
+      for (int i = 0; i < segments.length; i++) {
+        long position = (long) i * segmentSize;
+        segments[i] =
+            channel.map(MapMode.READ_ONLY, position, Math.min(segmentSize, size - position));
+      }
+    } catch (IOException e) {
+      for (MappedByteBuffer segment : segments) {
+        unmap(segment);
+      }
+      throw e;
+    } finally {
+      // the mapping stays valid once the channel is closed
+      raf.close();
+    }
+    return new MappedOplogFile(segments, segmentSize, size);
+  }
+
+  long getSize() {
+    return this.size;
+  }
+
+  /**
+   * Reads length bytes at position.
+   *
+   * @return the bytes, or null if this mapping is closed or does not contain them
+   */
+  byte[] read(long position, int length) {
+    if (position < 0 || position + length > this.size || !acquire()) {
+      return null;
+    }
+    try {
+      byte[] bytes = new byte[length];
+      int copied = 0;
+      while (copied < length) {
+        long current = position + copied;
+        // a duplicate has its own position so concurrent reads do not interfere
+        ByteBuffer segment = this.segments[(int) (current / this.segmentSize)].duplicate();
+        segment.position((int) (current % this.segmentSize));
+        int count = Math.min(length - copied, segment.remaining());
+        segment.get(bytes, copied, count);
+        copied += count;
+      }
+      return bytes;
+    } finally {
+      release();
+    }
+  }
+
+  private boolean acquire() {
+    while (true) {
+      int current = this.state.get();
+      if (current < 0) {
+        return false;
+      }
+      if (this.state.compareAndSet(current, current + 1)) {
+        return true;
+      }
+    }
+  }
+
+  private void release() {
+    if (this.state.decrementAndGet() == Integer.MIN_VALUE) {
+      unmapAll();
+    }
+  }
+
+  /**
+   * Closes this mapping. It is released now if no read is in progress, or else by the last read.
+   */
+  void close() {
+    while (true) {
+      int current = this.state.get();
+      if (current < 0) {
+        return;
+      }
+      if (this.state.compareAndSet(current, current | Integer.MIN_VALUE)) {
+        if (current == 0) {
+          unmapAll();
+        }
+        return;
+      }
+    }
+  }
+
+  private void unmapAll() {
+    for (MappedByteBuffer segment : this.segments) {
+      unmap(segment);
+    }
+  }
+
+  /**
+   * Releases the memory of a mapping now rather than when it is garbage collected, so that the
+   * space of a deleted oplog is freed. If the cleaner of the buffer is not accessible the mapping is
+   * left to the garbage collector.
+   */
+  private static void unmap(MappedByteBuffer buffer) {
+    if (buffer == null) {
+      return;
+    }
+    try {
+      Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+      cleanerMethod.setAccessible(true);
+      Object cleaner = cleanerMethod.invoke(buffer);
+      if (cleaner != null) {
+        Method cleanMethod = cleaner.getClass().getMethod("clean");
+        cleanMethod.setAccessible(true);
+        cleanMethod.invoke(cleaner);
+      }
+    } catch (Exception e) {
+      if (logger.isDebugEnabled()) {
+        logger.debug("Could not unmap oplog buffer; leaving it to the garbage collector", e);
+      }
+    }
+  }
+}
@@ -0,0 +1,112 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.geode.internal.cache;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Remembers when a client region last checked each of its local values against the server, so
+ * that a region used as a near cache without a subscription serves a local value for at most
+ * {@link LocalRegion#NEAR_CACHE_REVALIDATE_MS} before it asks the server for the entry again.
+ * <p>
+ * A key with no validation time is stale, so validation times can be dropped at any time. Reads
+ * of the times do not lock. Once more than the max keys are remembered, one thread drops the
+ * expired times and, if that is not enough, arbitrary others but the key just validated, until a
+ * quarter of the max keys are free again. Each trim removes at least that quarter, so its cost is
+ * constant per validation, and the memory of this validator stays bounded no matter how many keys
+ * the region sees.
+ */
+class NearCacheValidator {
+
+  private final long intervalMs;
+
+  private final int maxKeys;
+
+  /** The number of remembered times a trim leaves at most */
+  private final int trimmedKeys;
+
+  /** The time each key was validated at */
+  private final ConcurrentHashMap<Object, Long> validated = new ConcurrentHashMap<>();
+
+  /** True while a thread is trimming {@link #validated} */
+  private final AtomicBoolean trimming = new AtomicBoolean();
+
+  NearCacheValidator(long intervalMs, int maxKeys) {
+    this.intervalMs = intervalMs;
+    this.maxKeys = maxKeys;
+    this.trimmedKeys = maxKeys - maxKeys / 4;
+  }
+
+  /**
+   * Returns true if the local value of the given key has to be checked against the server before
+   * it is used.
+   */
+  boolean isStale(Object key) {
+    Long time = this.validated.get(key);
+    return time == null || System.currentTimeMillis() - time.longValue() >= this.intervalMs;
+  }
+
+  /**
+   * Records that the local value of the given key was just read from the server or found to be
+   * the same as the one on the server.
+   */
+  void validated(Object key) {
+    long now = System.currentTimeMillis();
+    this.validated.put(key, Long.valueOf(now));
+    if (this.validated.size() > this.maxKeys && this.trimming.compareAndSet(false, true)) {
+      try {
+        trim(now, key);
+      } finally {
+        this.trimming.set(false);
+      }
+    }
+  }
+
+  /**
+   * Drops the expired times, then others until at most {@link #trimmedKeys} are left, keeping the
+   * time of the given key that was just validated.
+   */
+  private void trim(long now, Object validatedKey) {
+    Iterator<Map.Entry<Object, Long>> it = this.validated.entrySet().iterator();
+    while (it.hasNext()) {
+      if (now - it.next().getValue().longValue() >= this.intervalMs) {
+        it.remove();
+      }
+    }
+    it = this.validated.keySet().iterator();
+    while (this.validated.size() > this.trimmedKeys && it.hasNext()) {
+      if (!it.next().equals(validatedKey)) {
+        it.remove();
+      }
+    }
+  }
+
+  /**
+   * Forgets the validation time of the given key, so that its next local read is checked.
+   */
+  void invalidated(Object key) {
+    this.validated.remove(key);
+  }
+
+  /**
+   * Returns the number of keys whose validation time is remembered.
+   */
+  int size() {
+    return this.validated.size();
+  }
+}
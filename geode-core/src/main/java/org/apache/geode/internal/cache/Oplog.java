@@ -32,6 +32,8 @@ import org.apache.geode.cache.EntryNotFoundException;
 import org.apache.geode.cache.RegionDestroyedException;
 import org.apache.geode.cache.TimeoutException;
 import org.apache.geode.cache.UnsupportedVersionException;
+import org.apache.geode.compression.Compressor;
+import org.apache.geode.compression.Lz4Compressor;
 import org.apache.geode.distributed.OplogCancelledException;
 import org.apache.geode.distributed.internal.DM;
 import org.apache.geode.distributed.internal.DistributionConfig;
@@ -50,6 +52,7 @@ import org.apache.geode.internal.cache.DiskStoreImpl.OplogEntryIdSet;
 import org.apache.geode.internal.cache.DistributedRegion.DiskPosition;
 import org.apache.geode.internal.cache.lru.EnableLRU;
 import org.apache.geode.internal.cache.lru.NewLRUClockHand;
+import org.apache.geode.internal.cache.persistence.BackupManager;
 import org.apache.geode.internal.cache.persistence.BytesAndBits;
 import org.apache.geode.internal.cache.persistence.DiskRecoveryStore;
 import org.apache.geode.internal.cache.persistence.DiskRegionView;
@@ -93,9 +96,12 @@ import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InterruptedIOException;
+import java.io.RandomAccessFile;
 import java.io.SyncFailedException;
 import java.nio.ByteBuffer;
 import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
@@ -114,6 +120,7 @@ import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
 
 /**
  * Implements an operation log to write to disk. As of prPersistSprint2 this file only supports
@@ -504,7 +511,20 @@ public final class Oplog implements CompactableOplog, Flushable {
     DRF(new byte[] {0x47, 0x46, 0x44, 0x52, 0x46, 0x31}), // GFDRF1
     IRF(new byte[] {0x47, 0x46, 0x49, 0x52, 0x46, 0x31}), // GFIRF1
     KRF(new byte[] {0x47, 0x46, 0x4b, 0x52, 0x46, 0x31}), // GFKRF1
-    IF(new byte[] {0x47, 0x46, 0x49, 0x46, 0x30, 0x31}); // GFIF01
+    IF(new byte[] {0x47, 0x46, 0x49, 0x46, 0x30, 0x31}), // GFIF01
+    /**
+     * A crf whose records are followed by a checksum. See {@link DiskStoreImpl#CHECKSUM_OPLOGS}.
+     */
+    CRF2(new byte[] {0x47, 0x46, 0x43, 0x52, 0x46, 0x32}), // GFCRF2
+    /**
+     * A drf whose records are followed by a checksum. See {@link DiskStoreImpl#CHECKSUM_OPLOGS}.
+     */
+    DRF2(new byte[] {0x47, 0x46, 0x44, 0x52, 0x46, 0x32}), // GFDRF2
+    /**
+     * A krf whose keys are grouped by region and followed by an index of the regions. See
+     * {@link DiskStoreImpl#KRF_REGION_INDEX}.
+     */
+    KRF2(new byte[] {0x47, 0x46, 0x4b, 0x52, 0x46, 0x32}); // GFKRF2
 
     private byte[] bytes;
 
@@ -523,6 +543,25 @@ public final class Oplog implements CompactableOplog, Flushable {
 
   public static final int OPLOG_MAGIC_SEQ_REC_SIZE = 1 + OPLOG_TYPE.getLen() + 1;
 
+  /**
+   * The number of bytes of the checksum that follows the records of the {@link OPLOG_TYPE#CRF2} and
+   * {@link OPLOG_TYPE#DRF2} formats.
+   */
+  private static final int RECORD_CHECKSUM_SIZE = 4;
+
+  private static final Compressor VALUE_COMPRESSOR = new Lz4Compressor();
+
+  /**
+   * The number of bytes of an oplog file copied to a backup between checks of the I/O budget.
+   */
+  private static final long BACKUP_COPY_CHUNK_SIZE = 1024 * 1024;
+
+  /**
+   * True if the crf and drf of this oplog are written in the {@link OPLOG_TYPE#CRF2} and
+   * {@link OPLOG_TYPE#DRF2} formats.
+   */
+  private boolean checksumRecords;
+
   /** Compact this oplogs or no. A client configurable property * */
   private final boolean compactOplogs;
 
@@ -533,6 +572,13 @@ public final class Oplog implements CompactableOplog, Flushable {
   final Object lock = new Object();
   final ByteBuffer[] bbArray = new ByteBuffer[2];
 
+  /**
+   * Batches the forces of the synchronous writes to this oplog when
+   * {@link DiskStoreImpl#GROUP_COMMIT} is set; null otherwise.
+   */
+  private final OplogGroupCommitter groupCommitter =
+      DiskStoreImpl.GROUP_COMMIT ? new OplogGroupCommitter(this) : null;
+
   private boolean lockedForKRFcreate = false;
 
   /**
@@ -541,6 +587,18 @@ public final class Oplog implements CompactableOplog, Flushable {
    */
   private boolean doneAppending = false;
 
+  /**
+   * The mapping of the crf values are read from once this oplog is done appending, if
+   * {@link DiskStoreImpl#MMAP_ROLLED_OPLOGS} is set. Only changed while holding the lock.
+   */
+  private volatile MappedOplogFile mappedCrf;
+
+  /**
+   * Set to true if mapping the crf failed so that it is not attempted for every read. Only changed
+   * while holding the lock.
+   */
+  private volatile boolean mappingFailed = false;
+
   /**
    * Extra bytes to be skipped before reading value bytes. Value is currently 6 : 1 byte for opcode,
    * 1 byte for userbits and 4 bytes for value length.
@@ -572,6 +630,7 @@ public final class Oplog implements CompactableOplog, Flushable {
     // which allows the maxDirSize to be checked.
     this.firstRecord = false;
     this.opState = new OpState();
+    this.checksumRecords = DiskStoreImpl.CHECKSUM_OPLOGS;
     long maxOplogSizeParam = getParent().getMaxOplogSizeInBytes();
     long availableSpace = this.dirHolder.getAvailableSpace();
     if (availableSpace < maxOplogSizeParam) {
@@ -637,6 +696,7 @@ public final class Oplog implements CompactableOplog, Flushable {
     this.oplogSet = prevOplog.oplogSet;
     this.dirHolder = dirHolder;
     this.opState = new OpState();
+    this.checksumRecords = DiskStoreImpl.CHECKSUM_OPLOGS;
     long maxOplogSizeParam = getParent().getMaxOplogSizeInBytes();
     long availableSpace = this.dirHolder.getAvailableSpace();
     if (prevOplog.compactOplogs) {
@@ -1095,7 +1155,7 @@ public final class Oplog implements CompactableOplog, Flushable {
     }
     this.crf.f = f;
     preblow(this.crf, getMaxCrfSize());
-    this.crf.raf = new UninterruptibleRandomAccessFile(f, SYNC_WRITES ? "rwd" : "rw");
+    this.crf.raf = new UninterruptibleRandomAccessFile(f, getWriteMode());
     this.crf.RAFClosed = false;
     oplogSet.crfCreate(this.oplogId);
     this.crf.writeBuf = allocateWriteBuf(prevOlf);
@@ -1104,7 +1164,7 @@ public final class Oplog implements CompactableOplog, Flushable {
     this.crf.channel = this.crf.raf.getChannel();
 
     this.stats.incOpenOplogs();
-    writeDiskStoreRecord(this.crf, OPLOG_TYPE.CRF);
+    writeDiskStoreRecord(this.crf, this.checksumRecords ? OPLOG_TYPE.CRF2 : OPLOG_TYPE.CRF);
     writeGemfireVersionRecord(this.crf);
     writeRVVRecord(this.crf, false);
 
@@ -1115,6 +1175,14 @@ public final class Oplog implements CompactableOplog, Flushable {
     this.maxCrfSize += this.crf.currSize;
   }
 
+  /**
+   * Returns the mode the crf and drf are opened with for writing: "rwd" writes them with O_DSYNC
+   * semantics.
+   */
+  private static String getWriteMode() {
+    return SYNC_WRITES || DiskStoreImpl.DSYNC_WRITES ? "rwd" : "rw";
+  }
+
   private static ByteBuffer allocateWriteBuf(OplogFile prevOlf) {
     if (prevOlf != null && prevOlf.writeBuf != null) {
       ByteBuffer result = prevOlf.writeBuf;
@@ -1137,14 +1205,14 @@ public final class Oplog implements CompactableOplog, Flushable {
       logger.debug("Creating operation log file {}", f);
     }
     preblow(this.drf, getMaxDrfSize());
-    this.drf.raf = new UninterruptibleRandomAccessFile(f, SYNC_WRITES ? "rwd" : "rw");
+    this.drf.raf = new UninterruptibleRandomAccessFile(f, getWriteMode());
     this.drf.RAFClosed = false;
     this.oplogSet.drfCreate(this.oplogId);
     this.drf.writeBuf = allocateWriteBuf(prevOlf);
     logger.info(LocalizedMessage.create(LocalizedStrings.Oplog_CREATE_0_1_2,
         new Object[] {toString(), getFileType(this.drf), getParent().getName()}));
     this.drf.channel = this.drf.raf.getChannel();
-    writeDiskStoreRecord(this.drf, OPLOG_TYPE.DRF);
+    writeDiskStoreRecord(this.drf, this.checksumRecords ? OPLOG_TYPE.DRF2 : OPLOG_TYPE.DRF);
     writeGemfireVersionRecord(this.drf);
     writeRVVRecord(this.drf, true);
   }
@@ -1513,6 +1581,18 @@ public final class Oplog implements CompactableOplog, Flushable {
    * Return bytes read.
    */
   long recoverDrf(OplogEntryIdSet deletedIds, boolean alreadyRecoveredOnce, boolean latestOplog) {
+    return recoverDrf(deletedIds, alreadyRecoveredOnce, latestOplog, null);
+  }
+
+  /**
+   * Return bytes read.
+   * 
+   * @param gcVersions if not null the gc versions read from the drf are added to it instead of
+   *        being recorded in their regions, so that drfs recovered concurrently can have them
+   *        recorded by one thread in the order of the oplogs
+   */
+  long recoverDrf(OplogEntryIdSet deletedIds, boolean alreadyRecoveredOnce, boolean latestOplog,
+      List<RecoveredGCVersion> gcVersions) {
     File drfFile = this.drf.f;
     if (drfFile == null) {
       this.haveRecoveredDrf = true;
@@ -1529,15 +1609,14 @@ public final class Oplog implements CompactableOplog, Flushable {
           new Object[] {toString(), drfFile.getAbsolutePath(), getParent().getName()}));
       this.recoverDelEntryId = DiskStoreImpl.INVALID_ID;
       boolean readLastRecord = true;
-      CountingDataInputStream dis = null;
+      ChecksumDataInputStream dis = null;
       try {
         int recordCount = 0;
         boolean foundDiskStoreRecord = false;
         FileInputStream fis = null;
         try {
           fis = new FileInputStream(drfFile);
-          dis = new CountingDataInputStream(new BufferedInputStream(fis, 32 * 1024),
-              drfFile.length());
+          dis = new ChecksumDataInputStream(drfFile, new BufferedInputStream(fis, 32 * 1024));
           boolean endOfLog = false;
           while (!endOfLog) {
             if (dis.atEndOfFile()) {
@@ -1573,7 +1652,9 @@ public final class Oplog implements CompactableOplog, Flushable {
                 recordCount++;
                 break;
               case OPLOG_MAGIC_SEQ_ID:
-                readOplogMagicSeqRecord(dis, this.drf.f, OPLOG_TYPE.DRF);
+                if (readOplogMagicSeqRecord(dis, this.drf.f, OPLOG_TYPE.DRF) == OPLOG_TYPE.DRF2) {
+                  dis.startVerifying();
+                }
                 break;
               case OPLOG_GEMFIRE_VERSION:
                 readGemfireVersionRecord(dis, this.drf.f);
@@ -1582,7 +1663,7 @@ public final class Oplog implements CompactableOplog, Flushable {
 
               case OPLOG_RVV:
                 long idx = dis.getCount();
-                readRVVRecord(dis, this.drf.f, true, latestOplog);
+                readRVVRecord(dis, this.drf.f, true, latestOplog, gcVersions);
                 recordCount++;
                 break;
 
@@ -1728,10 +1809,13 @@ public final class Oplog implements CompactableOplog, Flushable {
       DataInputStream dis = new DataInputStream(new BufferedInputStream(fis, 1024 * 1024));
       final Version version = getProductVersionIfOld();
       final ByteArrayDataInput in = new ByteArrayDataInput();
+      List<KrfRegionSection> regionSections = null;
       try {
         try {
           validateOpcode(dis, OPLOG_MAGIC_SEQ_ID);
-          readOplogMagicSeqRecord(dis, f, OPLOG_TYPE.KRF);
+          if (readOplogMagicSeqRecord(dis, f, OPLOG_TYPE.KRF) == OPLOG_TYPE.KRF2) {
+            regionSections = readKrfRegionIndex(f);
+          }
 
           validateOpcode(dis, OPLOG_DISK_STORE_ID);
           readDiskStoreRecord(dis, f);
@@ -1756,10 +1840,44 @@ public final class Oplog implements CompactableOplog, Flushable {
 
         readGemfireVersionRecord(dis, f);
         readTotalCountRecord(dis, f);
-        readRVVRecord(dis, f, false, latestOplog);
+        readRVVRecord(dis, f, false, latestOplog, null);
         long lastOffset = 0;
-        byte[] keyBytes = DataSerializer.readByteArray(dis);
-        while (keyBytes != null) {
+        // the index of the next region section of a KRF2 and the number of keys left to read in
+        // the current one
+        int sectionIndex = 0;
+        int sectionKeysLeft = 0;
+        boolean seekToSection = false;
+        for (;;) {
+          if (regionSections != null) {
+            while (sectionKeysLeft == 0 && sectionIndex < regionSections.size()) {
+              KrfRegionSection section = regionSections.get(sectionIndex++);
+              if (oplogKeyIdHWM < section.maxOplogKeyId) {
+                oplogKeyIdHWM = section.maxOplogKeyId;
+              }
+              if (getOplogSet().getCurrentlyRecovering(section.drId) == null) {
+                // the keys of a region not being recovered would all be skipped
+                this.stats.incRecoveryRecordsSkipped(section.entryCount);
+                this.recordsSkippedDuringRecovery += section.entryCount;
+                seekToSection = true;
+                continue;
+              }
+              if (seekToSection) {
+                fis.getChannel().position(section.position);
+                dis = new DataInputStream(new BufferedInputStream(fis, 1024 * 1024));
+                seekToSection = false;
+              }
+              sectionKeysLeft = section.entryCount;
+              lastOffset = 0;
+            }
+            if (sectionKeysLeft == 0) {
+              break;
+            }
+            sectionKeysLeft--;
+          }
+          byte[] keyBytes = DataSerializer.readByteArray(dis);
+          if (keyBytes == null) {
+            break;
+          }
           byte userBits = dis.readByte();
           int valueLength = InternalDataSerializer.readArrayLength(dis);
           byte[] valueBytes = null;
@@ -1848,8 +1966,7 @@ public final class Oplog implements CompactableOplog, Flushable {
               }
             }
           }
-          keyBytes = DataSerializer.readByteArray(dis);
-        } // while
+        } // for
         setRecoverNewEntryId(oplogKeyIdHWM);
       } catch (IOException ex) {
         try {
@@ -1907,7 +2024,7 @@ public final class Oplog implements CompactableOplog, Flushable {
     this.recoverModEntryId = DiskStoreImpl.INVALID_ID;
     this.recoverModEntryIdHWM = DiskStoreImpl.INVALID_ID;
     boolean readLastRecord = true;
-    CountingDataInputStream dis = null;
+    ChecksumDataInputStream dis = null;
     try {
       final LocalRegion currentRegion = LocalRegion.getInitializingRegion();
       final Version version = getProductVersionIfOld();
@@ -1918,8 +2035,7 @@ public final class Oplog implements CompactableOplog, Flushable {
       FileInputStream fis = null;
       try {
         fis = new FileInputStream(this.crf.f);
-        dis = new CountingDataInputStream(new BufferedInputStream(fis, 1024 * 1024),
-            this.crf.f.length());
+        dis = new ChecksumDataInputStream(this.crf.f, new BufferedInputStream(fis, 1024 * 1024));
         boolean endOfLog = false;
         while (!endOfLog) {
           // long startPosition = byteCount;
@@ -1987,14 +2103,16 @@ public final class Oplog implements CompactableOplog, Flushable {
               recordCount++;
               break;
             case OPLOG_MAGIC_SEQ_ID:
-              readOplogMagicSeqRecord(dis, this.crf.f, OPLOG_TYPE.CRF);
+              if (readOplogMagicSeqRecord(dis, this.crf.f, OPLOG_TYPE.CRF) == OPLOG_TYPE.CRF2) {
+                dis.startVerifying();
+              }
               break;
             case OPLOG_GEMFIRE_VERSION:
               readGemfireVersionRecord(dis, this.crf.f);
               recordCount++;
               break;
             case OPLOG_RVV:
-              readRVVRecord(dis, this.drf.f, false, latestOplog);
+              readRVVRecord(dis, this.drf.f, false, latestOplog, null);
               recordCount++;
               break;
             default:
@@ -2093,9 +2211,14 @@ public final class Oplog implements CompactableOplog, Flushable {
    * Reads and validates magic sequence in oplog header. For existing files this will not exist.
    * This method will throw a DiskAccessException in that case too.
    */
-  private void readOplogMagicSeqRecord(DataInput dis, File f, OPLOG_TYPE type) throws IOException {
+  private OPLOG_TYPE readOplogMagicSeqRecord(DataInput dis, File f, OPLOG_TYPE type)
+      throws IOException {
     byte[] seq = new byte[OPLOG_TYPE.getLen()];
     dis.readFully(seq);
+    OPLOG_TYPE type2 = getFormat2Type(type);
+    if (type2 != null && Arrays.equals(seq, type2.getBytes())) {
+      type = type2;
+    }
     for (int i = 0; i < OPLOG_TYPE.getLen(); i++) {
       if (seq[i] != type.getBytes()[i]) {
         if (logger.isTraceEnabled(LogMarker.PERSIST_RECOVERY)) {
@@ -2114,6 +2237,24 @@ public final class Oplog implements CompactableOplog, Flushable {
       logger.trace(LogMarker.PERSIST_RECOVERY, "oplog magic code: {}", sb);
     }
     readEndOfRecord(dis);
+    return type;
+  }
+
+  /**
+   * Returns the type of a file of the given type in its second format, or null if the type does not
+   * have one.
+   */
+  private static OPLOG_TYPE getFormat2Type(OPLOG_TYPE type) {
+    switch (type) {
+      case CRF:
+        return OPLOG_TYPE.CRF2;
+      case DRF:
+        return OPLOG_TYPE.DRF2;
+      case KRF:
+        return OPLOG_TYPE.KRF2;
+      default:
+        return null;
+    }
   }
 
   /**
@@ -2180,8 +2321,8 @@ public final class Oplog implements CompactableOplog, Flushable {
     readEndOfRecord(dis);
   }
 
-  private void readRVVRecord(DataInput dis, File f, boolean gcRVV, boolean latestOplog)
-      throws IOException {
+  private void readRVVRecord(DataInput dis, File f, boolean gcRVV, boolean latestOplog,
+      List<RecoveredGCVersion> gcVersions) throws IOException {
     final boolean isPersistRecoveryDebugEnabled = logger.isTraceEnabled(LogMarker.PERSIST_RECOVERY);
 
     long numRegions = InternalDataSerializer.readUnsignedVL(dis);
@@ -2209,7 +2350,11 @@ public final class Oplog implements CompactableOplog, Flushable {
           // if we have a recovery store, add the recovered regions
           if (drs != null) {
             Object member = getParent().getDiskInitFile().getCanonicalObject((int) memberId);
-            drs.recordRecoveredGCVersion((VersionSource) member, gcVersion);
+            if (gcVersions != null) {
+              gcVersions.add(new RecoveredGCVersion(drs, (VersionSource) member, gcVersion));
+            } else {
+              drs.recordRecoveredGCVersion((VersionSource) member, gcVersion);
+            }
             if (isPersistRecoveryDebugEnabled) {
               logger.trace(LogMarker.PERSIST_RECOVERY,
                   "adding gcRVV entry drId={}, member={}, version={}", drId, memberId, gcVersion);
@@ -2261,6 +2406,41 @@ public final class Oplog implements CompactableOplog, Flushable {
     readEndOfRecord(dis);
   }
 
+  /**
+   * A gc version read from the drf of an oplog that has not been recorded in its region yet.
+   */
+  static class RecoveredGCVersion {
+    private final DiskRecoveryStore drs;
+    private final VersionSource member;
+    private final long gcVersion;
+
+    RecoveredGCVersion(DiskRecoveryStore drs, VersionSource member, long gcVersion) {
+      this.drs = drs;
+      this.member = member;
+      this.gcVersion = gcVersion;
+    }
+
+    void record() {
+      this.drs.recordRecoveredGCVersion(this.member, this.gcVersion);
+    }
+  }
+
+  /**
+   * Returns the file {@link #recoverCrf} will read to recover this oplog: its krf file, or its crf
+   * file if there is no krf or values are recovered synchronously.
+   */
+  File getFileToRecover(boolean recoverValuesSync) {
+    if (this.drf.f == null || this.crf.f == null) {
+      return null;
+    }
+    File f = new File(this.drf.f.getParentFile(),
+        oplogSet.getPrefix() + getParent().getName() + "_" + this.oplogId + KRF_FILE_EXT);
+    if (recoverValuesSync || !f.exists() || !getParent().getDiskInitFile().hasKrf(this.oplogId)) {
+      f = this.crf.f;
+    }
+    return f;
+  }
+
   /**
    * Recovers one oplog
    * 
@@ -2373,6 +2553,10 @@ public final class Oplog implements CompactableOplog, Flushable {
     DiskEntry.RecoveredEntry re = null;
     if (recoverValue || EntryBits.isAnyInvalid(userBits) || EntryBits.isTombstone(userBits)) {
       Object value;
+      if (EntryBits.isCompressed(userBits) && EntryBits.isNeedsValue(userBits)) {
+        // the DiskId keeps the length and bits of the compressed bytes on disk
+        valueBytes = VALUE_COMPRESSOR.decompress(valueBytes);
+      }
       if (EntryBits.isLocalInvalid(userBits)) {
         value = Token.LOCAL_INVALID;
         valueLength = 0;
@@ -2395,6 +2579,14 @@ public final class Oplog implements CompactableOplog, Flushable {
   }
 
   private void readEndOfRecord(DataInput di) throws IOException {
+    ChecksumDataInputStream checksummed = null;
+    int expectedChecksum = 0;
+    int checksum = 0;
+    if (di instanceof ChecksumDataInputStream && ((ChecksumDataInputStream) di).isVerifying()) {
+      checksummed = (ChecksumDataInputStream) di;
+      expectedChecksum = checksummed.getChecksum();
+      checksum = di.readInt();
+    }
     int b = di.readByte();
     if (b != END_OF_RECORD_ID) {
       if (b == 0) {
@@ -2411,6 +2603,13 @@ public final class Oplog implements CompactableOplog, Flushable {
             "expected end of record (byte==" + END_OF_RECORD_ID + ") or zero but found " + b);
       }
     }
+    if (checksummed != null) {
+      if (checksum != expectedChecksum) {
+        throw new DiskAccessException("Checksum mismatch in the record ending at offset "
+            + checksummed.getCount() + " of " + checksummed.getFile(), getParent());
+      }
+      checksummed.resetChecksum();
+    }
   }
 
   private static void forceSkipBytes(CountingDataInputStream dis, int len) throws IOException {
@@ -2885,6 +3084,9 @@ public final class Oplog implements CompactableOplog, Flushable {
       ByteArrayDataInput in) {
     if (getParent().isValidating()) {
       if (EntryBits.isSerialized(userBits)) {
+        if (EntryBits.isCompressed(userBits)) {
+          valueBytes = VALUE_COMPRESSOR.decompress(valueBytes);
+        }
         // make sure values are deserializable
         if (!PdxWriterImpl.isPdx(valueBytes)) { // fix bug 43011
           try {
@@ -3360,6 +3562,7 @@ public final class Oplog implements CompactableOplog, Flushable {
   private void basicClose(boolean forceDelete) {
     flushAll();
     synchronized (this.lock/* crf */) {
+      unmapCrf();
       unpreblow(this.crf, getMaxCrfSize());
       if (!this.crf.RAFClosed) {
         try {
@@ -3524,6 +3727,22 @@ public final class Oplog implements CompactableOplog, Flushable {
     return this.opState.getValueOffset();
   }
 
+  /**
+   * Returns the number of value bytes written by the current op, which is less than the length of
+   * the value if it has been compressed.
+   */
+  private int getOpStateValueLength() {
+    return this.opState.getValueLength();
+  }
+
+  /**
+   * Returns userBits with the {@link EntryBits#isCompressed} bit of the value written by the
+   * current op.
+   */
+  private byte getOpStateUserBits(byte userBits) {
+    return EntryBits.setCompressed(userBits, this.opState.isValueCompressed());
+  }
+
   private byte calcUserBits(ValueWrapper vw) {
     return vw.getUserBits();
   }
@@ -3624,6 +3843,7 @@ public final class Oplog implements CompactableOplog, Flushable {
       boolean async) throws IOException, InterruptedException {
     DiskId id = entry.getDiskId();
     boolean useNextOplog = false;
+    long commitTicket = 0;
     long startPosForSynchOp = -1;
     if (DiskStoreImpl.KRF_DEBUG) {
       // wait for cache close to create krf
@@ -3691,17 +3911,18 @@ public final class Oplog implements CompactableOplog, Flushable {
         id.setOplogId(getOplogId());
         // do the io while holding lock so that switch can set doneAppending
         // Write the data to the opLog for the synch mode
-        startPosForSynchOp = writeOpLogBytes(this.crf, async, true);
+        startPosForSynchOp = writeOpLogBytes(this.crf, async, this.groupCommitter == null);
+        commitTicket = registerGroupCommit(async);
         // if (this.crf.currSize != startPosForSynchOp) {
         // assert false;
         // }
         this.crf.currSize = temp;
         if (EntryBits.isNeedsValue(userBits)) {
-          id.setValueLength(value.getLength());
+          id.setValueLength(getOpStateValueLength());
         } else {
           id.setValueLength(0);
         }
-        id.setUserBits(userBits);
+        id.setUserBits(getOpStateUserBits(userBits));
 
         if (logger.isTraceEnabled()) {
           logger.trace("Oplog::basicCreate:Release dByteBuffer with data for Disk ID = {}", id);
@@ -3744,6 +3965,7 @@ public final class Oplog implements CompactableOplog, Flushable {
       clearOpState();
       // }
     }
+    awaitGroupCommit(commitTicket);
     if (useNextOplog) {
       if (LocalRegion.ISSUE_CALLBACKS_TO_CACHE_OBSERVER) {
         CacheObserverHolder.getInstance().afterSwitchingOplog();
@@ -4048,11 +4270,24 @@ public final class Oplog implements CompactableOplog, Flushable {
       this.krf.lastOffset = valueOffset;
     }
     this.krf.keyNum++;
+    if (this.krf.regionSections != null) {
+      KrfRegionSection section = this.krf.regionSections.get(this.krf.regionSections.size() - 1);
+      section.entryCount++;
+      section.maxOplogKeyId = Math.max(section.maxOplogKeyId, oplogKeyId);
+    }
   }
 
   private final AtomicBoolean krfCreated = new AtomicBoolean();
 
   public void krfFileCreate() throws IOException {
+    krfFileCreate(OPLOG_TYPE.KRF);
+  }
+
+  /**
+   * Creates the krf file of this oplog in the format of type, {@link OPLOG_TYPE#KRF} or
+   * {@link OPLOG_TYPE#KRF2}, and writes its header.
+   */
+  private void krfFileCreate(OPLOG_TYPE type) throws IOException {
     // this method is only used by offline compaction. validating will not
     // create krf
     assert (getParent().isValidating() == false);
@@ -4067,7 +4302,7 @@ public final class Oplog implements CompactableOplog, Flushable {
 
     // write oplog magic seq
     this.krf.dos.writeByte(OPLOG_MAGIC_SEQ_ID);
-    this.krf.dos.write(Oplog.OPLOG_TYPE.KRF.getBytes(), 0, Oplog.OPLOG_TYPE.getLen());
+    this.krf.dos.write(type.getBytes(), 0, Oplog.OPLOG_TYPE.getLen());
     this.krf.dos.writeByte(END_OF_RECORD_ID);
 
     // write the disk store id to the krf
@@ -4108,6 +4343,75 @@ public final class Oplog implements CompactableOplog, Flushable {
     byte[] rvvBytes = serializeRVVs(drMap, false);
     this.krf.dos.write(rvvBytes);
     this.krf.dos.writeByte(END_OF_RECORD_ID);
+
+    this.krf.regionSections = type == OPLOG_TYPE.KRF2 ? new ArrayList<KrfRegionSection>() : null;
+  }
+
+  /**
+   * Starts the keys of the region drId in a krf in the {@link OPLOG_TYPE#KRF2} format. The offsets
+   * of the values of each region are delta encoded from 0 so the keys of a region can be read
+   * without reading those of the regions before it.
+   */
+  private void startKrfRegionSection(long drId) {
+    List<KrfRegionSection> sections = this.krf.regionSections;
+    if (sections == null) {
+      return;
+    }
+    if (!sections.isEmpty() && sections.get(sections.size() - 1).drId == drId) {
+      return;
+    }
+    sections.add(new KrfRegionSection(drId, this.krf.dos.size()));
+    this.krf.lastOffset = 0;
+  }
+
+  /**
+   * Writes the index of the regions of a krf in the {@link OPLOG_TYPE#KRF2} format after its last
+   * key. The index is followed by its position in the file so that a reader can find it from the
+   * end of the file.
+   */
+  private void writeKrfRegionIndex() throws IOException {
+    long indexPosition = this.krf.dos.size();
+    List<KrfRegionSection> sections = new ArrayList<KrfRegionSection>();
+    for (KrfRegionSection section : this.krf.regionSections) {
+      if (section.entryCount > 0) {
+        sections.add(section);
+      }
+    }
+    InternalDataSerializer.writeUnsignedVL(sections.size(), this.krf.dos);
+    for (KrfRegionSection section : sections) {
+      DiskInitFile.writeDiskRegionID(this.krf.dos, section.drId);
+      this.krf.dos.writeLong(section.position);
+      InternalDataSerializer.writeUnsignedVL(section.entryCount, this.krf.dos);
+      InternalDataSerializer.writeUnsignedVL(section.maxOplogKeyId, this.krf.dos);
+    }
+    this.krf.dos.writeByte(END_OF_RECORD_ID);
+    this.krf.dos.writeLong(indexPosition);
+  }
+
+  /**
+   * Reads the index of the regions written by {@link #writeKrfRegionIndex} at the end of f.
+   *
+   * @return the sections of the regions in the order they are in f
+   */
+  private List<KrfRegionSection> readKrfRegionIndex(File f) throws IOException {
+    RandomAccessFile raf = new RandomAccessFile(f, "r");
+    try {
+      raf.seek(raf.length() - 8);
+      raf.seek(raf.readLong());
+      int count = (int) InternalDataSerializer.readUnsignedVL(raf);
+      List<KrfRegionSection> sections = new ArrayList<KrfRegionSection>(count);
+      for (int i = 0; i < count; i++) {
+        KrfRegionSection section =
+            new KrfRegionSection(DiskInitFile.readDiskRegionID(raf), raf.readLong());
+        section.entryCount = (int) InternalDataSerializer.readUnsignedVL(raf);
+        section.maxOplogKeyId = InternalDataSerializer.readUnsignedVL(raf);
+        sections.add(section);
+      }
+      readEndOfRecord(raf);
+      return sections;
+    } finally {
+      raf.close();
+    }
   }
 
   // if IOException happened during krf creation, close and delete it
@@ -4144,6 +4448,9 @@ public final class Oplog implements CompactableOplog, Flushable {
     try {
       if (this.krf.fos != null) {
         DataSerializer.writeByteArray(null, this.krf.dos);
+        if (this.krf.regionSections != null) {
+          writeKrfRegionIndex();
+        }
       } else {
         return;
       }
@@ -4244,11 +4551,22 @@ public final class Oplog implements CompactableOplog, Flushable {
 
           boolean krfCreateSuccess = false;
           try {
-            krfFileCreate();
+            krfFileCreate(
+                DiskStoreImpl.KRF_REGION_INDEX ? OPLOG_TYPE.KRF2 : OPLOG_TYPE.KRF);
+            if (this.krf.regionSections != null) {
+              // group the keys by region, keeping them sorted by offset within a region
+              Collections.sort(sortedLiveEntries, new Comparator<KRFEntry>() {
+                public int compare(KRFEntry o1, KRFEntry o2) {
+                  return Long.compare(o1.getDiskRegionView().getId(),
+                      o2.getDiskRegionView().getId());
+                }
+              });
+            }
 
             // sortedLiveEntries are now sorted
             // so we can start writing them to disk.
             for (KRFEntry ke : sortedLiveEntries) {
+              startKrfRegionSection(ke.getDiskRegionView().getId());
               writeOneKeyEntryForKRF(ke);
             }
 
@@ -4660,6 +4978,7 @@ public final class Oplog implements CompactableOplog, Flushable {
       boolean async, boolean calledByCompactor) throws IOException, InterruptedException {
     DiskId id = entry.getDiskId();
     boolean useNextOplog = false;
+    long commitTicket = 0;
     long startPosForSynchOp = -1L;
     int adjustment = 0;
     Oplog emptyOplog = null;
@@ -4691,7 +5010,8 @@ public final class Oplog implements CompactableOplog, Flushable {
           long oldOplogId;
           // do the io while holding lock so that switch can set doneAppending
           // Write the data to the opLog for the synch mode
-          startPosForSynchOp = writeOpLogBytes(this.crf, async, true);
+          startPosForSynchOp = writeOpLogBytes(this.crf, async, this.groupCommitter == null);
+          commitTicket = registerGroupCommit(async);
           this.crf.currSize = temp;
           startPosForSynchOp += getOpStateValueOffset();
           if (logger.isTraceEnabled(LogMarker.PERSIST_WRITES)) {
@@ -4705,11 +5025,11 @@ public final class Oplog implements CompactableOplog, Flushable {
                 value.getBytesAsString(), dr.getId(), tag, getOplogId());
           }
           if (EntryBits.isNeedsValue(userBits)) {
-            id.setValueLength(value.getLength());
+            id.setValueLength(getOpStateValueLength());
           } else {
             id.setValueLength(0);
           }
-          id.setUserBits(userBits);
+          id.setUserBits(getOpStateUserBits(userBits));
           if (logger.isTraceEnabled()) {
             logger.trace("Oplog::basicModify:Released ByteBuffer with data for Disk ID = {}", id);
           }
@@ -4759,6 +5079,7 @@ public final class Oplog implements CompactableOplog, Flushable {
       }
       // }
     }
+    awaitGroupCommit(commitTicket);
     if (useNextOplog) {
       if (LocalRegion.ISSUE_CALLBACKS_TO_CACHE_OBSERVER) {
         CacheObserverHolder.getInstance().afterSwitchingOplog();
@@ -4790,6 +5111,7 @@ public final class Oplog implements CompactableOplog, Flushable {
   private void basicSaveConflictVersionTag(DiskRegionView dr, VersionTag tag, boolean async)
       throws IOException, InterruptedException {
     boolean useNextOplog = false;
+    long commitTicket = 0;
     int adjustment = 0;
     synchronized (this.lock) {
       if (getOplogSet().getChild() != this) {
@@ -4810,7 +5132,8 @@ public final class Oplog implements CompactableOplog, Flushable {
             throw cce;
           }
           this.firstRecord = false;
-          writeOpLogBytes(this.crf, async, true);
+          writeOpLogBytes(this.crf, async, this.groupCommitter == null);
+          commitTicket = registerGroupCommit(async);
           this.crf.currSize = temp;
           if (logger.isTraceEnabled(LogMarker.PERSIST_WRITES)) {
             logger.trace(LogMarker.PERSIST_WRITES,
@@ -4829,6 +5152,7 @@ public final class Oplog implements CompactableOplog, Flushable {
         clearOpState();
       }
     }
+    awaitGroupCommit(commitTicket);
     if (useNextOplog) {
       if (LocalRegion.ISSUE_CALLBACKS_TO_CACHE_OBSERVER) {
         CacheObserverHolder.getInstance().afterSwitchingOplog();
@@ -5097,6 +5421,7 @@ public final class Oplog implements CompactableOplog, Flushable {
     DiskId id = entry.getDiskId();
 
     boolean useNextOplog = false;
+    long commitTicket = 0;
     long startPosForSynchOp = -1;
     Oplog emptyOplog = null;
     if (DiskStoreImpl.KRF_DEBUG) {
@@ -5144,7 +5469,8 @@ public final class Oplog implements CompactableOplog, Flushable {
           // before we flush the crf.
           // However we can't have removes by async if we are doing a sync write
           // because we might be killed right after we do this write.
-          startPosForSynchOp = writeOpLogBytes(this.drf, async, true);
+          startPosForSynchOp = writeOpLogBytes(this.drf, async, this.groupCommitter == null);
+          commitTicket = registerGroupCommit(async);
           setHasDeletes(true);
           if (logger.isTraceEnabled(LogMarker.PERSIST_WRITES)) {
             logger.debug("basicRemove: id=<{}> key=<{}> drId={} oplog#{}", abs(id.getKeyId()),
@@ -5177,6 +5503,7 @@ public final class Oplog implements CompactableOplog, Flushable {
         clearOpState();
       }
     }
+    awaitGroupCommit(commitTicket);
     if (useNextOplog) {
       if (LocalRegion.ISSUE_CALLBACKS_TO_CACHE_OBSERVER) {
         CacheObserverHolder.getInstance().afterSwitchingOplog();
@@ -5240,8 +5567,12 @@ public final class Oplog implements CompactableOplog, Flushable {
         if (olf.RAFClosed) {
           return;
         }
+        long start = System.nanoTime();
+        boolean wrote = false;
         ByteBuffer bb = olf.writeBuf;
         if (bb != null && bb.position() != 0) {
+          wrote = true;
+          this.opState.beforeFlush(olf, bb);
           bb.flip();
           int flushed = 0;
           int numChannelRetries = 0;
@@ -5276,11 +5607,15 @@ public final class Oplog implements CompactableOplog, Flushable {
           bb.clear();
         }
         if (doSync) {
-          if (SYNC_WRITES) {
+          if (SYNC_WRITES || this.groupCommitter != null) {
             // Synch Meta Data as well as content
             olf.channel.force(true);
+            wrote = true;
           }
         }
+        if (wrote) {
+          this.stats.incOplogWriteLatency(System.nanoTime() - start);
+        }
       }
     } catch (ClosedChannelException ignore) {
       // It is possible for a channel to be closed when our code does not
@@ -5299,8 +5634,12 @@ public final class Oplog implements CompactableOplog, Flushable {
         }
         this.bbArray[0] = b1;
         this.bbArray[1] = b2;
+        this.opState.beforeFlush(olf, b1);
+        this.opState.beforeChunkFlush(olf, b2);
         b1.flip();
+        long start = System.nanoTime();
         long flushed = olf.channel.write(this.bbArray);
+        this.stats.incOplogWriteLatency(System.nanoTime() - start);
         this.bbArray[0] = null;
         this.bbArray[1] = null;
         // update bytesFlushed after entire writeBuffer is flushed to fix bug 41201
@@ -5320,6 +5659,62 @@ public final class Oplog implements CompactableOplog, Flushable {
     flushAll(false);
   }
 
+  /**
+   * Writes the buffered records of this oplog to its files while holding the lock and then forces
+   * them to disk without it, so that writers can keep appending while the force is in progress.
+   * Called by the {@link OplogGroupCommitter} of this oplog.
+   */
+  void groupCommit() {
+    flushAllNoSync(false);
+    try {
+      force(this.drf);
+      force(this.crf);
+    } catch (IOException ex) {
+      getParent().getCancelCriterion().checkCancelInProgress(ex);
+      throw new DiskAccessException(
+          LocalizedStrings.Oplog_FAILED_WRITING_KEY_TO_0.toLocalizedString(this.diskFile.getPath()),
+          ex, getParent());
+    }
+  }
+
+  private void force(OplogFile olf) throws IOException {
+    if (olf.RAFClosed) {
+      // the channel was forced when it was closed
+      return;
+    }
+    try {
+      long start = System.nanoTime();
+      olf.channel.force(false);
+      this.stats.incOplogWriteLatency(System.nanoTime() - start);
+    } catch (ClosedChannelException ignore) {
+      // closed by a concurrent close which forced it
+    }
+  }
+
+  /**
+   * Returns the ticket that a synchronous write made while holding the lock has to pass to
+   * {@link #awaitGroupCommit} once the lock is released, or 0 if it does not need to wait.
+   */
+  private long registerGroupCommit(boolean async) {
+    if (async || this.groupCommitter == null) {
+      return 0;
+    }
+    return this.groupCommitter.register();
+  }
+
+  private void awaitGroupCommit(long ticket) {
+    if (ticket != 0) {
+      this.groupCommitter.awaitCommit(ticket);
+    }
+  }
+
+  /**
+   * Returns the number of forces done by group commit on this oplog; used by tests.
+   */
+  long getGroupCommitCount() {
+    return this.groupCommitter == null ? 0 : this.groupCommitter.getCommitCount();
+  }
+
   public final void flushAllNoSync(boolean skipDrf) {
     flushAll(skipDrf, false);
   }
@@ -5540,6 +5935,77 @@ public final class Oplog implements CompactableOplog, Flushable {
     }
   }
 
+  /**
+   * Reads a value from the mapping of the crf without taking the lock.
+   *
+   * @return the value, or null if it has to be read from the crf file
+   */
+  private BytesAndBits mappedGet(long offsetInOplog, int valueLength, byte userBits) {
+    MappedOplogFile mapped = getMappedCrf();
+    if (mapped == null) {
+      return null;
+    }
+    byte[] valueBytes = mapped.read(offsetInOplog, valueLength);
+    if (valueBytes == null) {
+      // closed concurrently or not covered by the mapping
+      return null;
+    }
+    this.stats.incOplogReads();
+    BytesAndBits bb = new BytesAndBits(valueBytes, userBits);
+    // also set the product version for an older product
+    final Version version = getProductVersionIfOld();
+    if (version != null) {
+      bb.setVersion(version);
+    }
+    return bb;
+  }
+
+  /**
+   * Returns the mapping of the crf, mapping it if this oplog is done appending, or null if values
+   * have to be read from the crf file.
+   */
+  private MappedOplogFile getMappedCrf() {
+    MappedOplogFile mapped = this.mappedCrf;
+    // doneAppending is read without the lock; if it is stale the value is read from the file
+    if (mapped != null || !DiskStoreImpl.MMAP_ROLLED_OPLOGS || !this.doneAppending
+        || this.mappingFailed) {
+      return mapped;
+    }
+    synchronized (this.lock) {
+      if (this.mappedCrf == null && !this.mappingFailed && !this.closed && !this.deleted.get()
+          && this.crf.f != null && this.crf.bytesFlushed > 0) {
+        try {
+          this.mappedCrf = MappedOplogFile.map(this.crf.f, this.crf.bytesFlushed);
+        } catch (IOException e) {
+          // e.g. the address space is exhausted; keep reading from the file
+          this.mappingFailed = true;
+          if (logger.isDebugEnabled()) {
+            logger.debug("Could not map {}; reading its values from the file", this.crf.f, e);
+          }
+        }
+      }
+      return this.mappedCrf;
+    }
+  }
+
+  /**
+   * Used by tests to check that values are read from the mapping of the crf.
+   */
+  boolean isCrfMapped() {
+    return this.mappedCrf != null;
+  }
+
+  /**
+   * Closes the mapping of the crf, if any. Must be called while holding the lock.
+   */
+  private void unmapCrf() {
+    MappedOplogFile mapped = this.mappedCrf;
+    if (mapped != null) {
+      this.mappedCrf = null;
+      mapped.close();
+    }
+  }
+
   /**
    * Asif: Extracts the Value byte array & UserBit from the OpLog
    * 
@@ -5565,6 +6031,10 @@ public final class Oplog implements CompactableOplog, Flushable {
     } else {
       if (offsetInOplog == -1)
         return null;
+      bb = mappedGet(offsetInOplog, valueLength, userBits);
+      if (bb != null) {
+        return decompress(bb);
+      }
       try {
         for (;;) {
           dr.getCancelCriterion().checkCancelInProgress(null);
@@ -5594,7 +6064,45 @@ public final class Oplog implements CompactableOplog, Flushable {
         throw ex;
       }
     }
-    return bb;
+    return decompress(bb);
+  }
+
+  /**
+   * Returns bb with its value bytes decompressed if they are stored compressed.
+   */
+  private static BytesAndBits decompress(BytesAndBits bb) {
+    if (bb == null || !EntryBits.isCompressed(bb.getBits())) {
+      return bb;
+    }
+    BytesAndBits result = new BytesAndBits(VALUE_COMPRESSOR.decompress(bb.getBytes()),
+        EntryBits.setCompressed(bb.getBits(), false));
+    result.setVersion(bb.getVersion());
+    return result;
+  }
+
+  /**
+   * Returns the bytes of vw, copying them out of an off-heap value.
+   */
+  static byte[] getValueBytes(ValueWrapper vw) throws IOException {
+    if (vw instanceof DiskEntry.Helper.ByteArrayValueWrapper) {
+      DiskEntry.Helper.ByteArrayValueWrapper bavw = (DiskEntry.Helper.ByteArrayValueWrapper) vw;
+      if (bavw.bytes.length == bavw.getLength()) {
+        return bavw.bytes;
+      }
+    }
+    ByteBuffer bb = ByteBuffer.allocate(vw.getLength());
+    vw.sendTo(bb, new Flushable() {
+      @Override
+      public void flush() {
+        // bb holds the whole value; an off-heap value may still ask for a flush once it is full
+      }
+
+      @Override
+      public void flush(ByteBuffer b1, ByteBuffer chunk) {
+        b1.put(chunk);
+      }
+    });
+    return bb.array();
   }
 
   /**
@@ -5804,21 +6312,63 @@ public final class Oplog implements CompactableOplog, Flushable {
   }
 
   public void copyTo(File targetDir) throws IOException {
+    copyTo(targetDir, null, null);
+  }
+
+  /**
+   * Copies the files of this oplog to targetDir for a backup, keeping the copies within the I/O
+   * budget of backup.
+   */
+  void copyTo(File targetDir, DiskStoreBackup backup, BackupManager backupManager)
+      throws IOException {
     if (this.crf.f != null && this.crf.f.exists()) {
-      FileUtils.copyFileToDirectory(this.crf.f, targetDir);
+      copyFileToDirectory(this.crf.f, targetDir, backup, backupManager);
     }
     if (this.drf.f.exists()) {
-      FileUtils.copyFileToDirectory(this.drf.f, targetDir);
+      copyFileToDirectory(this.drf.f, targetDir, backup, backupManager);
     }
 
     // this krf existence check fixes 45089
     if (getParent().getDiskInitFile().hasKrf(this.oplogId)) {
       if (this.getKrfFile().exists()) {
-        FileUtils.copyFileToDirectory(this.getKrfFile(), targetDir);
+        copyFileToDirectory(this.getKrfFile(), targetDir, backup, backupManager);
       }
     }
   }
 
+  private static void copyFileToDirectory(File file, File targetDir, DiskStoreBackup backup,
+      BackupManager backupManager) throws IOException {
+    if (backup == null) {
+      FileUtils.copyFileToDirectory(file, targetDir);
+      return;
+    }
+    File target = new File(targetDir, file.getName());
+    try (FileInputStream fis = new FileInputStream(file);
+        FileOutputStream fos = new FileOutputStream(target)) {
+      FileChannel in = fis.getChannel();
+      FileChannel out = fos.getChannel();
+      long size = in.size();
+      long position = 0;
+      while (position < size) {
+        long copied =
+            in.transferTo(position, Math.min(BACKUP_COPY_CHUNK_SIZE, size - position), out);
+        if (copied <= 0) {
+          break;
+        }
+        position += copied;
+        backup.afterCopy(copied, backupManager);
+      }
+      if (position < size) {
+        throw new IOException("Failed to copy " + file + " to " + target + ": copied " + position
+            + " of " + size + " bytes");
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while copying " + file + " to " + target);
+    }
+    target.setLastModified(file.lastModified());
+  }
+
   /**
    * Returns "crf" or "drf".
    */
@@ -5834,6 +6384,9 @@ public final class Oplog implements CompactableOplog, Flushable {
         this.dirHolder.decrementTotalOplogSize(olf.currSize);
         olf.currSize = 0;
       }
+      if (olf == this.crf) {
+        unmapCrf();
+      }
       if (olf.f == null)
         return;
       if (!olf.f.exists())
@@ -5963,6 +6516,19 @@ public final class Oplog implements CompactableOplog, Flushable {
     return false;
   }
 
+  /**
+   * Returns the fraction, between 0 and 1, of the entries written to this oplog that are no longer
+   * live.
+   */
+  double getGarbageRatio() {
+    long total = this.totalCount.get();
+    if (total <= 0) {
+      return 1.0;
+    }
+    long live = Math.max(0, this.totalLiveCount.get());
+    return Math.max(0.0, 1.0 - (double) live / total);
+  }
+
   public boolean hadLiveEntries() {
     return this.totalCount.get() != 0;
   }
@@ -6150,10 +6716,11 @@ public final class Oplog implements CompactableOplog, Flushable {
           if (dr == null)
             continue;
           boolean didCompact = false;
+          long copiedBytes = 0;
           while ((de = dri.getNextLiveEntry()) != null) {
             if (/*
                  * getParent().getOwner().isDestroyed ||
-                 */!compactor.keepCompactorRunning()) {
+                 */!compactor.keepCompactingIncrement()) {
               compactFailed = true;
               break;
             }
@@ -6185,6 +6752,7 @@ public final class Oplog implements CompactableOplog, Flushable {
                     }
                     continue;
                   }
+                  copiedBytes = wrapper.getValidLength();
                   // write it to the current oplog
                   getOplogSet().getChild().copyForwardModifyForCompact(dr, de, wrapper);
                   // the did's oplogId will now be set to the current active oplog
@@ -6195,6 +6763,7 @@ public final class Oplog implements CompactableOplog, Flushable {
             if (didCompact) {
               totalCount++;
               getStats().endCompactionUpdate(opStart);
+              compactor.afterCopyForward(copiedBytes);
               opStart = getStats().getStatTime();
               // Asif: Check if the value byte array happens to be any of the
               // constant
@@ -6307,8 +6876,9 @@ public final class Oplog implements CompactableOplog, Flushable {
       // from
       // disk is still valid. That is going to be something like
 
+      DiskRecoveryStore diskRecoveryStore;
       synchronized (diskRecoveryStores) {
-        DiskRecoveryStore diskRecoveryStore = diskRecoveryStores.get(diskRegionId);
+        diskRecoveryStore = diskRecoveryStores.get(diskRegionId);
         if (diskRecoveryStore == null) {
           continue;
         }
@@ -6334,32 +6904,49 @@ public final class Oplog implements CompactableOplog, Flushable {
           }
         }
 
-        synchronized (diskEntry) {
-          // Make sure the entry hasn't been modified
-          if (diskEntry.getDiskId() != null && diskEntry.getDiskId().getOplogId() == oplogId) {
-            // dear lord, this goes through a lot of layers. Maybe we should
-            // skip some?
-            // * specifically, this could end up faulting in from a different
-            // oplog, causing
-            // us to seek.
-            // * Also, there may be lock ordering issues here, Really, I guess I
-            // want
-            // a flavor of faultInValue that only faults in from this oplog.
-            // * We could have some churn here, opening and closing this oplog
-            // * We also might not be buffering adjacent entries? Not sure about
-            // that one
-
-            // * Ideally, this would fault the thing in only if it were in this
-            // oplog and the lru limit wasn't hit
-            // and it would return a status if the lru limit was hit to make us
-            // remove the store.
+        if (!diskRecoveryStore.getEvictionAttributes().getAlgorithm().isNone()) {
+          // recover the value while holding the lock so that oplogs recovered
+          // by other threads can not exceed the lru limit
+          recoverValue(diskEntry, diskRegionId, diskRecoveryStore, diskRecoveryStores, in);
+          continue;
+        }
+      }
+      // other oplogs can recover the values of the regions without an lru
+      // concurrently
+      recoverValue(diskEntry, diskRegionId, diskRecoveryStore, diskRecoveryStores, in);
+    }
+  }
 
-            try {
-              DiskEntry.Helper.recoverValue(diskEntry, getOplogId(), diskRecoveryStore, in);
-            } catch (RegionDestroyedException e) {
-              // This region has been destroyed, stop recovering from it.
-              diskRecoveryStores.remove(diskRegionId);
-            }
+  private void recoverValue(DiskEntry diskEntry, long diskRegionId,
+      DiskRecoveryStore diskRecoveryStore, Map<Long, DiskRecoveryStore> diskRecoveryStores,
+      ByteArrayDataInput in) {
+    synchronized (diskEntry) {
+      // Make sure the entry hasn't been modified
+      if (diskEntry.getDiskId() != null && diskEntry.getDiskId().getOplogId() == oplogId) {
+        // dear lord, this goes through a lot of layers. Maybe we should
+        // skip some?
+        // * specifically, this could end up faulting in from a different
+        // oplog, causing
+        // us to seek.
+        // * Also, there may be lock ordering issues here, Really, I guess I
+        // want
+        // a flavor of faultInValue that only faults in from this oplog.
+        // * We could have some churn here, opening and closing this oplog
+        // * We also might not be buffering adjacent entries? Not sure about
+        // that one
+
+        // * Ideally, this would fault the thing in only if it were in this
+        // oplog and the lru limit wasn't hit
+        // and it would return a status if the lru limit was hit to make us
+        // remove the store.
+
+        try {
+          DiskEntry.Helper.recoverValue(diskEntry, getOplogId(), diskRecoveryStore, in);
+          this.stats.incRecoveredValues();
+        } catch (RegionDestroyedException e) {
+          // This region has been destroyed, stop recovering from it.
+          synchronized (diskRecoveryStores) {
+            diskRecoveryStores.remove(diskRegionId);
           }
         }
       }
@@ -6491,6 +7078,28 @@ public final class Oplog implements CompactableOplog, Flushable {
     DataOutputStream dos;
     long lastOffset = 0;
     int keyNum = 0;
+    /**
+     * The regions written so far to a krf in the {@link OPLOG_TYPE#KRF2} format, or null.
+     */
+    List<KrfRegionSection> regionSections;
+  }
+
+  /**
+   * The keys of one region in a krf in the {@link OPLOG_TYPE#KRF2} format.
+   */
+  private static class KrfRegionSection {
+    final long drId;
+    /**
+     * The position in the krf of the first key of the region.
+     */
+    final long position;
+    int entryCount;
+    long maxOplogKeyId;
+
+    KrfRegionSection(long drId, long position) {
+      this.drId = drId;
+      this.position = position;
+    }
   }
 
   private static String baToString(byte[] ba) {
@@ -6589,12 +7198,87 @@ public final class Oplog implements CompactableOplog, Flushable {
     private byte[] versionsBytes;
     private short gfversion;
 
+    private final CRC32 checksum = new CRC32();
+    /**
+     * The file whose record is being added to the checksum by write, or null.
+     */
+    private OplogFile checksumFile;
+    /**
+     * The position in the write buffer of checksumFile of the first record byte not yet added to
+     * the checksum.
+     */
+    private int checksumStart;
+
     // private int entryVersion;
     // private long regionVersion;
     // private int memberId; // canonicalId of memberID
 
     public final int getSize() {
-      return this.size;
+      return hasChecksum() ? this.size + RECORD_CHECKSUM_SIZE : this.size;
+    }
+
+    /**
+     * Returns true if the record is followed by a checksum. The magic record is not since it tells
+     * the reader whether the file has checksums.
+     */
+    private boolean hasChecksum() {
+      return Oplog.this.checksumRecords && this.opCode != OPLOG_MAGIC_SEQ_ID;
+    }
+
+    public int getValueLength() {
+      return this.value == null ? 0 : this.value.getLength();
+    }
+
+    public boolean isValueCompressed() {
+      return EntryBits.isCompressed(this.userBits);
+    }
+
+    /**
+     * Adds the bytes of the record being written that are in bb, the write buffer of olf, to the
+     * checksum before bb is written out and cleared.
+     */
+    void beforeFlush(OplogFile olf, ByteBuffer bb) {
+      if (this.checksumFile == olf) {
+        updateChecksum(bb, this.checksumStart, bb.position());
+        this.checksumStart = 0;
+      }
+    }
+
+    /**
+     * Adds the remaining bytes of a chunk of the value being written to olf without copying it to
+     * the write buffer to the checksum.
+     */
+    void beforeChunkFlush(OplogFile olf, ByteBuffer chunk) {
+      if (this.checksumFile == olf) {
+        updateChecksum(chunk, chunk.position(), chunk.limit());
+      }
+    }
+
+    private void updateChecksum(ByteBuffer bb, int start, int end) {
+      ByteBuffer bytes = bb.duplicate();
+      bytes.limit(end);
+      bytes.position(start);
+      this.checksum.update(bytes);
+    }
+
+    /**
+     * Replaces a value that is at least {@link DiskStoreImpl#COMPRESS_OPLOG_VALUES_MIN_BYTES} long
+     * with its compressed bytes if they are shorter. Only done in files with checksums since older
+     * readers would not know the compressed bit.
+     */
+    private void compressValue() throws IOException {
+      int minBytes = DiskStoreImpl.COMPRESS_OPLOG_VALUES_MIN_BYTES;
+      if (!Oplog.this.checksumRecords || minBytes <= 0 || this.notToUseUserBits
+          || this.value.getLength() < minBytes || EntryBits.isCompressed(this.userBits)) {
+        return;
+      }
+      byte[] compressed = VALUE_COMPRESSOR.compress(getValueBytes(this.value));
+      if (compressed.length < this.value.getLength()) {
+        // a CompactorValueWrapper does not know if it is serialized so use the bits
+        this.value = new DiskEntry.Helper.ByteArrayValueWrapper(
+            EntryBits.isSerialized(this.userBits), compressed);
+        this.userBits = EntryBits.setCompressed(this.userBits, true);
+      }
     }
 
     public String debugStr() {
@@ -6794,6 +7478,7 @@ public final class Oplog implements CompactableOplog, Flushable {
         saveDrId(drId);
       }
       if (this.needsValue) {
+        compressValue();
         this.size += 4 + this.value.getLength();
       }
       this.deltaIdBytesLength = 0;
@@ -6890,6 +7575,12 @@ public final class Oplog implements CompactableOplog, Flushable {
 
     public long write(OplogFile olf) throws IOException {
       long bytesWritten = 0;
+      final boolean hasChecksum = hasChecksum();
+      if (hasChecksum) {
+        this.checksum.reset();
+        this.checksumFile = olf;
+        this.checksumStart = olf.writeBuf.position();
+      }
       writeByte(olf, this.opCode);
       bytesWritten++;
       if (this.opCode == OPLOG_NEW_ENTRY_BASE_ID) {
@@ -6954,6 +7645,12 @@ public final class Oplog implements CompactableOplog, Flushable {
         }
       }
 
+      if (hasChecksum) {
+        updateChecksum(olf.writeBuf, this.checksumStart, olf.writeBuf.position());
+        this.checksumFile = null;
+        writeInt(olf, (int) this.checksum.getValue());
+        bytesWritten += RECORD_CHECKSUM_SIZE;
+      }
       writeByte(olf, END_OF_RECORD_ID);
       bytesWritten++;
       return bytesWritten;
@@ -0,0 +1,158 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.geode.internal.cache;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Group commit of the synchronous writes to an {@link Oplog}.
+ * <p>
+ * A writer appends its record to the oplog buffer while holding the oplog lock and takes a ticket
+ * with {@link #register}. Once it has released the lock it calls {@link #awaitCommit}. The first
+ * waiter becomes the leader: it waits until {@link DiskStoreImpl#GROUP_COMMIT_MAX_BATCH} writers
+ * have registered or {@link DiskStoreImpl#GROUP_COMMIT_MAX_LATENCY_MICROS} have passed, and then
+ * forces the oplog files once for every record registered so far. The other waiters wait for a
+ * commit that covers their ticket, leading the next one if it does not.
+ * <p>
+ * The oplog lock is never acquired while holding the lock of this committer, so writers can
+ * register while the leader is waiting or forcing.
+ */
+class OplogGroupCommitter {
+
+  private final Oplog oplog;
+
+  private final long maxLatencyNanos;
+
+  private final int maxBatch;
+
+  private final Object commitLock = new Object();
+
+  /**
+   * The last ticket handed out. Guarded by commitLock.
+   */
+  private long requested;
+
+  /**
+   * The last ticket whose record has been forced to disk. Guarded by commitLock.
+   */
+  private long committed;
+
+  /**
+   * True while a leader is waiting for its batch or forcing it. Guarded by commitLock.
+   */
+  private boolean committing;
+
+  /**
+   * The number of forces done. Guarded by commitLock.
+   */
+  private long commitCount;
+
+  OplogGroupCommitter(Oplog oplog) {
+    this.oplog = oplog;
+    this.maxLatencyNanos =
+        TimeUnit.MICROSECONDS.toNanos(Math.max(0, DiskStoreImpl.GROUP_COMMIT_MAX_LATENCY_MICROS));
+    this.maxBatch = Math.max(1, DiskStoreImpl.GROUP_COMMIT_MAX_BATCH);
+  }
+
+  /**
+   * Returns the ticket of a record that has just been appended to the oplog buffer. Must be called
+   * while holding the oplog lock so that tickets are handed out in the order of the records.
+   */
+  long register() {
+    synchronized (this.commitLock) {
+      long ticket = ++this.requested;
+      if (ticket - this.committed >= this.maxBatch) {
+        // wake up the leader
+        this.commitLock.notifyAll();
+      }
+      return ticket;
+    }
+  }
+
+  /**
+   * Waits until the record of ticket has been forced to disk, forcing it if no other writer is.
+   * Must be called without holding the oplog lock.
+   *
+   * @throws org.apache.geode.cache.DiskAccessException if the force done by this thread fails
+   */
+  void awaitCommit(long ticket) {
+    if (Thread.holdsLock(this.oplog.lock)) {
+      // a leader could not flush the buffer while we hold the lock, so do it ourselves
+      this.oplog.flushAll();
+      return;
+    }
+    boolean interrupted = false;
+    try {
+      while (true) {
+        long target;
+        synchronized (this.commitLock) {
+          if (this.committed >= ticket) {
+            return;
+          }
+          if (this.committing) {
+            try {
+              this.commitLock.wait();
+            } catch (InterruptedException e) {
+              // the write has been done so it has to be made durable before returning
+              interrupted = true;
+            }
+            continue;
+          }
+          this.committing = true;
+          long deadline = System.nanoTime() + this.maxLatencyNanos;
+          long remaining = this.maxLatencyNanos;
+          while (!interrupted && remaining > 0
+              && this.requested - this.committed < this.maxBatch) {
+            try {
+              TimeUnit.NANOSECONDS.timedWait(this.commitLock, remaining);
+            } catch (InterruptedException e) {
+              interrupted = true;
+            }
+            remaining = deadline - System.nanoTime();
+          }
+          target = this.requested;
+        }
+        commit(target);
+      }
+    } finally {
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  private void commit(long target) {
+    boolean success = false;
+    try {
+      this.oplog.groupCommit();
+      success = true;
+    } finally {
+      synchronized (this.commitLock) {
+        this.committing = false;
+        if (success) {
+          this.committed = Math.max(this.committed, target);
+          this.commitCount++;
+        }
+        this.commitLock.notifyAll();
+      }
+    }
+  }
+
+  long getCommitCount() {
+    synchronized (this.commitLock) {
+      return this.commitCount;
+    }
+  }
+}
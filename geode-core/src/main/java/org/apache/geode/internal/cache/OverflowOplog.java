@@ -1333,8 +1333,9 @@ class OverflowOplog implements CompactableOplog, Flushable {
         boolean compactFailed = !compactor.keepCompactorRunning();
         int totalCount = 0;
         boolean didCompact = false;
+        long copiedBytes = 0;
         while ((de = getNextLiveEntry()) != null) {
-          if (!compactor.keepCompactorRunning()) {
+          if (!compactor.keepCompactingIncrement()) {
             compactFailed = true;
             break;
           }
@@ -1383,6 +1384,7 @@ class OverflowOplog implements CompactableOplog, Flushable {
                   }
                   continue;
                 }
+                copiedBytes = length;
                 // write it to the current oplog
                 getOplogSet().copyForwardForOverflowCompact(de, valueBytes, length, userBits);
                 // the did's oplogId will now be set to the current active oplog
@@ -1393,6 +1395,7 @@ class OverflowOplog implements CompactableOplog, Flushable {
           if (didCompact) {
             totalCount++;
             getStats().endCompactionUpdate(opStart);
+            compactor.afterCopyForward(copiedBytes);
             opStart = getStats().getStatTime();
             // Asif: Check if the value byte array happens to be any of the constant
             // static byte arrays or references the value byte array of underlying RegionEntry.
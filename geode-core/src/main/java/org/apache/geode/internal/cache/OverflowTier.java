@@ -0,0 +1,237 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.geode.internal.cache;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.logging.log4j.Logger;
+
+import org.apache.geode.compression.Compressor;
+import org.apache.geode.compression.Lz4Compressor;
+import org.apache.geode.internal.cache.DiskEntry.Helper.ValueWrapper;
+import org.apache.geode.internal.cache.persistence.BytesAndBits;
+import org.apache.geode.internal.logging.LogService;
+import org.apache.geode.internal.offheap.AddressableMemoryManager;
+
+/**
+ * Keeps compressed copies of the values that eviction overflowed to disk in off-heap memory, so
+ * that faulting them back in does not have to read the oplogs. Every value in this tier is also on
+ * disk, so when the tier is full its oldest values are just dropped.
+ * <p>
+ * The memory of each value is allocated for this tier alone, not from the off-heap memory of the
+ * cache, and this tier never uses more than its max bytes. So it can not run the off-heap regions
+ * out of memory, which would close the cache. If an allocation fails anyway all the values are
+ * dropped, since they are on disk, and the new value is not kept.
+ * <p>
+ * A value is found by the {@link DiskId} of its entry and is only returned while that DiskId still
+ * points at the oplog record it was copied from. A value is removed from the tier when it is
+ * faulted back in, when its entry is removed from disk, and when its region is cleared, closed or
+ * destroyed. It is added again if it is evicted again.
+ *
+ * @see DiskStoreImpl#OVERFLOW_TIER_MAX_MB
+ */
+class OverflowTier {
+  private static final Logger logger = LogService.getLogger();
+
+  private static final Compressor COMPRESSOR = new Lz4Compressor();
+
+  /**
+   * A value is only stored compressed if that saves at least 1/8 of its bytes.
+   */
+  private static final int MIN_COMPRESSION_SAVINGS_SHIFT = 3;
+
+  private final long maxBytes;
+
+  /** The values in the order they were added, oldest first */
+  private final LinkedHashMap<DiskId, Slot> slots = new LinkedHashMap<DiskId, Slot>();
+
+  private long usedBytes;
+
+  private boolean closed;
+
+  OverflowTier(long maxBytes) {
+    this.maxBytes = maxBytes;
+  }
+
+  /**
+   * Copies the value that was just written to disk for the entry of the given region with the
+   * given DiskId into this tier. Caller must have "did" synced.
+   */
+  void put(DiskRegionView dr, DiskId did, ValueWrapper vw) {
+    long oplogId = did.getOplogId();
+    long offset = did.getOffsetInOplog();
+    if (oplogId <= 0 || offset < 0) {
+      // not written yet
+      return;
+    }
+    byte[] bytes;
+    try {
+      bytes = Oplog.getValueBytes(vw);
+    } catch (IOException e) {
+      // only thrown by value wrappers that write to a file
+      return;
+    }
+    boolean compressed = false;
+    byte[] compressedBytes = COMPRESSOR.compress(bytes);
+    if (compressedBytes.length <= bytes.length - (bytes.length >> MIN_COMPRESSION_SAVINGS_SHIFT)) {
+      bytes = compressedBytes;
+      compressed = true;
+    }
+    synchronized (this) {
+      if (this.closed || bytes.length == 0 || bytes.length > this.maxBytes) {
+        return;
+      }
+      remove(did);
+      while (this.usedBytes + bytes.length > this.maxBytes) {
+        removeOldest();
+      }
+      long address;
+      try {
+        address = AddressableMemoryManager.allocate(bytes.length);
+      } catch (OutOfMemoryError e) {
+        // the values are all on disk, so give the memory back and skip this one
+        if (logger.isDebugEnabled()) {
+          logger.debug("Dropping overflow tier values after failing to allocate {} bytes",
+              bytes.length, e);
+        }
+        while (!this.slots.isEmpty()) {
+          removeOldest();
+        }
+        return;
+      }
+      AddressableMemoryManager.writeBytes(address, bytes, 0, bytes.length);
+      this.slots.put(did,
+          new Slot(dr, oplogId, offset, vw.getUserBits(), compressed, bytes.length, address));
+      this.usedBytes += bytes.length;
+    }
+  }
+
+  /**
+   * Removes the value of the entry with the given DiskId from this tier and returns it, or returns
+   * null if it is not in this tier. Caller must have "did" synced.
+   */
+  BytesAndBits get(DiskId did) {
+    byte[] bytes;
+    Slot slot;
+    synchronized (this) {
+      slot = this.slots.remove(did);
+      if (slot == null) {
+        return null;
+      }
+      this.usedBytes -= slot.length;
+      try {
+        if (slot.oplogId != did.getOplogId() || slot.offset != did.getOffsetInOplog()) {
+          // the entry was written again since it was copied to this tier
+          return null;
+        }
+        bytes = new byte[slot.length];
+        AddressableMemoryManager.readBytes(slot.address, bytes, 0, slot.length);
+      } finally {
+        AddressableMemoryManager.free(slot.address);
+      }
+    }
+    if (slot.compressed) {
+      bytes = COMPRESSOR.decompress(bytes);
+    }
+    return new BytesAndBits(bytes, slot.userBits);
+  }
+
+  /**
+   * Removes the value of the entry with the given DiskId from this tier, if it is there.
+   */
+  synchronized void remove(DiskId did) {
+    Slot slot = this.slots.remove(did);
+    if (slot != null) {
+      release(slot);
+    }
+  }
+
+  /**
+   * Removes the values of the given region from this tier.
+   */
+  synchronized void removeAll(DiskRegionView dr) {
+    Iterator<Slot> it = this.slots.values().iterator();
+    while (it.hasNext()) {
+      Slot slot = it.next();
+      if (slot.dr == dr) {
+        it.remove();
+        release(slot);
+      }
+    }
+  }
+
+  private void removeOldest() {
+    Iterator<Map.Entry<DiskId, Slot>> it = this.slots.entrySet().iterator();
+    Slot slot = it.next().getValue();
+    it.remove();
+    release(slot);
+  }
+
+  private void release(Slot slot) {
+    this.usedBytes -= slot.length;
+    AddressableMemoryManager.free(slot.address);
+  }
+
+  synchronized long getUsedBytes() {
+    return this.usedBytes;
+  }
+
+  synchronized int size() {
+    return this.slots.size();
+  }
+
+  /**
+   * Frees the off-heap memory of all the values of this tier.
+   */
+  synchronized void close() {
+    if (this.closed) {
+      return;
+    }
+    this.closed = true;
+    if (logger.isDebugEnabled()) {
+      logger.debug("Closing overflow tier with {} values in {} bytes", this.slots.size(),
+          this.usedBytes);
+    }
+    for (Slot slot : this.slots.values()) {
+      AddressableMemoryManager.free(slot.address);
+    }
+    this.slots.clear();
+    this.usedBytes = 0;
+  }
+
+  private static class Slot {
+    final DiskRegionView dr;
+    final long oplogId;
+    final long offset;
+    final byte userBits;
+    final boolean compressed;
+    final int length;
+    final long address;
+
+    Slot(DiskRegionView dr, long oplogId, long offset, byte userBits, boolean compressed,
+        int length, long address) {
+      this.dr = dr;
+      this.oplogId = oplogId;
+      this.offset = offset;
+      this.userBits = userBits;
+      this.compressed = compressed;
+      this.length = length;
+      this.address = address;
+    }
+  }
+}
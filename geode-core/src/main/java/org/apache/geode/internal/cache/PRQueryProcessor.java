@@ -37,6 +37,7 @@ import java.io.DataOutput;
 import java.io.IOException;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicReference;
 
 
 /**
@@ -60,6 +61,18 @@ public class PRQueryProcessor {
   /* For Test purpose */
   public static int TEST_NUM_THREADS = 0;
 
+  /**
+   * The number of threads that query the buckets of a data store concurrently as fork/join tasks,
+   * and that merge the sorted results of the buckets. Below 2 the buckets are queried as configured
+   * by {@link #NUM_THREADS}.
+   */
+  public final static int PARALLELISM = Integer
+      .getInteger(DistributionConfig.GEMFIRE_PREFIX + "PRQueryProcessor.parallelism", 0)
+      .intValue();
+
+  /* For Test purpose */
+  public static int TEST_PARALLELISM = 0;
+
   private PartitionedRegionDataStore _prds;
   private PartitionedRegion pr;
   private final DefaultQuery query;
@@ -92,6 +105,10 @@ public class PRQueryProcessor {
     PRQueryExecutor.initializeExecutorService();
   }
 
+  static int getParallelism() {
+    return TEST_PARALLELISM > 1 ? TEST_PARALLELISM : PARALLELISM;
+  }
+
   private synchronized void incNumBucketsProcessed() {
     this.numBucketsProcessed++;
   }
@@ -115,7 +132,9 @@ public class PRQueryProcessor {
     // ((IndexTrackingQueryObserver)observer).setIndexInfo(resultCollector.getIndexInfoMap());
     // }
 
-    if (NUM_THREADS > 1 || this.TEST_NUM_THREADS > 1) {
+    if (getParallelism() > 1) {
+      executeWithForkJoinPool(resultCollector);
+    } else if (NUM_THREADS > 1 || this.TEST_NUM_THREADS > 1) {
       executeWithThreadPool(resultCollector);
     } else {
       executeSequentially(resultCollector, this._bucketsToQuery);
@@ -203,6 +222,44 @@ public class PRQueryProcessor {
 
   }
 
+  /**
+   * Queries the buckets with fork/join tasks that split the bucket list until each task has its
+   * share of the buckets, or a single bucket for order by queries whose results are then merged.
+   * Each task adds its results to resultCollector as a separate collection.
+   */
+  private void executeWithForkJoinPool(Collection<Collection> resultCollector)
+      throws QueryException, InterruptedException, ForceReattemptException {
+    if (Thread.interrupted())
+      throw new InterruptedException();
+
+    int parallelism = getParallelism();
+    CompiledSelect cs = this.query.getSimpleSelect();
+    boolean isOrderBy = cs != null && cs.isOrderBy();
+    int bucketsPerTask =
+        isOrderBy ? 1 : Math.max(1, this._bucketsToQuery.size() / (2 * parallelism));
+    AtomicReference<Exception> failure = new AtomicReference<Exception>();
+    PRQueryExecutor.getForkJoinPool(parallelism)
+        .invoke(new BucketQueryTask(new ArrayList<Integer>(this._bucketsToQuery), bucketsPerTask,
+            resultCollector, failure, DefaultQuery.getPdxReadSerialized()));
+
+    Exception ex = failure.get();
+    if (ex instanceof ForceReattemptException) {
+      throw (ForceReattemptException) ex;
+    } else if (ex instanceof QueryException) {
+      throw (QueryException) ex;
+    } else if (ex != null) {
+      throw (RuntimeException) ex;
+    }
+
+    if (isOrderBy) {
+      ExecutionContext context = new QueryExecutionContext(this.parameters, this.pr.getCache());
+      int limit = this.query.getLimit(parameters);
+      Collection mergedResults = coalesceOrderedResults(resultCollector, context, cs, limit);
+      resultCollector.clear();
+      resultCollector.add(mergedResults);
+    }
+  }
+
   /**
    * @throws ForceReattemptException if bucket was moved so caller should try query again
    */
@@ -333,7 +390,8 @@ public class PRQueryProcessor {
   }
 
   private Collection coalesceOrderedResults(Collection<Collection> results,
-      ExecutionContext context, CompiledSelect cs, int limit) {
+      ExecutionContext context, CompiledSelect cs, int limit)
+      throws QueryException, InterruptedException {
     List<Collection> sortedResults = new ArrayList<Collection>(results.size());
     // TODO :Asif : Deal with UNDEFINED
     for (Object o : results) {
@@ -341,6 +399,13 @@ public class PRQueryProcessor {
         sortedResults.add((Collection) o);
       }
     }
+    int parallelism = getParallelism();
+    if (parallelism > 1) {
+      sortedResults = NWayMergeResults.mergeInParallel((List) sortedResults, cs.isDistinct(),
+          limit, cs.getOrderByAttrs(), this.parameters, context.getCache(),
+          cs.getElementTypeForOrderByQueries(), PRQueryExecutor.getForkJoinPool(parallelism),
+          parallelism);
+    }
 
     NWayMergeResults mergedResults = new NWayMergeResults(sortedResults, cs.isDistinct(), limit,
         cs.getOrderByAttrs(), context, cs.getElementTypeForOrderByQueries());
@@ -433,6 +498,8 @@ public class PRQueryProcessor {
 
     private static ExecutorService execService = null;
 
+    private static ForkJoinPool forkJoinPool = null;
+
     /**
      * Closes the executor service. This is called from
      * {@link PartitionedRegion#afterRegionsClosedByCacheClose(GemFireCacheImpl)}
@@ -441,11 +508,40 @@ public class PRQueryProcessor {
       if (execService != null) {
         execService.shutdown();
       }
+      if (forkJoinPool != null) {
+        forkJoinPool.shutdown();
+      }
     }
 
     static synchronized void shutdownNow() {
       if (execService != null)
         execService.shutdownNow();
+      if (forkJoinPool != null)
+        forkJoinPool.shutdownNow();
+    }
+
+    /**
+     * Returns the fork/join pool, creating it if it does not exist or has another parallelism.
+     */
+    static synchronized ForkJoinPool getForkJoinPool(int parallelism) {
+      if (forkJoinPool == null || forkJoinPool.isShutdown()
+          || forkJoinPool.getParallelism() != parallelism) {
+        if (forkJoinPool != null) {
+          forkJoinPool.shutdown();
+        }
+        ForkJoinPool.ForkJoinWorkerThreadFactory threadFactory =
+            new ForkJoinPool.ForkJoinWorkerThreadFactory() {
+              @Override
+              public ForkJoinWorkerThread newThread(ForkJoinPool pool) {
+                ForkJoinWorkerThread thread =
+                    ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+                thread.setName("PRQueryProcessor Worker " + thread.getPoolIndex());
+                return thread;
+              }
+            };
+        forkJoinPool = new ForkJoinPool(parallelism, threadFactory, null, false);
+      }
+      return forkJoinPool;
     }
 
     static synchronized ExecutorService getExecutorService() {
@@ -509,6 +605,66 @@ public class PRQueryProcessor {
     }
   }
 
+  /**
+   * Queries its buckets in a single execution context, or splits them between two subtasks if it
+   * has more than bucketsPerTask. The first exception thrown by any task is kept in failure and
+   * keeps the tasks that have not started from querying.
+   */
+  @SuppressWarnings("synthetic-access")
+  private final class BucketQueryTask extends RecursiveAction {
+    private final List<Integer> buckets;
+    private final int bucketsPerTask;
+    private final Collection<Collection> resultCollector;
+    private final AtomicReference<Exception> failure;
+
+    /**
+     * The pdx read serialized setting of the thread that executes the query, which is thread local.
+     */
+    private final boolean pdxReadSerialized;
+
+    BucketQueryTask(List<Integer> buckets, int bucketsPerTask,
+        Collection<Collection> resultCollector, AtomicReference<Exception> failure,
+        boolean pdxReadSerialized) {
+      this.buckets = buckets;
+      this.bucketsPerTask = bucketsPerTask;
+      this.resultCollector = resultCollector;
+      this.failure = failure;
+      this.pdxReadSerialized = pdxReadSerialized;
+    }
+
+    @Override
+    protected void compute() {
+      if (this.failure.get() != null) {
+        return;
+      }
+      int size = this.buckets.size();
+      if (size > this.bucketsPerTask) {
+        int half = size / 2;
+        invokeAll(
+            new BucketQueryTask(this.buckets.subList(0, half), this.bucketsPerTask,
+                this.resultCollector, this.failure, this.pdxReadSerialized),
+            new BucketQueryTask(this.buckets.subList(half, size), this.bucketsPerTask,
+                this.resultCollector, this.failure, this.pdxReadSerialized));
+        return;
+      }
+      boolean previousPdxReadSerialized = DefaultQuery.getPdxReadSerialized();
+      DefaultQuery.setPdxReadSerialized(this.pdxReadSerialized);
+      try {
+        ExecutionContext context = new QueryExecutionContext(parameters, pr.getCache(), query);
+        context.setBucketList(new ArrayList<Integer>(this.buckets));
+        executeQueryOnBuckets(this.resultCollector, context);
+      } catch (ForceReattemptException e) {
+        this.failure.compareAndSet(null, e);
+      } catch (QueryException e) {
+        this.failure.compareAndSet(null, e);
+      } catch (RuntimeException e) {
+        this.failure.compareAndSet(null, e);
+      } finally {
+        DefaultQuery.setPdxReadSerialized(previousPdxReadSerialized);
+      }
+    }
+  }
+
   /**
    * Implementation of call-able task to execute query on a bucket region. This task will be
    * generated by the PRQueryProcessor.
@@ -773,6 +773,14 @@ public class PartitionedRegionQueryEvaluator extends StreamingPartitionOperation
           }
         }
       }
+      // each chunk received from a member is a sorted collection so there can be many of them
+      int parallelism = PRQueryProcessor.getParallelism();
+      if (parallelism > 1) {
+        allResults = NWayMergeResults.mergeInParallel((List) allResults, cs.isDistinct(), limit,
+            cs.getOrderByAttrs(), this.parameters, this.pr.cache,
+            cs.getElementTypeForOrderByQueries(),
+            PRQueryProcessor.PRQueryExecutor.getForkJoinPool(parallelism), parallelism);
+      }
 
       this.cumulativeResults = new NWayMergeResults(allResults, cs.isDistinct(), limit,
           cs.getOrderByAttrs(), localContext, cs.getElementTypeForOrderByQueries());
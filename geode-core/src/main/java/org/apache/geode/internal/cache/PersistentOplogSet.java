@@ -31,8 +31,11 @@ import org.apache.geode.internal.sequencelog.EntryLogger;
 import org.apache.logging.log4j.Logger;
 
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FilenameFilter;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -42,6 +45,9 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
@@ -441,36 +447,57 @@ public class PersistentOplogSet implements OplogSet {
     }
     if (oplogSet.size() > 0) {
       long startOpLogRecovery = System.currentTimeMillis();
-      // first figure out all entries that have been destroyed
-      boolean latestOplog = true;
-      for (Oplog oplog : oplogSet) {
-        byteCount += oplog.recoverDrf(deletedIds, this.alreadyRecoveredOnce.get(), latestOplog);
-        latestOplog = false;
-        if (!this.alreadyRecoveredOnce.get()) {
-          updateOplogEntryId(oplog.getMaxRecoveredOplogEntryId());
-        }
-      }
-      parent.incDeadRecordCount(deletedIds.size());
-      // now figure out live entries
-      latestOplog = true;
-      for (Oplog oplog : oplogSet) {
-        long startOpLogRead = parent.getStats().startOplogRead();
-        long bytesRead = oplog.recoverCrf(deletedIds,
-            // @todo make recoverValues per region
-            recoverValues(), recoverValuesSync(), this.alreadyRecoveredOnce.get(),
-            oplogsNeedingValueRecovery, latestOplog);
-        latestOplog = false;
-        if (!this.alreadyRecoveredOnce.get()) {
-          updateOplogEntryId(oplog.getMaxRecoveredOplogEntryId());
+      List<Oplog> oplogs = new ArrayList<Oplog>(oplogSet);
+      ExecutorService recoveryPool =
+          parent.createRecoveryPool("Oplog Recovery Thread", oplogs.size());
+      parent.getStats().incOplogFilesToRecover(oplogs.size() * 2);
+      int filesToRecover = oplogs.size() * 2;
+      try {
+        // first figure out all entries that have been destroyed
+        byteCount += recoverDrfs(oplogs, deletedIds, recoveryPool);
+        parent.getStats().incOplogFilesToRecover(-oplogs.size());
+        filesToRecover -= oplogs.size();
+        parent.incDeadRecordCount(deletedIds.size());
+        // now figure out live entries
+        boolean latestOplog = true;
+        int readAheadCount = 0;
+        for (int i = 0; i < oplogs.size(); i++) {
+          Oplog oplog = oplogs.get(i);
+          if (recoveryPool != null) {
+            // the live entries have to be recovered from the latest oplog to the oldest
+            // one but the files of the next oplogs can be read ahead meanwhile
+            for (; readAheadCount < oplogs.size()
+                && readAheadCount <= i + DiskStoreImpl.RECOVERY_THREADS; readAheadCount++) {
+              if (readAheadCount > i) {
+                readAhead(oplogs.get(readAheadCount), recoveryPool);
+              }
+            }
+          }
+          long startOpLogRead = parent.getStats().startOplogRead();
+          long bytesRead = oplog.recoverCrf(deletedIds,
+              // @todo make recoverValues per region
+              recoverValues(), recoverValuesSync(), this.alreadyRecoveredOnce.get(),
+              oplogsNeedingValueRecovery, latestOplog);
+          latestOplog = false;
+          if (!this.alreadyRecoveredOnce.get()) {
+            updateOplogEntryId(oplog.getMaxRecoveredOplogEntryId());
+          }
+          byteCount += bytesRead;
+          parent.getStats().endOplogRead(startOpLogRead, bytesRead);
+          parent.getStats().incOplogFilesToRecover(-1);
+          filesToRecover--;
+
+          // Callback to the disk regions to indicate the oplog is recovered
+          // Used for offline export
+          for (DiskRecoveryStore drs : this.currentRecoveryMap.values()) {
+            drs.getDiskRegionView().oplogRecovered(oplog.oplogId);
+          }
         }
-        byteCount += bytesRead;
-        parent.getStats().endOplogRead(startOpLogRead, bytesRead);
-
-        // Callback to the disk regions to indicate the oplog is recovered
-        // Used for offline export
-        for (DiskRecoveryStore drs : this.currentRecoveryMap.values()) {
-          drs.getDiskRegionView().oplogRecovered(oplog.oplogId);
+      } finally {
+        if (recoveryPool != null) {
+          recoveryPool.shutdownNow();
         }
+        parent.getStats().incOplogFilesToRecover(-filesToRecover);
       }
       long endOpLogRecovery = System.currentTimeMillis();
       long elapsed = endOpLogRecovery - startOpLogRecovery;
@@ -522,6 +549,95 @@ public class PersistentOplogSet implements OplogSet {
     return byteCount;
   }
 
+  /**
+   * Recovers the drf files of oplogs, concurrently if recoveryPool is not null, and adds the ids
+   * of the entries they destroyed to deletedIds.
+   *
+   * @param oplogs the oplogs to recover, from the latest one to the oldest one
+   * @return the number of bytes read
+   */
+  private long recoverDrfs(List<Oplog> oplogs, OplogEntryIdSet deletedIds,
+      ExecutorService recoveryPool) {
+    final boolean alreadyRecoveredOnce = this.alreadyRecoveredOnce.get();
+    long byteCount = 0;
+    if (recoveryPool == null) {
+      boolean latestOplog = true;
+      for (Oplog oplog : oplogs) {
+        byteCount += oplog.recoverDrf(deletedIds, alreadyRecoveredOnce, latestOplog);
+        latestOplog = false;
+        if (!alreadyRecoveredOnce) {
+          updateOplogEntryId(oplog.getMaxRecoveredOplogEntryId());
+        }
+      }
+      return byteCount;
+    }
+    // each oplog collects the ids it destroyed in its own set since the
+    // destroys of an oplog do not depend on the other oplogs. The gc versions
+    // are recorded by this thread, in the same order as a serial recovery,
+    // since region version vectors are not updated concurrently during recovery
+    List<Future<Long>> futures = new ArrayList<Future<Long>>(oplogs.size());
+    List<OplogEntryIdSet> oplogDeletedIds = new ArrayList<OplogEntryIdSet>(oplogs.size());
+    List<List<Oplog.RecoveredGCVersion>> oplogGCVersions =
+        new ArrayList<List<Oplog.RecoveredGCVersion>>(oplogs.size());
+    boolean latestOplog = true;
+    for (final Oplog oplog : oplogs) {
+      final OplogEntryIdSet ids = new OplogEntryIdSet();
+      final List<Oplog.RecoveredGCVersion> gcVersions = new ArrayList<Oplog.RecoveredGCVersion>();
+      final boolean latest = latestOplog;
+      futures.add(recoveryPool.submit(new Callable<Long>() {
+        public Long call() {
+          return oplog.recoverDrf(ids, alreadyRecoveredOnce, latest, gcVersions);
+        }
+      }));
+      oplogDeletedIds.add(ids);
+      oplogGCVersions.add(gcVersions);
+      latestOplog = false;
+    }
+    for (int i = 0; i < oplogs.size(); i++) {
+      byteCount += parent.getRecoveryResult(futures.get(i));
+      deletedIds.addAll(oplogDeletedIds.get(i));
+      for (Oplog.RecoveredGCVersion gcVersion : oplogGCVersions.get(i)) {
+        gcVersion.record();
+      }
+      if (!alreadyRecoveredOnce) {
+        updateOplogEntryId(oplogs.get(i).getMaxRecoveredOplogEntryId());
+      }
+    }
+    return byteCount;
+  }
+
+  /**
+   * Reads the file that will be read to recover the live entries of oplog in a recovery thread,
+   * discarding the bytes, so that it is in the file system cache when it is recovered.
+   */
+  private void readAhead(Oplog oplog, ExecutorService recoveryPool) {
+    final File f = oplog.getFileToRecover(recoverValuesSync());
+    if (f == null) {
+      return;
+    }
+    recoveryPool.execute(new Runnable() {
+      public void run() {
+        byte[] buffer = new byte[64 * 1024];
+        FileInputStream fis = null;
+        try {
+          fis = new FileInputStream(f);
+          while (fis.read(buffer) != -1 && !parent.isClosing()) {
+            // discard
+          }
+        } catch (IOException ignore) {
+          // the recovery will report it if it can not read the file either
+        } finally {
+          if (fis != null) {
+            try {
+              fis.close();
+            } catch (IOException ignore) {
+            }
+          }
+        }
+      }
+    });
+  }
+
   protected boolean recoverValuesSync() {
     return parent.RECOVER_VALUES_SYNC;
   }
@@ -1047,6 +1163,10 @@ public class PersistentOplogSet implements OplogSet {
       // ArrayList<CompactableOplog>(this.oplogIdToOplog.values());
       // Collections.sort(l);
       // Iterator<Oplog> itr = l.iterator();
+      if (DiskStoreImpl.COMPACTION_INCREMENT_BYTES > 0) {
+        getCompactableOplogsByGarbage(l, max);
+        return;
+      }
       {
         Iterator<Oplog> itr = this.oplogIdToOplog.values().iterator();
         while (itr.hasNext() && l.size() < max) {
@@ -1059,6 +1179,32 @@ public class PersistentOplogSet implements OplogSet {
     }
   }
 
+  /**
+   * Adds the oplogs that need compaction with the most garbage first. The sort is stable so among
+   * oplogs with as much garbage the oldest, which come first in oplogIdToOplog, is added first.
+   */
+  private void getCompactableOplogsByGarbage(List<CompactableOplog> l, int max) {
+    List<Oplog> candidates = new ArrayList<Oplog>();
+    for (Oplog oplog : this.oplogIdToOplog.values()) {
+      if (oplog.needsCompaction()) {
+        candidates.add(oplog);
+      }
+    }
+    final Map<Oplog, Double> garbageRatios = new HashMap<Oplog, Double>();
+    for (Oplog oplog : candidates) {
+      garbageRatios.put(oplog, oplog.getGarbageRatio());
+    }
+    Collections.sort(candidates, new Comparator<Oplog>() {
+      @Override
+      public int compare(Oplog o1, Oplog o2) {
+        return Double.compare(garbageRatios.get(o2), garbageRatios.get(o1));
+      }
+    });
+    for (int i = 0; i < candidates.size() && l.size() < max; i++) {
+      l.add(candidates.get(i));
+    }
+  }
+
   public void scheduleForRecovery(DiskRecoveryStore drs) {
     DiskRegionView dr = drs.getDiskRegionView();
     if (dr.isRecreated() && (dr.getMyPersistentID() != null || dr.getMyInitializingID() != null)) {
@@ -97,6 +97,22 @@ public interface EnableLRU {
    */
   public int getGreedyReturnsStatId();
 
+  /**
+   * Returns the id of the "overflowTierHits" statistic for this LRU algorithm's statistics, or -1
+   * if its statistics do not have one.
+   */
+  public default int getOverflowTierHitsStatId() {
+    return -1;
+  }
+
+  /**
+   * Returns the id of the "overflowDiskHits" statistic for this LRU algorithm's statistics, or -1
+   * if its statistics do not have one.
+   */
+  public default int getOverflowDiskHitsStatId() {
+    return -1;
+  }
+
   /**
    * Returns whether or not there is enough room to accommodate data of the given size based on the
    * given <code>LRUStatistics</code>.
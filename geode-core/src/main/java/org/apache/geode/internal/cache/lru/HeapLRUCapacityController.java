@@ -88,6 +88,9 @@ public class HeapLRUCapacityController extends LRUAlgorithm {
         "Maximum number of entry destroys triggered by LRU before scan occurs.";
     final String lruEvaluationsDesc = "Number of entries evaluated during LRU operations.";
     final String lruGreedyReturnsDesc = "Number of non-LRU entries evicted during LRU operations";
+    final String lruOverflowTierHitsDesc =
+        "Number of evicted values faulted in from the compressed off-heap overflow tier.";
+    final String lruOverflowDiskHitsDesc = "Number of evicted values faulted in from disk.";
 
     statType = f.createType("HeapLRUStatistics",
         "Statistics about byte based Least Recently Used region entry disposal",
@@ -96,7 +99,9 @@ public class HeapLRUCapacityController extends LRUAlgorithm {
             f.createLongCounter("lruDestroys", lruDestroysDesc, "entries"),
             f.createLongGauge("lruDestroysLimit", lruDestroysLimitDesc, "entries"),
             f.createLongCounter("lruEvaluations", lruEvaluationsDesc, "entries"),
-            f.createLongCounter("lruGreedyReturns", lruGreedyReturnsDesc, "entries"),});
+            f.createLongCounter("lruGreedyReturns", lruGreedyReturnsDesc, "entries"),
+            f.createLongCounter("lruOverflowTierHits", lruOverflowTierHitsDesc, "entries"),
+            f.createLongCounter("lruOverflowDiskHits", lruOverflowDiskHitsDesc, "entries"),});
   }
 
   // //////////////////// Instance Fields /////////////////////
@@ -259,6 +264,14 @@ public class HeapLRUCapacityController extends LRUAlgorithm {
         return statType.nameToId("lruGreedyReturns");
       }
 
+      public int getOverflowTierHitsStatId() {
+        return statType.nameToId("lruOverflowTierHits");
+      }
+
+      public int getOverflowDiskHitsStatId() {
+        return statType.nameToId("lruOverflowDiskHits");
+      }
+
       /**
        * Okay, deep breath. Instead of basing the LRU calculation on the number of entries in the
        * region or on their "size" (which turned out to be incorrectly estimated in the general
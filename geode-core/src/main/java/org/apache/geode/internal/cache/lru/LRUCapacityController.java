@@ -80,6 +80,9 @@ public final class LRUCapacityController extends LRUAlgorithm implements Declara
         "Maximum number of entry destroys triggered by LRU before scan occurs.";
     final String lruEvaluationsDesc = "Number of entries evaluated during LRU operations.";
     final String lruGreedyReturnsDesc = "Number of non-LRU entries evicted during LRU operations";
+    final String lruOverflowTierHitsDesc =
+        "Number of evicted values faulted in from the compressed off-heap overflow tier.";
+    final String lruOverflowDiskHitsDesc = "Number of evicted values faulted in from disk.";
 
     statType = f.createType("LRUStatistics",
         "Statistics about entry based Least Recently Used region entry disposal",
@@ -90,7 +93,9 @@ public final class LRUCapacityController extends LRUAlgorithm implements Declara
             f.createLongCounter("lruDestroys", lruDestroysDesc, "entries"),
             f.createLongGauge("lruDestroysLimit", lruDestroysLimitDesc, "entries"),
             f.createLongCounter("lruEvaluations", lruEvaluationsDesc, "entries"),
-            f.createLongCounter("lruGreedyReturns", lruGreedyReturnsDesc, "entries"),});
+            f.createLongCounter("lruGreedyReturns", lruGreedyReturnsDesc, "entries"),
+            f.createLongCounter("lruOverflowTierHits", lruOverflowTierHitsDesc, "entries"),
+            f.createLongCounter("lruOverflowDiskHits", lruOverflowDiskHitsDesc, "entries"),});
 
   }
 
@@ -284,6 +289,14 @@ public final class LRUCapacityController extends LRUAlgorithm implements Declara
         return statType.nameToId("lruGreedyReturns");
       }
 
+      public int getOverflowTierHitsStatId() {
+        return statType.nameToId("lruOverflowTierHits");
+      }
+
+      public int getOverflowDiskHitsStatId() {
+        return statType.nameToId("lruOverflowDiskHits");
+      }
+
       public boolean mustEvict(LRUStatistics stats, Region region, int delta) {
         return stats.getCounter() + delta > stats.getLimit();
       }
@@ -44,6 +44,10 @@ public class LRUStatistics {
   protected int destroysId;
   protected int evaluationsId;
   protected int greedyReturnsId;
+  /** evicted values faulted in from the compressed off-heap overflow tier, -1 if not kept */
+  protected int overflowTierHitsId;
+  /** evicted values faulted in from disk, -1 if not kept */
+  protected int overflowDiskHitsId;
 
   // Note: the following atomics have been added so that the LRU code
   // does not depend on the value of a statistic for its operations.
@@ -74,6 +78,8 @@ public class LRUStatistics {
     destroysId = helper.getDestroysStatId();
     this.evaluationsId = helper.getEvaluationsStatId();
     this.greedyReturnsId = helper.getGreedyReturnsStatId();
+    this.overflowTierHitsId = helper.getOverflowTierHitsStatId();
+    this.overflowDiskHitsId = helper.getOverflowDiskHitsStatId();
   }
 
   public LRUStatistics(StatisticsFactory factory, String name, StatisticsType statisticsType) {
@@ -85,6 +91,8 @@ public class LRUStatistics {
     destroysId = 0;
     this.evaluationsId = 0;
     this.greedyReturnsId = 0;
+    this.overflowTierHitsId = -1;
+    this.overflowDiskHitsId = -1;
   }
 
   public void close() {
@@ -193,6 +201,26 @@ public class LRUStatistics {
     stats.incLong(greedyReturnsId, numEvals);
   }
 
+  public void incOverflowTierHits() {
+    if (overflowTierHitsId != -1) {
+      stats.incLong(overflowTierHitsId, 1);
+    }
+  }
+
+  public long getOverflowTierHits() {
+    return overflowTierHitsId == -1 ? 0 : stats.getLong(overflowTierHitsId);
+  }
+
+  public void incOverflowDiskHits() {
+    if (overflowDiskHitsId != -1) {
+      stats.incLong(overflowDiskHitsId, 1);
+    }
+  }
+
+  public long getOverflowDiskHits() {
+    return overflowDiskHitsId == -1 ? 0 : stats.getLong(overflowDiskHitsId);
+  }
+
 
   public Statistics getStats() {
     return this.stats;
@@ -114,6 +114,9 @@ public final class MemLRUCapacityController extends LRUAlgorithm implements Decl
         "Maximum number of entry destroys triggered by LRU before scan occurs.";
     final String lruEvaluationsDesc = "Number of entries evaluated during LRU operations.";
     final String lruGreedyReturnsDesc = "Number of non-LRU entries evicted during LRU operations";
+    final String lruOverflowTierHitsDesc =
+        "Number of evicted values faulted in from the compressed off-heap overflow tier.";
+    final String lruOverflowDiskHitsDesc = "Number of evicted values faulted in from disk.";
 
     statType = f.createType("MemLRUStatistics",
         "Statistics about byte based Least Recently Used region entry disposal",
@@ -123,7 +126,9 @@ public final class MemLRUCapacityController extends LRUAlgorithm implements Decl
             f.createLongCounter("lruDestroys", lruDestroysDesc, "entries"),
             f.createLongGauge("lruDestroysLimit", lruDestroysLimitDesc, "entries"),
             f.createLongCounter("lruEvaluations", lruEvaluationsDesc, "entries"),
-            f.createLongCounter("lruGreedyReturns", lruGreedyReturnsDesc, "entries"),});
+            f.createLongCounter("lruGreedyReturns", lruGreedyReturnsDesc, "entries"),
+            f.createLongCounter("lruOverflowTierHits", lruOverflowTierHitsDesc, "entries"),
+            f.createLongCounter("lruOverflowDiskHits", lruOverflowDiskHitsDesc, "entries"),});
   }
 
   //////////////////// Instance Fields ////////////////////
@@ -418,6 +423,14 @@ public final class MemLRUCapacityController extends LRUAlgorithm implements Decl
         return statType.nameToId("lruGreedyReturns");
       }
 
+      public int getOverflowTierHitsStatId() {
+        return statType.nameToId("lruOverflowTierHits");
+      }
+
+      public int getOverflowDiskHitsStatId() {
+        return statType.nameToId("lruOverflowDiskHits");
+      }
+
       public boolean mustEvict(LRUStatistics stats, Region region, int delta) {
         return stats.getCounter() + delta > stats.getLimit();
       }
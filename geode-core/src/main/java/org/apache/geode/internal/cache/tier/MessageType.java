@@ -382,10 +382,19 @@ public class MessageType {
   public static final int PUT_ALL_WITH_CALLBACK = 108;
 
   public static final int REMOVE_ALL = 109;
+
+  /** A message type asking a server to open a cursor over the results of a query */
+  public static final int OPEN_QUERY_CURSOR = 110;
+
+  /** A message type asking a server for the next page of results of a query cursor */
+  public static final int FETCH_QUERY_CURSOR = 111;
+
+  /** A message type asking a server to close a query cursor */
+  public static final int CLOSE_QUERY_CURSOR = 112;
   /**
    * Must be equal to last valid message id.
    */
-  private static final int LAST_VALID_MESSAGE_ID = REMOVE_ALL;
+  private static final int LAST_VALID_MESSAGE_ID = CLOSE_QUERY_CURSOR;
 
 
   public static boolean validate(int messageType) {
@@ -605,6 +614,12 @@ public class MessageType {
         return "PUT_ALL_WITH_CALLBACK";
       case REMOVE_ALL:
         return "REMOVE_ALL";
+      case OPEN_QUERY_CURSOR:
+        return "OPEN_QUERY_CURSOR";
+      case FETCH_QUERY_CURSOR:
+        return "FETCH_QUERY_CURSOR";
+      case CLOSE_QUERY_CURSOR:
+        return "CLOSE_QUERY_CURSOR";
       default:
         return Integer.toString(type);
     }
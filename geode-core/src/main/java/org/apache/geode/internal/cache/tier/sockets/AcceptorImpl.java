@@ -46,6 +46,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.RejectedExecutionHandler;
@@ -54,6 +56,7 @@ import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.net.ssl.SSLException;
 
@@ -65,6 +68,7 @@ import org.apache.geode.ToDataException;
 import org.apache.geode.cache.Cache;
 import org.apache.geode.cache.RegionDestroyedException;
 import org.apache.geode.cache.client.internal.PoolImpl;
+import org.apache.geode.cache.query.QueryException;
 import org.apache.geode.cache.server.CacheServer;
 import org.apache.geode.cache.wan.GatewayTransportFilter;
 import org.apache.geode.distributed.internal.*;
@@ -132,10 +136,6 @@ public class AcceptorImpl extends Acceptor implements Runnable {
    */
   private final Selector selector;
   // private final Selector tmpSel;
-  /**
-   * Used for managing direct byte buffer for client comms; null if no selector.
-   */
-  private final LinkedBlockingQueue commBufferQueue;
   /**
    * Used to timeout accepted sockets that we are waiting for the handshake packet
    */
@@ -259,6 +259,21 @@ public class AcceptorImpl extends Acceptor implements Runnable {
    */
   private long acceptorId;
 
+  /**
+   * The query cursors opened by the clients of this acceptor, by their ids.
+   */
+  private final ConcurrentMap<Long, ServerQueryCursor> queryCursors =
+      new ConcurrentHashMap<Long, ServerQueryCursor>();
+
+  private final AtomicLong lastQueryCursorId = new AtomicLong();
+
+  /**
+   * The task that closes idle query cursors, or null until the first cursor is registered.
+   * 
+   * guarded.By {@link #queryCursors}
+   */
+  private SystemTimer.SystemTimerTask queryCursorExpiryTask;
+
   private static boolean isAuthenticationRequired;
   private static boolean isIntegratedSecurity;
 
@@ -345,21 +360,18 @@ public class AcceptorImpl extends Acceptor implements Runnable {
       Selector tmp_s = null;
       // Selector tmp2_s = null;
       LinkedBlockingQueue tmp_q = null;
-      LinkedBlockingQueue tmp_commQ = null;
       HashSet tmp_hs = null;
       SystemTimer tmp_timer = null;
       if (isSelector()) {
         tmp_s = Selector.open(); // no longer catch ex to fix bug 36907
         // tmp2_s = Selector.open(); // workaround for bug 39624
         tmp_q = new LinkedBlockingQueue();
-        tmp_commQ = new LinkedBlockingQueue();
         tmp_hs = new HashSet(512);
         tmp_timer = new SystemTimer(internalCache.getDistributedSystem(), true);
       }
       this.selector = tmp_s;
       // this.tmpSel = tmp2_s;
       this.selectorQueue = tmp_q;
-      this.commBufferQueue = tmp_commQ;
       this.selectorRegistrations = tmp_hs;
       this.hsTimer = tmp_timer;
       this.tcpNoDelay = tcpNoDelay;
@@ -628,6 +640,14 @@ public class AcceptorImpl extends Acceptor implements Runnable {
   @Deprecated
   private final static int DEPRECATED_SELECTOR_POOL_SIZE =
       Integer.getInteger("BridgeServer.SELECTOR_POOL_SIZE", 16).intValue();
+  /**
+   * If true the selector thread reads each request, without blocking, into a pooled comm buffer
+   * before it hands the connection to a thread of the pool, so that a slow client does not hold a
+   * pool thread while its request arrives. A request whose payload does not fit in a comm buffer
+   * is handed over once its header has been read. Made non final so tests can set it.
+   */
+  static boolean SELECTOR_READ_AHEAD =
+      !Boolean.getBoolean("BridgeServer.DISABLE_SELECTOR_READ_AHEAD");
   private final static int HANDSHAKE_POOL_SIZE =
       Integer.getInteger("BridgeServer.HANDSHAKE_POOL_SIZE", 4).intValue();
 
@@ -739,8 +759,10 @@ public class AcceptorImpl extends Acceptor implements Runnable {
     }
     Iterator it = selectorRegistrations.iterator();
     while (it.hasNext()) {
+      ServerConnection registered = (ServerConnection) it.next();
+      registered.releaseReadAheadBuffer();
       try {
-        finishCon((ServerConnection) it.next());
+        finishCon(registered);
       } catch (CancelException e) {
         if (cce == null) {
           cce = e;
@@ -809,6 +831,7 @@ public class AcceptorImpl extends Acceptor implements Runnable {
         if (isRegisteredObjectClosed(sc)) {
           result--;
           it.remove();
+          sc.releaseReadAheadBuffer();
           try {
             finishCon(sc);
           } catch (CancelException e) {
@@ -881,9 +904,11 @@ public class AcceptorImpl extends Acceptor implements Runnable {
                 // have waited too long in the queue.
                 sc.setProcessingMessage();
               } catch (ClosedChannelException ignore) {
+                sc.releaseReadAheadBuffer();
                 finishCon(sc);
                 continue;
               } catch (IOException ex) {
+                sc.releaseReadAheadBuffer();
                 finishCon(sc);
                 if (isRunning()) {
                   logger.warn(LocalizedMessage
@@ -895,6 +920,7 @@ public class AcceptorImpl extends Acceptor implements Runnable {
                 AcceptorImpl.this.stats.incThreadQueueSize();
                 AcceptorImpl.this.pool.execute(sc);
               } catch (RejectedExecutionException rejected) {
+                sc.releaseReadAheadBuffer();
                 finishCon(sc);
                 AcceptorImpl.this.stats.decThreadQueueSize();
                 if (!isRunning()) {
@@ -931,6 +957,7 @@ public class AcceptorImpl extends Acceptor implements Runnable {
         }
       } catch (ClosedChannelException ignore) { // fix for bug 39650
         // just ignore this channel and try the next one
+        sc.releaseReadAheadBuffer();
         finishCon(sc);
         continue;
       } catch (IOException ex) {
@@ -949,6 +976,17 @@ public class AcceptorImpl extends Acceptor implements Runnable {
 
   private int registeredKeys = 0;
 
+  /**
+   * Reads what the client has sent of its next request into the read ahead buffer of the given
+   * connection, if {@link #SELECTOR_READ_AHEAD} is set.
+   * 
+   * @return true if the connection should be handed to a thread of the pool
+   * @see ServerConnection#readAhead()
+   */
+  static boolean readRequestAhead(ServerConnection sc) throws IOException {
+    return !SELECTOR_READ_AHEAD || sc.readAhead();
+  }
+
   public void runSelectorLoop() {
     // int zeroEventsCount = 0;
     try {
@@ -1055,6 +1093,20 @@ public class AcceptorImpl extends Acceptor implements Runnable {
             try {
               if (key.isValid() && key.isReadable()) {
                 // this is the only event we currently register for
+                try {
+                  if (!readRequestAhead(sc)) {
+                    // wait for the rest of the request
+                    continue;
+                  }
+                } catch (IOException ex) {
+                  key.cancel();
+                  this.selectorRegistrations.remove(sc);
+                  registeredKeys--;
+                  cancelCount++;
+                  sc.releaseReadAheadBuffer();
+                  finishCon(sc);
+                  continue;
+                }
                 try {
                   key.cancel();
                   this.selectorRegistrations.remove(sc);
@@ -1069,9 +1121,11 @@ public class AcceptorImpl extends Acceptor implements Runnable {
                   // have waited too long in the queue.
                   sc.setProcessingMessage();
                 } catch (ClosedChannelException ignore) {
+                  sc.releaseReadAheadBuffer();
                   finishCon(sc);
                   continue;
                 } catch (IOException ex) {
+                  sc.releaseReadAheadBuffer();
                   finishCon(sc);
                   if (isRunning()) {
                     logger.warn(
@@ -1083,6 +1137,7 @@ public class AcceptorImpl extends Acceptor implements Runnable {
                   AcceptorImpl.this.stats.incThreadQueueSize();
                   AcceptorImpl.this.pool.execute(sc);
                 } catch (RejectedExecutionException rejected) {
+                  sc.releaseReadAheadBuffer();
                   finishCon(sc);
                   AcceptorImpl.this.stats.decThreadQueueSize();
                   if (!isRunning()) {
@@ -1095,6 +1150,7 @@ public class AcceptorImpl extends Acceptor implements Runnable {
                 // logger.info("DEBUG isConnectable and isValid key=" + key);
                 // finishCon(sc);
               } else {
+                sc.releaseReadAheadBuffer();
                 finishCon(sc);
                 if (key.isValid()) {
                   logger.warn(LocalizedMessage.create(
@@ -1104,6 +1160,7 @@ public class AcceptorImpl extends Acceptor implements Runnable {
                 }
               }
             } catch (CancelledKeyException ex) { // fix for bug 37739
+              sc.releaseReadAheadBuffer();
               finishCon(sc);
             }
           }
@@ -1341,11 +1398,7 @@ public class AcceptorImpl extends Acceptor implements Runnable {
   }
 
   public ByteBuffer takeCommBuffer() {
-    ByteBuffer result = (ByteBuffer) this.commBufferQueue.poll();
-    if (result == null) {
-      result = ByteBuffer.allocateDirect(this.socketBufferSize);
-    }
-    return result;
+    return ServerConnection.allocateDirectCommBuffer(this.socketBufferSize);
   }
 
   public void releaseCommBuffer(ByteBuffer bb) {
@@ -1353,7 +1406,7 @@ public class AcceptorImpl extends Acceptor implements Runnable {
       return;
     }
     if (isRunning()) {
-      this.commBufferQueue.offer(bb);
+      ServerConnection.releaseCommBuffer(bb);
     }
   }
 
@@ -1549,6 +1602,13 @@ public class AcceptorImpl extends Acceptor implements Runnable {
         ClientHealthMonitor.shutdownInstance();
         shutdownSCs();
         this.clientNotifier.shutdown(this.acceptorId);
+        synchronized (this.queryCursors) {
+          if (this.queryCursorExpiryTask != null) {
+            this.queryCursorExpiryTask.cancel();
+            this.queryCursorExpiryTask = null;
+          }
+          this.queryCursors.clear();
+        }
         shutdownPools();
         this.stats.close();
         notifyCacheMembersOfClose();
@@ -1604,7 +1664,6 @@ public class AcceptorImpl extends Acceptor implements Runnable {
       if (this.selectorThread != null) {
         this.selectorThread.interrupt();
       }
-      this.commBufferQueue.clear();
     }
   }
 
@@ -1723,6 +1782,96 @@ public class AcceptorImpl extends Acceptor implements Runnable {
     return this.clientNotifier;
   }
 
+  /**
+   * Registers a query cursor that has more pages to read. Cursors that are not read for
+   * {@link ServerQueryCursor#IDLE_TIMEOUT} milliseconds are closed by a task of the cache's client
+   * timer.
+   *
+   * @return the id the client reads the cursor with
+   * @throws QueryException if the client already has {@link ServerQueryCursor#MAX_PER_CLIENT}
+   *         cursors open
+   */
+  public long addQueryCursor(ServerQueryCursor cursor) throws QueryException {
+    synchronized (this.queryCursors) {
+      int open = 0;
+      for (ServerQueryCursor c : this.queryCursors.values()) {
+        if (c.getClientId().equals(cursor.getClientId())) {
+          open++;
+        }
+      }
+      if (open >= ServerQueryCursor.MAX_PER_CLIENT) {
+        throw new QueryException("The client already has " + open + " query cursors open");
+      }
+      if (this.queryCursorExpiryTask == null) {
+        scheduleQueryCursorExpiry();
+      }
+      long id = this.lastQueryCursorId.incrementAndGet();
+      this.queryCursors.put(id, cursor);
+      return id;
+    }
+  }
+
+  /**
+   * Schedules the task that closes the query cursors that have been idle for longer than
+   * {@link ServerQueryCursor#IDLE_TIMEOUT}.
+   */
+  private void scheduleQueryCursorExpiry() {
+    SystemTimer.SystemTimerTask task = new SystemTimer.SystemTimerTask() {
+      @Override
+      public void run2() {
+        expireQueryCursors(System.currentTimeMillis());
+      }
+    };
+    long period = Math.max(1000, ServerQueryCursor.IDLE_TIMEOUT / 2);
+    ((GemFireCacheImpl) this.cache).getCCPTimer().scheduleAtFixedRate(task, period, period);
+    this.queryCursorExpiryTask = task;
+  }
+
+  /**
+   * Closes the query cursors that have not been read since the given time minus
+   * {@link ServerQueryCursor#IDLE_TIMEOUT}.
+   */
+  void expireQueryCursors(long now) {
+    for (Iterator<ServerQueryCursor> it = this.queryCursors.values().iterator(); it.hasNext();) {
+      if (it.next().isIdle(now)) {
+        it.remove();
+      }
+    }
+  }
+
+  /**
+   * Returns the query cursor with the given id if it was opened by the given client.
+   */
+  public ServerQueryCursor getQueryCursor(long id, ClientProxyMembershipID clientId) {
+    ServerQueryCursor cursor = this.queryCursors.get(id);
+    if (cursor == null || !cursor.getClientId().equals(clientId)) {
+      return null;
+    }
+    return cursor;
+  }
+
+  /**
+   * Closes the query cursor with the given id if it was opened by the given client.
+   */
+  public void removeQueryCursor(long id, ClientProxyMembershipID clientId) {
+    ServerQueryCursor cursor = getQueryCursor(id, clientId);
+    if (cursor != null) {
+      this.queryCursors.remove(id, cursor);
+    }
+  }
+
+  /**
+   * Closes the query cursors opened by the given client. Called when its last connection to this
+   * server is closed.
+   */
+  public void removeQueryCursors(ClientProxyMembershipID clientId) {
+    for (Iterator<ServerQueryCursor> it = this.queryCursors.values().iterator(); it.hasNext();) {
+      if (it.next().getClientId().equals(clientId)) {
+        it.remove();
+      }
+    }
+  }
+
   public CachedRegionHelper getCachedRegionHelper() {
     return this.crHelper;
   }
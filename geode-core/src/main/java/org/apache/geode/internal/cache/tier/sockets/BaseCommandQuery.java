@@ -305,6 +305,54 @@ public abstract class BaseCommandQuery extends BaseCommand {
     return results.getCollectionType();
   }
 
+  /**
+   * Sends a page of results of a query cursor to the client, along with the id of the cursor, or 0
+   * if this is its last page. Structs are sent as arrays of their field values.
+   */
+  protected void writeQueryCursorPage(Message origMsg, long cursorId, List page,
+      ServerQueryCursor cursor, ServerConnection servConn) throws IOException {
+    CollectionType collectionType = cursor.getCollectionType();
+    boolean isStructs = collectionType.getElementType().isStructType();
+    Object[] results = new Object[page.size()];
+    for (int i = 0; i < results.length; i++) {
+      Object result = page.get(i);
+      if (isStructs && result instanceof Struct) {
+        Object[] values = ((Struct) result).getFieldValues().clone();
+        for (int j = 0; j < values.length; j++) {
+          values[j] = this.securityService.postProcess(null, null, values[j], true);
+        }
+        results[i] = values;
+      } else {
+        results[i] = this.securityService.postProcess(null, null, result, true);
+      }
+    }
+    Message responseMsg = servConn.getResponseMessage();
+    responseMsg.setMessageType(MessageType.RESPONSE);
+    responseMsg.setNumberOfParts(4);
+    responseMsg.setTransactionId(origMsg.getTransactionId());
+    responseMsg.addObjPart(cursorId);
+    responseMsg.addObjPart(collectionType);
+    responseMsg.addObjPart(results);
+    responseMsg.addObjPart(cursorId == 0);
+    responseMsg.send(servConn);
+  }
+
+  /**
+   * Sends the exception a query cursor failed with to the client.
+   */
+  protected void writeQueryCursorException(Message origMsg, Exception e, String queryString,
+      Query query, ServerConnection servConn) throws IOException {
+    if (e instanceof QueryInvalidException) {
+      // it may hold objects that are not serializable, like antlr.CommonToken
+      e = new QueryInvalidException(LocalizedStrings.BaseCommand_0_QUERYSTRING_IS_1
+          .toLocalizedString(new Object[] {e.getLocalizedMessage(), queryString}));
+    } else if (query != null && ((DefaultQuery) query).isCanceled()) {
+      e = new QueryException(((DefaultQuery) query).getQueryCanceledException().getMessage(),
+          e.getCause());
+    }
+    writeException(origMsg, e, false, servConn);
+  }
+
   private boolean sendCqResultsWithKey(ServerConnection servConn) {
     Version clientVersion = servConn.getClientVersion();
     if (clientVersion.compareTo(Version.GFE_65) >= 0) {
@@ -28,6 +28,7 @@ import org.apache.geode.internal.cache.tier.sockets.command.AddPdxType;
 import org.apache.geode.internal.cache.tier.sockets.command.ClearRegion;
 import org.apache.geode.internal.cache.tier.sockets.command.ClientReady;
 import org.apache.geode.internal.cache.tier.sockets.command.CloseConnection;
+import org.apache.geode.internal.cache.tier.sockets.command.CloseQueryCursor;
 import org.apache.geode.internal.cache.tier.sockets.command.CommitCommand;
 import org.apache.geode.internal.cache.tier.sockets.command.ContainsKey;
 import org.apache.geode.internal.cache.tier.sockets.command.ContainsKey66;
@@ -44,6 +45,7 @@ import org.apache.geode.internal.cache.tier.sockets.command.ExecuteRegionFunctio
 import org.apache.geode.internal.cache.tier.sockets.command.ExecuteRegionFunction65;
 import org.apache.geode.internal.cache.tier.sockets.command.ExecuteRegionFunction66;
 import org.apache.geode.internal.cache.tier.sockets.command.ExecuteRegionFunctionSingleHop;
+import org.apache.geode.internal.cache.tier.sockets.command.FetchQueryCursor;
 import org.apache.geode.internal.cache.tier.sockets.command.GatewayReceiverCommand;
 import org.apache.geode.internal.cache.tier.sockets.command.Get70;
 import org.apache.geode.internal.cache.tier.sockets.command.GetAll;
@@ -69,6 +71,7 @@ import org.apache.geode.internal.cache.tier.sockets.command.Invalidate;
 import org.apache.geode.internal.cache.tier.sockets.command.Invalidate70;
 import org.apache.geode.internal.cache.tier.sockets.command.KeySet;
 import org.apache.geode.internal.cache.tier.sockets.command.MakePrimary;
+import org.apache.geode.internal.cache.tier.sockets.command.OpenQueryCursor;
 import org.apache.geode.internal.cache.tier.sockets.command.PeriodicAck;
 import org.apache.geode.internal.cache.tier.sockets.command.Ping;
 import org.apache.geode.internal.cache.tier.sockets.command.Put;
@@ -333,6 +336,9 @@ public class CommandInitializer {
     {
       Map<Integer, Command> gfe91Commands = new HashMap<Integer, Command>();
       gfe91Commands.putAll(ALL_COMMANDS.get(Version.GFE_90));
+      gfe91Commands.put(MessageType.OPEN_QUERY_CURSOR, OpenQueryCursor.getCommand());
+      gfe91Commands.put(MessageType.FETCH_QUERY_CURSOR, FetchQueryCursor.getCommand());
+      gfe91Commands.put(MessageType.CLOSE_QUERY_CURSOR, CloseQueryCursor.getCommand());
       ALL_COMMANDS.put(Version.GFE_91, gfe91Commands);
     }
 
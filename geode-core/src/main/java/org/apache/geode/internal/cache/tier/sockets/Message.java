@@ -93,7 +93,10 @@ public class Message {
 
   private static final int PART_HEADER_SIZE = 5; // 4 bytes for length, 1 byte for isObject
 
-  private static final int FIXED_LENGTH = 17;
+  static final int FIXED_LENGTH = 17;
+
+  /** The offset of the payload length in the header */
+  static final int PAYLOAD_LENGTH_OFFSET = 4;
 
   private static final ThreadLocal<ByteBuffer> tlCommBuffer = new ThreadLocal<>();
 
@@ -129,6 +132,10 @@ public class Message {
   protected SocketChannel sockCh = null;
   protected OutputStream os = null;
   protected InputStream is = null;
+  /**
+   * Bytes of this message that were read off {@link #sockCh} before it was received; null if none.
+   */
+  private ByteBuffer readAheadBuffer = null;
   protected boolean messageModified = true;
   /** is this message a retry of a previously sent message? */
   protected boolean isRetry;
@@ -605,8 +612,11 @@ public class Message {
           int partLen = part.getLength();
           cb.putInt(partLen);
           cb.put(part.getTypeCode());
+          ByteBuffer direct;
           if (partLen <= cb.remaining()) {
             part.writeTo(cb);
+          } else if (this.sockCh != null && (direct = part.getDirectByteBuffer()) != null) {
+            gatherWrite(direct);
           } else {
             flushBuffer();
             if (this.sockCh != null) {
@@ -650,6 +660,25 @@ public class Message {
     cb.clear();
   }
 
+  /**
+   * Writes what is in the comm buffer followed by the given direct buffer with gathering writes,
+   * instead of flushing the comm buffer first, so that an off-heap part goes to the socket straight
+   * from its memory in as few writes as possible.
+   */
+  private void gatherWrite(ByteBuffer direct) throws IOException {
+    final ByteBuffer cb = getCommBuffer();
+    cb.flip();
+    final int len = cb.remaining() + direct.remaining();
+    final ByteBuffer[] srcs = {cb, direct};
+    do {
+      this.sockCh.write(srcs);
+    } while (direct.remaining() > 0);
+    if (this.msgStats != null) {
+      this.msgStats.incSentBytes(len);
+    }
+    cb.clear();
+  }
+
   private void read() throws IOException {
     clearParts();
     // TODO:Hitesh ??? for server changes make sure sc is not null as this class also used by client
@@ -673,7 +702,7 @@ public class Message {
     if (this.sockCh != null) {
       cb.limit(headerLength);
       do {
-        int bytesRead = this.sockCh.read(cb);
+        int bytesRead = readChannel(cb);
         // System.out.println("DEBUG: fetchHeader read " + bytesRead + " bytes commBuffer=" + cb);
         if (bytesRead == -1) {
           throw new EOFException(
@@ -868,6 +897,10 @@ public class Message {
 
       int partLen = cb.getInt();
       byte partType = cb.get();
+      if (i < numParts && Part.isObject(partType) && PartBufferPool.isPooled(partLen)) {
+        bytesRemaining -= readPooledPart(part, partLen, partType);
+        continue;
+      }
       byte[] partBytes = null;
       if (partLen > 0) {
         partBytes = new byte[partLen];
@@ -889,7 +922,7 @@ public class Message {
               bytesThisTime = cb.capacity();
             }
             cb.limit(bytesThisTime);
-            int res = this.sockCh.read(cb);
+            int res = readChannel(cb);
             if (res != -1) {
               cb.flip();
               bytesRemaining -= res;
@@ -926,6 +959,59 @@ public class Message {
     }
   }
 
+  /**
+   * Reads a large object part into a buffer from the part buffer pool instead of a new byte[], so
+   * that big getAll, putAll and query chunks do not allocate a young generation array per part. The
+   * buffer goes back to the pool when the part is cleared.
+   *
+   * @return the number of bytes read from the connection, not counting those that were already in
+   *         the comm buffer
+   */
+  private int readPooledPart(Part part, int partLen, byte partType) throws IOException {
+    final ByteBuffer cb = getCommBuffer();
+    final PartBufferPool pool = this.sockCh != null ? PartBufferPool.DIRECT : PartBufferPool.HEAP;
+    final ByteBuffer partBuffer = pool.allocate(partLen);
+    boolean initialized = false;
+    try {
+      int alreadyReadBytes = Math.min(cb.remaining(), partLen);
+      if (alreadyReadBytes > 0) {
+        ByteBuffer src = cb.duplicate();
+        src.limit(src.position() + alreadyReadBytes);
+        partBuffer.put(src);
+        cb.position(cb.position() + alreadyReadBytes);
+      }
+      int bytesRead = 0;
+      while (partBuffer.hasRemaining()) {
+        int res;
+        if (this.sockCh != null) {
+          res = readChannel(partBuffer);
+        } else {
+          res = this.is.read(partBuffer.array(), partBuffer.position(), partBuffer.remaining());
+          if (res > 0) {
+            partBuffer.position(partBuffer.position() + res);
+          }
+        }
+        if (res == -1) {
+          throw new EOFException(
+              LocalizedStrings.Message_THE_CONNECTION_HAS_BEEN_RESET_WHILE_READING_A_PART
+                  .toLocalizedString());
+        }
+        bytesRead += res;
+        if (this.msgStats != null) {
+          this.msgStats.incReceivedBytes(res);
+        }
+      }
+      partBuffer.flip();
+      part.init(partBuffer, partType, pool);
+      initialized = true;
+      return bytesRead;
+    } finally {
+      if (!initialized) {
+        pool.release(partBuffer);
+      }
+    }
+  }
+
   protected int checkAndSetSecurityPart() {
     if ((this.flags | MESSAGE_HAS_SECURE_PART) == this.flags) {
       this.securePart = new Part();
@@ -964,7 +1050,7 @@ public class Message {
         cb.limit(cb.position() + bytesRemaining);
       }
       while (remaining > 0) {
-        int res = this.sockCh.read(cb);
+        int res = readChannel(cb);
         if (res != -1) {
           remaining -= res;
           bytesRead += res;
@@ -1062,6 +1148,33 @@ public class Message {
     this.msgStats = msgStats;
   }
 
+  /**
+   * Sets the bytes, already read off the channel of this message, that the next receive reads
+   * before it reads the channel.
+   * 
+   * @param bb a buffer flipped for reading, or null
+   * @see ServerConnection#readAhead()
+   */
+  void setReadAheadBuffer(ByteBuffer bb) {
+    this.readAheadBuffer = bb;
+  }
+
+  /**
+   * Reads from the read ahead buffer if it has any bytes left, otherwise from {@link #sockCh}.
+   */
+  private int readChannel(ByteBuffer dst) throws IOException {
+    final ByteBuffer bb = this.readAheadBuffer;
+    if (bb != null && bb.hasRemaining()) {
+      int n = Math.min(bb.remaining(), dst.remaining());
+      int limit = bb.limit();
+      bb.limit(bb.position() + n);
+      dst.put(bb);
+      bb.limit(limit);
+      return n;
+    }
+    return this.sockCh.read(dst);
+  }
+
   /**
    * Undo any state changes done by setComms.
    * 
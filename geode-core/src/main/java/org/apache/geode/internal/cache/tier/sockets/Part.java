@@ -27,6 +27,7 @@ import org.apache.geode.internal.HeapDataOutputStream;
 import org.apache.geode.internal.Version;
 import org.apache.geode.internal.offheap.AddressableMemoryManager;
 import org.apache.geode.internal.offheap.StoredObject;
+import org.apache.geode.internal.util.BlobHelper;
 
 /**
  * Represents one unit of information (essentially a <code>byte</code> array) in the wire protocol.
@@ -52,10 +53,13 @@ public class Part {
 
   /**
    * The payload of this part. Could be null, a byte[] or a HeapDataOutputStream on the send side.
-   * Could be null, or a byte[] on the receiver side.
+   * Could be null, a byte[] or a ByteBuffer from {@link #pool} on the receiver side.
    */
   private Object part;
 
+  /** The pool the ByteBuffer payload of a received part goes back to when it is cleared */
+  private PartBufferPool pool;
+
   /** Is the payload (<code>part</code>) a serialized object? */
   private byte typeCode;
 
@@ -68,17 +72,42 @@ public class Part {
     this.typeCode = tc;
   }
 
+  /**
+   * Initializes a received object part whose bytes were read into a buffer taken from the given
+   * pool. The buffer is given back when this part is cleared; until then the part is deserialized
+   * straight from it, and only copied to a byte[] if its serialized form is asked for.
+   */
+  void init(ByteBuffer bb, byte tc, PartBufferPool pool) {
+    this.part = bb;
+    this.pool = pool;
+    this.typeCode = tc;
+  }
+
+  /**
+   * Returns true if a received part of the given type is an object that can be read into a pooled
+   * buffer.
+   */
+  static boolean isObject(byte tc) {
+    return tc == OBJECT_CODE;
+  }
 
   public void clear() {
     if (this.part != null) {
       if (this.part instanceof HeapDataOutputStream) {
         ((HeapDataOutputStream) this.part).close();
+      } else if (this.part instanceof ByteBuffer) {
+        releaseBuffer();
       }
       this.part = null;
     }
     this.typeCode = BYTE_CODE;
   }
 
+  private void releaseBuffer() {
+    this.pool.release((ByteBuffer) this.part);
+    this.pool = null;
+  }
+
   public boolean isNull() {
     if (this.part == null) {
       return true;
@@ -157,6 +186,8 @@ public class Part {
       return ((byte[]) this.part).length;
     } else if (this.part instanceof StoredObject) {
       return ((StoredObject) this.part).getDataSize();
+    } else if (this.part instanceof ByteBuffer) {
+      return ((ByteBuffer) this.part).limit();
     } else {
       return ((HeapDataOutputStream) this.part).size();
     }
@@ -255,6 +286,14 @@ public class Part {
       return null;
     } else if (this.part instanceof byte[]) {
       return (byte[]) this.part;
+    } else if (this.part instanceof ByteBuffer) {
+      // the caller may keep the bytes, so they are copied out of the pooled buffer
+      ByteBuffer bb = (ByteBuffer) this.part;
+      byte[] bytes = new byte[bb.limit()];
+      bb.duplicate().get(bytes);
+      releaseBuffer();
+      this.part = bytes;
+      return bytes;
     } else {
       return null; // should not be called on sender side?
     }
@@ -264,6 +303,14 @@ public class Part {
     if (isBytes()) {
       return this.part;
     } else {
+      if (this.part instanceof ByteBuffer) {
+        ByteBuffer bb = (ByteBuffer) this.part;
+        if (!unzip && bb.get(0) != DSCODE.PDX) {
+          return BlobHelper.deserializeBuffer(bb.duplicate(), this.version);
+        }
+        // a top level pdx would be wrapped, not copied, so it needs its own bytes
+        getSerializedForm();
+      }
       if (this.version != null) {
         return CacheServerHelper.deserialize((byte[]) this.part, this.version, unzip);
       } else {
@@ -296,6 +343,9 @@ public class Part {
       if (this.part instanceof byte[]) {
         byte[] bytes = (byte[]) this.part;
         out.write(bytes, 0, bytes.length);
+      } else if (this.part instanceof ByteBuffer) {
+        HeapDataOutputStream.writeByteBufferToStream(out, buf,
+            ((ByteBuffer) this.part).duplicate());
       } else if (this.part instanceof StoredObject) {
         StoredObject so = (StoredObject) this.part;
         ByteBuffer sobb = so.createDirectByteBuffer();
@@ -329,6 +379,8 @@ public class Part {
     if (getLength() > 0) {
       if (this.part instanceof byte[]) {
         buf.put((byte[]) this.part);
+      } else if (this.part instanceof ByteBuffer) {
+        buf.put(((ByteBuffer) this.part).duplicate());
       } else if (this.part instanceof StoredObject) {
         StoredObject c = (StoredObject) this.part;
         ByteBuffer bb = c.createDirectByteBuffer();
@@ -351,6 +403,18 @@ public class Part {
     }
   }
 
+  /**
+   * Returns a direct buffer over the off-heap memory of this part, so that it can be written to a
+   * channel without being copied, or null if this part is not off-heap or its memory can not be
+   * wrapped.
+   */
+  ByteBuffer getDirectByteBuffer() {
+    if (this.part instanceof StoredObject && getLength() > 0) {
+      return ((StoredObject) this.part).createDirectByteBuffer();
+    }
+    return null;
+  }
+
   /**
    * Write the contents of this part to the specified socket channel using the specified byte
    * buffer. This is only called for parts that will not fit into the commBuffer so they need to be
@@ -378,6 +442,11 @@ public class Part {
           }
           buf.clear();
         }
+      } else if (this.part instanceof ByteBuffer) {
+        ByteBuffer bb = ((ByteBuffer) this.part).duplicate();
+        while (bb.remaining() > 0) {
+          sc.write(bb);
+        }
       } else if (this.part instanceof StoredObject) {
         // instead of copying the StoredObject to buf try to create a direct ByteBuffer and
         // just write it directly to the socket channel.
@@ -0,0 +1,119 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.geode.internal.cache.tier.sockets;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.apache.geode.distributed.internal.DistributionConfig;
+
+/**
+ * A pool of buffers, in power of two size classes, that large received object parts are read into
+ * instead of a new byte[] per part. A part gives its buffer back when its message is cleared.
+ * Each size class keeps at most {@link #MAX_POOLED_BYTES_PER_SIZE} bytes of released buffers; the
+ * rest are left to the garbage collector.
+ *
+ * @see Part#init(ByteBuffer, byte, PartBufferPool)
+ */
+class PartBufferPool {
+
+  /** Object parts smaller than this are read into a byte[] as before */
+  static int MIN_POOLED_PART_SIZE = Integer
+      .getInteger(DistributionConfig.GEMFIRE_PREFIX + "Message.MIN_POOLED_PART_SIZE", 64 * 1024)
+      .intValue();
+
+  /** Object parts larger than this are read into a byte[] as before */
+  static int MAX_POOLED_PART_SIZE = Integer
+      .getInteger(DistributionConfig.GEMFIRE_PREFIX + "Message.MAX_POOLED_PART_SIZE",
+          16 * 1024 * 1024)
+      .intValue();
+
+  /** The most bytes of released buffers kept for each size class */
+  static long MAX_POOLED_BYTES_PER_SIZE = Long
+      .getLong(DistributionConfig.GEMFIRE_PREFIX + "Message.MAX_POOLED_PART_BYTES_PER_SIZE",
+          64L * 1024 * 1024)
+      .longValue();
+
+  /** The pool of direct buffers for connections with a socket channel */
+  static final PartBufferPool DIRECT = new PartBufferPool(true);
+
+  /** The pool of heap buffers for connections that use old IO streams */
+  static final PartBufferPool HEAP = new PartBufferPool(false);
+
+  private final boolean direct;
+
+  /** The released buffers of each size class, indexed by the log2 of the size */
+  private final AtomicReferenceArray<LinkedBlockingQueue<ByteBuffer>> sizeClasses =
+      new AtomicReferenceArray<>(Integer.SIZE);
+
+  private PartBufferPool(boolean direct) {
+    this.direct = direct;
+  }
+
+  /**
+   * Returns true if an object part of the given length is read into a buffer of this pool.
+   */
+  static boolean isPooled(int partLen) {
+    return partLen >= MIN_POOLED_PART_SIZE && partLen <= MAX_POOLED_PART_SIZE;
+  }
+
+  private static int sizeClass(int size) {
+    return size <= 1 ? 0 : Integer.SIZE - Integer.numberOfLeadingZeros(size - 1);
+  }
+
+  /**
+   * Returns a buffer whose position is 0 and whose limit is the given size.
+   */
+  ByteBuffer allocate(int size) {
+    int sizeClass = sizeClass(size);
+    ByteBuffer result = null;
+    LinkedBlockingQueue<ByteBuffer> q = this.sizeClasses.get(sizeClass);
+    if (q != null) {
+      result = q.poll();
+    }
+    if (result == null) {
+      int capacity = 1 << sizeClass;
+      result = this.direct ? ByteBuffer.allocateDirect(capacity) : ByteBuffer.allocate(capacity);
+    }
+    result.clear();
+    result.limit(size);
+    return result;
+  }
+
+  /**
+   * Gives a buffer returned by {@link #allocate(int)} back to this pool. It must not be used
+   * afterwards.
+   */
+  void release(ByteBuffer bb) {
+    int sizeClass = sizeClass(bb.capacity());
+    LinkedBlockingQueue<ByteBuffer> q = this.sizeClasses.get(sizeClass);
+    if (q == null) {
+      int max = (int) Math.max(1,
+          Math.min(Integer.MAX_VALUE, MAX_POOLED_BYTES_PER_SIZE / bb.capacity()));
+      this.sizeClasses.compareAndSet(sizeClass, null, new LinkedBlockingQueue<>(max));
+      q = this.sizeClasses.get(sizeClass);
+    }
+    q.offer(bb);
+  }
+
+  /**
+   * Returns the number of released buffers of the size class the given size belongs to.
+   */
+  int getPooledCount(int size) {
+    LinkedBlockingQueue<ByteBuffer> q = this.sizeClasses.get(sizeClass(size));
+    return q == null ? 0 : q.size();
+  }
+}
@@ -19,6 +19,7 @@ import static org.apache.geode.distributed.ConfigurationProperties.*;
 
 import java.io.ByteArrayInputStream;
 import java.io.DataInputStream;
+import java.io.EOFException;
 import java.io.IOException;
 import java.net.InetAddress;
 import java.net.Socket;
@@ -26,6 +27,7 @@ import java.nio.ByteBuffer;
 import java.nio.channels.SelectableChannel;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
 import java.security.Principal;
 import java.util.Map;
 import java.util.Properties;
@@ -100,6 +102,15 @@ public class ServerConnection implements Runnable {
   private static final ConcurrentHashMap<Integer, LinkedBlockingQueue<ByteBuffer>> commBufferMap =
       new ConcurrentHashMap<>(4, 0.75f, 1);
 
+  /**
+   * The most released comm buffers of one size that are kept for reuse. Released buffers beyond
+   * this are left to the garbage collector so that a burst of connections does not pin its direct
+   * memory forever. Made non final so tests can set it; it only applies to sizes that have not
+   * been pooled yet.
+   */
+  static int MAX_POOLED_COMM_BUFFERS =
+      Integer.getInteger("BridgeServer.MAX_POOLED_COMM_BUFFERS", 1024).intValue();
+
   public static ByteBuffer allocateCommBuffer(int size, Socket sock) {
     // I expect that size will almost always be the same value
     if (sock.getChannel() == null) {
@@ -107,6 +118,14 @@ public class ServerConnection implements Runnable {
       // So the commBuffer should be heap based.
       return ByteBuffer.allocate(size);
     }
+    return allocateDirectCommBuffer(size);
+  }
+
+  /**
+   * Takes a direct buffer of the given size from the pool shared by client connections, server
+   * connections and the selector of the acceptors, or allocates one if the pool has none.
+   */
+  static ByteBuffer allocateDirectCommBuffer(int size) {
     LinkedBlockingQueue<ByteBuffer> q = commBufferMap.get(size);
     ByteBuffer result = null;
     if (q != null) {
@@ -125,7 +144,7 @@ public class ServerConnection implements Runnable {
     if (bb != null && bb.isDirect()) {
       LinkedBlockingQueue<ByteBuffer> q = commBufferMap.get(bb.capacity());
       if (q == null) {
-        q = new LinkedBlockingQueue<>();
+        q = new LinkedBlockingQueue<>(MAX_POOLED_COMM_BUFFERS);
         LinkedBlockingQueue<ByteBuffer> oldQ = commBufferMap.putIfAbsent(bb.capacity(), q);
         if (oldQ != null) {
           q = oldQ;
@@ -145,6 +164,12 @@ public class ServerConnection implements Runnable {
   // private InputStream in = null;
   // private OutputStream out = null;
   private ByteBuffer commBuffer;
+  /**
+   * The bytes of the next request that the selector thread has read ahead; null if none. Owned by
+   * the selector thread while this connection is registered with the selector and by the worker
+   * thread while it processes a request.
+   */
+  private ByteBuffer readAheadBuffer;
   private final CachedRegionHelper crHelper;
   private String name = null;
 
@@ -889,8 +914,10 @@ public class ServerConnection implements Runnable {
           this.chmRegistered = false;
         }
       }
-      if (unregisterClient)// last serverconnection call all close on auth objects
+      if (unregisterClient) {// last serverconnection call all close on auth objects
         cleanClientAuths();
+        getAcceptor().removeQueryCursors(this.proxyId);
+      }
       this.clientUserAuths = null;
       if (needsUnregister) {
         this.acceptor.getClientHealthMonitor().removeConnection(this.proxyId, this);
@@ -1131,10 +1158,16 @@ public class ServerConnection implements Runnable {
     setOwner();
     if (getAcceptor().isSelector()) {
       boolean finishedMsg = false;
+      ByteBuffer readAhead = this.readAheadBuffer;
+      this.readAheadBuffer = null;
       try {
         this.stats.decThreadQueueSize();
         if (!isTerminated()) {
           Message.setTLCommBuffer(getAcceptor().takeCommBuffer());
+          if (readAhead != null) {
+            readAhead.flip();
+            this.requestMsg.setReadAheadBuffer(readAhead);
+          }
           doOneMessage();
           if (this.processMessages && !(this.crHelper.isShutdown())) {
             registerWithSelector(); // finished msg so reregister
@@ -1150,6 +1183,8 @@ public class ServerConnection implements Runnable {
             LocalizedMessage.create(LocalizedStrings.ServerConnection_0__UNEXPECTED_EXCEPTION, ex));
         setClientDisconnectedException(ex);
       } finally {
+        this.requestMsg.setReadAheadBuffer(null);
+        getAcceptor().releaseCommBuffer(readAhead);
         getAcceptor().releaseCommBuffer(Message.setTLCommBuffer(null));
         // DistributedSystem.releaseThreadsSockets();
         unsetOwner();
@@ -1210,6 +1245,62 @@ public class ServerConnection implements Runnable {
     /* this.sKey = */getSelectableChannel().register(s, SelectionKey.OP_READ, this);
   }
 
+  /**
+   * Reads, without blocking, the bytes of the next request that have arrived on the channel of this
+   * connection. Called by the selector thread when the channel is readable, so that a worker thread
+   * is only used once the request can be read without waiting for the client. At most one request
+   * is read so that the bytes of the next one stay in the socket and make the channel readable
+   * again.
+   * 
+   * @return true if the request has been read, or its header has been read and its payload does
+   *         not fit in a comm buffer, or this connection has not done its handshake yet
+   * @throws EOFException if the client closed the connection
+   */
+  boolean readAhead() throws IOException {
+    if (this.doHandshake) {
+      // the handshake is not a message
+      return true;
+    }
+    ByteBuffer bb = this.readAheadBuffer;
+    if (bb == null) {
+      bb = getAcceptor().takeCommBuffer();
+      bb.clear();
+      bb.limit(Message.FIXED_LENGTH);
+      this.readAheadBuffer = bb;
+    }
+    SocketChannel channel = this.theSocket.getChannel();
+    if (bb.position() < Message.FIXED_LENGTH) {
+      if (channel.read(bb) < 0) {
+        throw new EOFException();
+      }
+      if (bb.hasRemaining()) {
+        return false;
+      }
+      int len = bb.getInt(Message.PAYLOAD_LENGTH_OFFSET);
+      if (len <= 0 || len > bb.capacity() - Message.FIXED_LENGTH) {
+        // the worker reads the payload, or reports the bad length
+        return true;
+      }
+      bb.limit(Message.FIXED_LENGTH + len);
+    }
+    if (channel.read(bb) < 0) {
+      throw new EOFException();
+    }
+    return !bb.hasRemaining();
+  }
+
+  /**
+   * Returns the read ahead buffer of this connection, if any, to the pool of the acceptor. Called
+   * by the selector thread once this connection is closed.
+   */
+  void releaseReadAheadBuffer() {
+    ByteBuffer bb = this.readAheadBuffer;
+    if (bb != null) {
+      this.readAheadBuffer = null;
+      getAcceptor().releaseCommBuffer(bb);
+    }
+  }
+
   /**
    * Switch this guy to blocking mode so we can use oldIO to read and write msgs.
    */
@@ -0,0 +1,207 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.geode.internal.cache.tier.sockets;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.geode.cache.Cache;
+import org.apache.geode.cache.Region;
+import org.apache.geode.cache.operations.QueryOperationContext;
+import org.apache.geode.cache.query.QueryException;
+import org.apache.geode.cache.query.QueryInvalidException;
+import org.apache.geode.cache.query.SelectResults;
+import org.apache.geode.cache.query.internal.CompiledSelect;
+import org.apache.geode.cache.query.internal.DefaultQuery;
+import org.apache.geode.cache.query.internal.types.CollectionTypeImpl;
+import org.apache.geode.cache.query.internal.types.TypeUtils;
+import org.apache.geode.cache.query.types.CollectionType;
+import org.apache.geode.distributed.internal.DistributionConfig;
+import org.apache.geode.internal.cache.PartitionedRegion;
+import org.apache.geode.internal.i18n.LocalizedStrings;
+import org.apache.geode.internal.security.AuthorizeRequestPP;
+
+/**
+ * The server side of a query cursor opened by a client. If the query selects from a single
+ * partitioned region that has a data store in this server, and has no DISTINCT, ORDER BY, GROUP BY
+ * or aggregates, so that the results of the whole query are the results of the query on each
+ * bucket put together, the query is evaluated a bucket at a time as pages are fetched and the cursor
+ * holds the results of at most one bucket. The results of any other query are computed when the
+ * cursor is opened and handed out a page at a time.
+ * <p>
+ * The buckets a cursor evaluates are the buckets of the region when it is opened.
+ *
+ * @see AcceptorImpl#addQueryCursor(ServerQueryCursor)
+ */
+public class ServerQueryCursor {
+
+  /**
+   * The number of milliseconds after which a cursor that has not been read is closed.
+   */
+  public static final long IDLE_TIMEOUT =
+      Long.getLong(DistributionConfig.GEMFIRE_PREFIX + "QueryCursor.IDLE_TIMEOUT", 5 * 60 * 1000);
+
+  /**
+   * The most cursors a client can have open on a server at once.
+   */
+  public static final int MAX_PER_CLIENT =
+      Integer.getInteger(DistributionConfig.GEMFIRE_PREFIX + "QueryCursor.MAX_PER_CLIENT", 100);
+
+  private final DefaultQuery query;
+
+  private final Object[] parameters;
+
+  private final Set regionNames;
+
+  private final QueryOperationContext queryContext;
+
+  private final AuthorizeRequestPP postAuthzRequest;
+
+  private final ClientProxyMembershipID clientId;
+
+  private final int pageSize;
+
+  /**
+   * The buckets whose results have not been read yet, or null if the results of the whole query
+   * were computed when the cursor was opened.
+   */
+  private final Iterator<Integer> buckets;
+
+  /**
+   * The number of results that can still be returned because of the limit of the query, or -1 if
+   * it has none.
+   */
+  private int remaining;
+
+  private Iterator results = Collections.emptyIterator();
+
+  private CollectionType collectionType;
+
+  private volatile long lastAccessTime = System.currentTimeMillis();
+
+  public ServerQueryCursor(DefaultQuery query, Object[] parameters, Set regionNames,
+      QueryOperationContext queryContext, AuthorizeRequestPP postAuthzRequest,
+      ClientProxyMembershipID clientId, int pageSize, Cache cache) throws QueryException {
+    this.query = query;
+    this.parameters = parameters;
+    this.regionNames = regionNames;
+    this.queryContext = queryContext;
+    this.postAuthzRequest = postAuthzRequest;
+    this.clientId = clientId;
+    this.pageSize = pageSize;
+    this.remaining = query.getLimit(parameters);
+    PartitionedRegion region = getBucketedRegion(cache);
+    if (region != null) {
+      this.buckets = new ArrayList<Integer>(region.getRegionAdvisor().getBucketSet()).iterator();
+    } else {
+      this.buckets = null;
+      evaluate(null);
+    }
+  }
+
+  private PartitionedRegion getBucketedRegion(Cache cache) {
+    CompiledSelect select = this.query.getSimpleSelect();
+    if (select == null || select.isDistinct() || select.isOrderBy() || select.isGroupBy()
+        || select.isCount() || this.regionNames.size() != 1) {
+      return null;
+    }
+    Region region = cache.getRegion((String) this.regionNames.iterator().next());
+    if (region instanceof PartitionedRegion
+        && ((PartitionedRegion) region).getDataStore() != null) {
+      return (PartitionedRegion) region;
+    }
+    return null;
+  }
+
+  /**
+   * Evaluates the query on the given buckets, or on all of its data if buckets is null.
+   */
+  private void evaluate(Set<Integer> buckets) throws QueryException {
+    Object result = this.query.executeOnBuckets(this.parameters, buckets);
+    if (this.postAuthzRequest != null) {
+      result = this.postAuthzRequest.queryAuthorize(this.query.getQueryString(), this.regionNames,
+          result, this.queryContext, this.parameters).getQueryResult();
+    }
+    if (result instanceof SelectResults) {
+      SelectResults selectResults = (SelectResults) result;
+      if (this.collectionType == null) {
+        this.collectionType = new CollectionTypeImpl(List.class,
+            selectResults.getCollectionType().getElementType());
+      }
+      this.results = selectResults.iterator();
+    } else if (result instanceof Integer) {
+      this.results = Collections.singleton(result).iterator();
+    } else {
+      throw new QueryInvalidException(LocalizedStrings.BaseCommand_UNKNOWN_RESULT_TYPE_0
+          .toLocalizedString(result.getClass()));
+    }
+  }
+
+  /**
+   * Returns the next page of results, evaluating the query on as many buckets as it takes to fill
+   * it. The page is shorter than the page size only if it is the last one.
+   */
+  public synchronized List nextPage() throws QueryException {
+    this.lastAccessTime = System.currentTimeMillis();
+    List page = new ArrayList(Math.min(this.pageSize, 1024));
+    while (page.size() < this.pageSize && this.remaining != 0) {
+      if (this.results.hasNext()) {
+        page.add(this.results.next());
+        if (this.remaining > 0) {
+          this.remaining--;
+        }
+      } else if (this.buckets != null && this.buckets.hasNext()) {
+        evaluate(Collections.singleton(this.buckets.next()));
+      } else {
+        break;
+      }
+    }
+    if (isExhausted()) {
+      // let go of the results of the last bucket
+      this.results = Collections.emptyIterator();
+    }
+    return page;
+  }
+
+  /**
+   * Returns true once all the results have been returned by {@link #nextPage()}.
+   */
+  public synchronized boolean isExhausted() {
+    return this.remaining == 0
+        || !this.results.hasNext() && (this.buckets == null || !this.buckets.hasNext());
+  }
+
+  /**
+   * Returns the collection type sent to the client with each page.
+   */
+  public synchronized CollectionType getCollectionType() {
+    return this.collectionType != null ? this.collectionType
+        : new CollectionTypeImpl(List.class, TypeUtils.OBJECT_TYPE);
+  }
+
+  public ClientProxyMembershipID getClientId() {
+    return this.clientId;
+  }
+
+  /**
+   * Returns true if the cursor has not been read for {@link #IDLE_TIMEOUT} milliseconds.
+   */
+  boolean isIdle(long now) {
+    return now - this.lastAccessTime > IDLE_TIMEOUT;
+  }
+}
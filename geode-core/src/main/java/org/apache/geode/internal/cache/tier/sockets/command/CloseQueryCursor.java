@@ -0,0 +1,50 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.geode.internal.cache.tier.sockets.command;
+
+import java.io.IOException;
+
+import org.apache.geode.internal.cache.tier.Command;
+import org.apache.geode.internal.cache.tier.sockets.BaseCommand;
+import org.apache.geode.internal.cache.tier.sockets.Message;
+import org.apache.geode.internal.cache.tier.sockets.ServerConnection;
+
+/**
+ * Closes a query cursor before its last page was read. Closing a cursor that is unknown, because it
+ * was closed or has expired, is not an error.
+ */
+public class CloseQueryCursor extends BaseCommand {
+
+  private final static CloseQueryCursor singleton = new CloseQueryCursor();
+
+  public static Command getCommand() {
+    return singleton;
+  }
+
+  private CloseQueryCursor() {}
+
+  @Override
+  public void cmdExecute(Message msg, ServerConnection servConn, long start)
+      throws IOException, InterruptedException {
+    servConn.setAsTrue(REQUIRES_RESPONSE);
+    long cursorId = msg.getPart(0).getLong();
+    servConn.getAcceptor().removeQueryCursor(cursorId, servConn.getProxyID());
+    if (logger.isDebugEnabled()) {
+      logger.debug("{}: Closed query cursor {}", servConn.getName(), cursorId);
+    }
+    writeReply(msg, servConn);
+    servConn.setAsTrue(RESPONDED);
+  }
+}
@@ -0,0 +1,97 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.geode.internal.cache.tier.sockets.command;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.apache.geode.cache.query.QueryException;
+import org.apache.geode.distributed.DistributedSystemDisconnectedException;
+import org.apache.geode.distributed.internal.DistributionStats;
+import org.apache.geode.internal.cache.tier.Command;
+import org.apache.geode.internal.cache.tier.MessageType;
+import org.apache.geode.internal.cache.tier.sockets.AcceptorImpl;
+import org.apache.geode.internal.cache.tier.sockets.BaseCommandQuery;
+import org.apache.geode.internal.cache.tier.sockets.CacheServerStats;
+import org.apache.geode.internal.cache.tier.sockets.Message;
+import org.apache.geode.internal.cache.tier.sockets.ServerConnection;
+import org.apache.geode.internal.cache.tier.sockets.ServerQueryCursor;
+
+/**
+ * Sends the next page of results of a query cursor, closing the cursor once its last page is sent
+ * or its query fails.
+ */
+public class FetchQueryCursor extends BaseCommandQuery {
+
+  private final static FetchQueryCursor singleton = new FetchQueryCursor();
+
+  public static Command getCommand() {
+    return singleton;
+  }
+
+  private FetchQueryCursor() {}
+
+  @Override
+  public void cmdExecute(Message msg, ServerConnection servConn, long start)
+      throws IOException, InterruptedException {
+    servConn.setAsTrue(REQUIRES_RESPONSE);
+    CacheServerStats stats = servConn.getCacheServerStats();
+    AcceptorImpl acceptor = servConn.getAcceptor();
+    long cursorId = msg.getPart(0).getLong();
+    try {
+      ServerQueryCursor cursor = acceptor.getQueryCursor(cursorId, servConn.getProxyID());
+      if (cursor == null) {
+        throw new QueryException("The query cursor " + cursorId + " is closed or has expired");
+      }
+
+      long oldStart = start;
+      start = DistributionStats.getStatTime();
+      stats.incReadQueryRequestTime(start - oldStart);
+
+      List page;
+      try {
+        page = cursor.nextPage();
+      } catch (Exception e) {
+        acceptor.removeQueryCursor(cursorId, servConn.getProxyID());
+        throw e;
+      }
+      if (cursor.isExhausted()) {
+        acceptor.removeQueryCursor(cursorId, servConn.getProxyID());
+        cursorId = 0;
+      }
+
+      oldStart = start;
+      start = DistributionStats.getStatTime();
+      stats.incProcessQueryTime(start - oldStart);
+
+      writeQueryCursorPage(msg, cursorId, page, cursor, servConn);
+      stats.incWriteQueryResponseTime(DistributionStats.getStatTime() - start);
+    } catch (DistributedSystemDisconnectedException se) {
+      if (logger.isDebugEnabled()) {
+        logger.debug(
+            "{}: ignoring message of type {} from client {} because shutdown occurred during message processing.",
+            servConn.getName(), MessageType.getString(msg.getMessageType()), servConn.getProxyID());
+      }
+      servConn.setFlagProcessMessagesAsFalse();
+      servConn.setClientDisconnectedException(se);
+    } catch (Exception e) {
+      // If an interrupted exception is thrown , rethrow it
+      checkForInterrupt(servConn, e);
+      writeQueryCursorException(msg, e, null, null, servConn);
+    } finally {
+      servConn.setAsTrue(RESPONDED);
+    }
+  }
+}
@@ -0,0 +1,126 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.geode.internal.cache.tier.sockets.command;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.geode.cache.operations.QueryOperationContext;
+import org.apache.geode.cache.query.QueryService;
+import org.apache.geode.cache.query.internal.DefaultQuery;
+import org.apache.geode.distributed.DistributedSystemDisconnectedException;
+import org.apache.geode.distributed.internal.DistributionStats;
+import org.apache.geode.internal.cache.GemFireCacheImpl;
+import org.apache.geode.internal.cache.tier.Command;
+import org.apache.geode.internal.cache.tier.MessageType;
+import org.apache.geode.internal.cache.tier.sockets.BaseCommandQuery;
+import org.apache.geode.internal.cache.tier.sockets.CacheServerStats;
+import org.apache.geode.internal.cache.tier.sockets.Message;
+import org.apache.geode.internal.cache.tier.sockets.ServerConnection;
+import org.apache.geode.internal.cache.tier.sockets.ServerQueryCursor;
+import org.apache.geode.internal.security.AuthorizeRequest;
+
+/**
+ * Opens a cursor over the results of a query and sends its first page. The cursor is registered
+ * with the acceptor only if it has more pages.
+ */
+public class OpenQueryCursor extends BaseCommandQuery {
+
+  private final static OpenQueryCursor singleton = new OpenQueryCursor();
+
+  public static Command getCommand() {
+    return singleton;
+  }
+
+  private OpenQueryCursor() {}
+
+  @Override
+  public void cmdExecute(Message msg, ServerConnection servConn, long start)
+      throws IOException, InterruptedException {
+    servConn.setAsTrue(REQUIRES_RESPONSE);
+    CacheServerStats stats = servConn.getCacheServerStats();
+    String queryString = null;
+    DefaultQuery query = null;
+    try {
+      // Retrieve the data from the message parts
+      queryString = msg.getPart(0).getString();
+      int pageSize = msg.getPart(1).getInt();
+      Object[] queryParams = new Object[msg.getPart(2).getInt()];
+      for (int i = 0; i < queryParams.length; i++) {
+        queryParams[i] = msg.getPart(i + 3).getObject();
+      }
+      if (logger.isDebugEnabled()) {
+        logger.debug("{}: Received query cursor request from {} queryString: {} page size: {}",
+            servConn.getName(), servConn.getSocketString(), queryString, pageSize);
+      }
+
+      QueryService queryService =
+          ((GemFireCacheImpl) servConn.getCachedRegionHelper().getCache()).getLocalQueryService();
+      query = (DefaultQuery) queryService.newQuery(queryString);
+      Set regionNames = query.getRegionsInQuery(queryParams);
+
+      // Authorization check
+      QueryOperationContext queryContext = null;
+      AuthorizeRequest authzRequest = servConn.getAuthzRequest();
+      if (authzRequest != null) {
+        queryContext = authzRequest.queryAuthorize(queryString, regionNames, queryParams);
+        String newQueryString = queryContext.getQuery();
+        if (!queryString.equals(newQueryString)) {
+          query = (DefaultQuery) queryService.newQuery(newQueryString);
+          queryString = newQueryString;
+          regionNames = queryContext.getRegionNames();
+          if (regionNames == null) {
+            regionNames = query.getRegionsInQuery(null);
+          }
+        }
+      }
+      for (Object regionName : regionNames) {
+        this.securityService.authorizeRegionRead(regionName.toString());
+      }
+
+      long oldStart = start;
+      start = DistributionStats.getStatTime();
+      stats.incReadQueryRequestTime(start - oldStart);
+
+      ServerQueryCursor cursor = new ServerQueryCursor(query, queryParams, regionNames,
+          queryContext, servConn.getPostAuthzRequest(), servConn.getProxyID(), pageSize,
+          servConn.getCache());
+      List page = cursor.nextPage();
+      long cursorId = cursor.isExhausted() ? 0 : servConn.getAcceptor().addQueryCursor(cursor);
+
+      oldStart = start;
+      start = DistributionStats.getStatTime();
+      stats.incProcessQueryTime(start - oldStart);
+
+      writeQueryCursorPage(msg, cursorId, page, cursor, servConn);
+      stats.incWriteQueryResponseTime(DistributionStats.getStatTime() - start);
+    } catch (DistributedSystemDisconnectedException se) {
+      if (logger.isDebugEnabled()) {
+        logger.debug(
+            "{}: ignoring message of type {} from client {} because shutdown occurred during message processing.",
+            servConn.getName(), MessageType.getString(msg.getMessageType()), servConn.getProxyID());
+      }
+      servConn.setFlagProcessMessagesAsFalse();
+      servConn.setClientDisconnectedException(se);
+    } catch (Exception e) {
+      // If an interrupted exception is thrown , rethrow it
+      checkForInterrupt(servConn, e);
+      writeQueryCursorException(msg, e, queryString, query, servConn);
+    } finally {
+      servConn.setAsTrue(RESPONDED);
+    }
+  }
+}
@@ -0,0 +1,251 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.geode.internal.offheap;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.geode.distributed.internal.DistributionConfig;
+
+/**
+ * Allows threads to read off-heap memory without changing its reference count.
+ * <p>
+ * A reader calls {@link #enter()} before it reads the address of an off-heap object and
+ * {@link #exit()} once it is done with the object's bytes. While it is between the two it records
+ * the epoch it entered in. Memory whose reference count drops to zero is accounted as free but is
+ * not put on a free list right away; it is collected into a batch that is tagged with the current
+ * epoch when it fills up, and the epoch is then advanced. A batch is only put on the free lists once
+ * no reader is still in its epoch or an older one, so a reader can never see the memory reused
+ * under it.
+ * <p>
+ * Readers only write their own epoch so reads no longer contend on the reference count of hot
+ * objects, and the free lists are updated once per batch instead of once per release.
+ */
+public class EpochReclaimer {
+
+  /**
+   * Number of released objects to collect before they are handed back to the FreeListManager.
+   */
+  static final int BATCH_SIZE =
+      Integer.getInteger(DistributionConfig.GEMFIRE_PREFIX + "OFF_HEAP_RELEASE_BATCH_SIZE", 64);
+
+  private final FreeListManager freeListManager;
+
+  private final AtomicLong epoch = new AtomicLong(1L);
+
+  private final CopyOnWriteArrayList<Reader> readers = new CopyOnWriteArrayList<Reader>();
+
+  private final ThreadLocal<Reader> threadReader = new ThreadLocal<Reader>() {
+    @Override
+    protected Reader initialValue() {
+      Reader reader = new Reader(Thread.currentThread());
+      readers.add(reader);
+      return reader;
+    }
+  };
+
+  /**
+   * Released addresses that have not been assigned an epoch yet. Guarded by this.
+   */
+  private long[] pending;
+  private int pendingCount;
+
+  /**
+   * Batches waiting for their readers to exit, oldest first. Guarded by this.
+   */
+  private final ArrayDeque<RetiredBatch> retired = new ArrayDeque<RetiredBatch>();
+
+  EpochReclaimer(FreeListManager freeListManager) {
+    this(freeListManager, BATCH_SIZE);
+  }
+
+  EpochReclaimer(FreeListManager freeListManager, int batchSize) {
+    if (batchSize < 1) {
+      throw new IllegalStateException(
+          DistributionConfig.GEMFIRE_PREFIX + "OFF_HEAP_RELEASE_BATCH_SIZE must be >= 1.");
+    }
+    this.freeListManager = freeListManager;
+    this.pending = new long[batchSize];
+  }
+
+  /**
+   * Marks the calling thread as reading off-heap memory. Calls may be nested but every call must be
+   * followed by a call of {@link #exit()} in a finally block.
+   */
+  public void enter() {
+    Reader reader = this.threadReader.get();
+    if (reader.depth++ == 0) {
+      reader.epoch = this.epoch.get();
+    }
+  }
+
+  /**
+   * Marks the calling thread as no longer reading the off-heap memory it found after the matching
+   * {@link #enter()}.
+   */
+  public void exit() {
+    Reader reader = this.threadReader.get();
+    if (--reader.depth == 0) {
+      reader.epoch = 0L;
+    }
+  }
+
+  /**
+   * Called instead of freeing the memory at addr once its reference count has dropped to zero.
+   */
+  void retire(long addr) {
+    List<RetiredBatch> reclaimable;
+    synchronized (this) {
+      this.pending[this.pendingCount++] = addr;
+      if (this.pendingCount < this.pending.length) {
+        return;
+      }
+      sealPendingBatch();
+      reclaimable = pollReclaimableBatches();
+    }
+    free(reclaimable);
+  }
+
+  /**
+   * Hands back to the FreeListManager all released memory that no reader can still see, including
+   * the memory of a batch that is not full yet.
+   */
+  void flush() {
+    List<RetiredBatch> reclaimable;
+    synchronized (this) {
+      if (this.pendingCount > 0) {
+        sealPendingBatch();
+      }
+      reclaimable = pollReclaimableBatches();
+    }
+    free(reclaimable);
+  }
+
+  /**
+   * Like {@link #flush()} but also waits for the readers that can still see memory released before
+   * this call to exit, and then frees that memory too. Readers only stay in an epoch while they copy
+   * a value so this does not wait long. Does not wait if the calling thread is itself reading.
+   */
+  void flushAndWaitForReaders() {
+    final long lastEpoch;
+    synchronized (this) {
+      if (this.pendingCount > 0) {
+        sealPendingBatch();
+      }
+      lastEpoch = this.epoch.get() - 1;
+    }
+    boolean reading = this.threadReader.get().depth != 0;
+    while (true) {
+      List<RetiredBatch> reclaimable;
+      synchronized (this) {
+        reclaimable = pollReclaimableBatches();
+        if (reclaimable == null && (reading || this.retired.isEmpty()
+            || this.retired.peekFirst().epoch > lastEpoch)) {
+          return;
+        }
+      }
+      free(reclaimable);
+      if (reclaimable == null) {
+        Thread.yield();
+      }
+    }
+  }
+
+  private void sealPendingBatch() {
+    this.retired.add(new RetiredBatch(this.epoch.getAndIncrement(), this.pending,
+        this.pendingCount));
+    this.pending = new long[this.pending.length];
+    this.pendingCount = 0;
+  }
+
+  private List<RetiredBatch> pollReclaimableBatches() {
+    long oldestReader = getOldestReaderEpoch();
+    List<RetiredBatch> result = null;
+    while (!this.retired.isEmpty() && this.retired.peekFirst().epoch < oldestReader) {
+      if (result == null) {
+        result = new ArrayList<RetiredBatch>();
+      }
+      result.add(this.retired.pollFirst());
+    }
+    return result;
+  }
+
+  /**
+   * Returns the oldest epoch a reader is in, or Long.MAX_VALUE if no thread is reading.
+   */
+  private long getOldestReaderEpoch() {
+    long result = Long.MAX_VALUE;
+    for (Reader reader : this.readers) {
+      long readerEpoch = reader.epoch;
+      if (readerEpoch != 0L) {
+        if (readerEpoch < result) {
+          result = readerEpoch;
+        }
+      } else if (reader.thread.get() == null) {
+        // the thread is gone so stop tracking it
+        this.readers.remove(reader);
+      }
+    }
+    return result;
+  }
+
+  private void free(List<RetiredBatch> batches) {
+    if (batches == null) {
+      return;
+    }
+    for (RetiredBatch batch : batches) {
+      for (int i = 0; i < batch.count; i++) {
+        this.freeListManager.freeNow(batch.addresses[i], false);
+      }
+    }
+  }
+
+  /**
+   * Returns the number of released objects that have not been put on a free list yet.
+   */
+  synchronized int getRetiredCount() {
+    int result = this.pendingCount;
+    for (RetiredBatch batch : this.retired) {
+      result += batch.count;
+    }
+    return result;
+  }
+
+  private static class Reader {
+    private final WeakReference<Thread> thread;
+    private volatile long epoch;
+    private int depth;
+
+    Reader(Thread thread) {
+      this.thread = new WeakReference<Thread>(thread);
+    }
+  }
+
+  private static class RetiredBatch {
+    private final long epoch;
+    private final long[] addresses;
+    private final int count;
+
+    RetiredBatch(long epoch, long[] addresses, int count) {
+      this.epoch = epoch;
+      this.addresses = addresses;
+      this.count = count;
+    }
+  }
+}
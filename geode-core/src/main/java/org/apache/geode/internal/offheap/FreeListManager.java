@@ -132,7 +132,19 @@ public class FreeListManager {
    */
   private final AtomicInteger lastFragmentAllocation = new AtomicInteger(0);
   private final CopyOnWriteArrayList<Fragment> fragmentList;
-  private final MemoryAllocatorImpl ma;
+  final MemoryAllocatorImpl ma;
+  /**
+   * Null unless off-heap values may be read without retaining them. See
+   * {@link #EPOCH_READS_PROPERTY}.
+   */
+  private final EpochReclaimer epochReclaimer;
+
+  /**
+   * Set this to "true" to let reads copy off-heap values to the heap without changing their
+   * reference count. Released memory is then freed in batches by an {@link EpochReclaimer}.
+   */
+  public static final String EPOCH_READS_PROPERTY =
+      DistributionConfig.GEMFIRE_PREFIX + "OFF_HEAP_EPOCH_READS";
 
   public FreeListManager(MemoryAllocatorImpl ma, final Slab[] slabs) {
     this.ma = ma;
@@ -145,6 +157,8 @@ public class FreeListManager {
     }
     this.fragmentList = new CopyOnWriteArrayList<Fragment>(tmp);
     this.totalSlabSize = total;
+    this.epochReclaimer =
+        Boolean.getBoolean(EPOCH_READS_PROPERTY) ? new EpochReclaimer(this) : null;
 
     fillFragments();
   }
@@ -211,7 +225,7 @@ public class FreeListManager {
     }
   }
 
-  private OffHeapStoredObject allocateFromFragments(int chunkSize) {
+  OffHeapStoredObject allocateFromFragments(int chunkSize) {
     do {
       final int lastAllocationId = this.lastFragmentAllocation.get();
       for (int i = lastAllocationId; i < this.fragmentList.size(); i++) {
@@ -260,7 +274,7 @@ public class FreeListManager {
     }
   }
 
-  private void logTinyState(Logger lw) {
+  void logTinyState(Logger lw) {
     for (int i = 0; i < this.tinyFreeLists.length(); i++) {
       OffHeapStoredObjectAddressStack cl = this.tinyFreeLists.get(i);
       if (cl != null) {
@@ -356,6 +370,10 @@ public class FreeListManager {
    * returns false;
    */
   boolean defragment(int chunkSize) {
+    if (this.epochReclaimer != null) {
+      // give back the released memory that readers still held so that it gets defragmented
+      this.epochReclaimer.flushAndWaitForReaders();
+    }
     final long startDefragmentationTime = this.ma.getStats().startDefragmentation();
     final int countPreSync = this.defragmentationCount.get();
     afterDefragmentationCountFetched();
@@ -615,7 +633,7 @@ public class FreeListManager {
     }
   }
 
-  private void collectFreeTinyChunks(List<LongStack> l) {
+  void collectFreeTinyChunks(List<LongStack> l) {
     for (int i = 0; i < this.tinyFreeLists.length(); i++) {
       OffHeapStoredObjectAddressStack cl = this.tinyFreeLists.get(i);
       if (cl != null) {
@@ -691,7 +709,7 @@ public class FreeListManager {
     return (int) ((((long) value + (multiple - 1)) / multiple) * multiple);
   }
 
-  private OffHeapStoredObject allocateTiny(int size, boolean useFragments) {
+  OffHeapStoredObject allocateTiny(int size, boolean useFragments) {
     return basicAllocate(getNearestTinyMultiple(size), TINY_MULTIPLE, 0, this.tinyFreeLists,
         useFragments);
   }
@@ -739,7 +757,7 @@ public class FreeListManager {
     }
   }
 
-  private void checkDataIntegrity(OffHeapStoredObject data) {
+  void checkDataIntegrity(OffHeapStoredObject data) {
     if (this.validateMemoryWithFill) {
       data.validateFill();
     }
@@ -763,24 +781,46 @@ public class FreeListManager {
     }
   }
 
-  @SuppressWarnings("synthetic-access")
   public void free(long addr) {
+    if (this.epochReclaimer != null) {
+      // The memory is accounted as free now but only goes on a free list once no reader can see it.
+      updateStatsForFree(OffHeapStoredObject.getSize(addr));
+      this.epochReclaimer.retire(addr);
+    } else {
+      freeNow(addr, true);
+    }
+  }
+
+  /**
+   * Returns the EpochReclaimer readers must use to read off-heap memory without retaining it, or
+   * null if every read must retain.
+   */
+  EpochReclaimer getEpochReclaimer() {
+    return this.epochReclaimer;
+  }
+
+  @SuppressWarnings("synthetic-access")
+  void freeNow(long addr, boolean updateStats) {
     if (this.validateMemoryWithFill) {
       OffHeapStoredObject.fill(addr);
     }
 
-    free(addr, true);
+    free(addr, updateStats);
+  }
+
+  private void updateStatsForFree(int cSize) {
+    OffHeapMemoryStats stats = this.ma.getStats();
+    stats.incObjects(-1);
+    this.allocatedSize.addAndGet(-cSize);
+    stats.incUsedMemory(-cSize);
+    stats.incFreeMemory(cSize);
+    this.ma.notifyListeners();
   }
 
   private void free(long addr, boolean updateStats) {
     int cSize = OffHeapStoredObject.getSize(addr);
     if (updateStats) {
-      OffHeapMemoryStats stats = this.ma.getStats();
-      stats.incObjects(-1);
-      this.allocatedSize.addAndGet(-cSize);
-      stats.incUsedMemory(-cSize);
-      stats.incFreeMemory(cSize);
-      this.ma.notifyListeners();
+      updateStatsForFree(cSize);
     }
     if (cSize <= MAX_TINY) {
       freeTiny(addr, cSize);
@@ -789,11 +829,27 @@ public class FreeListManager {
     }
   }
 
-  private void freeTiny(long addr, int cSize) {
+  /**
+   * Called with the data size delta the header of the chunk at the given address had when its last
+   * reference is released, just before the chunk is freed.
+   */
+  void released(long addr, int dataSizeDelta) {
+    // nothing to track by default
+  }
+
+  /**
+   * Adds any statistics this manager keeps besides the ones it updates as it goes. Called again
+   * with the new stats when the memory allocator is reused.
+   */
+  void addStats(OffHeapMemoryStats stats) {
+    // no additional stats by default
+  }
+
+  void freeTiny(long addr, int cSize) {
     basicFree(addr, getNearestTinyMultiple(cSize), this.tinyFreeLists);
   }
 
-  private void basicFree(long addr, int idx,
+  void basicFree(long addr, int idx,
       AtomicReferenceArray<OffHeapStoredObjectAddressStack> freeLists) {
     OffHeapStoredObjectAddressStack clq = freeLists.get(idx);
     if (clq != null) {
@@ -853,7 +909,7 @@ public class FreeListManager {
     }
   }
 
-  private List<MemoryBlock> getTinyFreeBlocks() {
+  List<MemoryBlock> getTinyFreeBlocks() {
     final List<MemoryBlock> value = new ArrayList<MemoryBlock>();
     final MemoryAllocatorImpl sma = this.ma;
     for (int i = 0; i < this.tinyFreeLists.length(); i++) {
@@ -190,6 +190,7 @@ public class MemoryAllocatorImpl implements MemoryAllocator {
     this.ooohml = oooml;
     newStats.initialize(this.stats);
     this.stats = newStats;
+    this.freeList.addStats(newStats);
   }
 
   private MemoryAllocatorImpl(final OutOfOffHeapMemoryListener oooml,
@@ -204,7 +205,8 @@ public class MemoryAllocatorImpl implements MemoryAllocator {
     this.stats.setFragments(slabs.length);
     this.stats.setLargestFragment(slabs[0].getSize());
 
-    this.freeList = new FreeListManager(this, slabs);
+    this.freeList = OffHeapStorage.createFreeListManager(this, slabs);
+    this.freeList.addStats(this.stats);
     this.memoryInspector = new MemoryInspectorImpl(this.freeList);
 
     this.stats.incMaxMemory(this.freeList.getTotalMemory());
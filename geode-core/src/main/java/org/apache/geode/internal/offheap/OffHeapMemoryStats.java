@@ -14,6 +14,9 @@
  */
 package org.apache.geode.internal.offheap;
 
+import java.util.function.IntSupplier;
+import java.util.function.LongSupplier;
+
 import org.apache.geode.Statistics;
 
 /**
@@ -70,4 +73,13 @@ public interface OffHeapMemoryStats {
   public void close();
 
   public void initialize(OffHeapMemoryStats stats);
+
+  /**
+   * Adds statistics for one size class of a {@link SizeClassFreeListManager}. Their values are read
+   * from the given suppliers whenever the statistics are sampled.
+   * 
+   * @param sizeClassSize the chunk size, header included, of the size class
+   */
+  public void addSizeClassStats(int sizeClassSize, LongSupplier liveChunks,
+      LongSupplier freeMemory, IntSupplier fragmentation);
 }
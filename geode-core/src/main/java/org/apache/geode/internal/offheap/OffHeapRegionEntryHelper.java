@@ -362,6 +362,72 @@ public class OffHeapRegionEntryHelper {
     return addr >= addrToObj.length;
   }
 
+  /**
+   * Returns a heap copy of the off-heap value of re without retaining it, like
+   * {@link OffHeapHelper#copyAndReleaseIfNeeded(Object)} would return after a retain. Returns null
+   * if the caller must use {@link #_getValueRetain} instead: when reads must retain, or the value of
+   * re is not stored in an off-heap chunk, is compressed or was released concurrently.
+   */
+  public static Object getValueCopyWithoutRetain(@Unretained OffHeapRegionEntry re) {
+    final EpochReclaimer epochReclaimer =
+        MemoryAllocatorImpl.getAllocator().getFreeListManager().getEpochReclaimer();
+    if (epochReclaimer == null) {
+      return null;
+    }
+    epochReclaimer.enter();
+    try {
+      long addr = re.getAddress();
+      if (!isOffHeap(addr)) {
+        return null;
+      }
+      return OffHeapStoredObject.copyWithoutRetain(addr);
+    } finally {
+      epochReclaimer.exit();
+    }
+  }
+
+  /**
+   * Retains the value of re and returns its off-heap address if it is a serialized, uncompressed
+   * value stored in an off-heap chunk. Returns 0 otherwise, or if the value kept changing while
+   * retaining it. The caller must release a non-zero result with
+   * {@link OffHeapStoredObject#release(long)}.
+   */
+  @Retained
+  public static long retainSerializedValueAddress(@Unretained OffHeapRegionEntry re) {
+    long addr = re.getAddress();
+    for (int retryCount = 0; isOffHeap(addr) && retryCount < 100; retryCount++) {
+      if (OffHeapStoredObject.retain(addr)) {
+        long addr2 = re.getAddress();
+        if (addr == addr2) {
+          if (OffHeapStoredObject.isSerializedAndUncompressed(addr)) {
+            return addr;
+          }
+          OffHeapStoredObject.release(addr);
+          return 0L;
+        }
+        OffHeapStoredObject.release(addr);
+        addr = addr2;
+      } else {
+        addr = re.getAddress();
+      }
+    }
+    return 0L;
+  }
+
+  /**
+   * Returns the address of the first data byte of the off-heap chunk at memAddr.
+   */
+  public static long getDataAddress(long memAddr) {
+    return memAddr + OffHeapStoredObject.HEADER_SIZE;
+  }
+
+  /**
+   * Returns the number of data bytes in the off-heap chunk at memAddr.
+   */
+  public static int getDataSize(long memAddr) {
+    return OffHeapStoredObject.getDataSize(memAddr);
+  }
+
   /**
    * If the value stored at the location held in 're' is returned, then it will be Retained. If the
    * value returned is 're' decompressed into another off-heap location, then 're' will be
@@ -26,6 +26,10 @@ import org.apache.geode.internal.statistics.StatisticsTypeFactoryImpl;
 import org.apache.geode.internal.i18n.LocalizedStrings;
 
 import java.lang.reflect.Method;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.IntSupplier;
+import java.util.function.LongSupplier;
 
 /**
  * Enables off-heap storage by creating a MemoryAllocator.
@@ -36,6 +40,13 @@ public class OffHeapStorage implements OffHeapMemoryStats {
   public static final String STAY_CONNECTED_ON_OUTOFOFFHEAPMEMORY_PROPERTY =
       DistributionConfig.GEMFIRE_PREFIX + "offheap.stayConnectedOnOutOfOffHeapMemory";
 
+  /**
+   * Set this to "true" to manage off-heap memory with a {@link SizeClassFreeListManager} instead of
+   * a {@link FreeListManager}.
+   */
+  public static final String SIZE_CLASS_ALLOCATOR_PROPERTY =
+      DistributionConfig.GEMFIRE_PREFIX + "offheap.sizeClassAllocator";
+
   // statistics type
   private static final StatisticsType statsType;
   private static final String statsTypeName = "OffHeapMemoryStats";
@@ -58,6 +69,16 @@ public class OffHeapStorage implements OffHeapMemoryStats {
   private static final int defragmentationsInProgressId;
   // NOTE!!!! When adding new stats make sure and update the initialize method on this class
 
+  // statistics type of each size class of a SizeClassFreeListManager
+  private static final StatisticsType sizeClassStatsType;
+  private static final String sizeClassStatsTypeName = "OffHeapSizeClassStats";
+  private static final String sizeClassStatsTypeDescription =
+      "Statistics about one size class of off-heap memory managed by size class.";
+
+  private static final int sizeClassLiveChunksId;
+  private static final int sizeClassFreeMemoryId;
+  private static final int sizeClassFragmentationId;
+
   // creates and registers the statistics type
   static {
     final StatisticsTypeFactory f = StatisticsTypeFactoryImpl.singleton();
@@ -120,6 +141,22 @@ public class OffHeapStorage implements OffHeapMemoryStats {
     objectsId = statsType.nameToId(objects);
     readsId = statsType.nameToId(reads);
     maxMemoryId = statsType.nameToId(maxMemory);
+
+    final String liveChunks = "liveChunks";
+    sizeClassStatsType = f.createType(sizeClassStatsTypeName, sizeClassStatsTypeDescription,
+        new StatisticDescriptor[] {
+            f.createLongGauge(liveChunks,
+                "The number of chunks of this size class that are currently allocated.",
+                "chunks"),
+            f.createLongGauge(freeMemory,
+                "The amount of off-heap memory, in bytes, in the free lists of this size class.",
+                "bytes"),
+            f.createIntGauge(fragmentation,
+                "The percentage of the bytes of the allocated chunks of this size class that were not requested, because requests are rounded up to the size class.",
+                "percentage"),});
+    sizeClassLiveChunksId = sizeClassStatsType.nameToId(liveChunks);
+    sizeClassFreeMemoryId = sizeClassStatsType.nameToId(freeMemory);
+    sizeClassFragmentationId = sizeClassStatsType.nameToId(fragmentation);
   }
 
   public static long parseOffHeapMemorySize(String value) {
@@ -219,6 +256,16 @@ public class OffHeapStorage implements OffHeapMemoryStats {
     return MemoryAllocatorImpl.create(ooohml, stats, slabCount, offHeapMemorySize, maxSlabSize);
   }
 
+  /**
+   * Creates the FreeListManager that will manage the given slabs for a MemoryAllocator.
+   */
+  static FreeListManager createFreeListManager(MemoryAllocatorImpl ma, Slab[] slabs) {
+    if (Boolean.getBoolean(SIZE_CLASS_ALLOCATOR_PROPERTY)) {
+      return new SizeClassFreeListManager(ma, slabs);
+    }
+    return new FreeListManager(ma, slabs);
+  }
+
   private static final long MAX_SLAB_SIZE = Integer.MAX_VALUE;
   static final long MIN_SLAB_SIZE = 1024;
 
@@ -260,8 +307,13 @@ public class OffHeapStorage implements OffHeapMemoryStats {
 
   private final Statistics stats;
 
+  private final StatisticsFactory factory;
+
+  private final List<Statistics> sizeClassStats = new CopyOnWriteArrayList<Statistics>();
+
   private OffHeapStorage(StatisticsFactory f) {
     this.stats = f.createAtomicStatistics(statsType, statsName);
+    this.factory = f;
   }
 
   public void incFreeMemory(long value) {
@@ -374,9 +426,23 @@ public class OffHeapStorage implements OffHeapMemoryStats {
     return this.stats;
   }
 
+  @Override
+  public void addSizeClassStats(int sizeClassSize, LongSupplier liveChunks,
+      LongSupplier freeMemory, IntSupplier fragmentation) {
+    Statistics s =
+        this.factory.createAtomicStatistics(sizeClassStatsType, "sizeClass-" + sizeClassSize);
+    s.setLongSupplier(sizeClassLiveChunksId, liveChunks);
+    s.setLongSupplier(sizeClassFreeMemoryId, freeMemory);
+    s.setIntSupplier(sizeClassFragmentationId, fragmentation);
+    this.sizeClassStats.add(s);
+  }
+
   @Override
   public void close() {
     this.stats.close();
+    for (Statistics s : this.sizeClassStats) {
+      s.close();
+    }
   }
 
   @Override
@@ -23,6 +23,7 @@ import org.apache.geode.internal.DSCODE;
 import org.apache.geode.internal.HeapDataOutputStream;
 import org.apache.geode.internal.InternalDataSerializer;
 import org.apache.geode.internal.cache.BytesAndBitsForCompactor;
+import org.apache.geode.internal.cache.CachedDeserializableFactory;
 import org.apache.geode.internal.cache.EntryBits;
 import org.apache.geode.internal.cache.EntryEventImpl;
 import org.apache.geode.internal.cache.RegionEntry;
@@ -479,6 +480,14 @@ public class OffHeapStoredObject extends AbstractStoredObject
         & IS_COMPRESSED_BIT) != 0;
   }
 
+  /**
+   * Returns true if the memory at memAddr holds a serialized value that is not compressed.
+   */
+  static boolean isSerializedAndUncompressed(long memAddr) {
+    int rawBits = AddressableMemoryManager.readInt(memAddr + REF_COUNT_OFFSET);
+    return (rawBits & (IS_SERIALIZED_BIT | IS_COMPRESSED_BIT)) == IS_SERIALIZED_BIT;
+  }
+
   @Override
   public boolean retain() {
     return retain(this.memoryAddress);
@@ -655,6 +664,32 @@ public class OffHeapStoredObject extends AbstractStoredObject
     return true;
   }
 
+  /**
+   * Copies the value stored at memAddr to the heap without retaining it. The caller must have
+   * entered the allocator's {@link EpochReclaimer} before it read memAddr.
+   * 
+   * @return a CachedDeserializable for a serialized value, a byte[] for a byte[] value, or null if
+   *         the memory has already been released or the value is compressed
+   */
+  static Object copyWithoutRetain(long memAddr) {
+    MemoryAllocatorImpl.validateAddress(memAddr);
+    // read the header once; release clears it when the use count drops to zero
+    int rawBits = AddressableMemoryManager.readIntVolatile(memAddr + REF_COUNT_OFFSET);
+    if ((rawBits & MAGIC_MASK) != MAGIC_NUMBER || (rawBits & REF_COUNT_MASK) == 0
+        || (rawBits & IS_COMPRESSED_BIT) != 0) {
+      return null;
+    }
+    int dataSize = getSize(memAddr) - ((rawBits & DATA_SIZE_DELTA_MASK) >> DATA_SIZE_SHIFT);
+    byte[] result = new byte[dataSize];
+    AddressableMemoryManager.readBytes(memAddr + HEADER_SIZE, result, 0, dataSize);
+    MemoryAllocatorImpl.getAllocator().getStats().incReads();
+    if ((rawBits & IS_SERIALIZED_BIT) != 0) {
+      return CachedDeserializableFactory.create(result);
+    } else {
+      return result;
+    }
+  }
+
   public static void release(final long memAddr) {
     release(memAddr, null);
   }
@@ -701,6 +736,7 @@ public class OffHeapStoredObject extends AbstractStoredObject
       if (freeListManager == null) {
         freeListManager = MemoryAllocatorImpl.getAllocator().getFreeListManager();
       }
+      freeListManager.released(memAddr, (rawBits & DATA_SIZE_DELTA_MASK) >> DATA_SIZE_SHIFT);
       freeListManager.free(memAddr);
     } else {
       if (ReferenceCountHelper.trackReferenceCounts()) {
@@ -0,0 +1,300 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.geode.internal.offheap;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.apache.logging.log4j.Logger;
+
+import org.apache.geode.distributed.internal.DistributionConfig;
+
+/**
+ * A FreeListManager that rounds tiny allocations up to a small set of size classes and keeps the
+ * freed chunks of each size class in several arenas.
+ * <p>
+ * FreeListManager keeps a free list for every multiple of TINY_MULTIPLE. When value sizes vary
+ * the freed chunks rarely match the next request so allocations keep carving the fragments until
+ * a defragmentation is needed. Size classes are spaced like jemalloc's: a multiple of
+ * TINY_MULTIPLE for small chunks and four classes per power of two after that, with the spacing
+ * capped at MAX_SIZE_CLASS_SPACING so that the unused bytes of a chunk still fit in the data size
+ * delta of the off-heap header. A freed chunk can then be reused by any request that rounds up to
+ * its class.
+ * <p>
+ * Each thread frees to and allocates from the arena picked by its thread id so that concurrent
+ * threads do not all contend on the same free list. An allocation that finds its own arena empty
+ * takes a chunk from the other arenas before falling back to the fragments.
+ */
+public class SizeClassFreeListManager extends FreeListManager {
+
+  /**
+   * The largest number of bytes between two adjacent size classes. This keeps the difference
+   * between a chunk's size and its data size small enough for the data size delta stored in the
+   * off-heap header.
+   */
+  static final int MAX_SIZE_CLASS_SPACING = 128;
+
+  /**
+   * Number of arenas to spread the size class free lists over.
+   */
+  static final int ARENA_COUNT =
+      Integer.getInteger(DistributionConfig.GEMFIRE_PREFIX + "OFF_HEAP_ARENA_COUNT",
+          Runtime.getRuntime().availableProcessors());
+
+  /**
+   * The chunk size, header included, of each size class in ascending order.
+   */
+  private static final int[] SIZE_CLASSES = createSizeClasses();
+
+  private final AtomicReferenceArray<OffHeapStoredObjectAddressStack>[] arenas;
+
+  private final AtomicLongArray liveChunks = new AtomicLongArray(SIZE_CLASSES.length);
+  private final AtomicLongArray allocatedBytes = new AtomicLongArray(SIZE_CLASSES.length);
+  private final AtomicLongArray requestedBytes = new AtomicLongArray(SIZE_CLASSES.length);
+
+  public SizeClassFreeListManager(MemoryAllocatorImpl ma, Slab[] slabs) {
+    this(ma, slabs, ARENA_COUNT);
+  }
+
+  @SuppressWarnings("unchecked")
+  SizeClassFreeListManager(MemoryAllocatorImpl ma, Slab[] slabs, int arenaCount) {
+    super(ma, slabs);
+    if (arenaCount < 1) {
+      throw new IllegalStateException(
+          DistributionConfig.GEMFIRE_PREFIX + "OFF_HEAP_ARENA_COUNT must be >= 1.");
+    }
+    this.arenas = new AtomicReferenceArray[arenaCount];
+    for (int i = 0; i < arenaCount; i++) {
+      this.arenas[i] = new AtomicReferenceArray<>(SIZE_CLASSES.length);
+    }
+  }
+
+  private static int[] createSizeClasses() {
+    int[] result = new int[64];
+    int count = 0;
+    int size = (OffHeapStoredObject.MIN_CHUNK_SIZE + TINY_MULTIPLE - 1) / TINY_MULTIPLE
+        * TINY_MULTIPLE;
+    while (size < MAX_TINY) {
+      if (count == result.length) {
+        result = Arrays.copyOf(result, count * 2);
+      }
+      result[count++] = size;
+      int spacing = TINY_MULTIPLE;
+      if (size >= 128) {
+        spacing = Math.max(TINY_MULTIPLE,
+            Math.min(Integer.highestOneBit(size) / 4, MAX_SIZE_CLASS_SPACING));
+      }
+      size += spacing;
+    }
+    result = Arrays.copyOf(result, count + 1);
+    result[count] = MAX_TINY;
+    return result;
+  }
+
+  static int getSizeClassCount() {
+    return SIZE_CLASSES.length;
+  }
+
+  /**
+   * Returns the chunk size, header included, of the given size class.
+   */
+  static int getSizeClassSize(int sizeClass) {
+    return SIZE_CLASSES[sizeClass];
+  }
+
+  /**
+   * Returns the smallest size class whose chunks can hold size bytes.
+   */
+  static int getSizeClass(int size) {
+    int idx = Arrays.binarySearch(SIZE_CLASSES, size);
+    if (idx < 0) {
+      idx = -idx - 1;
+    }
+    return idx;
+  }
+
+  /**
+   * Returns the largest size class that a chunk of chunkSize bytes can be used for.
+   */
+  static int getFloorSizeClass(int chunkSize) {
+    int idx = Arrays.binarySearch(SIZE_CLASSES, chunkSize);
+    if (idx < 0) {
+      idx = -idx - 2;
+    }
+    return idx;
+  }
+
+  private int getArenaIndex() {
+    return (int) (Thread.currentThread().getId() % this.arenas.length);
+  }
+
+  int getArenaCount() {
+    return this.arenas.length;
+  }
+
+  @Override
+  OffHeapStoredObject allocateTiny(int size, boolean useFragments) {
+    final int sizeClass = getSizeClass(size);
+    final int arenaIdx = getArenaIndex();
+    long memAddr = 0L;
+    for (int i = 0; memAddr == 0L && i < this.arenas.length; i++) {
+      OffHeapStoredObjectAddressStack clq =
+          this.arenas[(arenaIdx + i) % this.arenas.length].get(sizeClass);
+      if (clq != null) {
+        memAddr = clq.poll();
+      }
+    }
+    OffHeapStoredObject result;
+    if (memAddr != 0L) {
+      result = new OffHeapStoredObject(memAddr);
+      checkDataIntegrity(result);
+      result.readyForAllocation();
+    } else if (useFragments) {
+      result = allocateFromFragments(SIZE_CLASSES[sizeClass]);
+    } else {
+      // called by allocateFromFragment which will retry the fragment
+      return null;
+    }
+    if (useFragments) {
+      int chunkSize = result.getSize();
+      int chunkClass = getFloorSizeClass(chunkSize);
+      this.liveChunks.incrementAndGet(chunkClass);
+      this.allocatedBytes.addAndGet(chunkClass, chunkSize);
+      this.requestedBytes.addAndGet(chunkClass, size);
+    }
+    return result;
+  }
+
+  @Override
+  void freeTiny(long addr, int cSize) {
+    int sizeClass = getFloorSizeClass(cSize);
+    this.liveChunks.decrementAndGet(sizeClass);
+    basicFree(addr, sizeClass, this.arenas[getArenaIndex()]);
+  }
+
+  @Override
+  void released(long addr, int dataSizeDelta) {
+    int chunkSize = OffHeapStoredObject.getSize(addr);
+    if (chunkSize <= MAX_TINY) {
+      int sizeClass = getFloorSizeClass(chunkSize);
+      this.allocatedBytes.addAndGet(sizeClass, -chunkSize);
+      // the delta is the chunk size minus the data size, so it includes the header
+      this.requestedBytes.addAndGet(sizeClass,
+          -(chunkSize - dataSizeDelta + OffHeapStoredObject.HEADER_SIZE));
+    }
+  }
+
+  @Override
+  void addStats(OffHeapMemoryStats stats) {
+    for (int i = 0; i < SIZE_CLASSES.length; i++) {
+      final int sizeClass = i;
+      stats.addSizeClassStats(SIZE_CLASSES[i], () -> getSizeClassLiveChunks(sizeClass),
+          () -> getSizeClassFreeMemory(sizeClass), () -> getSizeClassFragmentation(sizeClass));
+    }
+  }
+
+  @Override
+  void collectFreeTinyChunks(List<LongStack> l) {
+    super.collectFreeTinyChunks(l);
+    for (AtomicReferenceArray<OffHeapStoredObjectAddressStack> arena : this.arenas) {
+      for (int i = 0; i < arena.length(); i++) {
+        OffHeapStoredObjectAddressStack cl = arena.get(i);
+        if (cl != null) {
+          long head = cl.clear();
+          if (head != 0L) {
+            l.add(new OffHeapStoredObjectAddressStack(head));
+          }
+        }
+      }
+    }
+  }
+
+  @Override
+  long getFreeTinyMemory() {
+    long tinyFree = super.getFreeTinyMemory();
+    for (int i = 0; i < SIZE_CLASSES.length; i++) {
+      tinyFree += getSizeClassFreeMemory(i);
+    }
+    return tinyFree;
+  }
+
+  @Override
+  List<MemoryBlock> getTinyFreeBlocks() {
+    final List<MemoryBlock> value = super.getTinyFreeBlocks();
+    for (AtomicReferenceArray<OffHeapStoredObjectAddressStack> arena : this.arenas) {
+      for (int i = 0; i < arena.length(); i++) {
+        OffHeapStoredObjectAddressStack cl = arena.get(i);
+        if (cl == null)
+          continue;
+        long addr = cl.getTopAddress();
+        while (addr != 0L) {
+          value.add(new MemoryBlockNode(this.ma, new TinyMemoryBlock(addr, i)));
+          addr = OffHeapStoredObject.getNext(addr);
+        }
+      }
+    }
+    return value;
+  }
+
+  @Override
+  void logTinyState(Logger lw) {
+    super.logTinyState(lw);
+    for (int i = 0; i < SIZE_CLASSES.length; i++) {
+      long live = getSizeClassLiveChunks(i);
+      long free = getSizeClassFreeMemory(i);
+      if (live != 0 || free != 0) {
+        lw.info("Size class " + i + " of size " + SIZE_CLASSES[i] + " has " + live
+            + " allocated chunks, " + free + " bytes free and " + getSizeClassFragmentation(i)
+            + "% internal fragmentation.");
+      }
+    }
+  }
+
+  /**
+   * Returns the number of chunks of the given size class that are currently allocated.
+   */
+  long getSizeClassLiveChunks(int sizeClass) {
+    return this.liveChunks.get(sizeClass);
+  }
+
+  /**
+   * Returns the number of bytes held in the free lists of the given size class in all arenas.
+   */
+  long getSizeClassFreeMemory(int sizeClass) {
+    long result = 0;
+    for (AtomicReferenceArray<OffHeapStoredObjectAddressStack> arena : this.arenas) {
+      OffHeapStoredObjectAddressStack cl = arena.get(sizeClass);
+      if (cl != null) {
+        result += cl.computeTotalSize();
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Returns the percentage of the bytes of the currently allocated chunks of the given size class
+   * that were not requested, because of rounding the request up to the size class.
+   */
+  int getSizeClassFragmentation(int sizeClass) {
+    long allocated = this.allocatedBytes.get(sizeClass);
+    if (allocated == 0) {
+      return 0;
+    }
+    long unused = allocated - this.requestedBytes.get(sizeClass);
+    return (int) Math.rint(((double) unused / (double) allocated) * 100d);
+  }
+}
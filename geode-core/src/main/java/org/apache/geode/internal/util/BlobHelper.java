@@ -15,6 +15,7 @@
 package org.apache.geode.internal.util;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 
 import org.apache.geode.DataSerializer;
 import org.apache.geode.distributed.internal.DMStats;
@@ -24,6 +25,8 @@ import org.apache.geode.internal.DSCODE;
 import org.apache.geode.internal.HeapDataOutputStream;
 import org.apache.geode.internal.Version;
 import org.apache.geode.internal.offheap.StoredObject;
+import org.apache.geode.internal.tcp.ByteBufferInputStream;
+import org.apache.geode.internal.tcp.VersionedByteBufferInputStream;
 import org.apache.geode.internal.offheap.annotations.Unretained;
 import org.apache.geode.pdx.internal.PdxInputStream;
 
@@ -119,6 +122,24 @@ public class BlobHelper {
     return result;
   }
 
+  /**
+   * A blob is a serialized Object. This method returns the deserialized object, read from the
+   * remaining bytes of a buffer that is reused once it returns. Unlike
+   * {@link #deserializeBlob(byte[], Version, ByteArrayDataInput)} a top level pdx is copied out of
+   * the buffer instead of being wrapped, the same as when a peer message is read from its receive
+   * buffer.
+   */
+  public static Object deserializeBuffer(ByteBuffer bb, Version version)
+      throws IOException, ClassNotFoundException {
+    final long start = startDeserialization();
+    final int numBytes = bb.remaining();
+    ByteBufferInputStream in = version == null ? new ByteBufferInputStream(bb)
+        : new VersionedByteBufferInputStream(bb, version);
+    Object result = DataSerializer.readObject(in);
+    endDeserialization(start, numBytes);
+    return result;
+  }
+
   /**
    * Unused
    */
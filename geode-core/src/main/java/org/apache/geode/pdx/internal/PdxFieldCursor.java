@@ -0,0 +1,295 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.geode.pdx.internal;
+
+import org.apache.geode.InternalGemFireException;
+import org.apache.geode.internal.DSCODE;
+import org.apache.geode.internal.offheap.AddressableMemoryManager;
+import org.apache.geode.pdx.FieldType;
+
+/**
+ * Reads the fixed width fields of a serialized pdx directly from its bytes, either a heap byte[]
+ * or off-heap memory, without creating a {@link PdxInstanceImpl}.
+ * <p>
+ * A cursor is reused by calling one of the reset methods for each serialized pdx and then reading
+ * fields of the {@link #getPdxType() type} it was reset to. Neither resetting nor reading
+ * allocates unless the pdx has a different type than the previous one. A cursor is not thread
+ * safe. Field positions are computed the same way {@link PdxReaderImpl} computes them.
+ */
+public final class PdxFieldCursor {
+
+  private final TypeRegistry typeRegistry;
+
+  /**
+   * The bytes the cursor is on, or null if it is on off-heap memory.
+   */
+  private byte[] bytes;
+
+  /**
+   * The offset in bytes, or the off-heap address, of the first field.
+   */
+  private long base;
+
+  /**
+   * The number of bytes of field data, including the variable length field offsets.
+   */
+  private int size;
+
+  private PdxType pdxType;
+
+  private int lastTypeId;
+  private PdxType lastType;
+
+  public PdxFieldCursor(TypeRegistry typeRegistry) {
+    this.typeRegistry = typeRegistry;
+  }
+
+  /**
+   * Positions this cursor on a serialized pdx.
+   * 
+   * @param serializedValue the serialized form of the value, starting with its DSCODE
+   * @return false if serializedValue is not a pdx or its type is not known
+   */
+  public boolean reset(byte[] serializedValue) {
+    if (serializedValue.length < PdxWriterImpl.HEADER_SIZE || serializedValue[0] != DSCODE.PDX) {
+      return clear();
+    }
+    int len = readIntFromBytes(serializedValue, 1);
+    if (len < 0 || len > serializedValue.length - PdxWriterImpl.HEADER_SIZE) {
+      return clear();
+    }
+    this.bytes = serializedValue;
+    this.base = PdxWriterImpl.HEADER_SIZE;
+    this.size = len;
+    return setType(readIntFromBytes(serializedValue, 5));
+  }
+
+  /**
+   * Positions this cursor on a serialized pdx stored off-heap. The caller must keep the memory
+   * retained while it uses this cursor.
+   * 
+   * @param address the off-heap address of the serialized form of the value, starting with its
+   *        DSCODE
+   * @param length the number of bytes in the serialized form
+   * @return false if the memory does not contain a pdx or its type is not known
+   */
+  public boolean reset(long address, int length) {
+    if (length < PdxWriterImpl.HEADER_SIZE
+        || AddressableMemoryManager.readByte(address) != DSCODE.PDX) {
+      return clear();
+    }
+    int len = readIntFromAddress(address + 1);
+    if (len < 0 || len > length - PdxWriterImpl.HEADER_SIZE) {
+      return clear();
+    }
+    this.bytes = null;
+    this.base = address + PdxWriterImpl.HEADER_SIZE;
+    this.size = len;
+    return setType(readIntFromAddress(address + 5));
+  }
+
+  private boolean setType(int typeId) {
+    if (this.lastType == null || this.lastTypeId != typeId) {
+      PdxType type = this.typeRegistry.getType(typeId);
+      if (type == null) {
+        return clear();
+      }
+      this.lastType = type;
+      this.lastTypeId = typeId;
+    }
+    this.pdxType = this.lastType;
+    return true;
+  }
+
+  private boolean clear() {
+    this.bytes = null;
+    this.pdxType = null;
+    return false;
+  }
+
+  /**
+   * Returns the type of the pdx this cursor is on, or null if the last reset failed.
+   */
+  public PdxType getPdxType() {
+    return this.pdxType;
+  }
+
+  public boolean readBoolean(PdxField ft) {
+    return readByteAt(getPositionForField(ft)) != 0;
+  }
+
+  public byte readByte(PdxField ft) {
+    return readByteAt(getPositionForField(ft));
+  }
+
+  public char readChar(PdxField ft) {
+    return (char) readShortAt(getPositionForField(ft));
+  }
+
+  public short readShort(PdxField ft) {
+    return readShortAt(getPositionForField(ft));
+  }
+
+  public int readInt(PdxField ft) {
+    return readIntAt(getPositionForField(ft));
+  }
+
+  public long readLong(PdxField ft) {
+    return readLongAt(getPositionForField(ft));
+  }
+
+  public float readFloat(PdxField ft) {
+    return Float.intBitsToFloat(readIntAt(getPositionForField(ft)));
+  }
+
+  public double readDouble(PdxField ft) {
+    return Double.longBitsToDouble(readLongAt(getPositionForField(ft)));
+  }
+
+  /**
+   * Returns true if the fields of the given type can be read with {@link #readPrimitiveBits}.
+   */
+  public static boolean isPrimitive(FieldType fieldType) {
+    return fieldType.isFixedWidth() && fieldType != FieldType.DATE;
+  }
+
+  /**
+   * Reads a field of a primitive type as a long so that the values of all primitive fields can be
+   * kept in the same form. Integral and char fields are widened, booleans are 1 or 0 and float and
+   * double fields are read as their raw bits.
+   *
+   * @see #getPrimitiveValue(FieldType, long)
+   */
+  public long readPrimitiveBits(PdxField ft) {
+    switch (ft.getFieldType()) {
+      case BOOLEAN:
+        return readBoolean(ft) ? 1L : 0L;
+      case BYTE:
+        return readByte(ft);
+      case CHAR:
+        return readChar(ft);
+      case SHORT:
+        return readShort(ft);
+      case INT:
+      case FLOAT:
+        return readIntAt(getPositionForField(ft));
+      case LONG:
+      case DOUBLE:
+        return readLongAt(getPositionForField(ft));
+      default:
+        throw new IllegalArgumentException(
+            "Field " + ft.getFieldName() + " of type " + ft.getFieldType() + " is not primitive");
+    }
+  }
+
+  /**
+   * Returns the wrapper of a value read by {@link #readPrimitiveBits}, the same object
+   * PdxInstance.getField returns for the field.
+   */
+  public static Object getPrimitiveValue(FieldType fieldType, long bits) {
+    switch (fieldType) {
+      case BOOLEAN:
+        return Boolean.valueOf(bits != 0L);
+      case BYTE:
+        return Byte.valueOf((byte) bits);
+      case CHAR:
+        return Character.valueOf((char) bits);
+      case SHORT:
+        return Short.valueOf((short) bits);
+      case INT:
+        return Integer.valueOf((int) bits);
+      case LONG:
+        return Long.valueOf(bits);
+      case FLOAT:
+        return Float.valueOf(Float.intBitsToFloat((int) bits));
+      case DOUBLE:
+        return Double.valueOf(Double.longBitsToDouble(bits));
+      default:
+        throw new IllegalArgumentException(fieldType + " is not primitive");
+    }
+  }
+
+  private int getPositionForField(PdxField ft) {
+    int idx0 = ft.getRelativeOffset();
+    int idx1 = ft.getVlfOffsetIndex();
+    if (ft.isVariableLengthType()) {
+      if (idx1 != -1) {
+        return getOffset(idx1);
+      }
+      return idx0;
+    }
+    if (idx0 >= 0) {
+      return idx0;
+    } else if (idx1 > 0) {
+      return getOffset(idx1) + idx0;
+    } else if (idx1 == -1) {
+      return this.size - this.pdxType.getVariableLengthFieldCount() * getSizeOfOffset() + idx0;
+    }
+    throw new InternalGemFireException("idx0=" + idx0 + " idx1=" + idx1);
+  }
+
+  private int getSizeOfOffset() {
+    if (this.size <= PdxReaderImpl.MAX_UNSIGNED_BYTE) {
+      return DataSize.BYTE_SIZE;
+    } else if (this.size <= PdxReaderImpl.MAX_UNSIGNED_SHORT) {
+      return DataSize.SHORT_SIZE;
+    }
+    return DataSize.INTEGER_SIZE;
+  }
+
+  private int getOffset(int idx) {
+    if (this.size <= PdxReaderImpl.MAX_UNSIGNED_BYTE) {
+      return readByteAt(this.size - idx * DataSize.BYTE_SIZE) & PdxReaderImpl.MAX_UNSIGNED_BYTE;
+    } else if (this.size <= PdxReaderImpl.MAX_UNSIGNED_SHORT) {
+      return readShortAt(this.size - idx * DataSize.SHORT_SIZE)
+          & PdxReaderImpl.MAX_UNSIGNED_SHORT;
+    }
+    return readIntAt(this.size - idx * DataSize.INTEGER_SIZE);
+  }
+
+  private byte readByteAt(int pos) {
+    if (this.bytes != null) {
+      return this.bytes[(int) this.base + pos];
+    }
+    return AddressableMemoryManager.readByte(this.base + pos);
+  }
+
+  private short readShortAt(int pos) {
+    return (short) (((readByteAt(pos) & 0xff) << 8) | (readByteAt(pos + 1) & 0xff));
+  }
+
+  private int readIntAt(int pos) {
+    if (this.bytes != null) {
+      return readIntFromBytes(this.bytes, (int) this.base + pos);
+    }
+    return readIntFromAddress(this.base + pos);
+  }
+
+  private long readLongAt(int pos) {
+    return ((long) readIntAt(pos) << 32) | (readIntAt(pos + 4) & 0xffffffffL);
+  }
+
+  private static int readIntFromAddress(long address) {
+    return ((AddressableMemoryManager.readByte(address) & 0xff) << 24)
+        | ((AddressableMemoryManager.readByte(address + 1) & 0xff) << 16)
+        | ((AddressableMemoryManager.readByte(address + 2) & 0xff) << 8)
+        | (AddressableMemoryManager.readByte(address + 3) & 0xff);
+  }
+
+  private static int readIntFromBytes(byte[] bytes, int offset) {
+    return ((bytes[offset] & 0xff) << 24) | ((bytes[offset + 1] & 0xff) << 16)
+        | ((bytes[offset + 2] & 0xff) << 8) | (bytes[offset + 3] & 0xff);
+  }
+}
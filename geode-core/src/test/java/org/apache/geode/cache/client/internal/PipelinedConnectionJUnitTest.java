@@ -0,0 +1,252 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.geode.cache.client.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import org.apache.geode.cache.client.ServerConnectivityException;
+import org.apache.geode.cache.client.ServerOperationException;
+import org.apache.geode.internal.cache.tier.MessageType;
+import org.apache.geode.internal.cache.tier.sockets.Message;
+import org.apache.geode.test.junit.categories.ClientServerTest;
+import org.apache.geode.test.junit.categories.UnitTest;
+
+/**
+ * Tests a {@link PipelinedConnection} over a connection whose responses are put on a queue by the
+ * test, in the order the server would send them.
+ */
+@Category({UnitTest.class, ClientServerTest.class})
+public class PipelinedConnectionJUnitTest {
+
+  private static final long TIMEOUT_SECONDS = 30;
+
+  /** The responses the ops read, in order; an exception is thrown by the op that reads it */
+  private final LinkedBlockingQueue<Object> responses = new LinkedBlockingQueue<Object>();
+
+  /** The ops in the order their messages were sent */
+  private final List<AbstractOp> sent = Collections.synchronizedList(new ArrayList<AbstractOp>());
+
+  private Connection cnx;
+
+  private PipelinedConnection pipeline;
+
+  @Before
+  public void setUp() throws Exception {
+    this.cnx = mock(Connection.class);
+    when(this.cnx.getSocket()).thenReturn(new Socket());
+    // closing the socket fails the read of the op the reader thread is waiting on
+    doAnswer(invocation -> this.responses.add(new IOException("closed"))).when(this.cnx)
+        .close(false);
+    doAnswer(invocation -> this.responses.add(new IOException("destroyed"))).when(this.cnx)
+        .destroy();
+    this.pipeline = new PipelinedConnection(this.cnx, 1024);
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    this.pipeline.close(false);
+  }
+
+  private static Object get(CompletableFuture<Object> future) throws Exception {
+    return future.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+  }
+
+  private static Throwable getFailure(CompletableFuture<Object> future) throws Exception {
+    try {
+      future.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    } catch (ExecutionException e) {
+      return e.getCause();
+    }
+    fail("expected " + future + " to complete exceptionally");
+    return null;
+  }
+
+  @Test
+  public void responsesCompleteTheFuturesOfTheOpsTheyAnswer() throws Exception {
+    List<CompletableFuture<Object>> futures = new ArrayList<CompletableFuture<Object>>();
+    for (int i = 0; i < 10; i++) {
+      futures.add(this.pipeline.execute(new TestOp()));
+      this.responses.add("response-" + i);
+    }
+    assertEquals(10, this.sent.size());
+    for (int i = 0; i < 10; i++) {
+      assertEquals("response-" + i, get(futures.get(i)));
+    }
+    assertTrue(this.pipeline.isOpen());
+  }
+
+  @Test
+  public void opsAreSentWithoutWaitingForTheResponsesOfEarlierOps() throws Exception {
+    CompletableFuture<Object> first = this.pipeline.execute(new TestOp());
+    CompletableFuture<Object> second = this.pipeline.execute(new TestOp());
+    CompletableFuture<Object> third = this.pipeline.execute(new TestOp());
+    assertEquals(3, this.sent.size());
+    assertFalse(first.isDone());
+
+    this.responses.add("first");
+    this.responses.add("second");
+    // waiting for the futures in another order than they were sent in
+    assertEquals("second", get(second));
+    assertEquals("first", get(first));
+    assertFalse(third.isDone());
+    this.responses.add("third");
+    assertEquals("third", get(third));
+  }
+
+  @Test
+  public void anErrorResponseOnlyFailsItsOp() throws Exception {
+    CompletableFuture<Object> first = this.pipeline.execute(new TestOp());
+    CompletableFuture<Object> second = this.pipeline.execute(new TestOp());
+    CompletableFuture<Object> third = this.pipeline.execute(new TestOp());
+    ServerOperationException error = new ServerOperationException("error response");
+    this.responses.add("first");
+    this.responses.add(error);
+    this.responses.add("third");
+
+    assertEquals("first", get(first));
+    assertSame(error, getFailure(second));
+    assertEquals("third", get(third));
+    assertTrue(this.pipeline.isOpen());
+    verify(this.cnx, never()).destroy();
+  }
+
+  @Test
+  public void aServerFailureFailsEveryOpInFlight() throws Exception {
+    CompletableFuture<Object> first = this.pipeline.execute(new TestOp());
+    CompletableFuture<Object> second = this.pipeline.execute(new TestOp());
+    CompletableFuture<Object> third = this.pipeline.execute(new TestOp());
+    this.responses.add("first");
+    this.responses.add(new IOException("server crashed"));
+
+    assertEquals("first", get(first));
+    assertTrue(getFailure(second) instanceof ServerConnectivityException);
+    assertTrue(getFailure(third) instanceof ServerConnectivityException);
+    assertFalse(this.pipeline.isOpen());
+    verify(this.cnx).destroy();
+
+    // nothing more is sent on the failed connection
+    assertTrue(
+        getFailure(this.pipeline.execute(new TestOp())) instanceof ServerConnectivityException);
+    assertEquals(3, this.sent.size());
+  }
+
+  @Test
+  public void aFailedSendFailsItsOpAndTheConnection() throws Exception {
+    CompletableFuture<Object> first = this.pipeline.execute(new TestOp());
+    CompletableFuture<Object> second = this.pipeline.execute(new TestOp(true));
+
+    assertTrue(getFailure(second) instanceof ServerConnectivityException);
+    assertTrue(getFailure(first) instanceof ServerConnectivityException);
+    assertFalse(this.pipeline.isOpen());
+    verify(this.cnx).destroy();
+  }
+
+  @Test
+  public void closeFailsEveryOpInFlight() throws Exception {
+    CompletableFuture<Object> first = this.pipeline.execute(new TestOp());
+    CompletableFuture<Object> second = this.pipeline.execute(new TestOp());
+    this.pipeline.close(false);
+
+    assertTrue(getFailure(first) instanceof ServerConnectivityException);
+    assertTrue(getFailure(second) instanceof ServerConnectivityException);
+    assertFalse(this.pipeline.isOpen());
+    verify(this.cnx).close(false);
+    verify(this.cnx, never()).destroy();
+
+    assertTrue(
+        getFailure(this.pipeline.execute(new TestOp())) instanceof ServerConnectivityException);
+    assertEquals(2, this.sent.size());
+  }
+
+  /**
+   * An op that records its send and reads the next response the test queued.
+   */
+  private class TestOp extends AbstractOp {
+    private final boolean failSend;
+
+    TestOp() {
+      this(false);
+    }
+
+    TestOp(boolean failSend) {
+      super(MessageType.PING, 0);
+      this.failSend = failSend;
+    }
+
+    @Override
+    protected void attemptSend(Connection cnx) throws Exception {
+      if (this.failSend) {
+        throw new IOException("send failed");
+      }
+      sent.add(this);
+    }
+
+    @Override
+    protected Object attemptReadResponse(Connection cnx, ByteBuffer commBuffer)
+        throws Exception {
+      Object response = responses.take();
+      if (response instanceof Exception) {
+        throw (Exception) response;
+      }
+      return response;
+    }
+
+    @Override
+    protected Object processResponse(Message msg) throws Exception {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    protected boolean isErrorResponse(int msgType) {
+      return false;
+    }
+
+    @Override
+    protected long startAttempt(ConnectionStats stats) {
+      return 0;
+    }
+
+    @Override
+    protected void endSendAttempt(ConnectionStats stats, long start) {}
+
+    @Override
+    protected void endAttempt(ConnectionStats stats, long start) {}
+  }
+}
@@ -0,0 +1,230 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.geode.cache.client.internal;
+
+import static org.apache.geode.distributed.ConfigurationProperties.LOCATORS;
+import static org.apache.geode.distributed.ConfigurationProperties.MCAST_PORT;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import org.apache.geode.cache.Cache;
+import org.apache.geode.cache.CacheFactory;
+import org.apache.geode.cache.Region;
+import org.apache.geode.cache.RegionShortcut;
+import org.apache.geode.cache.client.PoolManager;
+import org.apache.geode.cache.client.ServerOperationException;
+import org.apache.geode.cache.query.QueryCursor;
+import org.apache.geode.cache.query.SelectResults;
+import org.apache.geode.cache.query.Struct;
+import org.apache.geode.cache.query.data.PortfolioData;
+import org.apache.geode.cache.query.internal.CompiledValue;
+import org.apache.geode.cache.query.internal.QueryObserver;
+import org.apache.geode.cache.query.internal.QueryObserverAdapter;
+import org.apache.geode.cache.query.internal.QueryObserverHolder;
+import org.apache.geode.cache.server.CacheServer;
+import org.apache.geode.internal.AvailablePortHelper;
+import org.apache.geode.internal.cache.tier.sockets.ServerQueryCursor;
+import org.apache.geode.test.junit.categories.ClientServerTest;
+import org.apache.geode.test.junit.categories.IntegrationTest;
+
+@Category({IntegrationTest.class, ClientServerTest.class})
+public class QueryCursorJUnitTest {
+
+  private static final int ENTRY_COUNT = 1000;
+
+  private Cache cache;
+
+  private PoolImpl pool;
+
+  private QueryObserver oldObserver;
+
+  @Before
+  public void setUp() throws Exception {
+    this.cache = new CacheFactory().set(MCAST_PORT, "0").set(LOCATORS, "").create();
+    Region<Integer, PortfolioData> partitioned = this.cache
+        .<Integer, PortfolioData>createRegionFactory(RegionShortcut.PARTITION).create("portfolios");
+    Region<Integer, PortfolioData> replicated = this.cache
+        .<Integer, PortfolioData>createRegionFactory(RegionShortcut.REPLICATE).create("replicated");
+    for (int i = 0; i < ENTRY_COUNT; i++) {
+      partitioned.put(i, new PortfolioData(i));
+      replicated.put(i, new PortfolioData(i));
+    }
+    CacheServer server = this.cache.addCacheServer();
+    server.setPort(AvailablePortHelper.getRandomAvailableTCPPort());
+    server.start();
+    this.pool = (PoolImpl) PoolManager.createFactory().addServer("localhost", server.getPort())
+        .create("cursorPool");
+    this.oldObserver = QueryObserverHolder.getInstance();
+  }
+
+  @After
+  public void tearDown() {
+    QueryObserverHolder.setInstance(this.oldObserver);
+    this.cache.close();
+  }
+
+  private List readAll(QueryCursor cursor, int pageSize) {
+    List results = new ArrayList();
+    while (cursor.hasNext()) {
+      List page = cursor.nextPage();
+      assertThat(page.size()).isLessThanOrEqualTo(pageSize);
+      results.addAll(page);
+    }
+    assertThat(cursor.nextPage()).isEmpty();
+    return results;
+  }
+
+  private List<Integer> getIds(List portfolios) {
+    List<Integer> ids = new ArrayList<Integer>();
+    for (Object portfolio : portfolios) {
+      ids.add(((PortfolioData) portfolio).getID());
+    }
+    return ids;
+  }
+
+  private List executeLocally(String queryString, Object... params) throws Exception {
+    return ((SelectResults) this.cache.getQueryService().newQuery(queryString).execute(params))
+        .asList();
+  }
+
+  @Test
+  public void cursorReturnsAllResultsInPages() throws Exception {
+    for (String region : new String[] {"portfolios", "replicated"}) {
+      String queryString = "select * from /" + region + " p where p.ID >= $1";
+      List<Integer> expected = getIds(executeLocally(queryString, 100));
+
+      QueryCursor cursor = this.pool.openQueryCursor(queryString, 64, 100);
+      List<Integer> ids = getIds(readAll(cursor, 64));
+      assertThat(ids).as(region).hasSameSizeAs(expected).containsAll(expected);
+      assertThat(ids).as(region).doesNotHaveDuplicates();
+      cursor.close();
+      assertThat(cursor.isClosed()).isTrue();
+    }
+  }
+
+  @Test
+  public void cursorReturnsStructs() throws Exception {
+    QueryCursor<Struct> cursor =
+        this.pool.openQueryCursor("select p.ID, p.status from /portfolios p where p.ID < 150", 40);
+    List<Struct> results = readAll(cursor, 40);
+    assertThat(results).hasSize(150);
+    for (Struct struct : results) {
+      int id = (Integer) struct.get("ID");
+      assertThat(struct.get("status")).isEqualTo(id % 2 == 0 ? "active" : "inactive");
+    }
+  }
+
+  @Test
+  public void cursorAppliesLimitAndOrder() throws Exception {
+    assertThat(readAll(this.pool.openQueryCursor("select * from /portfolios p limit 150", 20), 20))
+        .hasSize(150);
+
+    String queryString = "select distinct p.ID from /portfolios p order by p.ID desc limit 300";
+    List expected = executeLocally(queryString);
+    assertThat(readAll(this.pool.openQueryCursor(queryString, 128), 128)).isEqualTo(expected);
+
+    assertThat(readAll(this.pool.openQueryCursor("select count(*) from /portfolios p", 10), 10))
+        .containsExactly(ENTRY_COUNT);
+  }
+
+  @Test
+  public void partitionedRegionIsEvaluatedAsPagesAreRead() throws Exception {
+    final AtomicInteger evaluations = new AtomicInteger();
+    QueryObserverHolder.setInstance(new QueryObserverAdapter() {
+      @Override
+      public void beforeIterationEvaluation(CompiledValue executer, Object currentObject) {
+        evaluations.incrementAndGet();
+      }
+    });
+    QueryCursor cursor = this.pool.openQueryCursor("select * from /portfolios p where p.ID >= 0", 5);
+    assertThat(cursor.nextPage()).hasSize(5);
+    assertThat(evaluations.get()).isLessThan(ENTRY_COUNT / 10);
+
+    assertThat(readAll(cursor, 5)).hasSize(ENTRY_COUNT - 5);
+    assertThat(evaluations.get()).isEqualTo(ENTRY_COUNT);
+  }
+
+  @Test
+  public void emptyResultsExhaustCursorOnOpen() throws Exception {
+    QueryCursor cursor =
+        this.pool.openQueryCursor("select * from /replicated p where p.ID < 0", 10);
+    assertThat(cursor.hasNext()).isFalse();
+    assertThat(cursor.nextPage()).isEmpty();
+  }
+
+  @Test
+  public void closedCursorIsReleasedOnServer() throws Exception {
+    QueryCursorOp.Page page =
+        QueryCursorOp.open(this.pool, "select * from /portfolios p", 10, new Object[0]);
+    assertThat(page.isExhausted()).isFalse();
+    QueryCursor cursor = new QueryCursorImpl(this.pool, page);
+    assertThat(cursor.nextPage()).hasSize(10);
+    assertThat(cursor.nextPage()).hasSize(10);
+    cursor.close();
+    try {
+      cursor.nextPage();
+      fail("Expected IllegalStateException");
+    } catch (IllegalStateException expected) {
+    }
+    try {
+      QueryCursorOp.fetch(this.pool, page.getServer(), page.getCursorId());
+      fail("Expected ServerOperationException");
+    } catch (ServerOperationException expected) {
+    }
+  }
+
+  @Test
+  public void invalidQueryFailsToOpen() throws Exception {
+    try {
+      this.pool.openQueryCursor("select * from /missing p", 10);
+      fail("Expected ServerOperationException");
+    } catch (ServerOperationException expected) {
+    }
+    try {
+      this.pool.openQueryCursor("select * from /portfolios p", 0);
+      fail("Expected IllegalArgumentException");
+    } catch (IllegalArgumentException expected) {
+    }
+  }
+
+  @Test
+  public void clientCannotOpenMoreCursorsThanTheLimit() throws Exception {
+    String queryString = "select * from /portfolios p";
+    List<QueryCursor> cursors = new ArrayList<QueryCursor>();
+    for (int i = 0; i < ServerQueryCursor.MAX_PER_CLIENT; i++) {
+      cursors.add(this.pool.openQueryCursor(queryString, 1));
+    }
+    try {
+      this.pool.openQueryCursor(queryString, 1);
+      fail("Expected ServerOperationException");
+    } catch (ServerOperationException expected) {
+    }
+    cursors.remove(0).close();
+    cursors.add(this.pool.openQueryCursor(queryString, 1));
+    for (QueryCursor cursor : cursors) {
+      assertThat(cursor.nextPage()).hasSize(1);
+      cursor.close();
+    }
+  }
+}
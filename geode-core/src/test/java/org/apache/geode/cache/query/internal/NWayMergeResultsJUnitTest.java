@@ -27,6 +27,8 @@ import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.SortedSet;
 import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.junit.Test;
 import org.junit.experimental.categories.Category;
@@ -427,6 +429,57 @@ public class NWayMergeResultsJUnitTest {
 
   }
 
+  @Test
+  public void testMergeInParallel() throws Exception {
+    List<Collection<Integer>> sortedLists = new ArrayList<Collection<Integer>>();
+    SortedSet<Integer> sortedSet = new TreeSet<Integer>();
+    int totalElements = 0;
+    for (int step = 1; step <= 40; ++step) {
+      List<Integer> list = new ArrayList<Integer>();
+      for (int i = -500; i < 500; i = i + step) {
+        list.add(i);
+        sortedSet.add(i);
+      }
+      totalElements += list.size();
+      sortedLists.add(list);
+    }
+    NWayMergeResults<Integer> expected = createSingleFieldMergedResult(sortedLists, false, -1);
+    NWayMergeResults<Integer> expectedDistinct =
+        createSingleFieldMergedResult(sortedLists, true, 100);
+    CompiledSortCriterion csc = new CompiledSortCriterion(false,
+        CompiledSortCriterion.ProjectionField.getProjectionField());
+    Method method = CompiledSortCriterion.class
+        .getDeclaredMethod("substituteExpressionWithProjectionField", Integer.TYPE);
+    method.setAccessible(true);
+    method.invoke(csc, 0);
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      assertSame(sortedLists,
+          NWayMergeResults.mergeInParallel(sortedLists, false, -1, Collections.singletonList(csc),
+              null, null, new ObjectTypeImpl(Object.class), executor, 40));
+
+      List<Collection<Integer>> mergedGroups =
+          NWayMergeResults.mergeInParallel(sortedLists, false, -1, Collections.singletonList(csc),
+              null, null, new ObjectTypeImpl(Object.class), executor, 4);
+      assertEquals(4, mergedGroups.size());
+      assertEquals(expected.asList(),
+          createSingleFieldMergedResult(mergedGroups, false, -1).asList());
+      assertEquals(totalElements, expected.size());
+
+      mergedGroups = NWayMergeResults.mergeInParallel(sortedLists, true, 100,
+          Collections.singletonList(csc), null, null, new ObjectTypeImpl(Object.class), executor,
+          4);
+      for (Collection<Integer> group : mergedGroups) {
+        assertEquals(100, group.size());
+      }
+      List<Integer> merged = createSingleFieldMergedResult(mergedGroups, true, 100).asList();
+      assertEquals(expectedDistinct.asList(), merged);
+      assertEquals(new ArrayList<Integer>(sortedSet).subList(0, 100), merged);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
   private <E> NWayMergeResults<E> createSingleFieldMergedResult(
       Collection<? extends Collection<E>> sortedResults, boolean isDistinct, int limit)
       throws Exception {
@@ -0,0 +1,238 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.geode.cache.query.internal;
+
+import static org.apache.geode.distributed.ConfigurationProperties.MCAST_PORT;
+import static org.apache.geode.distributed.ConfigurationProperties.OFF_HEAP_MEMORY_SIZE;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import org.apache.geode.cache.Cache;
+import org.apache.geode.cache.CacheFactory;
+import org.apache.geode.cache.Region;
+import org.apache.geode.cache.RegionShortcut;
+import org.apache.geode.cache.query.SelectResults;
+import org.apache.geode.pdx.PdxInstance;
+import org.apache.geode.pdx.PdxInstanceFactory;
+import org.apache.geode.test.junit.categories.IntegrationTest;
+
+@Category(IntegrationTest.class)
+public class PdxColumnStoreJUnitTest {
+
+  private static final int ENTRY_COUNT = 200;
+
+  private static final String[] QUERIES = {
+      "select p.grp, count(*) from /%s p group by p.grp",
+      "select sum(p.price), avg(p.id), min(p.id), max(p.total), count(p.id) from /%s p",
+      "select p.grp, p.active, sum(p.price), max(p.id) from /%s p where p.id < 150 "
+          + "group by p.grp, p.active",
+      "select p.active as a, p.grp as g, avg(p.price) from /%s p where p.id >= 20 and 1.5 < "
+          + "p.price group by g, a",
+      "select sum(distinct p.grp), count(distinct p.active) from /%s p where p.total > 0",
+      "select p.grp, min(p.price) from /%s p where p.id > 1000 group by p.grp",
+      "select count(*), sum(p.total) from /%s p where p.id > 1000",
+      "select p.grp, count(*) from /%s p group by p.grp limit 2"};
+
+  private static final String[] UNSUPPORTED_QUERIES = {
+      "select p.grp, count(*) from /%s p where p.name = 'name3' group by p.grp",
+      "select p.grp, count(*) from /%s p where p.id < 10 or p.id > 190 group by p.grp",
+      "select max(p.name) from /%s p", "select p.name, count(*) from /%s p group by p.name",
+      "select p.grp, count(*) from /%s p group by p.grp order by p.grp desc"};
+
+  private Cache cache;
+  private QueryObserver oldObserver;
+
+  @Before
+  public void setUp() {
+    this.cache = new CacheFactory().set(MCAST_PORT, "0").set(OFF_HEAP_MEMORY_SIZE, "4m")
+        .setPdxReadSerialized(true).create();
+    this.oldObserver = QueryObserverHolder.getInstance();
+  }
+
+  @After
+  public void tearDown() {
+    QueryObserverHolder.setInstance(this.oldObserver);
+    this.cache.close();
+  }
+
+  private Region<Integer, PdxInstance> createRegion(String name, RegionShortcut shortcut,
+      boolean offHeap, boolean withStore) {
+    Region<Integer, PdxInstance> region = this.cache
+        .<Integer, PdxInstance>createRegionFactory(shortcut).setOffHeap(offHeap).create(name);
+    if (withStore) {
+      region.getAttributesMutator().addCacheListener(new PdxColumnStore());
+    }
+    for (int i = 0; i < ENTRY_COUNT; i++) {
+      region.put(i, createValue(i, i % 10 == 0));
+    }
+    return region;
+  }
+
+  private PdxInstance createValue(int id, boolean extended) {
+    PdxInstanceFactory factory =
+        this.cache.createPdxInstanceFactory(extended ? "ExtendedPortfolio" : "Portfolio");
+    if (extended) {
+      factory.writeString("description", "extended" + id);
+    }
+    factory.writeInt("id", id).writeInt("grp", id % 5).writeBoolean("active", id % 3 == 0)
+        .writeDouble("price", id * 1.5d).writeLong("total", id * 100000000L)
+        .writeString("name", "name" + id);
+    if (extended) {
+      factory.writeShort("extra", (short) id);
+    }
+    return factory.create();
+  }
+
+  private int executeAndCountEvaluations(String queryString, SelectResults[] results)
+      throws Exception {
+    final AtomicInteger evaluations = new AtomicInteger();
+    QueryObserverHolder.setInstance(new QueryObserverAdapter() {
+      @Override
+      public void beforeIterationEvaluation(CompiledValue executer, Object currentObject) {
+        evaluations.incrementAndGet();
+      }
+    });
+    results[0] = (SelectResults) this.cache.getQueryService().newQuery(queryString).execute();
+    return evaluations.get();
+  }
+
+  private void checkSameResults(String storeRegion, String scannedRegion) throws Exception {
+    SelectResults[] results = new SelectResults[1];
+    for (String query : QUERIES) {
+      executeAndCountEvaluations(String.format(query, scannedRegion), results);
+      SelectResults expected = results[0];
+      String queryString = String.format(query, storeRegion);
+      assertThat(executeAndCountEvaluations(queryString, results)).as(queryString).isEqualTo(0);
+      assertThat(results[0].asList()).as(queryString).hasSameSizeAs(expected.asList())
+          .containsAll(expected.asList());
+    }
+    for (String query : UNSUPPORTED_QUERIES) {
+      executeAndCountEvaluations(String.format(query, scannedRegion), results);
+      SelectResults expected = results[0];
+      String queryString = String.format(query, storeRegion);
+      assertThat(executeAndCountEvaluations(queryString, results)).as(queryString)
+          .isGreaterThan(0);
+      assertThat(results[0].asList()).as(queryString).hasSameSizeAs(expected.asList())
+          .containsAll(expected.asList());
+    }
+  }
+
+  private void update(Region<Integer, PdxInstance>... regions) {
+    for (Region<Integer, PdxInstance> region : regions) {
+      for (int i = 0; i < ENTRY_COUNT; i += 7) {
+        region.put(i, createValue(i * 3, i % 2 == 0));
+      }
+      for (int i = 1; i < ENTRY_COUNT; i += 11) {
+        region.destroy(i);
+      }
+      for (int i = 2; i < ENTRY_COUNT; i += 13) {
+        if (region.containsKey(i)) {
+          region.invalidate(i);
+        }
+      }
+      for (int i = ENTRY_COUNT; i < ENTRY_COUNT + 20; i++) {
+        region.put(i, createValue(i, false));
+      }
+    }
+  }
+
+  private void checkStoreIsMaintained(RegionShortcut shortcut, boolean offHeap) throws Exception {
+    Region<Integer, PdxInstance> withStore = createRegion("withStore", shortcut, offHeap, true);
+    Region<Integer, PdxInstance> scanned = createRegion("scanned", shortcut, offHeap, false);
+    checkSameResults("withStore", "scanned");
+
+    update(withStore, scanned);
+    checkSameResults("withStore", "scanned");
+  }
+
+  @Test
+  public void heapRegionQueriesUseColumns() throws Exception {
+    checkStoreIsMaintained(RegionShortcut.LOCAL, false);
+  }
+
+  @Test
+  public void offHeapRegionQueriesUseColumns() throws Exception {
+    checkStoreIsMaintained(RegionShortcut.LOCAL, true);
+  }
+
+  @Test
+  public void partitionedRegionQueriesUseColumns() throws Exception {
+    checkStoreIsMaintained(RegionShortcut.PARTITION, false);
+  }
+
+  @Test
+  public void replicatedRegionQueriesUseColumns() throws Exception {
+    checkStoreIsMaintained(RegionShortcut.REPLICATE, false);
+  }
+
+  @Test
+  public void columnsOfRegionsWithoutVersionsAreRebuiltForEachQuery() throws Exception {
+    Region<Integer, PdxInstance> withStore = this.cache
+        .<Integer, PdxInstance>createRegionFactory(RegionShortcut.LOCAL)
+        .setConcurrencyChecksEnabled(false).addCacheListener(new PdxColumnStore())
+        .create("withStore");
+    Region<Integer, PdxInstance> scanned =
+        createRegion("scanned", RegionShortcut.LOCAL, false, false);
+    for (int i = 0; i < ENTRY_COUNT; i++) {
+      withStore.put(i, createValue(i, i % 10 == 0));
+    }
+    checkSameResults("withStore", "scanned");
+
+    update(withStore, scanned);
+    checkSameResults("withStore", "scanned");
+  }
+
+  @Test
+  public void columnsAreRebuiltAfterClear() throws Exception {
+    Region<Integer, PdxInstance> withStore =
+        createRegion("withStore", RegionShortcut.LOCAL, false, true);
+    Region<Integer, PdxInstance> scanned =
+        createRegion("scanned", RegionShortcut.LOCAL, false, false);
+    checkSameResults("withStore", "scanned");
+
+    withStore.clear();
+    scanned.clear();
+    for (int i = 0; i < 30; i++) {
+      withStore.put(i, createValue(i, false));
+      scanned.put(i, createValue(i, false));
+    }
+    checkSameResults("withStore", "scanned");
+  }
+
+  @Test
+  public void queriesScanRegionsWithValuesThatAreNotPdx() throws Exception {
+    Region<Integer, Object> region =
+        this.cache.<Integer, Object>createRegionFactory(RegionShortcut.LOCAL)
+            .addCacheListener(new PdxColumnStore()).create("mixed");
+    region.put(1, createValue(1, false));
+    region.put(2, "not a pdx");
+    SelectResults[] results = new SelectResults[1];
+
+    assertThat(executeAndCountEvaluations("select count(p.id) from /mixed p", results))
+        .isEqualTo(2);
+    assertThat(results[0].asList()).containsExactly(1);
+
+    region.destroy(2);
+    assertThat(executeAndCountEvaluations("select count(p.id) from /mixed p", results))
+        .isEqualTo(0);
+    assertThat(results[0].asList()).containsExactly(1);
+  }
+}
@@ -0,0 +1,157 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.geode.cache.query.internal;
+
+import static org.apache.geode.distributed.ConfigurationProperties.MCAST_PORT;
+import static org.apache.geode.distributed.ConfigurationProperties.OFF_HEAP_MEMORY_SIZE;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import org.apache.geode.cache.Cache;
+import org.apache.geode.cache.CacheFactory;
+import org.apache.geode.cache.Region;
+import org.apache.geode.cache.RegionShortcut;
+import org.apache.geode.cache.query.SelectResults;
+import org.apache.geode.pdx.PdxInstance;
+import org.apache.geode.test.junit.categories.IntegrationTest;
+
+@Category(IntegrationTest.class)
+public class PdxFieldFilterJUnitTest {
+
+  private static final int ENTRY_COUNT = 100;
+
+  private static final String[] QUERIES = {"select * from /%s where id = 7",
+      "select * from /%s p where p.id < 10", "select * from /%s p where 90 <= p.id",
+      "select * from /%s where id != 3", "select * from /%s where id <> 3",
+      "select * from /%s where total > 5000000000L", "select * from /%s where price >= 50",
+      "select * from /%s where price < 10.5f", "select * from /%s where id = 12.0",
+      "select * from /%s where small = 4 and active = true",
+      "select * from /%s where active = false and name = 'name3'",
+      "select * from /%s where grade = 'c'", "select * from /%s where missing = 3",
+      "select * from /%s where id > 50 or price < 3"};
+
+  private Cache cache;
+  private QueryObserver oldObserver;
+
+  @Before
+  public void setUp() {
+    this.cache = new CacheFactory().set(MCAST_PORT, "0").set(OFF_HEAP_MEMORY_SIZE, "2m")
+        .setPdxReadSerialized(true).create();
+    this.oldObserver = QueryObserverHolder.getInstance();
+  }
+
+  @After
+  public void tearDown() {
+    PdxFieldFilter.ENABLED = false;
+    QueryObserverHolder.setInstance(this.oldObserver);
+    this.cache.close();
+  }
+
+  private Region<Integer, PdxInstance> createRegion(String name, boolean offHeap) {
+    Region<Integer, PdxInstance> region =
+        this.cache.<Integer, PdxInstance>createRegionFactory(RegionShortcut.LOCAL)
+            .setOffHeap(offHeap).create(name);
+    for (int i = 0; i < ENTRY_COUNT; i++) {
+      region.put(i,
+          this.cache.createPdxInstanceFactory("Portfolio").writeInt("id", i)
+              .writeLong("total", i * 100000000L).writeDouble("price", i * 1.5d)
+              .writeShort("small", (short) (i % 10)).writeBoolean("active", i % 2 == 0)
+              .writeString("name", "name" + i).writeChar("grade", (char) ('a' + i % 3)).create());
+    }
+    return region;
+  }
+
+  private int executeAndCountEvaluations(String queryString, SelectResults[] results)
+      throws Exception {
+    final AtomicInteger evaluations = new AtomicInteger();
+    QueryObserverHolder.setInstance(new QueryObserverAdapter() {
+      @Override
+      public void beforeIterationEvaluation(CompiledValue executer, Object currentObject) {
+        evaluations.incrementAndGet();
+      }
+    });
+    results[0] = (SelectResults) this.cache.getQueryService().newQuery(queryString).execute();
+    return evaluations.get();
+  }
+
+  private void checkFilterDoesNotChangeResults(String regionName) throws Exception {
+    SelectResults[] results = new SelectResults[1];
+    for (String query : QUERIES) {
+      String queryString = String.format(query, regionName);
+      PdxFieldFilter.ENABLED = false;
+      int unfilteredEvaluations = executeAndCountEvaluations(queryString, results);
+      SelectResults expected = results[0];
+      PdxFieldFilter.ENABLED = true;
+      int filteredEvaluations = executeAndCountEvaluations(queryString, results);
+
+      assertThat(unfilteredEvaluations).as(queryString).isEqualTo(ENTRY_COUNT);
+      assertThat(results[0].asList()).as(queryString)
+          .hasSameSizeAs(expected.asList()).containsAll(expected.asList());
+      assertThat(filteredEvaluations).as(queryString).isLessThanOrEqualTo(ENTRY_COUNT)
+          .isGreaterThanOrEqualTo(expected.size());
+    }
+  }
+
+  @Test
+  public void filterDoesNotChangeResultsOfHeapRegion() throws Exception {
+    createRegion("heap", false);
+    checkFilterDoesNotChangeResults("heap");
+  }
+
+  @Test
+  public void filterDoesNotChangeResultsOfOffHeapRegion() throws Exception {
+    createRegion("offheap", true);
+    checkFilterDoesNotChangeResults("offheap");
+  }
+
+  @Test
+  public void filterSkipsValuesThatCanNotMatch() throws Exception {
+    createRegion("heap", false);
+    createRegion("offheap", true);
+    PdxFieldFilter.ENABLED = true;
+    SelectResults[] results = new SelectResults[1];
+
+    for (String regionName : new String[] {"heap", "offheap"}) {
+      assertThat(executeAndCountEvaluations(
+          "select * from /" + regionName + " p where p.id >= 10 and p.id < 20", results))
+              .isEqualTo(10);
+      assertThat(results[0].size()).isEqualTo(10);
+      assertThat(executeAndCountEvaluations(
+          "select * from /" + regionName + " where active = true and name = 'name2'", results))
+              .isEqualTo(ENTRY_COUNT / 2);
+      assertThat(results[0].size()).isEqualTo(1);
+    }
+  }
+
+  @Test
+  public void filterIsNotUsedForUnsupportedWhereClauses() throws Exception {
+    createRegion("heap", false);
+    PdxFieldFilter.ENABLED = true;
+    SelectResults[] results = new SelectResults[1];
+
+    assertThat(executeAndCountEvaluations("select * from /heap where id > 50 or price < 3",
+        results)).isEqualTo(ENTRY_COUNT);
+    assertThat(executeAndCountEvaluations("select * from /heap where name = 'name3'", results))
+        .isEqualTo(ENTRY_COUNT);
+    assertThat(executeAndCountEvaluations("select * from /heap where id.intValue() = 3", results))
+        .isEqualTo(ENTRY_COUNT);
+  }
+}
@@ -0,0 +1,108 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.geode.cache.query.partitioned;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import org.apache.geode.cache.Region;
+import org.apache.geode.cache.query.SelectResults;
+import org.apache.geode.cache.query.data.PortfolioData;
+import org.apache.geode.internal.cache.PRQueryProcessor;
+import org.apache.geode.internal.cache.PartitionedRegionTestHelper;
+import org.apache.geode.test.junit.categories.IntegrationTest;
+
+/**
+ * Verifies that queries on a PartitionedRegion evaluated on the buckets of a data store in
+ * parallel return the same results as the sequential evaluation.
+ */
+@Category(IntegrationTest.class)
+public class PRQueryParallelismJUnitTest {
+
+  private static final String REGION_NAME = "portfolios";
+
+  private static final String[] UNORDERED_QUERIES = {"select * from /portfolios p where p.ID < 50",
+      "select distinct p.status from /portfolios p", "select count(*) from /portfolios p",
+      "select count(*) from /portfolios p where p.ID > 100",
+      "select p.status, count(p.ID) from /portfolios p group by p.status",
+      "select p.status, max(p.ID), min(p.ID) from /portfolios p where p.ID > 20 "
+          + "group by p.status"};
+
+  private static final String[] ORDERED_QUERIES = {
+      "select * from /portfolios p order by p.ID desc",
+      "select p.ID from /portfolios p where p.ID >= 100 order by p.ID",
+      "select distinct p.status, p.ID from /portfolios p order by p.ID limit 25",
+      "select distinct p.status from /portfolios p order by p.status desc",
+      "select p.ID, p.status from /portfolios p where p.ID > 40 order by p.status, p.ID limit 70"};
+
+  private Region region;
+
+  @Before
+  public void setUp() throws Exception {
+    this.region = PartitionedRegionTestHelper.createPartitionedRegion(REGION_NAME, "100", 0);
+    for (int j = 0; j < 500; j++) {
+      this.region.put(j, new PortfolioData(j));
+    }
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    PRQueryProcessor.TEST_PARALLELISM = 0;
+    this.region.close();
+  }
+
+  private List execute(String queryString, int parallelism) throws Exception {
+    PRQueryProcessor.TEST_PARALLELISM = parallelism;
+    try {
+      return ((SelectResults) this.region.getCache().getQueryService().newQuery(queryString)
+          .execute()).asList();
+    } finally {
+      PRQueryProcessor.TEST_PARALLELISM = 0;
+    }
+  }
+
+  @Test
+  public void parallelQueriesReturnSameResults() throws Exception {
+    for (String query : UNORDERED_QUERIES) {
+      List expected = execute(query, 0);
+      for (int parallelism : new int[] {2, 4, 16}) {
+        assertThat(execute(query, parallelism)).as(query).hasSameSizeAs(expected)
+            .containsAll(expected);
+      }
+    }
+  }
+
+  @Test
+  public void parallelOrderByQueriesReturnSameOrder() throws Exception {
+    for (String query : ORDERED_QUERIES) {
+      List expected = execute(query, 0);
+      for (int parallelism : new int[] {2, 4, 16}) {
+        assertThat(execute(query, parallelism)).as(query).isEqualTo(expected);
+      }
+    }
+  }
+
+  @Test
+  public void parallelQueryWithLimitReturnsLimitedResults() throws Exception {
+    assertThat(execute("select * from /portfolios p limit 10", 4)).hasSize(10);
+    assertThat(execute("select * from /portfolios p where p.ID < 100 limit 150", 4)).hasSize(100);
+  }
+}
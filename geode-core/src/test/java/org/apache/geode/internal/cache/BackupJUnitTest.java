@@ -157,6 +157,24 @@ public class BackupJUnitTest {
     });
   }
 
+  @Test
+  public void testParallelThrottledBackupAndRecover() throws IOException, InterruptedException {
+    DiskStoreImpl.BACKUP_COPY_THREADS = 3;
+    DiskStoreImpl.BACKUP_MAX_MB_PER_SEC = 4;
+    try {
+      backupAndRecover(new RegionCreator() {
+        public Region createRegion() {
+          DiskStoreImpl ds = createDiskStore();
+          Region region = BackupJUnitTest.this.createRegion();
+          return region;
+        }
+      });
+    } finally {
+      DiskStoreImpl.BACKUP_COPY_THREADS = 4;
+      DiskStoreImpl.BACKUP_MAX_MB_PER_SEC = 0;
+    }
+  }
+
   public void backupAndRecover(RegionCreator regionFactory)
       throws IOException, InterruptedException {
     Region region = regionFactory.createRegion();
@@ -0,0 +1,63 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.geode.internal.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import org.apache.geode.test.junit.categories.UnitTest;
+
+@Category(UnitTest.class)
+public class CompactionThrottleJUnitTest {
+
+  private static final long MB = 1024 * 1024;
+
+  private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+  @Test
+  public void unlimitedThrottleNeverWaits() {
+    CompactionThrottle throttle = new CompactionThrottle(0, 0);
+    assertFalse(throttle.isLimited());
+    assertEquals(0, throttle.acquire(100 * MB, 0));
+  }
+
+  @Test
+  public void waitsForBytesBeyondTheBudget() {
+    CompactionThrottle throttle = new CompactionThrottle(MB, 0);
+    assertTrue(throttle.isLimited());
+    assertEquals(SECOND, throttle.acquire(MB, 0));
+    // the second megabyte is due one second after the first
+    assertEquals(SECOND, throttle.acquire(MB, SECOND));
+    assertEquals(SECOND / 2, throttle.acquire(MB / 2, 2 * SECOND));
+  }
+
+  @Test
+  public void idleTimeOnlyAllowsABoundedBurst() {
+    CompactionThrottle throttle = new CompactionThrottle(MB, 0);
+    long now = 10 * SECOND;
+    // the budget of the 10 idle seconds can not be used
+    long delay = throttle.acquire(MB, now);
+    assertEquals(SECOND - CompactionThrottle.MAX_BURST_NANOS, delay);
+    // a copy that fits in the burst does not wait
+    throttle = new CompactionThrottle(MB, 0);
+    assertEquals(0, throttle.acquire(MB / 20, now));
+  }
+}
@@ -0,0 +1,175 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.geode.internal.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import org.apache.geode.CancelException;
+import org.apache.geode.cache.RegionDestroyedException;
+import org.apache.geode.test.junit.categories.IntegrationTest;
+
+/**
+ * Tests threads adding to the async queue of a disk store, which only take the read lock of its
+ * async queue lock, while a region of the store is cleared or closed.
+ */
+@Category(IntegrationTest.class)
+public class DiskStoreAsyncQueueLockJUnitTest extends DiskRegionTestingBase {
+
+  private static final int THREADS = 8;
+
+  private static final int KEYS_PER_THREAD = 100;
+
+  private static final long JOIN_MILLIS = 60 * 1000;
+
+  private final DiskRegionProperties diskProps = new DiskRegionProperties();
+
+  @Override
+  protected void postSetUp() throws Exception {
+    this.diskProps.setDiskDirs(dirs);
+    this.diskProps.setRegionName("asyncQueueLock");
+    this.diskProps.setBytesThreshold(10000);
+    this.diskProps.setTimeInterval(10);
+  }
+
+  private static int keyOf(int thread, int i) {
+    return thread * KEYS_PER_THREAD + i % KEYS_PER_THREAD;
+  }
+
+  /**
+   * Puts values named after the thread and the number of the put until stopped or the region is
+   * gone. lastPut holds the number of the last put each thread started.
+   */
+  private Thread[] startPutters(final AtomicBoolean stop, final int[] lastPut,
+      final AtomicReference<Throwable> failure, final CountDownLatch started) {
+    Thread[] threads = new Thread[THREADS];
+    for (int t = 0; t < THREADS; t++) {
+      final int thread = t;
+      threads[t] = new Thread(new Runnable() {
+        public void run() {
+          started.countDown();
+          try {
+            for (int i = 0; !stop.get(); i++) {
+              lastPut[thread] = i;
+              region.put(keyOf(thread, i), thread + "-" + i);
+            }
+          } catch (CancelException | RegionDestroyedException expected) {
+            // the region was closed
+          } catch (Throwable e) {
+            failure.compareAndSet(null, e);
+          }
+        }
+      }, "putter-" + t);
+      threads[t].start();
+    }
+    return threads;
+  }
+
+  private static void joinAll(Thread[] threads) throws InterruptedException {
+    for (Thread thread : threads) {
+      thread.join(JOIN_MILLIS);
+      assertFalse(thread.getName() + " did not finish, possibly deadlocked", thread.isAlive());
+    }
+  }
+
+  private Map<Object, Object> copyRegion() {
+    Map<Object, Object> result = new HashMap<Object, Object>();
+    for (Object key : region.keySet()) {
+      result.put(key, region.get(key));
+    }
+    return result;
+  }
+
+  private void recreateRegion() {
+    cache.close();
+    cache = createCache();
+    region = DiskRegionHelperFactory.getAsyncPersistOnlyRegion(cache, this.diskProps);
+  }
+
+  @Test
+  public void itemsAddedWhileClearingAreNeitherLostNorDuplicated() throws Exception {
+    region = DiskRegionHelperFactory.getAsyncPersistOnlyRegion(cache, this.diskProps);
+    AtomicBoolean stop = new AtomicBoolean();
+    AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+    CountDownLatch started = new CountDownLatch(THREADS);
+    Thread[] threads = startPutters(stop, new int[THREADS], failure, started);
+    started.await();
+    for (int i = 0; i < 20; i++) {
+      Thread.sleep(10);
+      region.clear();
+    }
+    stop.set(true);
+    joinAll(threads);
+    assertNull(failure.get());
+
+    DiskStoreImpl diskStore = ((LocalRegion) region).getDiskStore();
+    diskStore.forceFlush();
+    // every item added was either flushed or dropped by a clear exactly once
+    assertEquals(0, diskStore.getStats().getQueueSize());
+    Map<Object, Object> expected = copyRegion();
+    assertFalse(expected.isEmpty());
+
+    recreateRegion();
+    assertEquals(expected, copyRegion());
+  }
+
+  @Test
+  public void itemsAddedWhileClosingDoNotDeadlockOrCorruptTheRegion() throws Exception {
+    for (int round = 0; round < 5; round++) {
+      if (round == 0) {
+        region = DiskRegionHelperFactory.getAsyncPersistOnlyRegion(cache, this.diskProps);
+      } else {
+        recreateRegion();
+      }
+      AtomicBoolean stop = new AtomicBoolean();
+      AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+      final int[] lastPut = new int[THREADS];
+      CountDownLatch started = new CountDownLatch(THREADS);
+      Thread[] threads = startPutters(stop, lastPut, failure, started);
+      started.await();
+      Thread.sleep(20);
+      region.close();
+      stop.set(true);
+      joinAll(threads);
+      assertNull(failure.get());
+
+      recreateRegion();
+      // each recovered value is one that was put for its key
+      int recovered = 0;
+      for (Map.Entry<Object, Object> entry : copyRegion().entrySet()) {
+        int key = (Integer) entry.getKey();
+        String[] value = ((String) entry.getValue()).split("-");
+        int thread = Integer.parseInt(value[0]);
+        int i = Integer.parseInt(value[1]);
+        assertEquals(key, keyOf(thread, i));
+        assertTrue(i <= lastPut[thread]);
+        recovered++;
+      }
+      assertTrue(recovered > 0);
+      region.clear();
+    }
+  }
+}
@@ -0,0 +1,163 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.geode.internal.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import org.apache.geode.cache.DiskStoreFactory;
+import org.apache.geode.cache.Region;
+import org.apache.geode.cache.RegionShortcut;
+import org.apache.geode.cache.Scope;
+import org.apache.geode.test.junit.categories.IntegrationTest;
+
+/**
+ * Tests recovering a disk store with several oplogs using {@link DiskStoreImpl#RECOVERY_THREADS}
+ * threads.
+ */
+@Category(IntegrationTest.class)
+public class DiskStoreParallelRecoveryJUnitTest extends DiskRegionTestingBase {
+
+  private static final int ENTRIES = 2000;
+
+  private final DiskRegionProperties diskProps = new DiskRegionProperties();
+
+  private int oldRecoveryThreads;
+
+  @Override
+  protected void postSetUp() throws Exception {
+    this.oldRecoveryThreads = DiskStoreImpl.RECOVERY_THREADS;
+    this.diskProps.setDiskDirs(dirs);
+    this.diskProps.setRegionName("parallelRecovery");
+    this.diskProps.setMaxOplogSize(16 * 1024);
+    this.diskProps.setRolling(false);
+  }
+
+  @Override
+  protected void postTearDown() throws Exception {
+    DiskStoreImpl.RECOVERY_THREADS = this.oldRecoveryThreads;
+  }
+
+  private void createEntries() {
+    region = DiskRegionHelperFactory.getSyncPersistOnlyRegion(cache, this.diskProps, Scope.LOCAL);
+    for (int i = 0; i < ENTRIES; i++) {
+      region.put(i, "value" + i);
+    }
+    // modify and destroy entries created in older oplogs
+    for (int i = 0; i < ENTRIES; i += 3) {
+      region.put(i, "modified" + i);
+    }
+    for (int i = 1; i < ENTRIES; i += 7) {
+      region.destroy(i);
+    }
+    LocalRegion localRegion = (LocalRegion) region;
+    int oplogs = localRegion.getDiskStore().getPersistentOplogSet(localRegion.getDiskRegion())
+        .getAllOplogs().length;
+    assertTrue("expected several oplogs but was " + oplogs, oplogs > 4);
+    cache.close();
+  }
+
+  private void recoverAndVerify(int recoveryThreads) {
+    DiskStoreImpl.RECOVERY_THREADS = recoveryThreads;
+    cache = createCache();
+    region = DiskRegionHelperFactory.getSyncPersistOnlyRegion(cache, this.diskProps, Scope.LOCAL);
+    LocalRegion localRegion = (LocalRegion) region;
+    localRegion.getDiskStore().waitForAsyncRecovery(localRegion.getDiskRegion());
+
+    DiskStoreStats stats = localRegion.getDiskStore().getStats();
+    assertEquals(0, stats.getOplogFilesToRecover());
+    for (int i = 0; i < ENTRIES; i++) {
+      if (i % 7 == 1) {
+        assertFalse(region.containsKey(i));
+        continue;
+      }
+      // the values have been recovered without faulting them in
+      assertNotNull("no value recovered for " + i, localRegion.getValueInVM(i));
+      assertEquals(i % 3 == 0 ? "modified" + i : "value" + i, region.get(i));
+    }
+    assertEquals(ENTRIES - (ENTRIES + 5) / 7, region.size());
+  }
+
+  private Region<Integer, String> createGCRegion() {
+    if (cache.findDiskStore("gcRecovery") == null) {
+      DiskStoreFactory dsf = cache.createDiskStoreFactory();
+      dsf.setDiskDirs(dirs);
+      dsf.setAutoCompact(false);
+      dsf.create("gcRecovery");
+    }
+    return cache.<Integer, String>createRegionFactory(RegionShortcut.REPLICATE_PERSISTENT)
+        .setDiskStoreName("gcRecovery").create("gcRecovery");
+  }
+
+  private void verifyGCVersion(int recoveryThreads, long gcVersion, int tombstones) {
+    DiskStoreImpl.RECOVERY_THREADS = recoveryThreads;
+    cache = createCache();
+    LocalRegion gcRegion = (LocalRegion) createGCRegion();
+    assertEquals(gcVersion, gcRegion.getVersionVector().getGCVersion(null));
+    assertEquals(tombstones, gcRegion.getTombstoneCount());
+    cache.close();
+  }
+
+  @Test
+  public void recoversTheGCVersionsOfSeveralDrfs() throws Exception {
+    LocalRegion gcRegion = (LocalRegion) createGCRegion();
+    TombstoneService tombstoneService = ((GemFireCacheImpl) cache).getTombstoneService();
+    int key = 0;
+    for (int round = 0; round < 6; round++) {
+      for (int i = 0; i < 100; i++) {
+        gcRegion.put(key + i, "value" + i);
+      }
+      for (int i = 0; i < 100; i += 2) {
+        gcRegion.destroy(key + i);
+      }
+      key += 100;
+      // writes a gc rvv record to the current drf; the next one starts with another
+      assertTrue(tombstoneService.forceBatchExpirationForTests(25));
+      gcRegion.getDiskStore().forceRoll();
+    }
+    assertTrue(gcRegion.getDiskStore().getPersistentOplogSet(gcRegion.getDiskRegion())
+        .getAllOplogs().length > 4);
+    long gcVersion = gcRegion.getVersionVector().getGCVersion(null);
+    int tombstones = gcRegion.getTombstoneCount();
+    assertTrue(gcVersion > 0);
+    cache.close();
+
+    verifyGCVersion(1, gcVersion, tombstones);
+    verifyGCVersion(4, gcVersion, tombstones);
+    verifyGCVersion(8, gcVersion, tombstones);
+  }
+
+  @Test
+  public void recoversWithSeveralThreads() throws Exception {
+    createEntries();
+    recoverAndVerify(4);
+    assertTrue(((LocalRegion) region).getDiskStore().getStats().getRecoveredValues() > 0);
+  }
+
+  @Test
+  public void recoversTheSameEntriesWithOneOrSeveralThreads() throws Exception {
+    createEntries();
+    recoverAndVerify(1);
+    cache.close();
+    recoverAndVerify(8);
+    cache.close();
+    recoverAndVerify(2);
+  }
+}
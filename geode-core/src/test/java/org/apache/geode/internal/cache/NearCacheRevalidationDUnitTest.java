@@ -0,0 +1,222 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.geode.internal.cache;
+
+import static org.apache.geode.distributed.ConfigurationProperties.LOG_LEVEL;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import org.apache.geode.cache.Cache;
+import org.apache.geode.cache.EntryEvent;
+import org.apache.geode.cache.RegionShortcut;
+import org.apache.geode.cache.client.ClientCache;
+import org.apache.geode.cache.client.ClientCacheFactory;
+import org.apache.geode.cache.client.ClientRegionShortcut;
+import org.apache.geode.cache.server.CacheServer;
+import org.apache.geode.cache.util.CacheListenerAdapter;
+import org.apache.geode.internal.AvailablePortHelper;
+import org.apache.geode.test.dunit.Assert;
+import org.apache.geode.test.dunit.Host;
+import org.apache.geode.test.dunit.LogWriterUtils;
+import org.apache.geode.test.dunit.SerializableCallable;
+import org.apache.geode.test.dunit.SerializableRunnable;
+import org.apache.geode.test.dunit.VM;
+import org.apache.geode.test.dunit.cache.internal.JUnit4CacheTestCase;
+import org.apache.geode.test.junit.categories.ClientServerTest;
+import org.apache.geode.test.junit.categories.DistributedTest;
+
+/**
+ * Tests a client region without a subscription that checks its local values against the server
+ * once they are older than {@link LocalRegion#NEAR_CACHE_REVALIDATE_MS}.
+ */
+@Category({DistributedTest.class, ClientServerTest.class})
+public class NearCacheRevalidationDUnitTest extends JUnit4CacheTestCase {
+
+  private static final long REVALIDATE_MS = 50;
+
+  private long revalidateMs;
+  private int maxValidatedKeys;
+
+  @Override
+  public final void postSetUp() throws Exception {
+    disconnectAllFromDS();
+    this.revalidateMs = LocalRegion.NEAR_CACHE_REVALIDATE_MS;
+    this.maxValidatedKeys = LocalRegion.NEAR_CACHE_MAX_VALIDATED_KEYS;
+  }
+
+  @Override
+  public final void postTearDownCacheTestCase() throws Exception {
+    LocalRegion.NEAR_CACHE_REVALIDATE_MS = this.revalidateMs;
+    LocalRegion.NEAR_CACHE_MAX_VALIDATED_KEYS = this.maxValidatedKeys;
+  }
+
+  private VM getServerVM() {
+    return Host.getHost(0).getVM(0);
+  }
+
+  private int createServer(final String regionName) {
+    return (Integer) getServerVM().invoke(new SerializableCallable("create server") {
+      public Object call() {
+        Cache cache = getCache();
+        cache.createRegionFactory(RegionShortcut.REPLICATE).create(regionName);
+        CacheServer server = cache.addCacheServer();
+        server.setPort(AvailablePortHelper.getRandomAvailableTCPPort());
+        server.setHostnameForClients("localhost");
+        try {
+          server.start();
+        } catch (IOException e) {
+          Assert.fail("Failed to start server ", e);
+        }
+        for (int i = 0; i < 100; i++) {
+          cache.getRegion(regionName).put("key" + i, "value" + i);
+        }
+        return server.getPort();
+      }
+    });
+  }
+
+  private void putOnServer(final String regionName, final Object key, final Object value) {
+    getServerVM().invoke(new SerializableRunnable("put on server") {
+      public void run() {
+        getCache().getRegion(regionName).put(key, value);
+      }
+    });
+  }
+
+  private LocalRegion createClientRegion(String regionName, int serverPort,
+      boolean concurrencyChecksEnabled) {
+    ClientCache cache = getClientCache(new ClientCacheFactory()
+        .addPoolServer("localhost", serverPort).set(LOG_LEVEL, LogWriterUtils.getDUnitLogLevel()));
+    return (LocalRegion) cache.createClientRegionFactory(ClientRegionShortcut.CACHING_PROXY)
+        .setConcurrencyChecksEnabled(concurrencyChecksEnabled).create(regionName);
+  }
+
+  private static void waitForRevalidation() throws InterruptedException {
+    Thread.sleep(2 * LocalRegion.NEAR_CACHE_REVALIDATE_MS);
+  }
+
+  @Test
+  public void unchangedValuesAreServedLocallyAfterRevalidation() throws Exception {
+    LocalRegion.NEAR_CACHE_REVALIDATE_MS = REVALIDATE_MS;
+    String regionName = getUniqueName();
+    LocalRegion region = createClientRegion(regionName, createServer(regionName), true);
+    CountingListener listener = new CountingListener();
+    region.getAttributesMutator().addCacheListener(listener);
+    CachePerfStats stats = region.getCachePerfStats();
+
+    assertEquals("value1", region.get("key1"));
+    assertEquals(0, stats.getNearCacheRevalidations());
+
+    waitForRevalidation();
+    long misses = stats.getMisses();
+    assertEquals("value1", region.get("key1"));
+    assertEquals(1, stats.getNearCacheRevalidations());
+    assertEquals(0, stats.getNearCacheRevalidationMisses());
+    assertEquals(misses, stats.getMisses());
+    assertEquals(0, listener.invalidates);
+  }
+
+  @Test
+  public void valuesChangedOnTheServerAreReadAgain() throws Exception {
+    LocalRegion.NEAR_CACHE_REVALIDATE_MS = REVALIDATE_MS;
+    String regionName = getUniqueName();
+    LocalRegion region = createClientRegion(regionName, createServer(regionName), true);
+    CountingListener listener = new CountingListener();
+    region.getAttributesMutator().addCacheListener(listener);
+    CachePerfStats stats = region.getCachePerfStats();
+
+    assertEquals("value1", region.get("key1"));
+    putOnServer(regionName, "key1", "changed");
+    waitForRevalidation();
+
+    long misses = stats.getMisses();
+    assertEquals("changed", region.get("key1"));
+    assertEquals(1, stats.getNearCacheRevalidations());
+    assertEquals(1, stats.getNearCacheRevalidationMisses());
+    // the value of the revalidation is used instead of reading it again
+    assertEquals(misses, stats.getMisses());
+    // the stale value is replaced without telling the listeners it was invalidated
+    assertEquals(0, listener.invalidates);
+    // and the new value is trusted again
+    assertEquals("changed", region.get("key1"));
+    assertEquals(1, stats.getNearCacheRevalidations());
+  }
+
+  @Test
+  public void valuesAreTrustedUntilTheRevalidationInterval() throws Exception {
+    LocalRegion.NEAR_CACHE_REVALIDATE_MS = 60 * 60 * 1000;
+    String regionName = getUniqueName();
+    LocalRegion region = createClientRegion(regionName, createServer(regionName), true);
+
+    assertEquals("value1", region.get("key1"));
+    putOnServer(regionName, "key1", "changed");
+    assertEquals("value1", region.get("key1"));
+    assertEquals(0, region.getCachePerfStats().getNearCacheRevalidations());
+  }
+
+  @Test
+  public void theValidatedKeysAreBounded() throws Exception {
+    LocalRegion.NEAR_CACHE_REVALIDATE_MS = 60 * 60 * 1000;
+    LocalRegion.NEAR_CACHE_MAX_VALIDATED_KEYS = 10;
+    String regionName = getUniqueName();
+    LocalRegion region = createClientRegion(regionName, createServer(regionName), true);
+
+    for (int i = 0; i < 100; i++) {
+      assertEquals("value" + i, region.get("key" + i));
+      assertTrue(region.getNearCacheValidator().size() <= 10);
+    }
+    NearCacheValidator validator = region.getNearCacheValidator();
+    int forgotten = -1;
+    for (int i = 0; i < 100; i++) {
+      if (validator.isStale("key" + i)) {
+        forgotten = i;
+      }
+    }
+    assertTrue(forgotten >= 0);
+    // the last key validated is always kept
+    long revalidations = region.getCachePerfStats().getNearCacheRevalidations();
+    assertEquals("value99", region.get("key99"));
+    assertEquals(revalidations, region.getCachePerfStats().getNearCacheRevalidations());
+    // forgotten keys are checked again
+    assertEquals("value" + forgotten, region.get("key" + forgotten));
+    assertEquals(revalidations + 1, region.getCachePerfStats().getNearCacheRevalidations());
+  }
+
+  @Test
+  public void regionsWithoutConcurrencyChecksAreNotRevalidated() throws Exception {
+    LocalRegion.NEAR_CACHE_REVALIDATE_MS = REVALIDATE_MS;
+    String regionName = getUniqueName();
+    LocalRegion region = createClientRegion(regionName, createServer(regionName), false);
+
+    assertEquals("value1", region.get("key1"));
+    waitForRevalidation();
+    assertEquals("value1", region.get("key1"));
+    assertEquals(0, region.getCachePerfStats().getNearCacheRevalidations());
+  }
+
+  private static class CountingListener extends CacheListenerAdapter {
+    volatile int invalidates;
+
+    @Override
+    public void afterInvalidate(EntryEvent event) {
+      this.invalidates++;
+    }
+  }
+}
@@ -0,0 +1,168 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.geode.internal.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import org.apache.geode.cache.DiskAccessException;
+import org.apache.geode.cache.Scope;
+import org.apache.geode.test.junit.categories.IntegrationTest;
+
+/**
+ * Tests the crf and drf format with record checksums enabled by
+ * {@link DiskStoreImpl#CHECKSUM_OPLOGS} and the compression of values by
+ * {@link DiskStoreImpl#COMPRESS_OPLOG_VALUES_MIN_BYTES}.
+ */
+@Category(IntegrationTest.class)
+public class OplogChecksumJUnitTest extends DiskRegionTestingBase {
+
+  private static final int ENTRIES = 500;
+
+  private final DiskRegionProperties diskProps = new DiskRegionProperties();
+
+  @Override
+  protected void preSetUp() throws Exception {
+    DiskStoreImpl.CHECKSUM_OPLOGS = true;
+  }
+
+  @Override
+  protected void postSetUp() throws Exception {
+    this.diskProps.setDiskDirs(dirs);
+    this.diskProps.setRegionName("checksumOplogs");
+    this.diskProps.setMaxOplogSize(16 * 1024 * 1024);
+  }
+
+  @Override
+  protected void postTearDown() throws Exception {
+    DiskStoreImpl.CHECKSUM_OPLOGS = false;
+    DiskStoreImpl.COMPRESS_OPLOG_VALUES_MIN_BYTES = 0;
+  }
+
+  private static String valueOf(int i) {
+    StringBuilder sb = new StringBuilder();
+    for (int j = 0; j < 50; j++) {
+      sb.append("value").append(i);
+    }
+    return sb.toString();
+  }
+
+  private void createRegion() {
+    region = DiskRegionHelperFactory.getSyncPersistOnlyRegion(cache, this.diskProps, Scope.LOCAL);
+  }
+
+  private File getCrfFile() throws Exception {
+    return ((LocalRegion) region).getDiskRegion().testHook_getChild().getOplogFile();
+  }
+
+  private void putAndDestroyEntries() {
+    for (int i = 0; i < ENTRIES; i++) {
+      region.put(i, valueOf(i));
+    }
+    for (int i = 0; i < ENTRIES; i += 10) {
+      region.destroy(i);
+    }
+  }
+
+  private void verifyEntries() {
+    for (int i = 0; i < ENTRIES; i++) {
+      assertEquals(i % 10 == 0 ? null : valueOf(i), region.get(i));
+    }
+  }
+
+  private static File getKrfFile(File crfFile) {
+    String name = crfFile.getName();
+    return new File(crfFile.getParentFile(), name.substring(0, name.length() - 3) + "krf");
+  }
+
+  @Test
+  public void checksummedRecordsAreRecovered() throws Exception {
+    createRegion();
+    putAndDestroyEntries();
+    File crfFile = getCrfFile();
+    region.close();
+
+    // the crf is read for its keys if there is no krf
+    getKrfFile(crfFile).delete();
+    createRegion();
+    verifyEntries();
+  }
+
+  @Test
+  public void compressedValuesAreRecoveredAndFaultedIn() throws Exception {
+    DiskStoreImpl.COMPRESS_OPLOG_VALUES_MIN_BYTES = 64;
+    this.diskProps.setOverFlowCapacity(1);
+    region = DiskRegionHelperFactory.getSyncOverFlowAndPersistRegion(cache, this.diskProps);
+    putAndDestroyEntries();
+    File crfFile = getCrfFile();
+    // the values are repetitive so they are stored compressed
+    assertTrue(crfFile.length() < ENTRIES * valueOf(ENTRIES).length() / 2);
+    // faulted in from the crf
+    verifyEntries();
+    region.close();
+
+    getKrfFile(crfFile).delete();
+    region = DiskRegionHelperFactory.getSyncOverFlowAndPersistRegion(cache, this.diskProps);
+    verifyEntries();
+  }
+
+  @Test
+  public void corruptRecordIsDetectedOnRecovery() throws Exception {
+    createRegion();
+    putAndDestroyEntries();
+    File crfFile = getCrfFile();
+    region.close();
+    getKrfFile(crfFile).delete();
+
+    // change one byte of a value so that the record is still parsed but its checksum is wrong
+    byte[] crf = Files.readAllBytes(crfFile.toPath());
+    byte[] value = valueOf(ENTRIES - 1).getBytes(StandardCharsets.US_ASCII);
+    int offset = indexOf(crf, value);
+    assertTrue(offset > 0);
+    try (RandomAccessFile raf = new RandomAccessFile(crfFile, "rw")) {
+      raf.seek(offset);
+      raf.write(value[0] + 1);
+    }
+
+    try {
+      createRegion();
+      fail("expected DiskAccessException");
+    } catch (DiskAccessException expected) {
+      assertTrue(expected.getMessage().contains("Checksum mismatch"));
+    }
+  }
+
+  private static int indexOf(byte[] bytes, byte[] sub) {
+    for (int i = 0; i <= bytes.length - sub.length; i++) {
+      int j = 0;
+      while (j < sub.length && bytes[i + j] == sub[j]) {
+        j++;
+      }
+      if (j == sub.length) {
+        return i;
+      }
+    }
+    return -1;
+  }
+}
@@ -0,0 +1,108 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.geode.internal.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import org.apache.geode.cache.Scope;
+import org.apache.geode.test.junit.categories.IntegrationTest;
+
+/**
+ * Tests the oplog writes enabled by {@link DiskStoreImpl#DSYNC_WRITES} and the oplog write latency
+ * histogram of {@link DiskStoreStats}.
+ */
+@Category(IntegrationTest.class)
+public class OplogDsyncWriteJUnitTest extends DiskRegionTestingBase {
+
+  private final DiskRegionProperties diskProps = new DiskRegionProperties();
+
+  @Override
+  protected void preSetUp() throws Exception {
+    DiskStoreImpl.DSYNC_WRITES = true;
+    System.setProperty("WRITE_BUF_SIZE", "5000");
+  }
+
+  @Override
+  protected void postSetUp() throws Exception {
+    this.diskProps.setDiskDirs(dirs);
+    this.diskProps.setRegionName("dsyncWrites");
+    this.diskProps.setMaxOplogSize(64 * 1024);
+  }
+
+  @Override
+  protected void postTearDown() throws Exception {
+    DiskStoreImpl.DSYNC_WRITES = false;
+    System.clearProperty("WRITE_BUF_SIZE");
+  }
+
+  private long getOplogWrites(DiskStoreStats stats) {
+    long writes = 0;
+    for (int i = 0; i <= DiskStoreStats.OPLOG_WRITE_LATENCY_BOUNDS.length; i++) {
+      writes += stats.getOplogWriteLatencyCount(i);
+    }
+    return writes;
+  }
+
+  @Test
+  public void dsyncWritesAreRecovered() throws Exception {
+    region = DiskRegionHelperFactory.getSyncPersistOnlyRegion(cache, this.diskProps, Scope.LOCAL);
+    Oplog oplog = ((LocalRegion) region).getDiskRegion().testHook_getChild();
+    // the write buffer is sized in whole pages
+    assertEquals(8192, oplog.getWriteBuf().capacity());
+
+    DiskStoreStats stats = ((LocalRegion) region).getDiskStore().getStats();
+    long writes = getOplogWrites(stats);
+    for (int i = 0; i < 1000; i++) {
+      region.put(i, "value" + i);
+    }
+    for (int i = 0; i < 1000; i += 10) {
+      region.destroy(i);
+    }
+    // every synchronous operation wrote its records
+    assertTrue(getOplogWrites(stats) - writes >= 1100);
+
+    region.close();
+    region = DiskRegionHelperFactory.getSyncPersistOnlyRegion(cache, this.diskProps, Scope.LOCAL);
+    for (int i = 0; i < 1000; i++) {
+      assertEquals(i % 10 == 0 ? null : "value" + i, region.get(i));
+    }
+  }
+
+  @Test
+  public void writeLatenciesAreCountedInTheirBucket() throws Exception {
+    region = DiskRegionHelperFactory.getSyncPersistOnlyRegion(cache, this.diskProps, Scope.LOCAL);
+    DiskStoreStats stats = ((LocalRegion) region).getDiskStore().getStats();
+    long[] counts = new long[DiskStoreStats.OPLOG_WRITE_LATENCY_BOUNDS.length + 1];
+    for (int i = 0; i < counts.length; i++) {
+      counts[i] = stats.getOplogWriteLatencyCount(i);
+    }
+
+    stats.incOplogWriteLatency(100000L);
+    stats.incOplogWriteLatency(100001L);
+    stats.incOplogWriteLatency(50000000L);
+    stats.incOplogWriteLatency(5000000000L);
+
+    assertEquals(counts[0] + 1, stats.getOplogWriteLatencyCount(0));
+    assertEquals(counts[1] + 1, stats.getOplogWriteLatencyCount(1));
+    assertEquals(counts[2], stats.getOplogWriteLatencyCount(2));
+    assertEquals(counts[3] + 1, stats.getOplogWriteLatencyCount(3));
+    assertEquals(counts[4], stats.getOplogWriteLatencyCount(4));
+    assertEquals(counts[5] + 1, stats.getOplogWriteLatencyCount(5));
+  }
+}
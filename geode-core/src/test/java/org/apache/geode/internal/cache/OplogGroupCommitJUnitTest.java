@@ -0,0 +1,170 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.geode.internal.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import org.apache.geode.cache.Scope;
+import org.apache.geode.test.junit.categories.IntegrationTest;
+
+/**
+ * Tests the group commit of synchronous writes to oplogs enabled by
+ * {@link DiskStoreImpl#GROUP_COMMIT}.
+ */
+@Category(IntegrationTest.class)
+public class OplogGroupCommitJUnitTest extends DiskRegionTestingBase {
+
+  private static final int THREADS = 8;
+
+  private static final int OPS_PER_THREAD = 200;
+
+  private final DiskRegionProperties diskProps = new DiskRegionProperties();
+
+  @Override
+  protected void preSetUp() throws Exception {
+    DiskStoreImpl.GROUP_COMMIT = true;
+    DiskStoreImpl.GROUP_COMMIT_MAX_LATENCY_MICROS = 1000;
+    DiskStoreImpl.GROUP_COMMIT_MAX_BATCH = THREADS;
+  }
+
+  @Override
+  protected void postSetUp() throws Exception {
+    this.diskProps.setDiskDirs(dirs);
+    this.diskProps.setRegionName("groupCommit");
+  }
+
+  @Override
+  protected void postTearDown() throws Exception {
+    DiskStoreImpl.GROUP_COMMIT = false;
+    DiskStoreImpl.GROUP_COMMIT_MAX_LATENCY_MICROS = 1000;
+    DiskStoreImpl.GROUP_COMMIT_MAX_BATCH = 64;
+  }
+
+  private void doConcurrentWrites() throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+    try {
+      List<Future<Void>> futures = new ArrayList<Future<Void>>();
+      for (int t = 0; t < THREADS; t++) {
+        final int thread = t;
+        futures.add(executor.submit(new Callable<Void>() {
+          @Override
+          public Void call() throws Exception {
+            for (int i = 0; i < OPS_PER_THREAD; i++) {
+              String key = thread + "-" + i;
+              region.put(key, "value" + i);
+              if (i % 10 == 9) {
+                region.destroy(key);
+              } else if (i % 10 == 8) {
+                region.put(key, "modified" + i);
+              }
+            }
+            return null;
+          }
+        }));
+      }
+      for (Future<Void> future : futures) {
+        future.get();
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private void verifyWrites() {
+    for (int t = 0; t < THREADS; t++) {
+      for (int i = 0; i < OPS_PER_THREAD; i++) {
+        String key = t + "-" + i;
+        if (i % 10 == 9) {
+          assertFalse(region.containsKey(key));
+        } else if (i % 10 == 8) {
+          assertEquals("modified" + i, region.get(key));
+        } else {
+          assertEquals("value" + i, region.get(key));
+        }
+      }
+    }
+  }
+
+  @Test
+  public void concurrentSyncWritesShareForces() throws Exception {
+    region = DiskRegionHelperFactory.getSyncPersistOnlyRegion(cache, this.diskProps, Scope.LOCAL);
+    doConcurrentWrites();
+    verifyWrites();
+
+    long commits = ((LocalRegion) region).getDiskRegion().testHook_getChild().getGroupCommitCount();
+    assertTrue("no group commits were done", commits > 0);
+    // each writer does a put, a modify or a destroy for every op
+    long writes = THREADS * (OPS_PER_THREAD + OPS_PER_THREAD / 10 * 2);
+    assertTrue("expected fewer than " + writes + " forces but was " + commits, commits < writes);
+
+    region.close();
+    region = DiskRegionHelperFactory.getSyncPersistOnlyRegion(cache, this.diskProps, Scope.LOCAL);
+    verifyWrites();
+  }
+
+  @Test
+  public void groupCommitSurvivesOplogSwitches() throws Exception {
+    this.diskProps.setMaxOplogSize(20 * 1024);
+    region = DiskRegionHelperFactory.getSyncPersistOnlyRegion(cache, this.diskProps, Scope.LOCAL);
+    doConcurrentWrites();
+    verifyWrites();
+
+    region.close();
+    region = DiskRegionHelperFactory.getSyncPersistOnlyRegion(cache, this.diskProps, Scope.LOCAL);
+    verifyWrites();
+  }
+
+  @Test
+  public void singleWriterIsCommittedAfterMaxLatency() throws Exception {
+    region = DiskRegionHelperFactory.getSyncPersistOnlyRegion(cache, this.diskProps, Scope.LOCAL);
+    Oplog oplog = ((LocalRegion) region).getDiskRegion().testHook_getChild();
+    long commits = oplog.getGroupCommitCount();
+    region.put("key", "value");
+    assertEquals(commits + 1, oplog.getGroupCommitCount());
+    region.destroy("key");
+    assertEquals(commits + 2, oplog.getGroupCommitCount());
+
+    region.close();
+    region = DiskRegionHelperFactory.getSyncPersistOnlyRegion(cache, this.diskProps, Scope.LOCAL);
+    assertNull(region.get("key"));
+    assertFalse(region.containsKey("key"));
+  }
+
+  @Test
+  public void asyncWritesAreNotGroupCommitted() throws Exception {
+    this.diskProps.setBytesThreshold(Integer.MAX_VALUE);
+    this.diskProps.setTimeInterval(Integer.MAX_VALUE);
+    region = DiskRegionHelperFactory.getAsyncPersistOnlyRegion(cache, this.diskProps);
+    for (int i = 0; i < 10; i++) {
+      region.put(i, i);
+    }
+    region.writeToDisk();
+    assertEquals(0,
+        ((LocalRegion) region).getDiskRegion().testHook_getChild().getGroupCommitCount());
+  }
+}
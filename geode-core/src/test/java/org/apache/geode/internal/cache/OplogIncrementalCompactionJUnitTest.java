@@ -0,0 +1,172 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.geode.internal.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import org.apache.geode.cache.Scope;
+import org.apache.geode.test.junit.categories.IntegrationTest;
+
+/**
+ * Tests the incremental and throttled compaction enabled by
+ * {@link DiskStoreImpl#COMPACTION_INCREMENT_BYTES} and
+ * {@link DiskStoreImpl#COMPACTION_MAX_MB_PER_SEC}.
+ */
+@Category(IntegrationTest.class)
+public class OplogIncrementalCompactionJUnitTest extends DiskRegionTestingBase {
+
+  private static final int ENTRIES = 2000;
+
+  private final DiskRegionProperties diskProps = new DiskRegionProperties();
+
+  @Override
+  protected void postSetUp() throws Exception {
+    this.diskProps.setDiskDirs(dirs);
+    this.diskProps.setRegionName("incrementalCompaction");
+    this.diskProps.setMaxOplogSize(32 * 1024);
+    this.diskProps.setRolling(false);
+    this.diskProps.setAllowForceCompaction(true);
+    this.diskProps.setCompactionThreshold(100);
+  }
+
+  @Override
+  protected void postTearDown() throws Exception {
+    DiskStoreImpl.COMPACTION_INCREMENT_BYTES = 0;
+    DiskStoreImpl.COMPACTION_MAX_MB_PER_SEC = 0;
+  }
+
+  private static String valueOf(int i, String prefix) {
+    char[] padding = new char[100];
+    Arrays.fill(padding, 'x');
+    return prefix + i + new String(padding);
+  }
+
+  private void createEntries() {
+    region = DiskRegionHelperFactory.getSyncPersistOnlyRegion(cache, this.diskProps, Scope.LOCAL);
+    for (int i = 0; i < ENTRIES; i++) {
+      region.put(i, valueOf(i, "value"));
+    }
+    for (int i = 0; i < ENTRIES; i += 2) {
+      region.put(i, valueOf(i, "modified"));
+    }
+  }
+
+  private void verifyEntries() {
+    for (int i = 0; i < ENTRIES; i++) {
+      assertEquals(valueOf(i, i % 2 == 0 ? "modified" : "value"), region.get(i));
+    }
+  }
+
+  private DiskStoreImpl getDiskStore() {
+    return ((LocalRegion) region).getDiskStore();
+  }
+
+  private Oplog[] getOplogs() {
+    return getDiskStore().getPersistentOplogSet(((LocalRegion) region).getDiskRegion())
+        .getAllOplogs();
+  }
+
+  private int getCompacts() {
+    return getDiskStore().getStats().getStats().getInt("compacts");
+  }
+
+  @Test
+  public void forcedCompactionCompletesInIncrements() throws Exception {
+    DiskStoreImpl.COMPACTION_INCREMENT_BYTES = 4 * 1024;
+    createEntries();
+    DiskStoreImpl diskStore = getDiskStore();
+    assertTrue(diskStore.numCompactableOplogs() > 1);
+    Oplog child = ((LocalRegion) region).getDiskRegion().testHook_getChild();
+    List<Oplog> compacted = new ArrayList<Oplog>(Arrays.asList(getOplogs()));
+    compacted.remove(child);
+    int compacts = getCompacts();
+
+    assertTrue(diskStore.forceCompaction());
+
+    DiskStoreStats stats = diskStore.getStats();
+    // the live values of every oplog do not fit in one increment
+    assertTrue("expected several compacts but was " + (getCompacts() - compacts),
+        getCompacts() - compacts > 1);
+    assertTrue(stats.getCompactedBytes() > 0);
+    assertTrue(stats.getWriteAmplification() > 1.0);
+    // every oplog that was compactable has been compacted and removed
+    List<Oplog> remaining = Arrays.asList(getOplogs());
+    for (Oplog oplog : compacted) {
+      assertFalse("oplog " + oplog.getOplogId() + " was not compacted", remaining.contains(oplog));
+    }
+    verifyEntries();
+
+    region.close();
+    region = DiskRegionHelperFactory.getSyncPersistOnlyRegion(cache, this.diskProps, Scope.LOCAL);
+    verifyEntries();
+  }
+
+  @Test
+  public void oplogsWithTheMostGarbageAreCompactedFirst() throws Exception {
+    DiskStoreImpl.COMPACTION_INCREMENT_BYTES = 4 * 1024;
+    region = DiskRegionHelperFactory.getSyncPersistOnlyRegion(cache, this.diskProps, Scope.LOCAL);
+    for (int i = 0; i < ENTRIES; i++) {
+      region.put(i, valueOf(i, "value"));
+    }
+    // destroy a larger fraction of the entries of newer oplogs
+    for (int i = 0; i < ENTRIES; i++) {
+      if (i % 10 < i * 10 / ENTRIES) {
+        region.destroy(i);
+      }
+    }
+    List<CompactableOplog> oplogs = new ArrayList<CompactableOplog>();
+    getDiskStore().getPersistentOplogSet(((LocalRegion) region).getDiskRegion())
+        .getCompactableOplogs(oplogs, Integer.MAX_VALUE);
+    assertTrue(oplogs.size() > 1);
+    for (int i = 1; i < oplogs.size(); i++) {
+      Oplog previous = (Oplog) oplogs.get(i - 1);
+      Oplog oplog = (Oplog) oplogs.get(i);
+      assertTrue(previous.getGarbageRatio() >= oplog.getGarbageRatio());
+      if (previous.getGarbageRatio() == oplog.getGarbageRatio()) {
+        assertTrue(previous.getOplogId() < oplog.getOplogId());
+      }
+    }
+  }
+
+  @Test
+  public void compactionStaysWithinItsBudget() throws Exception {
+    DiskStoreImpl.COMPACTION_MAX_MB_PER_SEC = 1;
+    createEntries();
+    DiskStoreImpl diskStore = getDiskStore();
+    long start = System.nanoTime();
+
+    assertTrue(diskStore.forceCompaction());
+
+    long elapsed = System.nanoTime() - start;
+    DiskStoreStats stats = diskStore.getStats();
+    long compactedBytes = stats.getCompactedBytes();
+    assertTrue(compactedBytes > 100 * 1024);
+    assertTrue(stats.getCompactThrottleTime() > 0);
+    // the bytes beyond the initial burst take at least a second per megabyte
+    long minimumNanos = (compactedBytes - 1024 * 1024 / 10) * 1000000000L / (1024 * 1024);
+    assertTrue("compacted " + compactedBytes + " bytes in " + elapsed + "ns",
+        elapsed >= minimumNanos);
+    verifyEntries();
+  }
+}
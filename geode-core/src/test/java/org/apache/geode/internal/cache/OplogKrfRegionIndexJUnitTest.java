@@ -0,0 +1,164 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.geode.internal.cache;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FilenameFilter;
+import java.util.Arrays;
+
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import org.apache.geode.cache.DataPolicy;
+import org.apache.geode.cache.DiskStoreFactory;
+import org.apache.geode.cache.Region;
+import org.apache.geode.cache.RegionFactory;
+import org.apache.geode.test.junit.categories.IntegrationTest;
+
+/**
+ * Tests recovering regions from krf files in the format enabled by
+ * {@link DiskStoreImpl#KRF_REGION_INDEX}.
+ */
+@Category(IntegrationTest.class)
+public class OplogKrfRegionIndexJUnitTest extends DiskRegionTestingBase {
+
+  private static final int ENTRIES = 1000;
+
+  private static final String[] REGION_NAMES = {"krfIndex1", "krfIndex2", "krfIndex3"};
+
+  @Override
+  protected void preSetUp() throws Exception {
+    DiskStoreImpl.KRF_REGION_INDEX = true;
+  }
+
+  @Override
+  protected void postTearDown() throws Exception {
+    DiskStoreImpl.KRF_REGION_INDEX = false;
+  }
+
+  private void createDiskStore() {
+    DiskStoreFactory dsf = cache.createDiskStoreFactory();
+    dsf.setDiskDirs(dirs);
+    ((DiskStoreFactoryImpl) dsf).setMaxOplogSizeInBytes(32 * 1024);
+    dsf.setAutoCompact(false);
+    dsf.create("krfIndex");
+  }
+
+  private Region<Integer, String> createRegion(String name) {
+    RegionFactory<Integer, String> rf = cache.createRegionFactory();
+    rf.setDataPolicy(DataPolicy.PERSISTENT_REPLICATE);
+    rf.setDiskStoreName("krfIndex");
+    return rf.create(name);
+  }
+
+  private static String valueOf(String regionName, int i) {
+    return regionName + "-" + i;
+  }
+
+  private File[] getKrfFiles() {
+    File[] files = new File[0];
+    for (File dir : dirs) {
+      File[] krfs = dir.listFiles(new FilenameFilter() {
+        public boolean accept(File dir, String name) {
+          return name.endsWith(Oplog.KRF_FILE_EXT);
+        }
+      });
+      if (krfs != null) {
+        files = concat(files, krfs);
+      }
+    }
+    return files;
+  }
+
+  private static File[] concat(File[] a, File[] b) {
+    File[] result = Arrays.copyOf(a, a.length + b.length);
+    System.arraycopy(b, 0, result, a.length, b.length);
+    return result;
+  }
+
+  private void createEntries() {
+    createDiskStore();
+    Region<Integer, String>[] regions = new Region[REGION_NAMES.length];
+    for (int r = 0; r < REGION_NAMES.length; r++) {
+      regions[r] = createRegion(REGION_NAMES[r]);
+    }
+    // interleave the regions so that every oplog has keys of all of them
+    for (int i = 0; i < ENTRIES; i++) {
+      for (int r = 0; r < REGION_NAMES.length; r++) {
+        regions[r].put(i, valueOf(REGION_NAMES[r], i));
+      }
+    }
+    for (int i = 0; i < ENTRIES; i += 5) {
+      regions[1].destroy(i);
+    }
+    cache.close();
+  }
+
+  private void verifyRegion(String name) {
+    Region<Integer, String> region = cache.getRegion(name);
+    for (int i = 0; i < ENTRIES; i++) {
+      if (name.equals(REGION_NAMES[1]) && i % 5 == 0) {
+        assertFalse(region.containsKey(i));
+      } else {
+        assertEquals(valueOf(name, i), region.get(i));
+      }
+    }
+  }
+
+  @Test
+  public void krfsAreWrittenWithRegionIndex() throws Exception {
+    createEntries();
+    File[] krfs = getKrfFiles();
+    assertTrue(krfs.length > 1);
+    for (File krf : krfs) {
+      byte[] magic = new byte[Oplog.OPLOG_TYPE.getLen()];
+      try (FileInputStream fis = new FileInputStream(krf)) {
+        // skip the opcode of the magic record
+        fis.read();
+        assertEquals(magic.length, fis.read(magic));
+      }
+      assertArrayEquals(Oplog.OPLOG_TYPE.KRF2.getBytes(), magic);
+    }
+  }
+
+  @Test
+  public void regionsCreatedOneAfterTheOtherAreRecovered() throws Exception {
+    createEntries();
+    cache = createCache();
+    createDiskStore();
+    // each region reads only its own keys from the krfs
+    for (int r = REGION_NAMES.length - 1; r >= 0; r--) {
+      createRegion(REGION_NAMES[r]);
+      verifyRegion(REGION_NAMES[r]);
+    }
+
+    // all the regions at once
+    cache.close();
+    cache = createCache();
+    createDiskStore();
+    for (String name : REGION_NAMES) {
+      createRegion(name);
+    }
+    for (String name : REGION_NAMES) {
+      verifyRegion(name);
+    }
+  }
+}
@@ -0,0 +1,146 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.geode.internal.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import org.apache.geode.test.junit.categories.IntegrationTest;
+
+/**
+ * Tests faulting in values from oplogs that are no longer written to through the mapping of their
+ * crf enabled by {@link DiskStoreImpl#MMAP_ROLLED_OPLOGS}.
+ */
+@Category(IntegrationTest.class)
+public class OplogMappedReadJUnitTest extends DiskRegionTestingBase {
+
+  private static final int ENTRIES = 1000;
+
+  private static final int THREADS = 4;
+
+  private final DiskRegionProperties diskProps = new DiskRegionProperties();
+
+  @Override
+  protected void preSetUp() throws Exception {
+    DiskStoreImpl.MMAP_ROLLED_OPLOGS = true;
+  }
+
+  @Override
+  protected void postSetUp() throws Exception {
+    this.diskProps.setDiskDirs(dirs);
+    this.diskProps.setRegionName("mappedRead");
+    this.diskProps.setMaxOplogSize(16 * 1024);
+    this.diskProps.setRolling(false);
+    this.diskProps.setOverFlowCapacity(1);
+  }
+
+  @Override
+  protected void postTearDown() throws Exception {
+    DiskStoreImpl.MMAP_ROLLED_OPLOGS = false;
+  }
+
+  private static String valueOf(int i) {
+    return "value" + i;
+  }
+
+  private void createEntries() {
+    region = DiskRegionHelperFactory.getSyncOverFlowAndPersistRegion(cache, this.diskProps);
+    for (int i = 0; i < ENTRIES; i++) {
+      region.put(i, valueOf(i));
+    }
+  }
+
+  private void concurrentlyVerifyEntries() throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+    try {
+      List<Future<Void>> futures = new ArrayList<Future<Void>>();
+      for (int t = 0; t < THREADS; t++) {
+        final int first = t;
+        futures.add(executor.submit(new Callable<Void>() {
+          @Override
+          public Void call() throws Exception {
+            for (int i = first; i < ENTRIES; i += THREADS) {
+              assertEquals(valueOf(i), region.get(i));
+            }
+            return null;
+          }
+        }));
+      }
+      for (Future<Void> future : futures) {
+        future.get();
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private int countMappedOplogs() {
+    LocalRegion localRegion = (LocalRegion) region;
+    Oplog[] oplogs = localRegion.getDiskStore()
+        .getPersistentOplogSet(localRegion.getDiskRegion()).getAllOplogs();
+    int mapped = 0;
+    for (Oplog oplog : oplogs) {
+      if (oplog.isCrfMapped()) {
+        mapped++;
+      }
+    }
+    return mapped;
+  }
+
+  @Test
+  public void faultsInValuesFromMappedOplogs() throws Exception {
+    createEntries();
+    Oplog child = ((LocalRegion) region).getDiskRegion().testHook_getChild();
+    concurrentlyVerifyEntries();
+
+    assertTrue("no oplog was mapped", countMappedOplogs() > 0);
+    // the oplog still written to is read from the file
+    assertFalse(child.isCrfMapped());
+  }
+
+  @Test
+  public void faultsInValuesFromMappedRecoveredOplogs() throws Exception {
+    createEntries();
+    region.close();
+    region = DiskRegionHelperFactory.getSyncOverFlowAndPersistRegion(cache, this.diskProps);
+    concurrentlyVerifyEntries();
+    assertTrue("no recovered oplog was mapped", countMappedOplogs() > 0);
+
+    // the values of the mapped oplogs can still be read once they are modified
+    for (int i = 0; i < ENTRIES; i += 2) {
+      region.put(i, valueOf(i));
+    }
+    concurrentlyVerifyEntries();
+  }
+
+  @Test
+  public void valuesAreReadFromTheFileWhenDisabled() throws Exception {
+    DiskStoreImpl.MMAP_ROLLED_OPLOGS = false;
+    createEntries();
+    concurrentlyVerifyEntries();
+    assertEquals(0, countMappedOplogs());
+  }
+}
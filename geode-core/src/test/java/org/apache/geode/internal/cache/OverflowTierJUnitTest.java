@@ -0,0 +1,164 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.geode.internal.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import org.apache.geode.internal.cache.lru.LRUStatistics;
+import org.apache.geode.test.junit.categories.IntegrationTest;
+
+/**
+ * Tests faulting in evicted values from the off-heap tier enabled by
+ * {@link DiskStoreImpl#OVERFLOW_TIER_MAX_MB}.
+ */
+@Category(IntegrationTest.class)
+public class OverflowTierJUnitTest extends DiskRegionTestingBase {
+
+  private static final int ENTRIES = 200;
+
+  private static final int CAPACITY = 10;
+
+  private final DiskRegionProperties diskProps = new DiskRegionProperties();
+
+  @Override
+  protected void preSetUp() throws Exception {
+    DiskStoreImpl.OVERFLOW_TIER_MAX_MB = 4;
+  }
+
+  @Override
+  protected void postSetUp() throws Exception {
+    this.diskProps.setDiskDirs(dirs);
+    this.diskProps.setRegionName("overflowTier");
+    this.diskProps.setOverFlowCapacity(CAPACITY);
+  }
+
+  @Override
+  protected void postTearDown() throws Exception {
+    DiskStoreImpl.OVERFLOW_TIER_MAX_MB = 0;
+  }
+
+  private static String valueOf(int i) {
+    StringBuilder sb = new StringBuilder();
+    for (int j = 0; j < 20; j++) {
+      sb.append("value").append(i);
+    }
+    return sb.toString();
+  }
+
+  private LRUStatistics getLRUStatistics() {
+    return ((AbstractLRURegionMap) ((LocalRegion) region).getRegionMap()).getLRUStatistics();
+  }
+
+  private OverflowTier getOverflowTier() {
+    return ((LocalRegion) region).getDiskStore().getOverflowTier();
+  }
+
+  private void putEntries() {
+    for (int i = 0; i < ENTRIES; i++) {
+      region.put(i, valueOf(i));
+    }
+  }
+
+  @Test
+  public void evictedValuesAreFaultedInFromTheTier() throws Exception {
+    region = DiskRegionHelperFactory.getSyncOverFlowOnlyRegion(cache, this.diskProps);
+    assertNotNull(getOverflowTier());
+    putEntries();
+    assertEquals(ENTRIES - CAPACITY, getOverflowTier().size());
+    // the values are repetitive so they are stored compressed
+    assertTrue(getOverflowTier().getUsedBytes() < (ENTRIES - CAPACITY) * valueOf(0).length());
+
+    for (int i = 0; i < ENTRIES; i++) {
+      assertEquals(valueOf(i), region.get(i));
+    }
+    // faulting in evicts other values into the tier, which are faulted in from there as well
+    LRUStatistics stats = getLRUStatistics();
+    assertTrue(stats.getOverflowTierHits() >= ENTRIES - CAPACITY);
+    assertEquals(0, stats.getOverflowDiskHits());
+  }
+
+  @Test
+  public void valuesChangedAfterEvictionAreNotReadFromTheTier() throws Exception {
+    region = DiskRegionHelperFactory.getSyncOverFlowAndPersistRegion(cache, this.diskProps);
+    putEntries();
+    // update or destroy the evicted entries
+    for (int i = 0; i < ENTRIES - CAPACITY; i++) {
+      if (i % 2 == 0) {
+        region.destroy(i);
+      } else {
+        region.put(i, valueOf(i + 1));
+      }
+    }
+
+    for (int i = 0; i < ENTRIES - CAPACITY; i++) {
+      if (i % 2 == 0) {
+        assertNull(region.get(i));
+      } else {
+        assertEquals(valueOf(i + 1), region.get(i));
+      }
+    }
+  }
+
+  @Test
+  public void destroyedEntriesAreRemovedFromTheTier() throws Exception {
+    region = DiskRegionHelperFactory.getSyncOverFlowOnlyRegion(cache, this.diskProps);
+    putEntries();
+    for (int i = 0; i < ENTRIES - CAPACITY; i++) {
+      region.destroy(i);
+    }
+    assertEquals(0, getOverflowTier().size());
+    assertEquals(0, getOverflowTier().getUsedBytes());
+  }
+
+  @Test
+  public void clearedRegionsAreRemovedFromTheTier() throws Exception {
+    region = DiskRegionHelperFactory.getSyncOverFlowOnlyRegion(cache, this.diskProps);
+    putEntries();
+    region.clear();
+    assertEquals(0, getOverflowTier().size());
+  }
+
+  @Test
+  public void destroyedRegionsAreRemovedFromTheTier() throws Exception {
+    region = DiskRegionHelperFactory.getSyncOverFlowOnlyRegion(cache, this.diskProps);
+    OverflowTier tier = getOverflowTier();
+    putEntries();
+    region.destroyRegion();
+    assertEquals(0, tier.size());
+    assertEquals(0, tier.getUsedBytes());
+  }
+
+  @Test
+  public void tierIsNotUsedUnlessItHasASize() throws Exception {
+    cache.close();
+    ds.disconnect();
+    DiskStoreImpl.OVERFLOW_TIER_MAX_MB = 0;
+    cache = createCache();
+    region = DiskRegionHelperFactory.getSyncOverFlowOnlyRegion(cache, this.diskProps);
+    assertNull(getOverflowTier());
+    putEntries();
+    for (int i = 0; i < ENTRIES; i++) {
+      assertEquals(valueOf(i), region.get(i));
+    }
+    assertTrue(getLRUStatistics().getOverflowDiskHits() >= ENTRIES - CAPACITY);
+    assertEquals(0, getLRUStatistics().getOverflowTierHits());
+  }
+}
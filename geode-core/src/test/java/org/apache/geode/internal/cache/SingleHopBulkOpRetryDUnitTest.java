@@ -0,0 +1,373 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.geode.internal.cache;
+
+import static org.apache.geode.distributed.ConfigurationProperties.LOG_LEVEL;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import org.apache.geode.cache.Cache;
+import org.apache.geode.cache.CacheLoader;
+import org.apache.geode.cache.EntryEvent;
+import org.apache.geode.cache.LoaderHelper;
+import org.apache.geode.cache.PartitionAttributesFactory;
+import org.apache.geode.cache.Region;
+import org.apache.geode.cache.RegionShortcut;
+import org.apache.geode.cache.client.ClientCache;
+import org.apache.geode.cache.client.ClientCacheFactory;
+import org.apache.geode.cache.client.ClientRegionShortcut;
+import org.apache.geode.cache.client.internal.ClientMetadataService;
+import org.apache.geode.cache.client.internal.ClientPartitionAdvisor;
+import org.apache.geode.cache.partition.PartitionRegionHelper;
+import org.apache.geode.cache.server.CacheServer;
+import org.apache.geode.cache.util.CacheWriterAdapter;
+import org.apache.geode.distributed.DistributedMember;
+import org.apache.geode.internal.AvailablePortHelper;
+import org.apache.geode.test.dunit.Assert;
+import org.apache.geode.test.dunit.Host;
+import org.apache.geode.test.dunit.IgnoredException;
+import org.apache.geode.test.dunit.LogWriterUtils;
+import org.apache.geode.test.dunit.SerializableCallable;
+import org.apache.geode.test.dunit.SerializableRunnable;
+import org.apache.geode.test.dunit.VM;
+import org.apache.geode.test.dunit.Wait;
+import org.apache.geode.test.dunit.WaitCriterion;
+import org.apache.geode.test.dunit.cache.internal.JUnit4CacheTestCase;
+import org.apache.geode.test.junit.categories.ClientServerTest;
+import org.apache.geode.test.junit.categories.DistributedTest;
+
+/**
+ * Tests that a single hop putAll, removeAll or getAll sends the keys of a server that failed during
+ * the op again, once, to the server that took over as primary for them.
+ */
+@Category({DistributedTest.class, ClientServerTest.class})
+public class SingleHopBulkOpRetryDUnitTest extends JUnit4CacheTestCase {
+
+  private static final int TOTAL_NUM_BUCKETS = 4;
+
+  private static final int NUM_KEYS = 40;
+
+  private static final long CLOSE_WAIT_MILLIS = 30 * 1000;
+
+  @Override
+  public final void postSetUp() throws Exception {
+    disconnectAllFromDS();
+    IgnoredException.addIgnoredException("Broken pipe");
+    IgnoredException.addIgnoredException("Connection reset");
+    IgnoredException.addIgnoredException("Unexpected IOException");
+    IgnoredException.addIgnoredException("java.net.ConnectException||java.net.SocketException");
+    IgnoredException.addIgnoredException("CacheClosedException");
+  }
+
+  /** The server that survives and becomes primary for every bucket */
+  private VM getSurvivor() {
+    return Host.getHost(0).getVM(0);
+  }
+
+  /** The server that closes its cache in the middle of an op */
+  private VM getVictim() {
+    return Host.getHost(0).getVM(1);
+  }
+
+  private int createServer(VM vm, final String regionName, final int redundantCopies) {
+    return (Integer) vm.invoke(new SerializableCallable("create server") {
+      public Object call() {
+        Cache cache = getCache();
+        cache.createRegionFactory(RegionShortcut.PARTITION)
+            .setPartitionAttributes(new PartitionAttributesFactory()
+                .setRedundantCopies(redundantCopies).setTotalNumBuckets(TOTAL_NUM_BUCKETS).create())
+            .setCacheLoader(new KeyLoader())
+            // a writer of its own so that its ops do not call the writer of the other server
+            .setCacheWriter(new CacheWriterAdapter()).create(regionName);
+        CacheServer server = cache.addCacheServer();
+        server.setPort(AvailablePortHelper.getRandomAvailableTCPPort());
+        server.setHostnameForClients("localhost");
+        try {
+          server.start();
+        } catch (IOException e) {
+          Assert.fail("Failed to start server ", e);
+        }
+        return server.getPort();
+      }
+    });
+  }
+
+  /**
+   * Creates both servers, their buckets and a single hop client region that knows where every
+   * bucket is.
+   */
+  private LocalRegion createServersAndClient(String regionName, int redundantCopies) {
+    int survivorPort = createServer(getSurvivor(), regionName, redundantCopies);
+    int victimPort = createServer(getVictim(), regionName, redundantCopies);
+    getSurvivor().invoke(new SerializableRunnable("create buckets") {
+      public void run() {
+        PartitionRegionHelper.assignBucketsToPartitions(getCache().getRegion(regionName));
+      }
+    });
+    assertTrue(hasPrimaries(getSurvivor(), regionName));
+    assertTrue(hasPrimaries(getVictim(), regionName));
+
+    ClientCache cache = getClientCache(new ClientCacheFactory()
+        .addPoolServer("localhost", survivorPort).addPoolServer("localhost", victimPort)
+        .setPoolPRSingleHopEnabled(true).set(LOG_LEVEL, LogWriterUtils.getDUnitLogLevel()));
+    LocalRegion region = (LocalRegion) cache
+        .createClientRegionFactory(ClientRegionShortcut.PROXY).create(regionName);
+    waitForMetadata(region);
+    return region;
+  }
+
+  private boolean hasPrimaries(VM vm, final String regionName) {
+    return (Boolean) vm.invoke(new SerializableCallable("has primaries") {
+      public Object call() {
+        PartitionedRegion pr = (PartitionedRegion) getCache().getRegion(regionName);
+        return !pr.getLocalPrimaryBucketsListTestOnly().isEmpty();
+      }
+    });
+  }
+
+  private static void waitForMetadata(LocalRegion region) {
+    ClientMetadataService cms = region.getCache().getClientMetadataService();
+    cms.getClientPRMetadata(region);
+    final ClientPartitionAdvisor advisor =
+        cms.getClientPRMetadata_TEST_ONLY().get(region.getFullPath());
+    assertTrue(advisor != null);
+    Wait.waitForCriterion(new WaitCriterion() {
+      public boolean done() {
+        return advisor.getBucketServerLocationsMap_TEST_ONLY().size() == TOTAL_NUM_BUCKETS;
+      }
+
+      public String description() {
+        return "waiting for the locations of all buckets, have "
+            + advisor.getBucketServerLocationsMap_TEST_ONLY();
+      }
+    }, 30 * 1000, 200, true);
+  }
+
+  /**
+   * Makes the victim close its cache as soon as it writes or loads one of the keys it is primary
+   * for.
+   */
+  private void closeVictimMidOp(final String regionName) {
+    getVictim().invoke(new SerializableRunnable("close mid op") {
+      public void run() {
+        Region region = getCache().getRegion(regionName);
+        region.getAttributesMutator().setCacheWriter(new ClosingWriter());
+        region.getAttributesMutator().setCacheLoader(new ClosingLoader());
+      }
+    });
+  }
+
+  private int getRequests(VM vm, final String statName) {
+    return (Integer) vm.invoke(new SerializableCallable("get " + statName) {
+      public Object call() {
+        CacheServerImpl server = (CacheServerImpl) getCache().getCacheServers().get(0);
+        return server.getAcceptor().getStats().getStats().getInt(statName);
+      }
+    });
+  }
+
+  private Map<Object, Object> getServerData(final String regionName) {
+    return (Map<Object, Object>) getSurvivor().invoke(new SerializableCallable("get data") {
+      public Object call() {
+        Region region = getCache().getRegion(regionName);
+        Map<Object, Object> result = new HashMap<Object, Object>();
+        for (Object key : region.keySet()) {
+          result.put(key, region.get(key));
+        }
+        return result;
+      }
+    });
+  }
+
+  private static List<Object> keys() {
+    List<Object> keys = new ArrayList<Object>();
+    for (int i = 0; i < NUM_KEYS; i++) {
+      keys.add(i);
+    }
+    return keys;
+  }
+
+  private static Map<Object, Object> values() {
+    Map<Object, Object> values = new HashMap<Object, Object>();
+    for (Object key : keys()) {
+      values.put(key, "value-" + key);
+    }
+    return values;
+  }
+
+  @Test
+  public void putAllRetriesTheKeysOfTheFailedServerOnTheNewPrimary() throws Exception {
+    String regionName = getUniqueName();
+    LocalRegion region = createServersAndClient(regionName, 1);
+    CachePerfStats stats = region.getCachePerfStats();
+    long retries = stats.getSingleHopBulkOpRetries();
+    int requests = getRequests(getSurvivor(), "putAllRequests");
+    closeVictimMidOp(regionName);
+
+    region.putAll(values());
+
+    assertEquals(retries + 1, stats.getSingleHopBulkOpRetries());
+    // the survivor's own keys, then the keys of the victim
+    assertEquals(requests + 2, getRequests(getSurvivor(), "putAllRequests"));
+    assertEquals(values(), getServerData(regionName));
+  }
+
+  @Test
+  public void removeAllRetriesTheKeysOfTheFailedServerOnTheNewPrimary() throws Exception {
+    final String regionName = getUniqueName();
+    LocalRegion region = createServersAndClient(regionName, 1);
+    getSurvivor().invoke(new SerializableRunnable("put data") {
+      public void run() {
+        getCache().getRegion(regionName).putAll(values());
+      }
+    });
+    CachePerfStats stats = region.getCachePerfStats();
+    long retries = stats.getSingleHopBulkOpRetries();
+    int requests = getRequests(getSurvivor(), "removeAllRequests");
+    closeVictimMidOp(regionName);
+
+    region.removeAll(keys());
+
+    assertEquals(retries + 1, stats.getSingleHopBulkOpRetries());
+    assertEquals(requests + 2, getRequests(getSurvivor(), "removeAllRequests"));
+    assertTrue(getServerData(regionName).isEmpty());
+  }
+
+  @Test
+  public void getAllRetriesTheKeysOfTheFailedServerOnTheNewPrimary() throws Exception {
+    String regionName = getUniqueName();
+    LocalRegion region = createServersAndClient(regionName, 1);
+    CachePerfStats stats = region.getCachePerfStats();
+    long retries = stats.getSingleHopBulkOpRetries();
+    int requests = getRequests(getSurvivor(), "getAllRequests");
+    closeVictimMidOp(regionName);
+
+    Map<Object, Object> result = region.getAll(keys());
+
+    assertEquals(NUM_KEYS, result.size());
+    for (Object key : keys()) {
+      assertEquals("loaded-" + key, result.get(key));
+    }
+    assertEquals(retries + 1, stats.getSingleHopBulkOpRetries());
+    // the retry splits the keys again by the metadata fetched after the failure, which can still
+    // show the victim as primary for some of them until the survivor has taken them over; those
+    // are then sent to the survivor once more
+    int retryRequests = getRequests(getSurvivor(), "getAllRequests") - requests - 1;
+    assertTrue("retry requests " + retryRequests, retryRequests == 1 || retryRequests == 2);
+  }
+
+  @Test
+  public void opsForwardedByTheServerAreCountedAsNonSingleHops() throws Exception {
+    final String regionName = getUniqueName();
+    LocalRegion region = createServersAndClient(regionName, 0);
+    final DistributedMember survivor =
+        (DistributedMember) getSurvivor().invoke(new SerializableCallable("get member") {
+          public Object call() {
+            return getCache().getDistributedSystem().getDistributedMember();
+          }
+        });
+    // moves the bucket of a key the victim is primary for without telling the client
+    Object key = getVictim().invoke(new SerializableCallable("move bucket") {
+      public Object call() {
+        Region region = getCache().getRegion(regionName);
+        DistributedMember self = getCache().getDistributedSystem().getDistributedMember();
+        for (Object candidate : keys()) {
+          if (self.equals(PartitionRegionHelper.getPrimaryMemberForKey(region, candidate))) {
+            PartitionRegionHelper.moveBucketByKey(region, self, survivor, candidate);
+            return candidate;
+          }
+        }
+        throw new AssertionError("no primary buckets on " + self);
+      }
+    });
+    CachePerfStats stats = region.getCachePerfStats();
+    long nonSingleHops = stats.getNonSingleHopsCount();
+    long retries = stats.getSingleHopBulkOpRetries();
+
+    region.put(key, "value");
+
+    assertEquals(nonSingleHops + 1, stats.getNonSingleHopsCount());
+    assertEquals(retries, stats.getSingleHopBulkOpRetries());
+    assertEquals("value", getServerData(regionName).get(key));
+  }
+
+  /**
+   * Closes the cache of the member it runs in the first time it is called, and fails like any
+   * other op of that member would until the cache has been closed.
+   */
+  private static void closeCache(final Cache cache, AtomicBoolean closing) {
+    if (closing.compareAndSet(false, true)) {
+      new Thread(new Runnable() {
+        public void run() {
+          cache.close();
+        }
+      }, "close cache").start();
+    }
+    long giveUp = System.currentTimeMillis() + CLOSE_WAIT_MILLIS;
+    while (!cache.isClosed() && System.currentTimeMillis() < giveUp) {
+      try {
+        Thread.sleep(10);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        break;
+      }
+    }
+    assertTrue("cache was not closed", cache.isClosed());
+    cache.getCancelCriterion().checkCancelInProgress(null);
+  }
+
+  private static class ClosingWriter extends CacheWriterAdapter {
+    private final AtomicBoolean closing = new AtomicBoolean();
+
+    @Override
+    public void beforeCreate(EntryEvent event) {
+      closeCache(event.getRegion().getCache(), this.closing);
+    }
+
+    @Override
+    public void beforeDestroy(EntryEvent event) {
+      closeCache(event.getRegion().getCache(), this.closing);
+    }
+  }
+
+  private static class ClosingLoader implements CacheLoader {
+    private final AtomicBoolean closing = new AtomicBoolean();
+
+    public Object load(LoaderHelper helper) {
+      closeCache(helper.getRegion().getCache(), this.closing);
+      return null;
+    }
+
+    public void close() {}
+  }
+
+  private static class KeyLoader implements CacheLoader {
+    public Object load(LoaderHelper helper) {
+      return "loaded-" + helper.getKey();
+    }
+
+    public void close() {}
+  }
+}
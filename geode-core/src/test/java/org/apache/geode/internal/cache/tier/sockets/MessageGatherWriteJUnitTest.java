@@ -0,0 +1,164 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.geode.internal.cache.tier.sockets;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import org.apache.geode.internal.Version;
+import org.apache.geode.internal.cache.tier.MessageType;
+import org.apache.geode.internal.offheap.StoredObject;
+import org.apache.geode.test.junit.categories.ClientServerTest;
+import org.apache.geode.test.junit.categories.IntegrationTest;
+
+/**
+ * Tests sending messages whose off-heap parts do not fit in the comm buffer, which are written to
+ * the channel together with the comm buffer in gathering writes.
+ */
+@Category({IntegrationTest.class, ClientServerTest.class})
+public class MessageGatherWriteJUnitTest {
+
+  private static final int BUFFER_SIZE = 1024;
+
+  private ServerSocketChannel acceptor;
+  private SocketChannel client;
+  private SocketChannel server;
+  private MessageStats stats;
+
+  @Before
+  public void setUp() throws Exception {
+    this.acceptor = ServerSocketChannel.open();
+    this.acceptor.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+    this.client = SocketChannel.open(this.acceptor.getLocalAddress());
+    this.server = this.acceptor.accept();
+    this.stats = mock(MessageStats.class);
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    this.client.close();
+    this.server.close();
+    this.acceptor.close();
+  }
+
+  private static byte[] bytes(int length, int seed) {
+    byte[] result = new byte[length];
+    for (int i = 0; i < length; i++) {
+      result[i] = (byte) (seed + i);
+    }
+    return result;
+  }
+
+  /**
+   * Returns an off-heap value whose memory can be wrapped in a direct buffer.
+   */
+  private static StoredObject offHeap(final byte[] value) {
+    StoredObject so = mock(StoredObject.class);
+    when(so.hasRefCount()).thenReturn(true);
+    when(so.getDataSize()).thenReturn(value.length);
+    when(so.createDirectByteBuffer()).thenAnswer(invocation -> {
+      ByteBuffer bb = ByteBuffer.allocateDirect(value.length);
+      bb.put(value);
+      bb.flip();
+      return bb;
+    });
+    return so;
+  }
+
+  private Message send(Object... parts) throws Exception {
+    Message msg = new Message(parts.length, Version.CURRENT);
+    msg.setMessageType(MessageType.PUT);
+    msg.setTransactionId(1);
+    for (Object part : parts) {
+      msg.addPartInAnyForm(part, false);
+    }
+    msg.setComms(this.client.socket(), ByteBuffer.allocateDirect(BUFFER_SIZE), this.stats);
+    msg.send();
+
+    Message received = new Message(parts.length, Version.CURRENT);
+    received.setComms(this.server.socket(), ByteBuffer.allocateDirect(BUFFER_SIZE), null);
+    received.recv();
+    assertEquals(MessageType.PUT, received.getMessageType());
+    assertEquals(parts.length, received.getNumberOfParts());
+    return received;
+  }
+
+  @Test
+  public void sendsHeapAndOffHeapPartsInOrder() throws Exception {
+    byte[] small = bytes(10, 1);
+    byte[] heap = bytes(4 * BUFFER_SIZE, 2);
+    byte[] offHeap = bytes(3 * BUFFER_SIZE + 7, 3);
+    byte[] smallOffHeap = bytes(20, 4);
+    byte[] lastOffHeap = bytes(5 * BUFFER_SIZE, 5);
+    StoredObject offHeapPart = offHeap(offHeap);
+
+    Message received =
+        send(small, heap, offHeapPart, offHeap(smallOffHeap), offHeap(lastOffHeap), small);
+
+    assertArrayEquals(small, received.getPart(0).getSerializedForm());
+    assertArrayEquals(heap, received.getPart(1).getSerializedForm());
+    assertArrayEquals(offHeap, received.getPart(2).getSerializedForm());
+    assertArrayEquals(smallOffHeap, received.getPart(3).getSerializedForm());
+    assertArrayEquals(lastOffHeap, received.getPart(4).getSerializedForm());
+    assertArrayEquals(small, received.getPart(5).getSerializedForm());
+    verify(offHeapPart, atLeastOnce()).createDirectByteBuffer();
+  }
+
+  @Test
+  public void sendsAnOffHeapPartFollowingAFullCommBuffer() throws Exception {
+    // fills the comm buffer up to the end of the header of the off-heap part
+    byte[] filler = bytes(BUFFER_SIZE - Message.FIXED_LENGTH - 2 * 5, 6);
+    byte[] offHeap = bytes(2 * BUFFER_SIZE, 7);
+
+    Message received = send(filler, offHeap(offHeap));
+
+    assertArrayEquals(filler, received.getPart(0).getSerializedForm());
+    assertArrayEquals(offHeap, received.getPart(1).getSerializedForm());
+  }
+
+  @Test
+  public void countsTheBytesOfGatheredWritesAsSent() throws Exception {
+    byte[] offHeap = bytes(3 * BUFFER_SIZE, 8);
+    long[] sent = new long[1];
+    doAnswer(invocation -> {
+      sent[0] += (Long) invocation.getArguments()[0];
+      return null;
+    }).when(this.stats).incSentBytes(anyLong());
+
+    send(bytes(10, 9), offHeap(offHeap));
+
+    // the header, two part headers and the two parts
+    assertEquals(Message.FIXED_LENGTH + 2 * 5 + 10 + offHeap.length, sent[0]);
+    assertTrue(sent[0] > BUFFER_SIZE);
+  }
+}
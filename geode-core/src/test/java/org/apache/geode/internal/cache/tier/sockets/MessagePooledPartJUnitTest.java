@@ -0,0 +1,129 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.geode.internal.cache.tier.sockets;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import org.apache.geode.internal.Version;
+import org.apache.geode.internal.cache.tier.MessageType;
+import org.apache.geode.internal.util.BlobHelper;
+import org.apache.geode.test.junit.categories.ClientServerTest;
+import org.apache.geode.test.junit.categories.IntegrationTest;
+
+/**
+ * Tests receiving messages whose large object parts are read into buffers of the part buffer pool.
+ */
+@Category({IntegrationTest.class, ClientServerTest.class})
+public class MessagePooledPartJUnitTest {
+
+  private static final int BUFFER_SIZE = 1024;
+
+  private ServerSocketChannel acceptor;
+  private SocketChannel client;
+  private SocketChannel server;
+
+  @Before
+  public void setUp() throws Exception {
+    this.acceptor = ServerSocketChannel.open();
+    this.acceptor.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+    this.client = SocketChannel.open(this.acceptor.getLocalAddress());
+    this.server = this.acceptor.accept();
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    this.client.close();
+    this.server.close();
+    this.acceptor.close();
+  }
+
+  private static String largeString() {
+    StringBuilder sb = new StringBuilder();
+    while (sb.length() < 2 * PartBufferPool.MIN_POOLED_PART_SIZE) {
+      sb.append(sb.length());
+    }
+    return sb.toString();
+  }
+
+  private Message send(Object... parts) throws Exception {
+    Message msg = new Message(parts.length, Version.CURRENT);
+    msg.setMessageType(MessageType.PUT);
+    msg.setTransactionId(1);
+    for (Object part : parts) {
+      msg.addObjPart(part);
+    }
+    msg.setComms(this.client.socket(), ByteBuffer.allocateDirect(BUFFER_SIZE),
+        mock(MessageStats.class));
+    msg.send();
+
+    Message received = new Message(parts.length, Version.CURRENT);
+    received.setComms(this.server.socket(), ByteBuffer.allocateDirect(BUFFER_SIZE), null);
+    received.recv();
+    assertEquals(parts.length, received.getNumberOfParts());
+    return received;
+  }
+
+  @Test
+  public void deserializesALargePartFromItsPooledBuffer() throws Exception {
+    String large = largeString();
+
+    Message received = send("small", large, "last");
+
+    assertEquals("small", received.getPart(0).getObject());
+    assertEquals(large, received.getPart(1).getObject());
+    assertEquals("last", received.getPart(2).getObject());
+  }
+
+  @Test
+  public void givesTheBufferBackWhenTheMessageIsCleared() throws Exception {
+    String large = largeString();
+    int partLength = BlobHelper.serializeToBlob(large).length;
+
+    Message received = send(large);
+    int pooled = PartBufferPool.DIRECT.getPooledCount(partLength);
+    assertEquals(partLength, received.getPart(0).getLength());
+    received.clearParts();
+
+    assertEquals(pooled + 1, PartBufferPool.DIRECT.getPooledCount(partLength));
+  }
+
+  @Test
+  public void copiesTheSerializedFormOutOfThePooledBuffer() throws Exception {
+    String large = largeString();
+    byte[] expected = BlobHelper.serializeToBlob(large);
+
+    Message received = send(large);
+    int pooled = PartBufferPool.DIRECT.getPooledCount(expected.length);
+    byte[] serializedForm = received.getPart(0).getSerializedForm();
+    assertEquals(pooled + 1, PartBufferPool.DIRECT.getPooledCount(expected.length));
+    received.clearParts();
+
+    assertArrayEquals(expected, serializedForm);
+    assertEquals(large, BlobHelper.deserializeBlob(serializedForm));
+  }
+}
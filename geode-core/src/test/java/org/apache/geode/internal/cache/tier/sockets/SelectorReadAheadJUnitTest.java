@@ -0,0 +1,177 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.geode.internal.cache.tier.sockets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import org.apache.geode.internal.Version;
+import org.apache.geode.internal.cache.tier.MessageType;
+import org.apache.geode.test.junit.categories.ClientServerTest;
+import org.apache.geode.test.junit.categories.IntegrationTest;
+
+/**
+ * Tests receiving a request part of which the selector thread has already read into the read
+ * ahead buffer of its connection.
+ */
+@Category({IntegrationTest.class, ClientServerTest.class})
+public class SelectorReadAheadJUnitTest {
+
+  private static final int BUFFER_SIZE = 1024;
+
+  private ServerSocketChannel acceptor;
+  private SocketChannel client;
+  private SocketChannel server;
+  private boolean readAheadWasEnabled;
+
+  @Before
+  public void setUp() throws Exception {
+    this.acceptor = ServerSocketChannel.open();
+    this.acceptor.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+    this.client = SocketChannel.open(this.acceptor.getLocalAddress());
+    this.server = this.acceptor.accept();
+    this.readAheadWasEnabled = AcceptorImpl.SELECTOR_READ_AHEAD;
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    AcceptorImpl.SELECTOR_READ_AHEAD = this.readAheadWasEnabled;
+    this.client.close();
+    this.server.close();
+    this.acceptor.close();
+  }
+
+  /**
+   * Returns the bytes a client sends for a request with the given parts.
+   */
+  private byte[] encode(String... parts) throws Exception {
+    Message msg = new Message(parts.length, Version.CURRENT);
+    msg.setMessageType(MessageType.PUT);
+    msg.setTransactionId(1);
+    for (String part : parts) {
+      msg.addStringPart(part);
+    }
+    msg.setComms(this.client.socket(), ByteBuffer.allocateDirect(BUFFER_SIZE), null);
+    msg.send();
+
+    ByteBuffer header = ByteBuffer.allocate(Message.FIXED_LENGTH);
+    readFully(header);
+    int len = header.getInt(Message.PAYLOAD_LENGTH_OFFSET);
+    ByteBuffer result = ByteBuffer.allocate(Message.FIXED_LENGTH + len);
+    header.flip();
+    result.put(header);
+    readFully(result);
+    return result.array();
+  }
+
+  private void readFully(ByteBuffer bb) throws Exception {
+    while (bb.hasRemaining()) {
+      assertTrue(this.server.read(bb) >= 0);
+    }
+  }
+
+  /**
+   * Receives a request whose first readAhead bytes were read ahead and whose other bytes are still
+   * in the channel.
+   */
+  private Message receive(byte[] bytes, int readAhead) throws Exception {
+    ByteBuffer readAheadBuffer = ByteBuffer.allocate(BUFFER_SIZE);
+    readAheadBuffer.put(bytes, 0, readAhead);
+    readAheadBuffer.flip();
+    this.client.write(ByteBuffer.wrap(bytes, readAhead, bytes.length - readAhead));
+
+    Message msg = new Message(2, Version.CURRENT);
+    msg.setComms(this.server.socket(), ByteBuffer.allocate(BUFFER_SIZE), null);
+    msg.setReadAheadBuffer(readAheadBuffer);
+    msg.recv();
+    assertFalse(readAheadBuffer.hasRemaining());
+    return msg;
+  }
+
+  private static void assertRequest(Message msg, String... parts) throws Exception {
+    assertEquals(MessageType.PUT, msg.getMessageType());
+    assertEquals(1, msg.getTransactionId());
+    assertEquals(parts.length, msg.getNumberOfParts());
+    for (int i = 0; i < parts.length; i++) {
+      assertEquals(parts[i], msg.getPart(i).getString());
+    }
+  }
+
+  @Test
+  public void receivesARequestSplitBetweenTheReadAheadBufferAndTheChannel() throws Exception {
+    // part of the header, the whole header, part of the payload
+    int[] splits = {1, Message.FIXED_LENGTH - 1, Message.FIXED_LENGTH, Message.FIXED_LENGTH + 5};
+    for (int split : splits) {
+      assertRequest(receive(encode("key", "value"), split), "key", "value");
+    }
+    byte[] bytes = encode("key", "value");
+    assertRequest(receive(bytes, bytes.length - 1), "key", "value");
+  }
+
+  @Test
+  public void receivesARequestThatWasReadAheadWhole() throws Exception {
+    byte[] bytes = encode("key", "value");
+    // the channel is not read, a read would fail now that the client has shut down its output
+    this.client.shutdownOutput();
+    assertRequest(receive(bytes, bytes.length), "key", "value");
+  }
+
+  @Test
+  public void readsTheNextRequestFromTheChannelOnceTheReadAheadBufferIsUsedUp()
+      throws Exception {
+    byte[] first = encode("key1", "value1");
+    byte[] second = encode("key2", "value2");
+    Message msg = receive(first, first.length);
+    assertRequest(msg, "key1", "value1");
+    msg.clear();
+
+    this.client.write(ByteBuffer.wrap(second));
+    msg.recv();
+    assertRequest(msg, "key2", "value2");
+  }
+
+  @Test
+  public void doesNotReadAheadWhenDisabled() throws Exception {
+    ServerConnection sc = mock(ServerConnection.class);
+    AcceptorImpl.SELECTOR_READ_AHEAD = false;
+    assertTrue(AcceptorImpl.readRequestAhead(sc));
+    verify(sc, never()).readAhead();
+  }
+
+  @Test
+  public void waitsForTheRestOfTheRequestWhenEnabled() throws Exception {
+    ServerConnection sc = mock(ServerConnection.class);
+    AcceptorImpl.SELECTOR_READ_AHEAD = true;
+    when(sc.readAhead()).thenReturn(false, true);
+    assertFalse(AcceptorImpl.readRequestAhead(sc));
+    assertTrue(AcceptorImpl.readRequestAhead(sc));
+  }
+}
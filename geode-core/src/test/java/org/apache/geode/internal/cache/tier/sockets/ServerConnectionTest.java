@@ -39,6 +39,7 @@ import org.mockito.MockitoAnnotations;
 
 import java.net.InetAddress;
 import java.net.Socket;
+import java.nio.ByteBuffer;
 
 @Category(UnitTest.class)
 public class ServerConnectionTest {
@@ -121,4 +122,53 @@ public class ServerConnectionTest {
         .hasMessage(HandShake_NO_SECURITY_CREDENTIALS_ARE_PROVIDED.getRawText());
   }
 
+  @Test
+  public void releasedCommBuffersAreReused() {
+    // a size no other test pools
+    int size = 12345;
+    ByteBuffer released = ServerConnection.allocateDirectCommBuffer(size);
+    released.position(10);
+    ServerConnection.releaseCommBuffer(released);
+
+    ByteBuffer reused = ServerConnection.allocateDirectCommBuffer(size);
+    assertThat(reused).isSameAs(released);
+    assertThat(reused.position()).isEqualTo(0);
+    assertThat(reused.limit()).isEqualTo(size);
+    assertThat(reused.isDirect()).isTrue();
+  }
+
+  @Test
+  public void commBuffersReleasedToAFullPoolAreDropped() {
+    int maxPooled = ServerConnection.MAX_POOLED_COMM_BUFFERS;
+    ServerConnection.MAX_POOLED_COMM_BUFFERS = 2;
+    try {
+      // a size no other test pools, so that its queue is created with the lower bound
+      int size = 12346;
+      ByteBuffer[] released = new ByteBuffer[3];
+      for (int i = 0; i < released.length; i++) {
+        released[i] = ServerConnection.allocateDirectCommBuffer(size);
+      }
+      for (ByteBuffer bb : released) {
+        ServerConnection.releaseCommBuffer(bb);
+      }
+
+      assertThat(ServerConnection.allocateDirectCommBuffer(size)).isSameAs(released[0]);
+      assertThat(ServerConnection.allocateDirectCommBuffer(size)).isSameAs(released[1]);
+      // the third release did not fit in the pool
+      ByteBuffer allocated = ServerConnection.allocateDirectCommBuffer(size);
+      assertThat(allocated).isNotSameAs(released[2]);
+      assertThat(allocated.capacity()).isEqualTo(size);
+    } finally {
+      ServerConnection.MAX_POOLED_COMM_BUFFERS = maxPooled;
+    }
+  }
+
+  @Test
+  public void heapCommBuffersAreNotPooled() {
+    int size = 12347;
+    ByteBuffer heap = ByteBuffer.allocate(size);
+    ServerConnection.releaseCommBuffer(heap);
+    assertThat(ServerConnection.allocateDirectCommBuffer(size)).isNotSameAs(heap);
+  }
+
 }
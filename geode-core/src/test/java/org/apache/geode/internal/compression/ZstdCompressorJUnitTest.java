@@ -0,0 +1,80 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.geode.internal.compression;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import org.apache.geode.compression.CompressionException;
+import org.apache.geode.compression.Compressor;
+import org.apache.geode.compression.ZstdCompressor;
+import org.apache.geode.test.junit.categories.IntegrationTest;
+
+/**
+ * Tests the Zstandard {@link Compressor}.
+ */
+@Category(IntegrationTest.class)
+public class ZstdCompressorJUnitTest {
+
+  @Test
+  public void testCompressByteArray() throws Exception {
+    String compressMe = "Hello, how are you?";
+    byte[] compressMeData = new ZstdCompressor().compress(compressMe.getBytes());
+    String uncompressedMe = new String(new ZstdCompressor(9).decompress(compressMeData));
+
+    assertThat(uncompressedMe).isEqualTo(compressMe);
+  }
+
+  @Test
+  public void testCompressRepetitiveData() throws Exception {
+    byte[] data = new byte[10000];
+    Arrays.fill(data, (byte) 7);
+    Compressor compressor = new ZstdCompressor();
+
+    byte[] compressed = compressor.compress(data);
+
+    assertThat(compressed.length).isLessThan(data.length / 10);
+    assertThat(compressor.decompress(compressed)).isEqualTo(data);
+  }
+
+  @Test
+  public void testCompressEmptyByteArray() throws Exception {
+    Compressor compressor = new ZstdCompressor();
+    assertThat(compressor.decompress(compressor.compress(new byte[0]))).isEmpty();
+  }
+
+  @Test
+  public void testDecompressCorruptData() throws Exception {
+    assertThatThrownBy(() -> new ZstdCompressor().decompress(new byte[] {1, 2, 3, 4, 5, 6}))
+        .isInstanceOf(CompressionException.class);
+  }
+
+  @Test
+  public void testInvalidLevel() throws Exception {
+    assertThatThrownBy(() -> new ZstdCompressor(0)).isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> new ZstdCompressor(ZstdCompressor.MAX_LEVEL + 1))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  @Test
+  public void testEquality() throws Exception {
+    assertThat(new ZstdCompressor()).isEqualTo(new ZstdCompressor(ZstdCompressor.DEFAULT_LEVEL));
+    assertThat(new ZstdCompressor()).isNotEqualTo(new ZstdCompressor(1));
+  }
+}
@@ -0,0 +1,180 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.geode.internal.compression;
+
+import static org.apache.geode.distributed.ConfigurationProperties.*;
+import static org.assertj.core.api.Assertions.*;
+import static org.awaitility.Awaitility.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.lang.SerializationUtils;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import org.apache.geode.cache.Cache;
+import org.apache.geode.cache.CacheFactory;
+import org.apache.geode.cache.Region;
+import org.apache.geode.cache.RegionShortcut;
+import org.apache.geode.compression.CompressionException;
+import org.apache.geode.compression.Compressor;
+import org.apache.geode.compression.ZstdCompressor;
+import org.apache.geode.compression.ZstdDictionaryCompressor;
+import org.apache.geode.internal.cache.CachePerfStats;
+import org.apache.geode.internal.cache.LocalRegion;
+import org.apache.geode.internal.statistics.StatisticsImpl;
+import org.apache.geode.test.junit.categories.IntegrationTest;
+
+/**
+ * Tests the Zstandard {@link Compressor} that trains a dictionary.
+ */
+@Category(IntegrationTest.class)
+public class ZstdDictionaryCompressorJUnitTest {
+
+  private static final int SAMPLE_COUNT = 200;
+
+  private Cache cache;
+
+  @After
+  public void tearDown() throws Exception {
+    if (this.cache != null) {
+      this.cache.close();
+    }
+  }
+
+  private static byte[] createValue(int i) {
+    return ("{\"id\":" + i + ",\"name\":\"customer" + (i % 1000)
+        + "\",\"city\":\"Springfield\",\"status\":\"ACTIVE\",\"balance\":" + (i * 7 % 10000) + "}")
+            .getBytes();
+  }
+
+  private static ZstdDictionaryCompressor createTrainedCompressor() {
+    ZstdDictionaryCompressor compressor =
+        new ZstdDictionaryCompressor(ZstdCompressor.DEFAULT_LEVEL, 1024, SAMPLE_COUNT);
+    for (int i = 0; i < SAMPLE_COUNT; i++) {
+      compressor.compress(createValue(i));
+    }
+    awaitDictionaryVersion(compressor, 1);
+    return compressor;
+  }
+
+  private static void awaitDictionaryVersion(ZstdDictionaryCompressor compressor, int version) {
+    await().atMost(30, TimeUnit.SECONDS)
+        .until(() -> assertThat(compressor.getDictionaryVersion()).isEqualTo(version));
+  }
+
+  @Test
+  public void testCompressByteArrayWithoutDictionary() throws Exception {
+    ZstdDictionaryCompressor compressor = new ZstdDictionaryCompressor();
+    String compressMe = "Hello, how are you?";
+
+    byte[] compressMeData = compressor.compress(compressMe.getBytes());
+
+    assertThat(compressor.getDictionaryVersion()).isZero();
+    assertThat(new String(compressor.decompress(compressMeData))).isEqualTo(compressMe);
+    assertThat(compressor.decompress(compressor.compress(new byte[0]))).isEmpty();
+  }
+
+  @Test
+  public void testSmallValuesCompressBetterWithTrainedDictionary() throws Exception {
+    ZstdDictionaryCompressor compressor = createTrainedCompressor();
+    Compressor plain = new ZstdCompressor();
+
+    long dictionarySize = 0;
+    long plainSize = 0;
+    for (int i = SAMPLE_COUNT; i < SAMPLE_COUNT * 2; i++) {
+      byte[] value = createValue(i);
+      byte[] compressed = compressor.compress(value);
+      assertThat(compressor.decompress(compressed)).isEqualTo(value);
+      dictionarySize += compressed.length;
+      plainSize += plain.compress(value).length;
+    }
+
+    assertThat(dictionarySize).isLessThan(plainSize / 2);
+  }
+
+  @Test
+  public void testValuesCompressedWithOlderDictionaryCanBeDecompressed() throws Exception {
+    ZstdDictionaryCompressor compressor = createTrainedCompressor();
+    List<byte[]> compressedValues = new ArrayList<>();
+    compressedValues.add(compressor.compress(createValue(-1)));
+
+    compressor.retrain();
+    for (int i = 0; i < SAMPLE_COUNT; i++) {
+      compressedValues.add(compressor.compress(createValue(i + 1000)));
+    }
+    awaitDictionaryVersion(compressor, 2);
+    compressedValues.add(compressor.compress(createValue(-2)));
+
+    assertThat(compressor.decompress(compressedValues.get(0))).isEqualTo(createValue(-1));
+    for (int i = 0; i < SAMPLE_COUNT; i++) {
+      assertThat(compressor.decompress(compressedValues.get(i + 1)))
+          .isEqualTo(createValue(i + 1000));
+    }
+    assertThat(compressor.decompress(compressedValues.get(SAMPLE_COUNT + 1)))
+        .isEqualTo(createValue(-2));
+  }
+
+  @Test
+  public void testDecompressWithUnknownDictionaryVersion() throws Exception {
+    byte[] compressed = createTrainedCompressor().compress(createValue(1));
+
+    assertThatThrownBy(() -> new ZstdDictionaryCompressor().decompress(compressed))
+        .isInstanceOf(CompressionException.class);
+  }
+
+  @Test
+  public void testDeserializedCompressorStartsWithoutDictionary() throws Exception {
+    ZstdDictionaryCompressor compressor = createTrainedCompressor();
+
+    ZstdDictionaryCompressor copy =
+        (ZstdDictionaryCompressor) SerializationUtils.clone(compressor);
+
+    assertThat(copy).isEqualTo(compressor);
+    assertThat(copy.getDictionaryVersion()).isZero();
+    assertThat(copy.decompress(copy.compress(createValue(1)))).isEqualTo(createValue(1));
+  }
+
+  @Test
+  public void testRegionStatsReportCompressionRatio() throws Exception {
+    this.cache = new CacheFactory().set(MCAST_PORT, "0").set(LOCATORS, "").create();
+    ZstdDictionaryCompressor compressor =
+        new ZstdDictionaryCompressor(ZstdCompressor.DEFAULT_LEVEL, 1024, SAMPLE_COUNT);
+    Region<Integer, byte[]> region = this.cache.<Integer, byte[]>createRegionFactory(
+        RegionShortcut.LOCAL).setCompressor(compressor).create("compressed");
+
+    for (int i = 0; i < SAMPLE_COUNT; i++) {
+      region.put(i, createValue(i));
+    }
+    awaitDictionaryVersion(compressor, 1);
+    for (int i = SAMPLE_COUNT; i < SAMPLE_COUNT * 2; i++) {
+      region.put(i, createValue(i));
+    }
+
+    assertThat(region.get(SAMPLE_COUNT + 1)).isEqualTo(createValue(SAMPLE_COUNT + 1));
+    CachePerfStats stats = ((LocalRegion) region).getCachePerfStats();
+    assertThat(stats.getTotalCompressions()).isEqualTo(SAMPLE_COUNT * 2);
+    assertThat(stats.getCompressionRatio()).isGreaterThan(1.0);
+    assertThat(stats.getCompressionRatio()).isEqualTo(
+        (double) stats.getTotalPreCompressedBytes() / stats.getTotalPostCompressedBytes());
+    // the ratio is also archived, as a statistic sampled from the compression counters
+    ((StatisticsImpl) stats.getStats()).invokeSuppliers();
+    assertThat(stats.getStats().getDouble("compressionRatio"))
+        .isEqualTo(stats.getCompressionRatio());
+  }
+}
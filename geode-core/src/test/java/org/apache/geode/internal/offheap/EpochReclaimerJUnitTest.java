@@ -0,0 +1,214 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.geode.internal.offheap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import org.apache.geode.internal.cache.CachedDeserializable;
+import org.apache.geode.internal.cache.OffHeapRegionEntry;
+import org.apache.geode.test.junit.categories.UnitTest;
+
+@Category(UnitTest.class)
+public class EpochReclaimerJUnitTest {
+
+  private MemoryAllocatorImpl ma;
+  private EpochReclaimer epochReclaimer;
+
+  @Before
+  public void setUp() {
+    System.setProperty(FreeListManager.EPOCH_READS_PROPERTY, "true");
+    try {
+      this.ma = (MemoryAllocatorImpl) MemoryAllocatorImpl.create(
+          mock(OutOfOffHeapMemoryListener.class), new NullOffHeapMemoryStats(), 1, 1024 * 1024,
+          1024 * 1024);
+    } finally {
+      System.clearProperty(FreeListManager.EPOCH_READS_PROPERTY);
+    }
+    this.epochReclaimer = this.ma.getFreeListManager().getEpochReclaimer();
+  }
+
+  @After
+  public void tearDown() {
+    MemoryAllocatorImpl.freeOffHeapMemory();
+  }
+
+  private OffHeapStoredObject allocate(byte fill, boolean isSerialized) {
+    return allocate(fill, isSerialized, 100);
+  }
+
+  private OffHeapStoredObject allocate(byte fill, boolean isSerialized, int size) {
+    byte[] data = new byte[size];
+    Arrays.fill(data, fill);
+    return (OffHeapStoredObject) this.ma.allocateAndInitialize(data, isSerialized, false);
+  }
+
+  @Test
+  public void epochReclaimerIsOnlyCreatedWhenConfigured() {
+    assertThat(this.epochReclaimer).isNotNull();
+    MemoryAllocatorImpl.freeOffHeapMemory();
+    this.ma = (MemoryAllocatorImpl) MemoryAllocatorImpl.create(
+        mock(OutOfOffHeapMemoryListener.class), new NullOffHeapMemoryStats(), 1, 1024 * 1024,
+        1024 * 1024);
+
+    assertThat(this.ma.getFreeListManager().getEpochReclaimer()).isNull();
+  }
+
+  @Test
+  public void releasedMemoryIsFreedOneBatchAtATime() {
+    OffHeapStoredObject[] objects = new OffHeapStoredObject[EpochReclaimer.BATCH_SIZE];
+    for (int i = 0; i < objects.length; i++) {
+      objects[i] = allocate((byte) i, false);
+    }
+
+    for (int i = 0; i < objects.length - 1; i++) {
+      objects[i].release();
+    }
+    assertThat(this.ma.getUsedMemory()).isEqualTo(objects[0].getSize());
+    assertThat(this.epochReclaimer.getRetiredCount()).isEqualTo(objects.length - 1);
+    assertThat(this.ma.getFreeListManager().getFreeTinyMemory()).isZero();
+
+    objects[objects.length - 1].release();
+    assertThat(this.ma.getUsedMemory()).isZero();
+    assertThat(this.epochReclaimer.getRetiredCount()).isZero();
+    assertThat(this.ma.getFreeListManager().getFreeTinyMemory())
+        .isEqualTo(objects.length * objects[0].getSize());
+  }
+
+  @Test
+  public void memoryIsNotFreedWhileAReaderMightSeeIt() throws Exception {
+    OffHeapStoredObject object = allocate((byte) 1, false);
+    this.epochReclaimer.enter();
+    try {
+      object.release();
+      Thread flusher = new Thread(() -> this.epochReclaimer.flush());
+      flusher.start();
+      flusher.join();
+      assertThat(this.epochReclaimer.getRetiredCount()).isEqualTo(1);
+      assertThat(this.ma.getFreeListManager().getFreeTinyMemory()).isZero();
+    } finally {
+      this.epochReclaimer.exit();
+    }
+
+    this.epochReclaimer.flush();
+    assertThat(this.epochReclaimer.getRetiredCount()).isZero();
+    assertThat(this.ma.getFreeListManager().getFreeTinyMemory()).isEqualTo(object.getSize());
+  }
+
+  @Test
+  public void defragmentationWaitsForReaders() throws Exception {
+    OffHeapStoredObject object = allocate((byte) 1, false);
+    this.epochReclaimer.enter();
+    object.release();
+    Thread defragmenter = new Thread(() -> this.ma.getFreeListManager().defragment(1024 * 1024));
+    defragmenter.start();
+    defragmenter.join(200);
+    assertThat(defragmenter.isAlive()).isTrue();
+
+    this.epochReclaimer.exit();
+    defragmenter.join();
+
+    assertThat(this.epochReclaimer.getRetiredCount()).isZero();
+    assertThat(this.ma.getFreeListManager().getFragmentList()).hasSize(1);
+  }
+
+  @Test
+  public void readersThatEnterLaterDoNotDelayFree() {
+    OffHeapStoredObject object = allocate((byte) 1, false);
+    object.release();
+    this.epochReclaimer.flush();
+
+    this.epochReclaimer.enter();
+    try {
+      OffHeapStoredObject other = allocate((byte) 2, false);
+      other.release();
+      this.epochReclaimer.flush();
+      // other was released in the epoch this thread is reading in
+      assertThat(this.epochReclaimer.getRetiredCount()).isEqualTo(1);
+    } finally {
+      this.epochReclaimer.exit();
+    }
+  }
+
+  @Test
+  public void copyWithoutRetainCopiesValueAndLeavesRefCountAlone() {
+    OffHeapStoredObject serialized = allocate((byte) 3, true);
+    OffHeapStoredObject bytes = allocate((byte) 4, false);
+
+    Object serializedCopy = OffHeapStoredObject.copyWithoutRetain(serialized.getAddress());
+    Object bytesCopy = OffHeapStoredObject.copyWithoutRetain(bytes.getAddress());
+
+    assertThat(serializedCopy).isInstanceOf(CachedDeserializable.class);
+    assertThat(((CachedDeserializable) serializedCopy).getSerializedValue())
+        .isEqualTo(serialized.getSerializedValue());
+    assertThat(bytesCopy).isEqualTo(bytes.getRawBytes());
+    assertThat(serialized.getRefCount()).isEqualTo(1);
+    assertThat(bytes.getRefCount()).isEqualTo(1);
+
+    bytes.release();
+    assertThat(OffHeapStoredObject.copyWithoutRetain(bytes.getAddress())).isNull();
+  }
+
+  @Test
+  public void readersNeverSeeReusedMemory() throws Exception {
+    final AtomicLong address = new AtomicLong(allocate((byte) 0, false, 4096).getAddress());
+    final OffHeapRegionEntry re = mock(OffHeapRegionEntry.class, withSettings().stubOnly());
+    when(re.getAddress()).thenAnswer(invocation -> address.get());
+    final AtomicBoolean done = new AtomicBoolean();
+    final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+    Thread[] readers = new Thread[4];
+    for (int i = 0; i < readers.length; i++) {
+      readers[i] = new Thread(() -> {
+        try {
+          while (!done.get()) {
+            byte[] copy = (byte[]) OffHeapRegionEntryHelper.getValueCopyWithoutRetain(re);
+            if (copy != null) {
+              for (byte b : copy) {
+                if (b != copy[0]) {
+                  throw new AssertionError("read a value that was overwritten");
+                }
+              }
+            }
+          }
+        } catch (Throwable t) {
+          failure.compareAndSet(null, t);
+        }
+      });
+      readers[i].start();
+    }
+
+    for (int i = 1; i < 20000; i++) {
+      long old = address.getAndSet(allocate((byte) i, false, 4096).getAddress());
+      OffHeapStoredObject.release(old);
+    }
+    done.set(true);
+    for (Thread reader : readers) {
+      reader.join();
+    }
+
+    assertThat(failure.get()).isNull();
+  }
+}
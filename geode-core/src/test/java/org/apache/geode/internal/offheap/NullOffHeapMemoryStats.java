@@ -14,6 +14,9 @@
  */
 package org.apache.geode.internal.offheap;
 
+import java.util.function.IntSupplier;
+import java.util.function.LongSupplier;
+
 import org.apache.geode.Statistics;
 
 /**
@@ -123,6 +126,10 @@ public class NullOffHeapMemoryStats implements OffHeapMemoryStats {
     stats.close();
   }
 
+  @Override
+  public void addSizeClassStats(int sizeClassSize, LongSupplier liveChunks,
+      LongSupplier freeMemory, IntSupplier fragmentation) {}
+
   public boolean isClosed() {
     return this.isClosed;
   }
@@ -0,0 +1,241 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.geode.internal.offheap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+import java.util.Random;
+import java.util.function.IntSupplier;
+import java.util.function.LongSupplier;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.mockito.ArgumentCaptor;
+
+import org.apache.geode.test.junit.categories.UnitTest;
+
+@Category(UnitTest.class)
+public class SizeClassFreeListManagerTest {
+
+  private final int DEFAULT_SLAB_SIZE = 1024 * 1024 * 5;
+  private final MemoryAllocatorImpl ma = mock(MemoryAllocatorImpl.class);
+  private final OffHeapMemoryStats stats = mock(OffHeapMemoryStats.class);
+  private FreeListManager freeListManager;
+
+  @Before
+  public void setUp() throws Exception {
+    when(ma.getStats()).thenReturn(stats);
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    if (this.freeListManager != null) {
+      this.freeListManager.freeSlabs();
+    }
+  }
+
+  private SizeClassFreeListManager setUpSingleSlabManager(int arenaCount) {
+    return setUpSingleSlabManager(arenaCount, DEFAULT_SLAB_SIZE);
+  }
+
+  private SizeClassFreeListManager setUpSingleSlabManager(int arenaCount, int slabSize) {
+    SizeClassFreeListManager result =
+        new SizeClassFreeListManager(ma, new Slab[] {new SlabImpl(slabSize)}, arenaCount);
+    this.freeListManager = result;
+    return result;
+  }
+
+  @Test
+  public void sizeClassesAreAlignedAndCloseEnoughForTheDataSizeDelta() {
+    int count = SizeClassFreeListManager.getSizeClassCount();
+    assertThat(SizeClassFreeListManager.getSizeClassSize(0))
+        .isGreaterThanOrEqualTo(OffHeapStoredObject.MIN_CHUNK_SIZE);
+    assertThat(SizeClassFreeListManager.getSizeClassSize(count - 1))
+        .isEqualTo(FreeListManager.MAX_TINY);
+    for (int i = 1; i < count; i++) {
+      int size = SizeClassFreeListManager.getSizeClassSize(i);
+      int spacing = size - SizeClassFreeListManager.getSizeClassSize(i - 1);
+      assertThat(size % FreeListManager.TINY_MULTIPLE).isZero();
+      assertThat(spacing).isPositive()
+          .isLessThanOrEqualTo(SizeClassFreeListManager.MAX_SIZE_CLASS_SPACING);
+    }
+    assertThat(count).isLessThan(FreeListManager.TINY_FREE_LIST_COUNT / 8);
+  }
+
+  @Test
+  public void sizeClassLookups() {
+    int size = SizeClassFreeListManager.getSizeClassSize(20);
+
+    assertThat(SizeClassFreeListManager.getSizeClass(size)).isEqualTo(20);
+    assertThat(SizeClassFreeListManager.getSizeClass(size - 1)).isEqualTo(20);
+    assertThat(SizeClassFreeListManager.getSizeClass(size + 1)).isEqualTo(21);
+    assertThat(SizeClassFreeListManager.getFloorSizeClass(size)).isEqualTo(20);
+    assertThat(SizeClassFreeListManager.getFloorSizeClass(size + 1)).isEqualTo(20);
+    assertThat(SizeClassFreeListManager.getFloorSizeClass(size - 1)).isEqualTo(19);
+  }
+
+  @Test
+  public void freedChunkIsReusedForDifferentSizeInSameClass() {
+    setUpSingleSlabManager(1);
+    int sizeClass = SizeClassFreeListManager.getSizeClass(1000 + OffHeapStoredObject.HEADER_SIZE);
+    int classSize = SizeClassFreeListManager.getSizeClassSize(sizeClass);
+    int smallerDataSize = SizeClassFreeListManager.getSizeClassSize(sizeClass - 1)
+        - OffHeapStoredObject.HEADER_SIZE + 1;
+
+    OffHeapStoredObject c = this.freeListManager.allocate(1000);
+    long addr = c.getAddress();
+    assertThat(c.getSize()).isEqualTo(classSize);
+    OffHeapStoredObject.release(addr, this.freeListManager);
+
+    c = this.freeListManager.allocate(smallerDataSize);
+
+    assertThat(c.getAddress()).isEqualTo(addr);
+    assertThat(c.getSize()).isEqualTo(classSize);
+    assertThat(c.getDataSize()).isEqualTo(smallerDataSize);
+  }
+
+  @Test
+  public void chunkFreedByAnotherThreadIsReused() throws Exception {
+    setUpSingleSlabManager(4);
+    final OffHeapStoredObject c = this.freeListManager.allocate(100);
+    // find a thread that uses a different arena than this one
+    Thread freeingThread = new Thread(() -> OffHeapStoredObject.release(c.getAddress(),
+        this.freeListManager));
+    while (freeingThread.getId() % 4 == Thread.currentThread().getId() % 4) {
+      freeingThread = new Thread(() -> OffHeapStoredObject.release(c.getAddress(),
+          this.freeListManager));
+    }
+    freeingThread.start();
+    freeingThread.join();
+
+    assertThat(this.freeListManager.allocate(100).getAddress()).isEqualTo(c.getAddress());
+  }
+
+  @Test
+  public void tracksLiveChunksAndFragmentationPerSizeClass() {
+    SizeClassFreeListManager manager = setUpSingleSlabManager(1);
+    int sizeClass = SizeClassFreeListManager.getSizeClass(1000 + OffHeapStoredObject.HEADER_SIZE);
+    int classSize = SizeClassFreeListManager.getSizeClassSize(sizeClass);
+
+    OffHeapStoredObject c1 = manager.allocate(classSize - OffHeapStoredObject.HEADER_SIZE);
+    OffHeapStoredObject c2 = manager.allocate(classSize - OffHeapStoredObject.HEADER_SIZE);
+    assertThat(manager.getSizeClassLiveChunks(sizeClass)).isEqualTo(2);
+    assertThat(manager.getSizeClassFragmentation(sizeClass)).isZero();
+
+    OffHeapStoredObject.release(c1.getAddress(), manager);
+    assertThat(manager.getSizeClassLiveChunks(sizeClass)).isEqualTo(1);
+    assertThat(manager.getSizeClassFreeMemory(sizeClass)).isEqualTo(classSize);
+    assertThat(manager.getFreeTinyMemory()).isEqualTo(classSize);
+
+    manager.allocate(classSize - 100 - OffHeapStoredObject.HEADER_SIZE);
+    assertThat(manager.getSizeClassLiveChunks(sizeClass)).isEqualTo(2);
+    assertThat(manager.getSizeClassFreeMemory(sizeClass)).isZero();
+    assertThat(manager.getSizeClassFragmentation(sizeClass)).isEqualTo(5);
+  }
+
+  @Test
+  public void fragmentationOnlyCountsChunksThatAreStillAllocated() {
+    SizeClassFreeListManager manager = setUpSingleSlabManager(1);
+    int sizeClass = SizeClassFreeListManager.getSizeClass(1000 + OffHeapStoredObject.HEADER_SIZE);
+    int classSize = SizeClassFreeListManager.getSizeClassSize(sizeClass);
+
+    OffHeapStoredObject exact = manager.allocate(classSize - OffHeapStoredObject.HEADER_SIZE);
+    OffHeapStoredObject rounded =
+        manager.allocate(classSize - 100 - OffHeapStoredObject.HEADER_SIZE);
+    // 100 of the 2 * 1024 bytes of the class were not requested
+    assertThat(classSize).isEqualTo(1024);
+    assertThat(manager.getSizeClassFragmentation(sizeClass)).isEqualTo(5);
+
+    OffHeapStoredObject.release(rounded.getAddress(), manager);
+    assertThat(manager.getSizeClassFragmentation(sizeClass)).isZero();
+
+    OffHeapStoredObject.release(exact.getAddress(), manager);
+    assertThat(manager.getSizeClassLiveChunks(sizeClass)).isZero();
+    assertThat(manager.getSizeClassFragmentation(sizeClass)).isZero();
+  }
+
+  @Test
+  public void addsStatsForEverySizeClass() {
+    SizeClassFreeListManager manager = setUpSingleSlabManager(1);
+    int sizeClass = SizeClassFreeListManager.getSizeClass(1000 + OffHeapStoredObject.HEADER_SIZE);
+    int classSize = SizeClassFreeListManager.getSizeClassSize(sizeClass);
+    ArgumentCaptor<LongSupplier> liveChunks = ArgumentCaptor.forClass(LongSupplier.class);
+    ArgumentCaptor<LongSupplier> freeMemory = ArgumentCaptor.forClass(LongSupplier.class);
+    ArgumentCaptor<IntSupplier> fragmentation = ArgumentCaptor.forClass(IntSupplier.class);
+
+    manager.addStats(stats);
+
+    verify(stats, times(SizeClassFreeListManager.getSizeClassCount())).addSizeClassStats(
+        anyInt(), any(LongSupplier.class), any(LongSupplier.class), any(IntSupplier.class));
+    verify(stats).addSizeClassStats(eq(classSize), liveChunks.capture(), freeMemory.capture(),
+        fragmentation.capture());
+
+    OffHeapStoredObject c1 = manager.allocate(classSize - 100 - OffHeapStoredObject.HEADER_SIZE);
+    manager.allocate(classSize - OffHeapStoredObject.HEADER_SIZE);
+    OffHeapStoredObject.release(c1.getAddress(), manager);
+    assertThat(liveChunks.getValue().getAsLong()).isEqualTo(1);
+    assertThat(freeMemory.getValue().getAsLong()).isEqualTo(classSize);
+    assertThat(fragmentation.getValue().getAsInt()).isZero();
+  }
+
+  @Test
+  public void defragmentationCollectsChunksFromAllArenas() {
+    SizeClassFreeListManager manager = setUpSingleSlabManager(2);
+    OffHeapStoredObject c = manager.allocate(100);
+    OffHeapStoredObject.release(c.getAddress(), manager);
+    assertThat(manager.getFreeTinyMemory()).isEqualTo(c.getSize());
+
+    assertThat(manager.doDefragment(DEFAULT_SLAB_SIZE)).isTrue();
+
+    assertThat(manager.getFreeTinyMemory()).isZero();
+    assertThat(manager.getFragmentList()).hasSize(1);
+    assertThat(manager.getFreeMemory()).isEqualTo(DEFAULT_SLAB_SIZE);
+  }
+
+  @Test
+  public void variableSizeChurnDoesNotDefragment() {
+    // a FreeListManager defragments several times with this workload and slab size
+    setUpSingleSlabManager(1, 1024 * 1024 * 3);
+    Random random = new Random(0);
+    OffHeapStoredObject[] live = new OffHeapStoredObject[500];
+
+    for (int i = 0; i < 20000; i++) {
+      int idx = random.nextInt(live.length);
+      if (live[idx] != null) {
+        OffHeapStoredObject.release(live[idx].getAddress(), this.freeListManager);
+      }
+      int dataSize = 100 + random.nextInt(4000);
+      live[idx] = this.freeListManager.allocate(dataSize);
+      assertThat(live[idx].getDataSize()).isEqualTo(dataSize);
+    }
+
+    verify(stats, never()).startDefragmentation();
+  }
+
+  @Test
+  public void offHeapStorageCreatesSizeClassManagerWhenConfigured() {
+    Slab[] slabs = new Slab[] {new SlabImpl(DEFAULT_SLAB_SIZE)};
+    System.setProperty(OffHeapStorage.SIZE_CLASS_ALLOCATOR_PROPERTY, "true");
+    try {
+      this.freeListManager = OffHeapStorage.createFreeListManager(ma, slabs);
+    } finally {
+      System.clearProperty(OffHeapStorage.SIZE_CLASS_ALLOCATOR_PROPERTY);
+    }
+    assertThat(this.freeListManager).isInstanceOf(SizeClassFreeListManager.class);
+  }
+}
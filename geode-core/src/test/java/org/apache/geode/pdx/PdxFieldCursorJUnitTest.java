@@ -0,0 +1,112 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.geode.pdx;
+
+import static org.apache.geode.distributed.ConfigurationProperties.MCAST_PORT;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Arrays;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import org.apache.geode.cache.CacheFactory;
+import org.apache.geode.internal.cache.GemFireCacheImpl;
+import org.apache.geode.internal.offheap.AddressableMemoryManager;
+import org.apache.geode.internal.offheap.SlabImpl;
+import org.apache.geode.internal.util.BlobHelper;
+import org.apache.geode.pdx.internal.PdxFieldCursor;
+import org.apache.geode.pdx.internal.PdxType;
+import org.apache.geode.test.junit.categories.IntegrationTest;
+
+@Category(IntegrationTest.class)
+public class PdxFieldCursorJUnitTest {
+
+  private GemFireCacheImpl cache;
+  private PdxFieldCursor cursor;
+
+  @Before
+  public void setUp() {
+    this.cache = (GemFireCacheImpl) new CacheFactory().set(MCAST_PORT, "0").create();
+    this.cursor = new PdxFieldCursor(this.cache.getPdxRegistry());
+  }
+
+  @After
+  public void tearDown() {
+    this.cache.close();
+  }
+
+  private byte[] serialize(boolean withStrings) throws Exception {
+    PdxInstanceFactory factory = this.cache.createPdxInstanceFactory("FieldCursor" + withStrings);
+    if (withStrings) {
+      factory.writeString("first", "a string before the primitives");
+    }
+    factory.writeBoolean("bool", true).writeByte("byte", (byte) -3).writeChar("char", 'x')
+        .writeShort("short", (short) -300).writeInt("int", 123456789)
+        .writeLong("long", -1234567890123L).writeFloat("float", 1.5f)
+        .writeDouble("double", -2.25d);
+    if (withStrings) {
+      factory.writeString("last", "a string after the primitives");
+    }
+    return BlobHelper.serializeToBlob(factory.create());
+  }
+
+  private void checkFields() {
+    PdxType type = this.cursor.getPdxType();
+    assertThat(this.cursor.readBoolean(type.getPdxField("bool"))).isTrue();
+    assertThat(this.cursor.readByte(type.getPdxField("byte"))).isEqualTo((byte) -3);
+    assertThat(this.cursor.readChar(type.getPdxField("char"))).isEqualTo('x');
+    assertThat(this.cursor.readShort(type.getPdxField("short"))).isEqualTo((short) -300);
+    assertThat(this.cursor.readInt(type.getPdxField("int"))).isEqualTo(123456789);
+    assertThat(this.cursor.readLong(type.getPdxField("long"))).isEqualTo(-1234567890123L);
+    assertThat(this.cursor.readFloat(type.getPdxField("float"))).isEqualTo(1.5f);
+    assertThat(this.cursor.readDouble(type.getPdxField("double"))).isEqualTo(-2.25d);
+  }
+
+  @Test
+  public void readsFieldsOfSerializedPdx() throws Exception {
+    for (boolean withStrings : new boolean[] {false, true}) {
+      assertThat(this.cursor.reset(serialize(withStrings))).isTrue();
+      assertThat(this.cursor.getPdxType().getClassName()).isEqualTo("FieldCursor" + withStrings);
+      checkFields();
+    }
+  }
+
+  @Test
+  public void readsFieldsOfOffHeapPdx() throws Exception {
+    byte[] bytes = serialize(true);
+    SlabImpl slab = new SlabImpl(bytes.length);
+    try {
+      AddressableMemoryManager.writeBytes(slab.getMemoryAddress(), bytes, 0, bytes.length);
+      assertThat(this.cursor.reset(slab.getMemoryAddress(), bytes.length)).isTrue();
+      checkFields();
+    } finally {
+      slab.free();
+    }
+  }
+
+  @Test
+  public void resetFailsForValuesThatAreNotPdx() throws Exception {
+    assertThat(this.cursor.reset(serialize(false))).isTrue();
+
+    assertThat(this.cursor.reset(BlobHelper.serializeToBlob("not a pdx"))).isFalse();
+    assertThat(this.cursor.getPdxType()).isNull();
+    byte[] truncated = serialize(false);
+    assertThat(this.cursor.reset(Arrays.copyOf(truncated, truncated.length - 1)))
+        .isFalse();
+  }
+}